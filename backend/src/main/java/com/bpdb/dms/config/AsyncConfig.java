@@ -1,7 +1,12 @@
 package com.bpdb.dms.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,12 +14,21 @@ import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Configuration for async task execution
- * Provides thread pool configuration for @Async methods
+ * Provides thread pool configuration for @Async methods. Each subsystem has its own
+ * bulkhead, selected with @Async("name"): taskExecutor (default, general work),
+ * ocrExecutor (CPU-bound OCR), bulkOcrExecutor (bulk re-OCR), and virtual-thread
+ * webhookExecutor, notificationExecutor and ioExecutor for blocking I/O.
  */
 @Configuration
 @EnableAsync
@@ -34,6 +48,10 @@ public class AsyncConfig implements AsyncConfigurer {
     @Value("${spring.task.execution.thread-name-prefix:async-}")
     private String threadNamePrefix;
     
+    private final LoadSheddingPolicy taskExecutorShedding = new LoadSheddingPolicy("taskExecutor");
+    
+    private final LoadSheddingPolicy ocrExecutorShedding = new LoadSheddingPolicy("ocrExecutor");
+    
     @Bean(name = "taskExecutor")
     @Override
     public Executor getAsyncExecutor() {
@@ -45,7 +63,8 @@ public class AsyncConfig implements AsyncConfigurer {
         executor.setThreadNamePrefix(threadNamePrefix);
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(60);
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // Shed instead of CallerRuns, which would run async work on servlet request threads
+        executor.setRejectedExecutionHandler(taskExecutorShedding);
         executor.initialize();
         
         logger.info("Async task executor configured: coreSize={}, maxSize={}, queueCapacity={}, threadNamePrefix={}", 
@@ -53,5 +72,144 @@ public class AsyncConfig implements AsyncConfigurer {
         
         return executor;
     }
+    
+    /**
+     * Low-priority lane for bulk OCR reprocessing: one coordinator thread plus a fixed
+     * number of workers, so a corpus-wide re-OCR never competes with the interactive pool
+     */
+    @Bean(name = "bulkOcrExecutor")
+    public ThreadPoolTaskExecutor bulkOcrExecutor(@Value("${app.ocr.bulk.concurrency:2}") int concurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        
+        executor.setCorePoolSize(concurrency + 1);
+        executor.setMaxPoolSize(concurrency + 1);
+        executor.setQueueCapacity(concurrency);
+        executor.setThreadNamePrefix("bulk-ocr-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        
+        logger.info("Bulk OCR executor configured: workers={}", concurrency);
+        
+        return executor;
+    }
+    
+    /**
+     * CPU-bound lane for OCR and page rendering, sized to the cores so OCR bursts cannot
+     * oversubscribe the CPU and never share threads with I/O-bound work
+     */
+    @Bean(name = "ocrExecutor")
+    public ThreadPoolTaskExecutor ocrExecutor(
+            @Value("${app.async.ocr.pool-size:0}") int poolSize,
+            @Value("${app.async.ocr.queue-capacity:50}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ocr-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.setRejectedExecutionHandler(ocrExecutorShedding);
+        executor.initialize();
+        
+        logger.info("OCR executor configured: poolSize={}, queueCapacity={}", threads, queueCapacity);
+        
+        return executor;
+    }
+    
+    /**
+     * Webhook delivery on virtual threads; slow receivers only park virtual threads
+     */
+    @Bean(name = "webhookExecutor")
+    public VirtualThreadBulkhead webhookExecutor(
+            @Value("${app.async.webhook.max-concurrency:100}") int maxConcurrency,
+            @Value("${app.async.webhook.queue-capacity:500}") int queueCapacity) {
+        logger.info("Webhook executor configured: virtual threads, maxConcurrency={}, queueCapacity={}",
+                maxConcurrency, queueCapacity);
+        return new VirtualThreadBulkhead("webhookExecutor", maxConcurrency, queueCapacity);
+    }
+    
+    /**
+     * Email/SMS notification delivery on virtual threads
+     */
+    @Bean(name = "notificationExecutor")
+    public VirtualThreadBulkhead notificationExecutor(
+            @Value("${app.async.notification.max-concurrency:50}") int maxConcurrency,
+            @Value("${app.async.notification.queue-capacity:500}") int queueCapacity) {
+        logger.info("Notification executor configured: virtual threads, maxConcurrency={}, queueCapacity={}",
+                maxConcurrency, queueCapacity);
+        return new VirtualThreadBulkhead("notificationExecutor", maxConcurrency, queueCapacity);
+    }
+    
+    /**
+     * Other blocking I/O (health probes, integration syncs, Elasticsearch) on virtual threads
+     */
+    @Bean(name = "ioExecutor")
+    public VirtualThreadBulkhead ioExecutor(
+            @Value("${app.async.io.max-concurrency:100}") int maxConcurrency,
+            @Value("${app.async.io.queue-capacity:500}") int queueCapacity) {
+        logger.info("I/O executor configured: virtual threads, maxConcurrency={}, queueCapacity={}",
+                maxConcurrency, queueCapacity);
+        return new VirtualThreadBulkhead("ioExecutor", maxConcurrency, queueCapacity);
+    }
+    
+    /**
+     * Queue depth, active threads and shed tasks of each executor, exported to Prometheus
+     * as executor_* (tag name) and dms_executor_rejected_total (tag executor)
+     */
+    @Bean
+    public MeterBinder executorMetrics(@Qualifier("taskExecutor") Executor taskExecutor,
+                                       @Qualifier("ocrExecutor") ThreadPoolTaskExecutor ocrExecutor,
+                                       @Qualifier("bulkOcrExecutor") ThreadPoolTaskExecutor bulkOcrExecutor,
+                                       List<VirtualThreadBulkhead> bulkheads) {
+        return registry -> {
+            Map<String, ThreadPoolTaskExecutor> executors = new LinkedHashMap<>();
+            if (taskExecutor instanceof ThreadPoolTaskExecutor pool) {
+                executors.put("taskExecutor", pool);
+            }
+            executors.put("ocrExecutor", ocrExecutor);
+            executors.put("bulkOcrExecutor", bulkOcrExecutor);
+            executors.forEach((name, executor) ->
+                new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name, Tags.empty()).bindTo(registry));
+            bulkheads.forEach(bulkhead -> bulkhead.bindTo(registry));
+            
+            for (LoadSheddingPolicy policy : List.of(taskExecutorShedding, ocrExecutorShedding)) {
+                FunctionCounter.builder("dms.executor.rejected", policy, LoadSheddingPolicy::getRejected)
+                    .description("Tasks shed because the executor queue was full")
+                    .tag("executor", policy.executorName)
+                    .register(registry);
+            }
+        };
+    }
+    
+    /**
+     * Rejects (fails fast) when the queue is full and counts it, instead of running the
+     * task on the submitting thread
+     */
+    static final class LoadSheddingPolicy implements RejectedExecutionHandler {
+        
+        private final String executorName;
+        private final AtomicLong rejected = new AtomicLong();
+        
+        LoadSheddingPolicy(String executorName) {
+            this.executorName = executorName;
+        }
+        
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            long count = rejected.incrementAndGet();
+            if (count == 1 || count % 100 == 0) {
+                logger.warn("{} saturated (queue {}/{}), shedding tasks; {} shed so far", executorName,
+                    executor.getQueue().size(), executor.getQueue().size() + executor.getQueue().remainingCapacity(), count);
+            }
+            throw new RejectedExecutionException(executorName + " is saturated");
+        }
+        
+        double getRejected() {
+            return rejected.get();
+        }
+    }
 }
 
@@ -1,6 +1,7 @@
 package com.bpdb.dms.config;
 
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
@@ -14,12 +15,15 @@ import java.time.Duration;
 public class CacheConfig {
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                          @Value("${app.search.similar.cache-ttl-hours:6}") long similarDocumentsTtlHours) {
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
             .entryTtl(Duration.ofMinutes(10))
             .disableCachingNullValues();
+        // Similar-document keys include the source's index timestamp, so entries can live much longer
         return RedisCacheManager.builder(connectionFactory)
             .cacheDefaults(defaultConfig)
+            .withCacheConfiguration("similarDocuments", defaultConfig.entryTtl(Duration.ofHours(similarDocumentsTtlHours)))
             .build();
     }
 }
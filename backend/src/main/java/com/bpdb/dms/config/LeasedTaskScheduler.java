@@ -0,0 +1,119 @@
+package com.bpdb.dms.config;
+
+import com.bpdb.dms.service.SchedulerLeaseService;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * TaskScheduler that runs each {@code @Scheduled} method under a cluster-wide lease,
+ * so the job runs on one node per firing however many nodes are up. Lease name, ttl
+ * and minimum hold come from {@link ScheduledJobLease} or the defaults.
+ * Other tasks are passed through unchanged.
+ */
+public class LeasedTaskScheduler implements TaskScheduler {
+
+    private final TaskScheduler delegate;
+
+    private final SchedulerLeaseService leaseService;
+
+    private final Duration defaultTtl;
+
+    private final Duration defaultHold;
+
+    public LeasedTaskScheduler(TaskScheduler delegate, SchedulerLeaseService leaseService,
+                               Duration defaultTtl, Duration defaultHold) {
+        this.delegate = delegate;
+        this.leaseService = leaseService;
+        this.defaultTtl = defaultTtl;
+        this.defaultHold = defaultHold;
+    }
+
+    @Override
+    public Clock getClock() {
+        return delegate.getClock();
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+        return delegate.schedule(leased(task), trigger);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Instant startTime) {
+        return delegate.schedule(leased(task), startTime);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Instant startTime, Duration period) {
+        return delegate.scheduleAtFixedRate(leased(task), startTime, period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Duration period) {
+        return delegate.scheduleAtFixedRate(leased(task), period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Instant startTime, Duration delay) {
+        return delegate.scheduleWithFixedDelay(leased(task), startTime, delay);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Duration delay) {
+        return delegate.scheduleWithFixedDelay(leased(task), delay);
+    }
+
+    private Runnable leased(Runnable task) {
+        if (!(task instanceof ScheduledMethodRunnable scheduled)) {
+            return task;
+        }
+        Method method = scheduled.getMethod();
+        ScheduledJobLease settings = AnnotatedElementUtils.findMergedAnnotation(method, ScheduledJobLease.class);
+        Scheduled schedule = AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class);
+
+        String name = settings != null && !settings.name().isEmpty() ? settings.name()
+            : ClassUtils.getUserClass(scheduled.getTarget()).getSimpleName() + "." + method.getName();
+        Duration hold = settings != null && !settings.holdAtLeast().isEmpty()
+            ? Duration.parse(settings.holdAtLeast()) : defaultHold(schedule, defaultHold);
+        Duration ttl = settings != null && !settings.ttl().isEmpty() ? Duration.parse(settings.ttl()) : defaultTtl;
+        if (ttl.compareTo(hold) < 0) {
+            ttl = hold;
+        }
+        Duration leaseTtl = ttl;
+        return new Runnable() {
+            @Override
+            public void run() {
+                leaseService.runExclusively(name, leaseTtl, hold, task);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    /**
+     * 80% of a fixed rate or delay, so the node that ran last keeps the job until just
+     * before its next firing; cron and other triggers use the configured default
+     */
+    static Duration defaultHold(Scheduled schedule, Duration fallback) {
+        if (schedule != null) {
+            long interval = schedule.fixedRate() > 0 ? schedule.fixedRate() : schedule.fixedDelay();
+            if (interval > 0) {
+                return Duration.ofMillis(schedule.timeUnit().toMillis(interval) * 8 / 10);
+            }
+        }
+        return fallback;
+    }
+}
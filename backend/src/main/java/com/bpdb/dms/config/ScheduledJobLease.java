@@ -0,0 +1,36 @@
+package com.bpdb.dms.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lease settings of a {@code @Scheduled} method. Every scheduled method runs under a
+ * cluster-wide lease (see {@link LeasedTaskScheduler}); this annotation only overrides
+ * the defaults. Durations are ISO-8601, e.g. "PT2H".
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ScheduledJobLease {
+
+    /**
+     * Job name in scheduler_leases; defaults to SimpleClassName.methodName
+     */
+    String name() default "";
+
+    /**
+     * Longest a run may hold the lease before another node may take over;
+     * defaults to app.scheduler.default-lease-ttl
+     */
+    String ttl() default "";
+
+    /**
+     * Shortest time the lease stays taken after a run starts, so nodes firing slightly
+     * later do not repeat the run; defaults to 80% of a fixed rate or delay, otherwise
+     * app.scheduler.default-hold
+     */
+    String holdAtLeast() default "";
+}
@@ -0,0 +1,60 @@
+package com.bpdb.dms.config;
+
+import com.bpdb.dms.service.SchedulerLeaseService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.time.Duration;
+
+/**
+ * Configuration for @Scheduled jobs
+ * Jobs run on their own scheduler pool, each under a cluster-wide lease
+ * (see {@link LeasedTaskScheduler}), so scaling out does not multiply them.
+ * Set app.scheduler.enabled=false to run no scheduled jobs on a node.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "app.scheduler.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulingConfig.class);
+
+    @Autowired
+    private SchedulerLeaseService schedulerLeaseService;
+
+    @Value("${app.scheduler.pool-size:4}")
+    private int poolSize;
+
+    @Value("${app.scheduler.default-lease-ttl:PT10M}")
+    private Duration defaultLeaseTtl;
+
+    @Value("${app.scheduler.default-hold:PT1M}")
+    private Duration defaultHold;
+
+    @Bean(name = "scheduledJobScheduler")
+    public ThreadPoolTaskScheduler scheduledJobScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.setTaskScheduler(new LeasedTaskScheduler(scheduledJobScheduler(), schedulerLeaseService,
+            defaultLeaseTtl, defaultHold));
+        logger.info("Scheduled jobs run under cluster leases on node {}: poolSize={}, defaultLeaseTtl={}, defaultHold={}",
+            schedulerLeaseService.getNodeId(), poolSize, defaultLeaseTtl, defaultHold);
+    }
+}
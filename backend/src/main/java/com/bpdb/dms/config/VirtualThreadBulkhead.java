@@ -0,0 +1,150 @@
+package com.bpdb.dms.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for blocking I/O (webhooks, email/SMS, Elasticsearch) that runs each task on
+ * its own virtual thread. Virtual threads are cheap, so the bulkhead is a concurrency
+ * limit rather than a thread count: at most maxConcurrency tasks run, up to
+ * queueCapacity more wait (parked, not holding a platform thread), and beyond that
+ * tasks are rejected.
+ */
+public final class VirtualThreadBulkhead implements AsyncTaskExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadBulkhead.class);
+
+    private final String name;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    private final ExecutorService threads;
+    private final Semaphore permits;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public VirtualThreadBulkhead(String name, int maxConcurrency, int queueCapacity) {
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.threads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (pending.incrementAndGet() > maxConcurrency + queueCapacity) {
+            pending.decrementAndGet();
+            long count = rejected.incrementAndGet();
+            if (count == 1 || count % 100 == 0) {
+                logger.warn("{} saturated ({} running, {} waiting), shedding tasks; {} shed so far",
+                    name, getActiveCount(), getQueuedCount(), count);
+            }
+            throw new TaskRejectedException(name + " is saturated");
+        }
+        try {
+            threads.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    pending.decrementAndGet();
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                    pending.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.decrementAndGet();
+            throw new TaskRejectedException(name + " is shut down", e);
+        }
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        FutureTask<Object> future = new FutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int getQueuedCount() {
+        return Math.max(0, pending.get() - getActiveCount());
+    }
+
+    /**
+     * Same meter names, units and tag as ExecutorServiceMetrics uses for the platform
+     * pools, so every executor shows up in the same queries
+     */
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("executor.active", this, VirtualThreadBulkhead::getActiveCount)
+            .description("Tasks currently running")
+            .tag("name", name)
+            .baseUnit("threads")
+            .register(registry);
+        Gauge.builder("executor.queued", this, VirtualThreadBulkhead::getQueuedCount)
+            .description("Tasks waiting for a permit")
+            .tag("name", name)
+            .baseUnit("tasks")
+            .register(registry);
+        Gauge.builder("executor.pool.max", this, b -> b.maxConcurrency)
+            .description("Concurrency limit")
+            .tag("name", name)
+            .baseUnit("threads")
+            .register(registry);
+        FunctionCounter.builder("executor.completed", completed, AtomicLong::get)
+            .description("Tasks completed")
+            .tag("name", name)
+            .baseUnit("tasks")
+            .register(registry);
+        FunctionCounter.builder("dms.executor.rejected", rejected, AtomicLong::get)
+            .description("Tasks shed because the executor queue was full")
+            .tag("executor", name)
+            .register(registry);
+    }
+
+    /**
+     * Called on context close (inferred destroy method)
+     */
+    public void shutdown() {
+        threads.shutdown();
+        try {
+            if (!threads.awaitTermination(30, TimeUnit.SECONDS)) {
+                threads.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            threads.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,18 +4,22 @@ import com.bpdb.dms.dto.FileUploadResponse;
 import com.bpdb.dms.entity.Document;
 import com.bpdb.dms.entity.DocumentIndex;
 import com.bpdb.dms.entity.User;
-import com.bpdb.dms.repository.DocumentIndexRepository;
 import com.bpdb.dms.repository.DocumentRepository;
-import com.bpdb.dms.repository.FolderRepository;
 import com.bpdb.dms.repository.UserRepository;
-import com.bpdb.dms.entity.Folder;
+import com.bpdb.dms.entity.OcrReprocessJob;
 import com.bpdb.dms.service.DocumentArchiveService;
 import com.bpdb.dms.service.DocumentCategoryService;
+import com.bpdb.dms.service.DocumentIndexingService;
 import com.bpdb.dms.service.DocumentMetadataService;
 import com.bpdb.dms.service.DocumentTypeFieldService;
 import com.bpdb.dms.entity.DocumentTypeField;
 import com.bpdb.dms.service.FileUploadService;
+import com.bpdb.dms.service.FolderService;
+import com.bpdb.dms.service.IngestionAdmissionService;
+import com.bpdb.dms.service.IngestionAdmissionService.AdmissionRejectedException;
 import com.bpdb.dms.service.DatabaseMetadataExtractionService;
+import com.bpdb.dms.service.NearDuplicateService;
+import com.bpdb.dms.service.OcrReprocessJobService;
 import com.bpdb.dms.service.StationeryTrackingService;
 import com.bpdb.dms.entity.AppDocumentEntry;
 import com.bpdb.dms.repository.AppDocumentEntryRepository;
@@ -27,6 +31,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -41,6 +47,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/documents")
@@ -59,7 +66,7 @@ public class DocumentController {
     private FileUploadService fileUploadService;
 
     @Autowired
-    private DocumentIndexRepository documentIndexRepository;
+    private DocumentIndexingService documentIndexingService;
 
     @Autowired
     private DocumentCategoryService documentCategoryService;
@@ -83,11 +90,20 @@ public class DocumentController {
     private DocumentMetadataService documentMetadataService;
 
     @Autowired
-    private FolderRepository folderRepository;
+    private FolderService folderService;
 
     @Autowired(required = false)
     private DatabaseMetadataExtractionService databaseMetadataExtractionService;
 
+    @Autowired
+    private NearDuplicateService nearDuplicateService;
+
+    @Autowired
+    private OcrReprocessJobService ocrReprocessJobService;
+
+    @Autowired
+    private IngestionAdmissionService ingestionAdmissionService;
+
     @GetMapping
     @PreAuthorize("hasAuthority('PERM_DOCUMENT_VIEW')")
     public ResponseEntity<Page<Document>> list(
@@ -147,7 +163,7 @@ public class DocumentController {
             // 2. Fallback to Elasticsearch if database doesn't have text
             if (ocrText == null || ocrText.trim().isEmpty()) {
                 try {
-                    Optional<DocumentIndex> indexOpt = documentIndexRepository.findById(id.toString());
+                    Optional<DocumentIndex> indexOpt = documentIndexingService.getIndexedDocument(id);
                     if (indexOpt.isPresent()) {
                         DocumentIndex index = indexOpt.get();
                         String esOcrText = index.getExtractedText() != null ? index.getExtractedText() : "";
@@ -271,31 +287,16 @@ public class DocumentController {
             @PathVariable Long id,
             @RequestBody Map<String, Object> request) {
         try {
-            Optional<Document> documentOpt = documentRepository.findById(id);
-            if (documentOpt.isEmpty()) {
+            if (!documentRepository.existsById(id)) {
                 return ResponseEntity.notFound().build();
             }
 
-            Document document = documentOpt.get();
             Long folderId = request.get("folderId") != null ? 
                 (request.get("folderId") instanceof Number ? 
                     ((Number) request.get("folderId")).longValue() : 
                     Long.parseLong(request.get("folderId").toString())) : null;
 
-            if (folderId != null) {
-                Optional<Folder> folderOpt = folderRepository.findById(folderId);
-                if (folderOpt.isEmpty()) {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("success", false);
-                    response.put("error", "Folder not found");
-                    return ResponseEntity.badRequest().body(response);
-                }
-                document.setFolder(folderOpt.get());
-            } else {
-                document.setFolder(null);
-            }
-
-            documentRepository.save(document);
+            folderService.moveDocument(id, folderId);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -313,7 +314,7 @@ public class DocumentController {
     @GetMapping("/{id}/ocr")
     public ResponseEntity<Map<String, Object>> getDocumentOCR(@PathVariable Long id) {
         try {
-            Optional<DocumentIndex> indexOpt = documentIndexRepository.findById(id.toString());
+            Optional<DocumentIndex> indexOpt = documentIndexingService.getIndexedDocument(id);
             if (indexOpt.isEmpty()) {
                 // Document not yet indexed (OCR may still be processing)
                 Map<String, Object> response = new HashMap<>();
@@ -359,6 +360,20 @@ public class DocumentController {
         }
     }
 
+    @GetMapping("/{id}/near-duplicates")
+    @PreAuthorize("hasAuthority('PERM_DOCUMENT_VIEW')")
+    public ResponseEntity<List<NearDuplicateService.NearDuplicate>> getNearDuplicates(@PathVariable Long id) {
+        try {
+            if (!documentRepository.existsById(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(nearDuplicateService.findNearDuplicates(id));
+        } catch (Exception e) {
+            logger.error("Near-duplicate lookup failed for document {}: {}", id, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @PostMapping("/upload")
     @PreAuthorize("hasAuthority('PERM_DOCUMENT_UPLOAD')")
     public ResponseEntity<FileUploadResponse> upload(
@@ -377,16 +392,31 @@ public class DocumentController {
 
             Map<String, String> metadata = parseMetadata(metadataJson);
 
-            FileUploadResponse resp = fileUploadService.uploadFile(file, user, documentType, description, metadata, folderId);
+            // OCR and indexing run on the ocrExecutor; the upload hands the ticket to that task
+            IngestionAdmissionService.Ticket ticket = ingestionAdmissionService.admit(file);
+            FileUploadResponse resp;
+            try {
+                resp = fileUploadService.uploadFile(file, user, documentType, description, metadata, folderId, ticket);
+            } catch (RejectedExecutionException ex) {
+                return tooManyRequests(ingestionAdmissionService.queueRejected(file));
+            }
             if (!resp.isSuccess()) {
                 return ResponseEntity.badRequest().body(resp);
             }
             return ResponseEntity.ok(resp);
+        } catch (AdmissionRejectedException ex) {
+            return tooManyRequests(ex);
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest().body(FileUploadResponse.error(ex.getMessage()));
         }
     }
 
+    private ResponseEntity<FileUploadResponse> tooManyRequests(AdmissionRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+            .body(FileUploadResponse.error(ex.getMessage()));
+    }
+
     private Map<String, String> parseMetadata(String metadataJson) {
         if (metadataJson == null || metadataJson.isBlank()) {
             return Collections.emptyMap();
@@ -517,18 +547,27 @@ public class DocumentController {
     }
 
     @PostMapping("/reprocess-ocr/all")
+    @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, Object>> reprocessAllDocumentsOCR(
+            @RequestParam(defaultValue = "false") boolean onlyMissingText,
+            @RequestParam(defaultValue = "false") boolean bypassCache,
             Authentication authentication
     ) {
         try {
-            // Trigger OCR re-processing for all documents asynchronously
-            fileUploadService.reprocessAllDocumentsOCR();
+            // Runs as a throttled, resumable job; progress at /api/admin/ocr-reprocess/{jobId}
+            OcrReprocessJob job = ocrReprocessJobService.startJob(onlyMissingText, bypassCache, authentication.getName());
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "OCR re-processing started for all documents");
+            response.put("jobId", job.getId());
+            response.put("totalDocuments", job.getTotalDocuments());
             response.put("status", "processing");
 
             return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("error", "Failed to start OCR re-processing: " + e.getMessage());
@@ -555,14 +594,22 @@ public class DocumentController {
 
             Map<String, String> metadata = parseMetadata(metadataJson);
 
-            FileUploadResponse resp = fileUploadService.handleDuplicateUpload(
-                file, user, documentType, description, metadata, folderId, duplicateDocumentId, action
-            );
-            
+            IngestionAdmissionService.Ticket ticket = ingestionAdmissionService.admit(file);
+            FileUploadResponse resp;
+            try {
+                resp = fileUploadService.handleDuplicateUpload(
+                    file, user, documentType, description, metadata, folderId, duplicateDocumentId, action, ticket
+                );
+            } catch (RejectedExecutionException ex) {
+                return tooManyRequests(ingestionAdmissionService.queueRejected(file));
+            }
+
             if (!resp.isSuccess()) {
                 return ResponseEntity.badRequest().body(resp);
             }
             return ResponseEntity.ok(resp);
+        } catch (AdmissionRejectedException ex) {
+            return tooManyRequests(ex);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(FileUploadResponse.error(e.getMessage()));
         }
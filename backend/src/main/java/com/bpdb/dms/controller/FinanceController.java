@@ -6,8 +6,10 @@ import com.bpdb.dms.entity.BillHeader;
 import com.bpdb.dms.entity.User;
 import com.bpdb.dms.repository.BillHeaderRepository;
 import com.bpdb.dms.repository.UserRepository;
+import com.bpdb.dms.service.AppBudgetLedgerService;
 import com.bpdb.dms.service.AppExcelImportService;
 import com.bpdb.dms.service.AppEntryService;
+import com.bpdb.dms.service.BillActualSummaryService;
 import com.bpdb.dms.service.BillService;
 import com.bpdb.dms.service.FinanceReportService;
 import com.bpdb.dms.service.FinanceDashboardService;
@@ -52,6 +54,12 @@ public class FinanceController {
     @Autowired
     private FinanceDashboardService financeDashboardService;
 
+    @Autowired
+    private BillActualSummaryService billActualSummaryService;
+
+    @Autowired
+    private AppBudgetLedgerService appBudgetLedgerService;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -143,6 +151,23 @@ public class FinanceController {
         return ResponseEntity.ok(id);
     }
 
+    @PutMapping(path = "/bills/{id}")
+    public ResponseEntity<?> updateBill(@AuthenticationPrincipal UserDetails principal,
+                                        @PathVariable Long id,
+                                        @RequestBody CreateBillRequest request) {
+        User user = principal == null ? null : userRepository.findByUsernameWithRole(principal.getUsername()).orElse(null);
+        if (user == null) return ResponseEntity.status(401).body("Unauthorized");
+        if (!billHeaderRepository.existsById(id)) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(billService.updateBill(id, request, user));
+    }
+
+    @DeleteMapping(path = "/bills/{id}")
+    public ResponseEntity<?> deleteBill(@PathVariable Long id) {
+        if (!billHeaderRepository.existsById(id)) return ResponseEntity.notFound().build();
+        billService.deleteBill(id);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping(path = "/reports/app-vs-bills")
     public ResponseEntity<?> appVsBills(@RequestParam Integer year,
                                         @RequestParam(required = false) String department,
@@ -151,6 +176,14 @@ public class FinanceController {
         return ResponseEntity.ok(financeReportService.appVsBillsByYear(year, department, projectIdentifier));
     }
 
+    @PostMapping(path = "/reports/app-vs-bills/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildAppVsBills(@RequestParam Integer year) {
+        if (year == null) return ResponseEntity.badRequest().body("year is required");
+        int rows = billActualSummaryService.rebuildFiscalYear(year);
+        return ResponseEntity.ok(Map.of("fiscalYear", year, "summaryRows", rows));
+    }
+
     @GetMapping(path = "/dashboard/summary")
     public ResponseEntity<?> dashboardSummary(@RequestParam Integer year,
                                               @RequestParam(required = false) String department) {
@@ -178,6 +211,13 @@ public class FinanceController {
         return ResponseEntity.ok(financeDashboardService.getBudgetByApp());
     }
 
+    @PostMapping(path = "/dashboard/budget-by-app/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildBudgetLedger() {
+        int bills = appBudgetLedgerService.rebuildLedger();
+        return ResponseEntity.ok(Map.of("billsLedgered", bills));
+    }
+
     // APP Entry endpoints (Phase 3 - Manual Entry)
     @PostMapping(path = "/app-entries", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasAuthority('PERM_DOCUMENT_UPLOAD')")
@@ -0,0 +1,87 @@
+package com.bpdb.dms.controller;
+
+import com.bpdb.dms.entity.OcrReprocessJob;
+import com.bpdb.dms.service.OcrReprocessJobService;
+import com.bpdb.dms.service.OcrReprocessJobService.JobProgress;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * REST Controller for bulk OCR reprocessing jobs
+ */
+@RestController
+@RequestMapping("/api/admin/ocr-reprocess")
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+public class OcrReprocessController {
+
+    @Autowired
+    private OcrReprocessJobService ocrReprocessJobService;
+
+    @PostMapping
+    public ResponseEntity<?> startJob(
+            @RequestParam(defaultValue = "false") boolean onlyMissingText,
+            @RequestParam(defaultValue = "false") boolean bypassCache,
+            Authentication authentication) {
+        try {
+            OcrReprocessJob job = ocrReprocessJobService.startJob(onlyMissingText, bypassCache, authentication.getName());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ocrReprocessJobService.getProgress(job.getId()).orElse(null));
+        } catch (IllegalStateException e) {
+            return conflict(e);
+        }
+    }
+
+    @GetMapping("/current")
+    public ResponseEntity<JobProgress> getCurrentJob() {
+        return ocrReprocessJobService.getLatestProgress()
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobProgress> getJob(@PathVariable Long id) {
+        return ocrReprocessJobService.getProgress(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/pause")
+    public ResponseEntity<?> pauseJob(@PathVariable Long id) {
+        return apply(id, ocrReprocessJobService::pause);
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resumeJob(@PathVariable Long id) {
+        return apply(id, ocrReprocessJobService::resume);
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancelJob(@PathVariable Long id) {
+        return apply(id, ocrReprocessJobService::cancel);
+    }
+
+    private ResponseEntity<?> apply(Long id, Function<Long, OcrReprocessJob> action) {
+        try {
+            action.apply(id);
+            return ResponseEntity.ok(ocrReprocessJobService.getProgress(id).orElse(null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return conflict(e);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> conflict(IllegalStateException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+}
@@ -0,0 +1,30 @@
+package com.bpdb.dms.controller;
+
+import com.bpdb.dms.service.SchedulerLeaseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST Controller for the cluster view of scheduled jobs
+ */
+@RestController
+@RequestMapping("/api/admin/scheduler")
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+public class SchedulerController {
+
+    @Autowired
+    private SchedulerLeaseService schedulerLeaseService;
+
+    /**
+     * Which node holds each job's lease, its fencing token and the last run's outcome
+     */
+    @GetMapping("/leases")
+    public ResponseEntity<Map<String, Object>> getLeases() {
+        return ResponseEntity.ok(schedulerLeaseService.getLeaseOverview());
+    }
+}
@@ -1,6 +1,9 @@
 package com.bpdb.dms.controller;
 
+import com.bpdb.dms.entity.User;
+import com.bpdb.dms.repository.UserRepository;
 import com.bpdb.dms.service.DocumentIndexingService;
+import com.bpdb.dms.service.DocumentIndexingService.MetadataRange;
 import com.bpdb.dms.service.DocumentIndexingService.SearchFilters;
 import com.bpdb.dms.service.DocumentIndexingService.SearchResult;
 import com.bpdb.dms.service.DocumentIndexingService.SearchResultItem;
@@ -39,6 +42,9 @@ public class SearchController {
     @Autowired
     private SearchExportService searchExportService;
     
+    @Autowired
+    private UserRepository userRepository;
+    
     /**
      * Search documents with advanced query
      */
@@ -66,6 +72,7 @@ public class SearchController {
             filters.setEndDate(endDate);
             filters.setMinOcrConfidence(minOcrConfidence);
             filters.setIsActive(isActive);
+            filters.setTenantId(searchTenant(authentication));
             
             // Create pageable
             Pageable pageable = PageRequest.of(page, size);
@@ -98,7 +105,7 @@ public class SearchController {
             Authentication authentication) {
         
         try {
-            List<String> suggestions = documentIndexingService.getSuggestions(prefix, limit);
+            List<String> suggestions = documentIndexingService.getSuggestions(prefix, searchTenant(authentication), limit);
             
             // Log suggestion activity
             auditService.logActivity(
@@ -182,6 +189,8 @@ public class SearchController {
             filters.setEndDate(request.getEndDate());
             filters.setMinOcrConfidence(request.getMinOcrConfidence());
             filters.setIsActive(request.getIsActive());
+            filters.setMetadataRanges(request.getMetadataRanges());
+            filters.setTenantId(searchTenant(authentication));
             
             // Create pageable
             Pageable pageable = PageRequest.of(page, size);
@@ -214,9 +223,14 @@ public class SearchController {
             Authentication authentication) {
         
         try {
-            // This would require implementing similarity search
-            // For now, return empty list
-            List<SearchResultItem> similarDocuments = List.of();
+            // Non-admins only see similar documents from their own department
+            User user = userRepository.findByUsernameWithRole(authentication.getName()).orElse(null);
+            String department = isAdminUser(user) ? null : (user != null ? user.getDepartment() : null);
+            
+            Long tenantId = isAdminUser(user) || user == null ? null : user.getTenantId();
+            
+            List<SearchResultItem> similarDocuments = documentIndexingService.findSimilarDocuments(
+                documentId, tenantId, department, Math.max(1, Math.min(limit, 50)));
             
             // Log similarity search activity
             auditService.logActivity(
@@ -260,6 +274,7 @@ public class SearchController {
             filters.setEndDate(endDate);
             filters.setMinOcrConfidence(minOcrConfidence);
             filters.setIsActive(isActive);
+            filters.setTenantId(searchTenant(authentication));
             
             // Create pageable (use larger size for export)
             Pageable pageable = PageRequest.of(page, size);
@@ -321,6 +336,7 @@ public class SearchController {
             filters.setEndDate(endDate);
             filters.setMinOcrConfidence(minOcrConfidence);
             filters.setIsActive(isActive);
+            filters.setTenantId(searchTenant(authentication));
             
             // Create pageable (use smaller size for PDF)
             Pageable pageable = PageRequest.of(page, size);
@@ -355,6 +371,23 @@ public class SearchController {
         }
     }
     
+    /**
+     * Tenant whose documents the user searches; admins and users without a tenant search all tenants
+     */
+    private Long searchTenant(Authentication authentication) {
+        User user = userRepository.findByUsernameWithRole(authentication.getName()).orElse(null);
+        return isAdminUser(user) || user == null ? null : user.getTenantId();
+    }
+    
+    private boolean isAdminUser(User user) {
+        try {
+            return user != null && user.getRole() != null && user.getRole().getName() != null
+                && "ADMIN".equalsIgnoreCase(user.getRole().getName().name());
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+    
     /**
      * Advanced Search Request class
      */
@@ -367,6 +400,7 @@ public class SearchController {
         private LocalDateTime endDate;
         private Double minOcrConfidence;
         private Boolean isActive;
+        private List<MetadataRange> metadataRanges;
         private String sortBy;
         private String sortDirection;
         
@@ -387,6 +421,8 @@ public class SearchController {
         public void setMinOcrConfidence(Double minOcrConfidence) { this.minOcrConfidence = minOcrConfidence; }
         public Boolean getIsActive() { return isActive; }
         public void setIsActive(Boolean isActive) { this.isActive = isActive; }
+        public List<MetadataRange> getMetadataRanges() { return metadataRanges; }
+        public void setMetadataRanges(List<MetadataRange> metadataRanges) { this.metadataRanges = metadataRanges; }
         public String getSortBy() { return sortBy; }
         public void setSortBy(String sortBy) { this.sortBy = sortBy; }
         public String getSortDirection() { return sortDirection; }
@@ -403,6 +439,7 @@ public class SearchController {
                     ", endDate=" + endDate +
                     ", minOcrConfidence=" + minOcrConfidence +
                     ", isActive=" + isActive +
+                    ", metadataRanges=" + (metadataRanges != null ? metadataRanges.size() : 0) +
                     ", sortBy='" + sortBy + '\'' +
                     ", sortDirection='" + sortDirection + '\'' +
                     '}';
@@ -0,0 +1,60 @@
+package com.bpdb.dms.controller;
+
+import com.bpdb.dms.service.SearchIndexLayoutService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for the tenant layout of the search indices
+ */
+@RestController
+@RequestMapping("/api/admin/search/layout")
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+public class SearchLayoutController {
+
+    @Autowired
+    private SearchIndexLayoutService searchIndexLayoutService;
+
+    /**
+     * Which index backs each tenant's alias, and which tenants are due for their own index
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getLayout() {
+        try {
+            return ResponseEntity.ok(searchIndexLayoutService.getLayoutOverview());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Reindex indices on an older mapping into the current one and move their aliases over
+     */
+    @PostMapping("/migrate")
+    public ResponseEntity<Map<String, Object>> migrateMappings() {
+        try {
+            List<Map<String, Object>> migrated = searchIndexLayoutService.migrateMappings();
+            return ResponseEntity.ok(Map.of("migrated", migrated));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Move a tenant (e.g. a noisy one) out of the shared index into a dedicated index
+     */
+    @PostMapping("/tenants/{tenantId}/isolate")
+    public ResponseEntity<Map<String, Object>> isolateTenant(@PathVariable Long tenantId) {
+        try {
+            return ResponseEntity.ok(searchIndexLayoutService.isolateTenant(tenantId));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.bpdb.dms.controller;
 import com.bpdb.dms.entity.HealthCheckType;
 import com.bpdb.dms.entity.HealthStatus;
 import com.bpdb.dms.entity.SystemHealthCheck;
+import com.bpdb.dms.service.HealthProbeEngine.ProbeResult;
 import com.bpdb.dms.service.SystemHealthMonitoringService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -112,6 +113,14 @@ public class SystemHealthController {
         return ResponseEntity.ok(statistics);
     }
 
+    @GetMapping("/results")
+    @PreAuthorize("hasAnyRole('ADMIN', 'OFFICER', 'VIEWER')")
+    public ResponseEntity<List<ProbeResult>> getRecentHealthResults(
+            @RequestParam(required = false) Long checkId,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(healthMonitoringService.getRecentHealthResults(checkId, limit));
+    }
+
     @GetMapping("/checks/{id}/history")
     @PreAuthorize("hasAnyRole('ADMIN', 'OFFICER')")
     public ResponseEntity<List<SystemHealthCheck>> getHealthCheckHistory(
@@ -0,0 +1,88 @@
+package com.bpdb.dms.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated analytics events of one (type, metric, dimension) in one time bucket.
+ * The dimension is empty for the series total, or a prefixed key such as "user:42",
+ * "document:7" or "hour:14" for per-entity and hour-of-day breakdowns. Null metric
+ * values count as 0, as the dashboard always treated them.
+ */
+@Entity
+@Table(name = "analytics_rollups",
+       uniqueConstraints = @UniqueConstraint(name = "uk_analytics_rollups_bucket",
+           columnNames = {"granularity", "bucket_start", "analytics_type", "metric_name", "dimension"}),
+       indexes = @Index(name = "idx_analytics_rollups_query", columnList = "analytics_type, granularity, bucket_start"))
+public class AnalyticsRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", length = 10, nullable = false)
+    private AnalyticsRollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "analytics_type", nullable = false)
+    private AnalyticsType analyticsType;
+
+    @Column(name = "metric_name", nullable = false)
+    private String metricName;
+
+    @Column(name = "dimension", length = 100, nullable = false)
+    private String dimension = "";
+
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount = 0L;
+
+    @Column(name = "value_sum", nullable = false)
+    private Double valueSum = 0.0;
+
+    @Column(name = "value_min", nullable = false)
+    private Double valueMin = 0.0;
+
+    @Column(name = "value_max", nullable = false)
+    private Double valueMax = 0.0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public AnalyticsRollup() {}
+
+    public AnalyticsRollup(AnalyticsRollupGranularity granularity, LocalDateTime bucketStart,
+                           AnalyticsType analyticsType, String metricName, String dimension) {
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.analyticsType = analyticsType;
+        this.metricName = metricName;
+        this.dimension = dimension;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public AnalyticsRollupGranularity getGranularity() { return granularity; }
+    public void setGranularity(AnalyticsRollupGranularity granularity) { this.granularity = granularity; }
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+    public AnalyticsType getAnalyticsType() { return analyticsType; }
+    public void setAnalyticsType(AnalyticsType analyticsType) { this.analyticsType = analyticsType; }
+    public String getMetricName() { return metricName; }
+    public void setMetricName(String metricName) { this.metricName = metricName; }
+    public String getDimension() { return dimension; }
+    public void setDimension(String dimension) { this.dimension = dimension; }
+    public Long getEventCount() { return eventCount; }
+    public void setEventCount(Long eventCount) { this.eventCount = eventCount; }
+    public Double getValueSum() { return valueSum; }
+    public void setValueSum(Double valueSum) { this.valueSum = valueSum; }
+    public Double getValueMin() { return valueMin; }
+    public void setValueMin(Double valueMin) { this.valueMin = valueMin; }
+    public Double getValueMax() { return valueMax; }
+    public void setValueMax(Double valueMax) { this.valueMax = valueMax; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,40 @@
+package com.bpdb.dms.entity;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Bucket size of an analytics rollup
+ */
+public enum AnalyticsRollupGranularity {
+    MINUTE("Minute", ChronoUnit.MINUTES),
+    HOUR("Hour", ChronoUnit.HOURS),
+    DAY("Day", ChronoUnit.DAYS);
+    
+    private final String displayName;
+    private final ChronoUnit unit;
+    
+    AnalyticsRollupGranularity(String displayName, ChronoUnit unit) {
+        this.displayName = displayName;
+        this.unit = unit;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    /**
+     * Start of the bucket containing the given time
+     */
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+    
+    /**
+     * Start of the first bucket at or after the given time
+     */
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+}
@@ -0,0 +1,40 @@
+package com.bpdb.dms.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the analytics rollup compactor: every analytics_data row with an id up
+ * to last_event_id is included in the rollups. Single row, locked while compacting.
+ */
+@Entity
+@Table(name = "analytics_rollup_state")
+public class AnalyticsRollupState {
+
+    @Id
+    private Long id;
+
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId = 0L;
+
+    @Column(name = "last_purge_at")
+    private LocalDateTime lastPurgeAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public AnalyticsRollupState() {}
+
+    public AnalyticsRollupState(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getLastEventId() { return lastEventId; }
+    public void setLastEventId(Long lastEventId) { this.lastEventId = lastEventId; }
+    public LocalDateTime getLastPurgeAt() { return lastPurgeAt; }
+    public void setLastPurgeAt(LocalDateTime lastPurgeAt) { this.lastPurgeAt = lastPurgeAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
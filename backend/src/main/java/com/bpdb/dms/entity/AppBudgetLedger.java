@@ -0,0 +1,36 @@
+package com.bpdb.dms.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Running billed total per APP entry (AppHeader), maintained as BILL
+ * document amounts are written.
+ */
+@Entity
+@Table(name = "app_budget_ledger")
+public class AppBudgetLedger {
+
+    @Id
+    @Column(name = "app_header_id")
+    private Long appHeaderId;
+
+    @Column(name = "total_billed", precision = 18, scale = 2, nullable = false)
+    private BigDecimal totalBilled = BigDecimal.ZERO;
+
+    @Column(name = "bill_count", nullable = false)
+    private Long billCount = 0L;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public Long getAppHeaderId() { return appHeaderId; }
+    public void setAppHeaderId(Long appHeaderId) { this.appHeaderId = appHeaderId; }
+    public BigDecimal getTotalBilled() { return totalBilled; }
+    public void setTotalBilled(BigDecimal totalBilled) { this.totalBilled = totalBilled; }
+    public Long getBillCount() { return billCount; }
+    public void setBillCount(Long billCount) { this.billCount = billCount; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,35 @@
+package com.bpdb.dms.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Amount a single BILL document currently contributes to an APP ledger.
+ */
+@Entity
+@Table(name = "app_budget_ledger_entries")
+public class AppBudgetLedgerEntry {
+
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "app_header_id", nullable = false)
+    private Long appHeaderId;
+
+    @Column(name = "amount", precision = 18, scale = 2, nullable = false)
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+    public Long getAppHeaderId() { return appHeaderId; }
+    public void setAppHeaderId(Long appHeaderId) { this.appHeaderId = appHeaderId; }
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,68 @@
+package com.bpdb.dms.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Materialized bill actuals per fiscal year, keyed by APP line (A:{appLineId})
+ * or, for bill lines without an APP line, by project identifier (P:{projectIdentifier}).
+ */
+@Entity
+@Table(name = "bill_actual_summaries",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"fiscal_year", "summary_key"}))
+public class BillActualSummary {
+
+    public static final String APP_LINE_PREFIX = "A:";
+    public static final String PROJECT_PREFIX = "P:";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "fiscal_year", nullable = false)
+    private Integer fiscalYear;
+
+    @Column(name = "summary_key", nullable = false, length = 300)
+    private String summaryKey;
+
+    @Column(name = "app_line_id")
+    private Long appLineId;
+
+    @Column(name = "project_identifier")
+    private String projectIdentifier;
+
+    @Column(name = "actual_amount", precision = 18, scale = 2, nullable = false)
+    private BigDecimal actualAmount = BigDecimal.ZERO;
+
+    @Column(name = "line_count", nullable = false)
+    private Long lineCount = 0L;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public static String keyForAppLine(Long appLineId) {
+        return APP_LINE_PREFIX + appLineId;
+    }
+
+    public static String keyForProject(String projectIdentifier) {
+        return PROJECT_PREFIX + projectIdentifier;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Integer getFiscalYear() { return fiscalYear; }
+    public void setFiscalYear(Integer fiscalYear) { this.fiscalYear = fiscalYear; }
+    public String getSummaryKey() { return summaryKey; }
+    public void setSummaryKey(String summaryKey) { this.summaryKey = summaryKey; }
+    public Long getAppLineId() { return appLineId; }
+    public void setAppLineId(Long appLineId) { this.appLineId = appLineId; }
+    public String getProjectIdentifier() { return projectIdentifier; }
+    public void setProjectIdentifier(String projectIdentifier) { this.projectIdentifier = projectIdentifier; }
+    public BigDecimal getActualAmount() { return actualAmount; }
+    public void setActualAmount(BigDecimal actualAmount) { this.actualAmount = actualAmount; }
+    public Long getLineCount() { return lineCount; }
+    public void setLineCount(Long lineCount) { this.lineCount = lineCount; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
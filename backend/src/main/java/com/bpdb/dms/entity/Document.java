@@ -94,6 +94,9 @@ public class Document {
     @Column(name = "department")
     private String department;
     
+    @Column(name = "tenant_id")
+    private Long tenantId;
+    
     @Column(name = "is_active")
     private Boolean isActive = true;
     
@@ -220,6 +223,14 @@ public class Document {
         this.department = department;
     }
     
+    public Long getTenantId() {
+        return tenantId;
+    }
+    
+    public void setTenantId(Long tenantId) {
+        this.tenantId = tenantId;
+    }
+    
     public Folder getFolder() {
         return folder;
     }
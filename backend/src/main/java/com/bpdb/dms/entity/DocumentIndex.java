@@ -5,14 +5,21 @@ import org.springframework.data.elasticsearch.annotations.DateFormat;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+import org.springframework.data.elasticsearch.annotations.Setting;
+import org.springframework.data.elasticsearch.annotations.TermVector;
 
 import java.time.LocalDate;
 import java.util.Map;
 
 /**
- * Elasticsearch document entity for search indexing
+ * Elasticsearch document entity for search indexing. The index name is the cross-tenant
+ * alias; the indices behind it are managed by SearchIndexLayoutService and created from
+ * the explicit mapping and settings files, which must be kept in line with the fields here.
  */
-@Document(indexName = "documents")
+@Document(indexName = "documents-all", createIndex = false)
+@Mapping(mappingPath = "/elasticsearch/document-index-mapping.json")
+@Setting(settingPath = "/elasticsearch/document-index-settings.json")
 public class DocumentIndex {
     
     @Id
@@ -27,7 +34,8 @@ public class DocumentIndex {
     @Field(type = FieldType.Text, analyzer = "standard")
     private String originalName;
     
-    @Field(type = FieldType.Text, analyzer = "standard")
+    // Term vectors let more_like_this read the source document's terms instead of re-analyzing its text
+    @Field(type = FieldType.Text, analyzer = "standard", termVector = TermVector.yes)
     private String extractedText;
     
     @Field(type = FieldType.Keyword)
@@ -42,6 +50,10 @@ public class DocumentIndex {
     @Field(type = FieldType.Keyword)
     private String department;
     
+    // Routing key in the shared index and the filter of the tenant's alias
+    @Field(type = FieldType.Long)
+    private Long tenantId;
+    
     @Field(type = FieldType.Keyword)
     private String uploadedBy;
     
@@ -54,9 +66,14 @@ public class DocumentIndex {
     @Field(type = FieldType.Date, format = DateFormat.date_optional_time)
     private LocalDate updatedAt;
     
-    @Field(type = FieldType.Object)
+    // One flattened field however many keys; values are searchable as keywords
+    @Field(type = FieldType.Flattened)
     private Map<String, String> metadata;
     
+    // Metadata values of the document type's configured fields, each with date and number subfields for range filters
+    @Field(type = FieldType.Object)
+    private Map<String, String> metadataFields;
+    
     @Field(type = FieldType.Double)
     private Double ocrConfidence;
     
@@ -72,6 +89,10 @@ public class DocumentIndex {
     @Field(type = FieldType.Boolean)
     private Boolean isActive;
     
+    // Epoch millis of the last (re)index; part of cache keys derived from this entry
+    @Field(type = FieldType.Long)
+    private Long indexedAt;
+    
     // Constructors
     public DocumentIndex() {}
     
@@ -111,6 +132,9 @@ public class DocumentIndex {
     public String getDepartment() { return department; }
     public void setDepartment(String department) { this.department = department; }
     
+    public Long getTenantId() { return tenantId; }
+    public void setTenantId(Long tenantId) { this.tenantId = tenantId; }
+    
     public String getUploadedBy() { return uploadedBy; }
     public void setUploadedBy(String uploadedBy) { this.uploadedBy = uploadedBy; }
     
@@ -126,6 +150,9 @@ public class DocumentIndex {
     public Map<String, String> getMetadata() { return metadata; }
     public void setMetadata(Map<String, String> metadata) { this.metadata = metadata; }
     
+    public Map<String, String> getMetadataFields() { return metadataFields; }
+    public void setMetadataFields(Map<String, String> metadataFields) { this.metadataFields = metadataFields; }
+    
     public Double getOcrConfidence() { return ocrConfidence; }
     public void setOcrConfidence(Double ocrConfidence) { this.ocrConfidence = ocrConfidence; }
     
@@ -140,4 +167,7 @@ public class DocumentIndex {
     
     public Boolean getIsActive() { return isActive; }
     public void setIsActive(Boolean isActive) { this.isActive = isActive; }
+    
+    public Long getIndexedAt() { return indexedAt; }
+    public void setIndexedAt(Long indexedAt) { this.indexedAt = indexedAt; }
 }
@@ -0,0 +1,35 @@
+package com.bpdb.dms.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * MinHash signature of a document's extracted text, used to estimate Jaccard
+ * similarity against near-duplicate candidates.
+ */
+@Entity
+@Table(name = "document_minhash")
+public class DocumentMinHash {
+
+    @Id
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "signature", nullable = false)
+    private byte[] signature;
+
+    @Column(name = "shingle_count", nullable = false)
+    private Integer shingleCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+    public byte[] getSignature() { return signature; }
+    public void setSignature(byte[] signature) { this.signature = signature; }
+    public Integer getShingleCount() { return shingleCount; }
+    public void setShingleCount(Integer shingleCount) { this.shingleCount = shingleCount; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,35 @@
+package com.bpdb.dms.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * LSH bucket membership: a document whose signature hashes to band_key in one of its bands.
+ */
+@Entity
+@Table(name = "document_minhash_bands")
+public class DocumentMinHashBand {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "band_key", nullable = false)
+    private Long bandKey;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    public DocumentMinHashBand() {}
+
+    public DocumentMinHashBand(Long bandKey, Long documentId) {
+        this.bandKey = bandKey;
+        this.documentId = documentId;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getBandKey() { return bandKey; }
+    public void setBandKey(Long bandKey) { this.bandKey = bandKey; }
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+}
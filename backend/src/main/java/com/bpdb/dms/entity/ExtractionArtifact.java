@@ -0,0 +1,67 @@
+package com.bpdb.dms.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Text extracted from one file content by one OCR engine configuration.
+ * Page texts and confidences are stored as JSON arrays.
+ */
+@Entity
+@Table(name = "extraction_artifacts",
+    uniqueConstraints = @UniqueConstraint(name = "uk_extraction_artifacts_key",
+        columnNames = {"file_hash", "engine_version", "language"}))
+public class ExtractionArtifact {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_hash", length = 64, nullable = false)
+    private String fileHash;
+
+    @Column(name = "engine_version", length = 100, nullable = false)
+    private String engineVersion;
+
+    @Column(name = "language", length = 50, nullable = false)
+    private String language;
+
+    @Column(name = "extracted_text", columnDefinition = "TEXT")
+    private String extractedText;
+
+    @Column(name = "page_texts", columnDefinition = "TEXT")
+    private String pageTexts;
+
+    @Column(name = "page_confidences", columnDefinition = "TEXT")
+    private String pageConfidences;
+
+    @Column(name = "confidence")
+    private Double confidence;
+
+    @Column(name = "page_count")
+    private Integer pageCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getFileHash() { return fileHash; }
+    public void setFileHash(String fileHash) { this.fileHash = fileHash; }
+    public String getEngineVersion() { return engineVersion; }
+    public void setEngineVersion(String engineVersion) { this.engineVersion = engineVersion; }
+    public String getLanguage() { return language; }
+    public void setLanguage(String language) { this.language = language; }
+    public String getExtractedText() { return extractedText; }
+    public void setExtractedText(String extractedText) { this.extractedText = extractedText; }
+    public String getPageTexts() { return pageTexts; }
+    public void setPageTexts(String pageTexts) { this.pageTexts = pageTexts; }
+    public String getPageConfidences() { return pageConfidences; }
+    public void setPageConfidences(String pageConfidences) { this.pageConfidences = pageConfidences; }
+    public Double getConfidence() { return confidence; }
+    public void setConfidence(Double confidence) { this.confidence = confidence; }
+    public Integer getPageCount() { return pageCount; }
+    public void setPageCount(Integer pageCount) { this.pageCount = pageCount; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
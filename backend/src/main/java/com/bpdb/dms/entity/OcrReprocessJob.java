@@ -0,0 +1,82 @@
+package com.bpdb.dms.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Bulk OCR reprocessing run over the document corpus.
+ * Documents are visited in id order; last_document_id is the checkpoint a
+ * paused or interrupted job resumes after.
+ */
+@Entity
+@Table(name = "ocr_reprocess_jobs")
+public class OcrReprocessJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private OcrReprocessJobStatus status;
+
+    @Column(name = "only_missing_text", nullable = false)
+    private Boolean onlyMissingText = false;
+
+    @Column(name = "bypass_cache", nullable = false)
+    private Boolean bypassCache = false;
+
+    @Column(name = "last_document_id", nullable = false)
+    private Long lastDocumentId = 0L;
+
+    @Column(name = "total_documents", nullable = false)
+    private Long totalDocuments = 0L;
+
+    @Column(name = "processed_count", nullable = false)
+    private Long processedCount = 0L;
+
+    @Column(name = "failed_count", nullable = false)
+    private Long failedCount = 0L;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_by", length = 100)
+    private String createdBy;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public OcrReprocessJobStatus getStatus() { return status; }
+    public void setStatus(OcrReprocessJobStatus status) { this.status = status; }
+    public Boolean getOnlyMissingText() { return onlyMissingText; }
+    public void setOnlyMissingText(Boolean onlyMissingText) { this.onlyMissingText = onlyMissingText; }
+    public Boolean getBypassCache() { return bypassCache; }
+    public void setBypassCache(Boolean bypassCache) { this.bypassCache = bypassCache; }
+    public Long getLastDocumentId() { return lastDocumentId; }
+    public void setLastDocumentId(Long lastDocumentId) { this.lastDocumentId = lastDocumentId; }
+    public Long getTotalDocuments() { return totalDocuments; }
+    public void setTotalDocuments(Long totalDocuments) { this.totalDocuments = totalDocuments; }
+    public Long getProcessedCount() { return processedCount; }
+    public void setProcessedCount(Long processedCount) { this.processedCount = processedCount; }
+    public Long getFailedCount() { return failedCount; }
+    public void setFailedCount(Long failedCount) { this.failedCount = failedCount; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+    public String getCreatedBy() { return createdBy; }
+    public void setCreatedBy(String createdBy) { this.createdBy = createdBy; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
@@ -0,0 +1,19 @@
+package com.bpdb.dms.entity;
+
+public enum OcrReprocessJobStatus {
+    RUNNING("Running"),
+    PAUSED("Paused"),
+    COMPLETED("Completed"),
+    CANCELLED("Cancelled"),
+    FAILED("Failed");
+    
+    private final String displayName;
+    
+    OcrReprocessJobStatus(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -74,6 +74,9 @@ public class Report {
     @Column(name = "access_count")
     private Long accessCount = 0L;
     
+    @Column(name = "result_key", length = 64)
+    private String resultKey; // hash of (type, format, parameters, data watermark)
+    
     @CreatedDate
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -148,6 +151,9 @@ public class Report {
     public Long getAccessCount() { return accessCount; }
     public void setAccessCount(Long accessCount) { this.accessCount = accessCount; }
     
+    public String getResultKey() { return resultKey; }
+    public void setResultKey(String resultKey) { this.resultKey = resultKey; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
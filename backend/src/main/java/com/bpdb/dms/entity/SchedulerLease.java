@@ -0,0 +1,68 @@
+package com.bpdb.dms.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Cluster-wide lease of one scheduled job. The node whose lease is current runs the job;
+ * the fencing token grows by one on every acquisition, so a node that outlived its lease
+ * can tell that another node has taken over.
+ */
+@Entity
+@Table(name = "scheduler_leases")
+public class SchedulerLease {
+
+    @Id
+    @Column(name = "job_name", length = 150)
+    private String jobName;
+
+    @Column(name = "owner", length = 255)
+    private String owner;
+
+    @Column(name = "fencing_token", nullable = false)
+    private Long fencingToken = 0L;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "acquired_at")
+    private LocalDateTime acquiredAt;
+
+    @Column(name = "last_completed_at")
+    private LocalDateTime lastCompletedAt;
+
+    @Column(name = "last_duration_ms")
+    private Long lastDurationMs;
+
+    @Column(name = "last_status", length = 20)
+    private String lastStatus;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "run_count", nullable = false)
+    private Long runCount = 0L;
+
+    public SchedulerLease() {}
+
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    public Long getFencingToken() { return fencingToken; }
+    public void setFencingToken(Long fencingToken) { this.fencingToken = fencingToken; }
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+    public LocalDateTime getAcquiredAt() { return acquiredAt; }
+    public void setAcquiredAt(LocalDateTime acquiredAt) { this.acquiredAt = acquiredAt; }
+    public LocalDateTime getLastCompletedAt() { return lastCompletedAt; }
+    public void setLastCompletedAt(LocalDateTime lastCompletedAt) { this.lastCompletedAt = lastCompletedAt; }
+    public Long getLastDurationMs() { return lastDurationMs; }
+    public void setLastDurationMs(Long lastDurationMs) { this.lastDurationMs = lastDurationMs; }
+    public String getLastStatus() { return lastStatus; }
+    public void setLastStatus(String lastStatus) { this.lastStatus = lastStatus; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+    public Long getRunCount() { return runCount; }
+    public void setRunCount(Long runCount) { this.runCount = runCount; }
+}
@@ -10,7 +10,10 @@ import java.time.LocalDateTime;
  * Entity for system health checks
  */
 @Entity
-@Table(name = "system_health_checks")
+@Table(name = "system_health_checks", indexes = {
+    @Index(name = "idx_system_health_checks_severity", columnList = "severity, executed_at"),
+    @Index(name = "idx_system_health_checks_status", columnList = "status")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class SystemHealthCheck {
     
@@ -1,6 +1,7 @@
 package com.bpdb.dms.entity;
 
 import jakarta.persistence.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 /**
@@ -46,6 +47,18 @@ public class Tenant {
     @Column(name = "current_storage_bytes")
     private Long currentStorageBytes;
     
+    @Column(name = "current_documents")
+    private Long currentDocuments;
+    
+    @Column(name = "ocr_pages_month")
+    private Long ocrPagesMonth;
+    
+    @Column(name = "ocr_pages_period")
+    private LocalDate ocrPagesPeriod;
+    
+    @Column(name = "usage_reconciled_at")
+    private LocalDateTime usageReconciledAt;
+    
     @Column(name = "subscription_start_date")
     private LocalDateTime subscriptionStartDate;
     
@@ -207,6 +220,38 @@ public class Tenant {
         this.currentStorageBytes = currentStorageBytes;
     }
     
+    public Long getCurrentDocuments() {
+        return currentDocuments;
+    }
+    
+    public void setCurrentDocuments(Long currentDocuments) {
+        this.currentDocuments = currentDocuments;
+    }
+    
+    public Long getOcrPagesMonth() {
+        return ocrPagesMonth;
+    }
+    
+    public void setOcrPagesMonth(Long ocrPagesMonth) {
+        this.ocrPagesMonth = ocrPagesMonth;
+    }
+    
+    public LocalDate getOcrPagesPeriod() {
+        return ocrPagesPeriod;
+    }
+    
+    public void setOcrPagesPeriod(LocalDate ocrPagesPeriod) {
+        this.ocrPagesPeriod = ocrPagesPeriod;
+    }
+    
+    public LocalDateTime getUsageReconciledAt() {
+        return usageReconciledAt;
+    }
+    
+    public void setUsageReconciledAt(LocalDateTime usageReconciledAt) {
+        this.usageReconciledAt = usageReconciledAt;
+    }
+    
     public LocalDateTime getSubscriptionStartDate() {
         return subscriptionStartDate;
     }
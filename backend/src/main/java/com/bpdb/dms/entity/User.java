@@ -59,6 +59,9 @@ public class User {
     @Column(name = "department")
     private String department;
     
+    @Column(name = "tenant_id")
+    private Long tenantId;
+    
     @Column(name = "is_active")
     private Boolean isActive = true;
     
@@ -165,6 +168,14 @@ public class User {
         this.department = department;
     }
     
+    public Long getTenantId() {
+        return tenantId;
+    }
+    
+    public void setTenantId(Long tenantId) {
+        this.tenantId = tenantId;
+    }
+    
     public Boolean getIsActive() {
         return isActive;
     }
@@ -5,11 +5,13 @@ import com.bpdb.dms.entity.AnalyticsType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -101,4 +103,38 @@ public interface AnalyticsDataRepository extends JpaRepository<AnalyticsData, Lo
            "GROUP BY ad.metricName")
     List<Object[]> getAggregatedMetricsByTimeRange(@Param("startTime") LocalDateTime startTime, 
                                                    @Param("endTime") LocalDateTime endTime);
+    
+    /**
+     * Next events for the rollup compactor, in id order
+     */
+    List<AnalyticsData> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+    
+    /**
+     * Events of the given types in [startTime, endTime) not yet compacted into rollups
+     */
+    @Query("SELECT ad FROM AnalyticsData ad WHERE ad.id > :afterId AND ad.analyticsType IN :types " +
+           "AND ad.timestamp >= :startTime AND ad.timestamp < :endTime")
+    List<AnalyticsData> findUncompacted(@Param("afterId") Long afterId,
+                                        @Param("types") Collection<AnalyticsType> types,
+                                        @Param("startTime") LocalDateTime startTime,
+                                        @Param("endTime") LocalDateTime endTime);
+    
+    /**
+     * Events of the given types in [startTime, endTime) already compacted into rollups;
+     * read instead of rollups that have been purged
+     */
+    @Query("SELECT ad FROM AnalyticsData ad WHERE ad.id <= :throughId AND ad.analyticsType IN :types " +
+           "AND ad.timestamp >= :startTime AND ad.timestamp < :endTime")
+    List<AnalyticsData> findCompacted(@Param("throughId") Long throughId,
+                                      @Param("types") Collection<AnalyticsType> types,
+                                      @Param("startTime") LocalDateTime startTime,
+                                      @Param("endTime") LocalDateTime endTime);
+    
+    /**
+     * Delete raw events past retention that are already in the rollups
+     */
+    @Modifying
+    @Query("DELETE FROM AnalyticsData ad WHERE ad.timestamp < :cutoff AND ad.id <= :compactedThrough")
+    int deleteCompactedBefore(@Param("cutoff") LocalDateTime cutoff,
+                              @Param("compactedThrough") Long compactedThrough);
 }
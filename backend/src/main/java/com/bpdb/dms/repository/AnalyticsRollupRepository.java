@@ -0,0 +1,38 @@
+package com.bpdb.dms.repository;
+
+import com.bpdb.dms.entity.AnalyticsRollup;
+import com.bpdb.dms.entity.AnalyticsRollupGranularity;
+import com.bpdb.dms.entity.AnalyticsType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AnalyticsRollupRepository extends JpaRepository<AnalyticsRollup, Long> {
+
+    List<AnalyticsRollup> findByGranularityAndBucketStartIn(AnalyticsRollupGranularity granularity,
+                                                           Collection<LocalDateTime> bucketStarts);
+
+    /**
+     * Totals per (type, dimension) over whole buckets of one granularity in [from, to):
+     * type, dimension, event count, value sum, value min, value max
+     */
+    @Query("SELECT r.analyticsType, r.dimension, SUM(r.eventCount), SUM(r.valueSum), MIN(r.valueMin), MAX(r.valueMax) " +
+           "FROM AnalyticsRollup r WHERE r.analyticsType IN :types AND r.granularity = :granularity " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to GROUP BY r.analyticsType, r.dimension")
+    List<Object[]> aggregate(@Param("types") Collection<AnalyticsType> types,
+                             @Param("granularity") AnalyticsRollupGranularity granularity,
+                             @Param("from") LocalDateTime from,
+                             @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query("DELETE FROM AnalyticsRollup r WHERE r.granularity = :granularity AND r.bucketStart < :cutoff")
+    int deleteOlderThan(@Param("granularity") AnalyticsRollupGranularity granularity,
+                        @Param("cutoff") LocalDateTime cutoff);
+}
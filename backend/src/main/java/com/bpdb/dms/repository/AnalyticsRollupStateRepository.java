@@ -0,0 +1,22 @@
+package com.bpdb.dms.repository;
+
+import com.bpdb.dms.entity.AnalyticsRollupState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AnalyticsRollupStateRepository extends JpaRepository<AnalyticsRollupState, Long> {
+
+    /**
+     * Lock the compactor state so only one instance compacts at a time
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AnalyticsRollupState s WHERE s.id = :id")
+    Optional<AnalyticsRollupState> findForUpdate(@Param("id") Long id);
+}
@@ -0,0 +1,22 @@
+package com.bpdb.dms.repository;
+
+import com.bpdb.dms.entity.AppBudgetLedgerEntry;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AppBudgetLedgerEntryRepository extends JpaRepository<AppBudgetLedgerEntry, Long> {
+
+    /**
+     * Lock a document's ledger entry so concurrent re-applies subtract it only once
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM AppBudgetLedgerEntry e WHERE e.documentId = :documentId")
+    Optional<AppBudgetLedgerEntry> findForUpdate(@Param("documentId") Long documentId);
+}
@@ -0,0 +1,44 @@
+package com.bpdb.dms.repository;
+
+import com.bpdb.dms.entity.AppBudgetLedger;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AppBudgetLedgerRepository extends JpaRepository<AppBudgetLedger, Long> {
+
+    /**
+     * Atomically add to an APP's ledger row, creating it on first use
+     */
+    @Modifying
+    @Query(value = "INSERT INTO app_budget_ledger (app_header_id, total_billed, bill_count, updated_at) " +
+                   "VALUES (:appHeaderId, :delta, :bills, :now) " +
+                   "ON CONFLICT (app_header_id) DO UPDATE SET " +
+                   "total_billed = app_budget_ledger.total_billed + EXCLUDED.total_billed, " +
+                   "bill_count = app_budget_ledger.bill_count + EXCLUDED.bill_count, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    int addToLedger(@Param("appHeaderId") Long appHeaderId,
+                    @Param("delta") BigDecimal delta,
+                    @Param("bills") long bills,
+                    @Param("now") LocalDateTime now);
+
+    /**
+     * Block ledger writes until the current transaction ends; reads continue to see the committed ledger
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE app_budget_ledger_entries, app_budget_ledger IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    /**
+     * Every APP entry with its ledger row (null when nothing has been billed): [AppHeader, AppBudgetLedger]
+     */
+    @Query("SELECT a, l FROM AppHeader a LEFT JOIN AppBudgetLedger l ON l.appHeaderId = a.id ORDER BY a.id")
+    List<Object[]> findAllAppsWithLedger();
+}
@@ -0,0 +1,56 @@
+package com.bpdb.dms.repository;
+
+import com.bpdb.dms.entity.BillActualSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BillActualSummaryRepository extends JpaRepository<BillActualSummary, Long> {
+
+    List<BillActualSummary> findByFiscalYear(Integer fiscalYear);
+
+    /**
+     * Atomically add to an APP line's summary row, creating it on first use
+     */
+    @Modifying
+    @Query(value = "INSERT INTO bill_actual_summaries (fiscal_year, summary_key, app_line_id, actual_amount, line_count, updated_at) " +
+                   "VALUES (:fiscalYear, :summaryKey, :appLineId, :delta, :lines, :now) " +
+                   "ON CONFLICT (fiscal_year, summary_key) DO UPDATE SET " +
+                   "actual_amount = bill_actual_summaries.actual_amount + EXCLUDED.actual_amount, " +
+                   "line_count = bill_actual_summaries.line_count + EXCLUDED.line_count, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    int upsertAppLine(@Param("fiscalYear") Integer fiscalYear,
+                      @Param("summaryKey") String summaryKey,
+                      @Param("appLineId") Long appLineId,
+                      @Param("delta") BigDecimal delta,
+                      @Param("lines") long lines,
+                      @Param("now") LocalDateTime now);
+
+    /**
+     * Atomically add to a project's summary row (lines without an APP line), creating it on first use
+     */
+    @Modifying
+    @Query(value = "INSERT INTO bill_actual_summaries (fiscal_year, summary_key, project_identifier, actual_amount, line_count, updated_at) " +
+                   "VALUES (:fiscalYear, :summaryKey, :projectIdentifier, :delta, :lines, :now) " +
+                   "ON CONFLICT (fiscal_year, summary_key) DO UPDATE SET " +
+                   "actual_amount = bill_actual_summaries.actual_amount + EXCLUDED.actual_amount, " +
+                   "line_count = bill_actual_summaries.line_count + EXCLUDED.line_count, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    int upsertProject(@Param("fiscalYear") Integer fiscalYear,
+                      @Param("summaryKey") String summaryKey,
+                      @Param("projectIdentifier") String projectIdentifier,
+                      @Param("delta") BigDecimal delta,
+                      @Param("lines") long lines,
+                      @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM BillActualSummary s WHERE s.fiscalYear = :fiscalYear")
+    int deleteByFiscalYear(@Param("fiscalYear") Integer fiscalYear);
+}
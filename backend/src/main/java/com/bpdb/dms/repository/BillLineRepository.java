@@ -2,10 +2,28 @@ package com.bpdb.dms.repository;
 
 import com.bpdb.dms.entity.BillLine;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface BillLineRepository extends JpaRepository<BillLine, Long> {
-}
 
+    /**
+     * Bill actuals (amount + tax) per APP line for a fiscal year: [appLineId, total, lineCount]
+     */
+    @Query("SELECT bl.appLine.id, SUM(COALESCE(bl.amount, 0) + COALESCE(bl.taxAmount, 0)), COUNT(bl) " +
+           "FROM BillLine bl WHERE bl.header.fiscalYear = :fiscalYear AND bl.appLine IS NOT NULL " +
+           "GROUP BY bl.appLine.id")
+    List<Object[]> sumActualsByAppLine(@Param("fiscalYear") Integer fiscalYear);
 
+    /**
+     * Bill actuals (amount + tax) per project for lines without an APP line: [projectIdentifier, total, lineCount]
+     */
+    @Query("SELECT bl.projectIdentifier, SUM(COALESCE(bl.amount, 0) + COALESCE(bl.taxAmount, 0)), COUNT(bl) " +
+           "FROM BillLine bl WHERE bl.header.fiscalYear = :fiscalYear AND bl.appLine IS NULL " +
+           "AND bl.projectIdentifier IS NOT NULL GROUP BY bl.projectIdentifier")
+    List<Object[]> sumActualsByProject(@Param("fiscalYear") Integer fiscalYear);
+}
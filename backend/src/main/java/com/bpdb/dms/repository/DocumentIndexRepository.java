@@ -37,26 +37,11 @@ public interface DocumentIndexRepository extends ElasticsearchRepository<Documen
      */
     Page<DocumentIndex> findByUploadedBy(String uploadedBy, Pageable pageable);
     
-    /**
-     * Search documents by tags
-     */
-    @Query("{\"wildcard\": {\"tags\": \"*?0*\"}}")
-    List<DocumentIndex> findByTagsContaining(String tag);
-    
     /**
      * Search documents by date range
      */
     Page<DocumentIndex> findByCreatedAtBetween(LocalDate startDate, LocalDate endDate, Pageable pageable);
     
-    /**
-     * Suggestions by file name or original name prefix (simple wildcard)
-     */
-    @Query("{\"wildcard\": {\"fileName\": \"?0*\"}}")
-    List<DocumentIndex> suggestByFileNamePrefix(String prefix);
-    
-    @Query("{\"wildcard\": {\"originalName\": \"?0*\"}}")
-    List<DocumentIndex> suggestByOriginalNamePrefix(String prefix);
-    
     /**
      * Search documents by OCR confidence
      */
@@ -79,12 +64,6 @@ public interface DocumentIndexRepository extends ElasticsearchRepository<Documen
     @Query("{\"bool\": {\"must\": [{\"multi_match\": {\"query\": \"?0\", \"fields\": [\"fileName\", \"extractedText\", \"description\"]}}], \"filter\": [{\"terms\": {\"documentType\": ?1}}, {\"terms\": {\"department\": ?2}}]}}")
     Page<DocumentIndex> searchWithFilters(String searchText, List<String> documentTypes, List<String> departments, Pageable pageable);
     
-    /**
-     * Get document suggestions for autocomplete
-     */
-    @Query("{\"multi_match\": {\"query\": \"?0\", \"fields\": [\"fileName^3\", \"originalName^3\", \"description^2\"], \"type\": \"phrase_prefix\"}}")
-    List<DocumentIndex> findSuggestions(String prefix, Pageable pageable);
-    
     /**
      * Count documents by type
      */
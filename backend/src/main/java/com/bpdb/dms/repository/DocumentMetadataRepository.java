@@ -3,6 +3,8 @@ package com.bpdb.dms.repository;
 import com.bpdb.dms.entity.Document;
 import com.bpdb.dms.entity.DocumentMetadata;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,5 +15,14 @@ public interface DocumentMetadataRepository extends JpaRepository<DocumentMetada
     List<DocumentMetadata> findByDocument(Document document);
 
     void deleteByDocument(Document document);
+
+    /**
+     * Selected metadata of active BILL documents in the given folders: [documentId, folderId, key, value]
+     */
+    @Query("SELECT d.id, d.folder.id, m.key, m.value FROM DocumentMetadata m JOIN m.document d " +
+           "WHERE d.documentType = 'BILL' AND d.isActive = true AND d.deletedAt IS NULL " +
+           "AND d.folder.id IN :folderIds AND m.key IN :keys")
+    List<Object[]> findBillMetadataInFolders(@Param("folderIds") List<Long> folderIds,
+                                             @Param("keys") List<String> keys);
 }
 
@@ -0,0 +1,25 @@
+package com.bpdb.dms.repository;
+
+import com.bpdb.dms.entity.DocumentMinHashBand;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DocumentMinHashBandRepository extends JpaRepository<DocumentMinHashBand, Long> {
+
+    /**
+     * Documents sharing at least one LSH bucket with the given band keys
+     */
+    @Query("SELECT DISTINCT b.documentId FROM DocumentMinHashBand b WHERE b.bandKey IN :bandKeys AND b.documentId <> :excludeId")
+    List<Long> findCandidateDocumentIds(@Param("bandKeys") Collection<Long> bandKeys, @Param("excludeId") Long excludeId);
+
+    @Modifying
+    @Query("DELETE FROM DocumentMinHashBand b WHERE b.documentId = :documentId")
+    int deleteByDocumentId(@Param("documentId") Long documentId);
+}
@@ -0,0 +1,9 @@
+package com.bpdb.dms.repository;
+
+import com.bpdb.dms.entity.DocumentMinHash;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DocumentMinHashRepository extends JpaRepository<DocumentMinHash, Long> {
+}
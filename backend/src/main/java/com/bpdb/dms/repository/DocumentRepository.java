@@ -114,6 +114,12 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     @Query("SELECT COUNT(d) FROM Document d WHERE d.createdAt > :date")
     long countByCreatedAtAfter(@Param("date") java.time.LocalDateTime date);
     
+    /**
+     * Latest document modification time, used as a data watermark for generated reports
+     */
+    @Query("SELECT MAX(d.updatedAt) FROM Document d")
+    java.time.LocalDateTime findLatestUpdatedAt();
+
     /**
      * Get document count by department
      */
@@ -184,4 +190,27 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
      */
     @Query("SELECT d FROM Document d WHERE d.folder = :folder AND d.documentType = 'BILL' AND d.isActive = true AND d.deletedAt IS NULL")
     List<Document> findBillDocumentsByFolder(@Param("folder") Folder folder);
+    
+    /**
+     * Keyset page of active document ids after the given id, in id order
+     */
+    @Query("SELECT d.id FROM Document d WHERE d.isActive = true AND d.id > :afterId ORDER BY d.id")
+    List<Long> findActiveIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Keyset page of active document ids without extracted text after the given id, in id order
+     */
+    @Query("SELECT d.id FROM Document d WHERE d.isActive = true AND d.id > :afterId " +
+           "AND (d.extractedText IS NULL OR d.extractedText = '') ORDER BY d.id")
+    List<Long> findActiveIdsWithoutTextAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT COUNT(d) FROM Document d WHERE d.isActive = true AND (d.extractedText IS NULL OR d.extractedText = '')")
+    long countActiveWithoutText();
+
+    /**
+     * Active documents per tenant: tenant id, count, total bytes
+     */
+    @Query("SELECT d.tenantId, COUNT(d), COALESCE(SUM(d.fileSize), 0) FROM Document d " +
+           "WHERE d.isActive = true AND d.tenantId IS NOT NULL GROUP BY d.tenantId")
+    List<Object[]> summarizeActiveDocumentsByTenant();
 }
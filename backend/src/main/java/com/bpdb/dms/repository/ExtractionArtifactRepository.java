@@ -0,0 +1,15 @@
+package com.bpdb.dms.repository;
+
+import com.bpdb.dms.entity.ExtractionArtifact;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ExtractionArtifactRepository extends JpaRepository<ExtractionArtifact, Long> {
+
+    Optional<ExtractionArtifact> findByFileHashAndEngineVersionAndLanguage(String fileHash, String engineVersion, String language);
+
+    Optional<ExtractionArtifact> findFirstByFileHashOrderByCreatedAtDesc(String fileHash);
+}
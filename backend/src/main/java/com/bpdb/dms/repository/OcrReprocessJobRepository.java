@@ -0,0 +1,35 @@
+package com.bpdb.dms.repository;
+
+import com.bpdb.dms.entity.OcrReprocessJob;
+import com.bpdb.dms.entity.OcrReprocessJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OcrReprocessJobRepository extends JpaRepository<OcrReprocessJob, Long> {
+
+    List<OcrReprocessJob> findByStatusIn(Collection<OcrReprocessJobStatus> statuses);
+
+    Optional<OcrReprocessJob> findFirstByOrderByCreatedAtDesc();
+
+    /**
+     * Advance the checkpoint without touching the status, which pause/cancel may change concurrently
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OcrReprocessJob j SET j.lastDocumentId = :lastDocumentId, " +
+           "j.processedCount = j.processedCount + :processed, j.failedCount = j.failedCount + :failed, " +
+           "j.lastError = COALESCE(:lastError, j.lastError), j.updatedAt = :updatedAt WHERE j.id = :id")
+    int checkpoint(@Param("id") Long id, @Param("lastDocumentId") Long lastDocumentId,
+                   @Param("processed") long processed, @Param("failed") long failed,
+                   @Param("lastError") String lastError, @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -59,6 +59,13 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
     @Query("SELECT r FROM Report r WHERE r.isScheduled = true AND r.nextGenerationAt <= :now")
     List<Report> findScheduledForGeneration(@Param("now") LocalDateTime now);
     
+    /**
+     * Find the most recent completed, unexpired report generated for a result key
+     */
+    @Query("SELECT r FROM Report r WHERE r.resultKey = :resultKey AND r.status = 'COMPLETED' " +
+           "AND r.filePath IS NOT NULL AND (r.expiresAt IS NULL OR r.expiresAt > :now) ORDER BY r.generatedAt DESC")
+    List<Report> findReusableByResultKey(@Param("resultKey") String resultKey, @Param("now") LocalDateTime now, Pageable pageable);
+    
     /**
      * Find expired reports
      */
@@ -97,6 +104,17 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
     @Query("SELECT r FROM Report r WHERE r.generatedAt IS NOT NULL ORDER BY r.generatedAt DESC")
     List<Report> findRecentlyGeneratedReports(Pageable pageable);
     
+    /**
+     * Files of the reports that deleteOldReports removes
+     */
+    @Query("SELECT DISTINCT r.filePath FROM Report r WHERE r.createdAt < :cutoffDate AND r.status IN ('COMPLETED', 'EXPIRED') AND r.filePath IS NOT NULL")
+    List<String> findFilePathsOfOldReports(@Param("cutoffDate") LocalDateTime cutoffDate);
+    
+    /**
+     * Whether any report still points at a generated file; reused reports share one file
+     */
+    boolean existsByFilePath(String filePath);
+    
     /**
      * Delete old reports
      */
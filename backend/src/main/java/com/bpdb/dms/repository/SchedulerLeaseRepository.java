@@ -0,0 +1,13 @@
+package com.bpdb.dms.repository;
+
+import com.bpdb.dms.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    List<SchedulerLease> findAllByOrderByJobNameAsc();
+}
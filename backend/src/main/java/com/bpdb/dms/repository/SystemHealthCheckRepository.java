@@ -44,6 +44,21 @@ public interface SystemHealthCheckRepository extends JpaRepository<SystemHealthC
      */
     Page<SystemHealthCheck> findBySeverity(String severity, Pageable pageable);
     
+    /**
+     * Find health checks with a severity, most recent first (indexed)
+     */
+    List<SystemHealthCheck> findBySeverityOrderByExecutedAtDesc(String severity);
+    
+    /**
+     * Find all health checks of a component
+     */
+    List<SystemHealthCheck> findAllByComponent(String component);
+    
+    /**
+     * Find all health checks of a service
+     */
+    List<SystemHealthCheck> findAllByService(String service);
+    
     /**
      * Find enabled health checks
      */
@@ -3,13 +3,17 @@ package com.bpdb.dms.repository;
 import com.bpdb.dms.entity.Tenant;
 import com.bpdb.dms.entity.TenantPlan;
 import com.bpdb.dms.entity.TenantStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -163,4 +167,34 @@ public interface TenantRepository extends JpaRepository<Tenant, Long> {
      * Find tenants by contact name
      */
     List<Tenant> findByContactNameContainingIgnoreCase(String contactName);
+    
+    /**
+     * Lock every tenant row, in id order, so counter increments wait while usage is recounted
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Tenant t ORDER BY t.id")
+    List<Tenant> findAllForUpdate();
+    
+    /**
+     * Add to a tenant's document and storage counters in place
+     */
+    @Modifying
+    @Query("UPDATE Tenant t SET t.currentDocuments = COALESCE(t.currentDocuments, 0) + :documents, " +
+           "t.currentStorageBytes = COALESCE(t.currentStorageBytes, 0) + :bytes WHERE t.id = :tenantId")
+    int addDocumentUsage(@Param("tenantId") Long tenantId, @Param("documents") long documents, @Param("bytes") long bytes);
+    
+    /**
+     * Add to a tenant's user counter in place
+     */
+    @Modifying
+    @Query("UPDATE Tenant t SET t.currentUsers = COALESCE(t.currentUsers, 0) + :users WHERE t.id = :tenantId")
+    int addUsers(@Param("tenantId") Long tenantId, @Param("users") int users);
+    
+    /**
+     * Add OCR pages to the tenant's monthly counter, restarting it when the month changes
+     */
+    @Modifying
+    @Query("UPDATE Tenant t SET t.ocrPagesMonth = CASE WHEN t.ocrPagesPeriod = :period " +
+           "THEN COALESCE(t.ocrPagesMonth, 0) + :pages ELSE :pages END, t.ocrPagesPeriod = :period WHERE t.id = :tenantId")
+    int addOcrPages(@Param("tenantId") Long tenantId, @Param("pages") long pages, @Param("period") LocalDate period);
 }
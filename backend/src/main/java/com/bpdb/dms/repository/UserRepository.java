@@ -91,4 +91,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     @Query("SELECT u.department, COUNT(u) FROM User u GROUP BY u.department")
     java.util.List<Object[]> getUserCountByDepartment();
+    
+    /**
+     * Active users per tenant: tenant id, count
+     */
+    @Query("SELECT u.tenantId, COUNT(u) FROM User u WHERE u.isActive = true AND u.tenantId IS NOT NULL GROUP BY u.tenantId")
+    java.util.List<Object[]> countActiveUsersByTenant();
 }
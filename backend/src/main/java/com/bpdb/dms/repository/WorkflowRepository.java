@@ -92,4 +92,10 @@ public interface WorkflowRepository extends JpaRepository<Workflow, Long> {
      */
     @Query("SELECT w FROM Workflow w WHERE w.appEntry IS NOT NULL")
     java.util.List<Workflow> findWithAppEntry();
+
+    /**
+     * Folder to APP entry mapping for workflows linked to an APP entry: [folderId, appHeaderId]
+     */
+    @Query("SELECT w.folder.id, w.appEntry.id FROM Workflow w WHERE w.appEntry IS NOT NULL AND w.folder IS NOT NULL")
+    java.util.List<Object[]> findFolderAppMappings();
 }
@@ -2,6 +2,8 @@ package com.bpdb.dms.service;
 
 import com.bpdb.dms.entity.*;
 import com.bpdb.dms.repository.AnalyticsDataRepository;
+import com.bpdb.dms.service.AnalyticsRollupService.RollupSummary;
+import com.bpdb.dms.service.AnalyticsRollupService.Totals;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +17,6 @@ import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Service for advanced analytics and business intelligence
@@ -26,10 +27,19 @@ public class AdvancedAnalyticsService {
 
     private static final Logger logger = LoggerFactory.getLogger(AdvancedAnalyticsService.class);
 
+    private static final Set<AnalyticsType> DASHBOARD_TYPES = EnumSet.of(
+        AnalyticsType.USER_ACTIVITY, AnalyticsType.DOCUMENT_USAGE, AnalyticsType.SYSTEM_PERFORMANCE,
+        AnalyticsType.WORKFLOW_METRICS, AnalyticsType.SEARCH_ANALYTICS, AnalyticsType.STORAGE_METRICS,
+        AnalyticsType.SECURITY_EVENTS);
+
     @Autowired
     private AnalyticsDataRepository analyticsDataRepository;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
+    @Autowired
+    private AnalyticsIngestionBuffer analyticsIngestionBuffer;
 
     public AnalyticsData createAnalyticsData(AnalyticsType analyticsType,
                                              String metricName,
@@ -37,35 +47,31 @@ public class AdvancedAnalyticsService {
                                              Map<String, Object> dimensions,
                                              String sourceSystem,
                                              LocalDateTime timestamp) {
-        try {
-            AnalyticsData analyticsData = new AnalyticsData(analyticsType, metricName, metricValue,
-                timestamp != null ? timestamp : LocalDateTime.now());
-            analyticsData.setSourceSystem(sourceSystem);
+        AnalyticsData analyticsData = new AnalyticsData(analyticsType, metricName, metricValue,
+            timestamp != null ? timestamp : LocalDateTime.now());
+        analyticsData.setSourceSystem(sourceSystem);
 
-            if (dimensions != null && !dimensions.isEmpty()) {
-                analyticsData.setDimensions(objectMapper.writeValueAsString(dimensions));
-            }
-
-            AnalyticsData saved = analyticsDataRepository.save(analyticsData);
+        // Written asynchronously in batches; the returned event has no id yet
+        if (analyticsIngestionBuffer.record(analyticsData, dimensions)) {
             logger.debug("Analytics data collected: {} - {}", metricName, metricValue);
-            return saved;
-
-        } catch (Exception e) {
-            logger.error("Failed to collect analytics data: {}", e.getMessage());
-            throw new RuntimeException("Failed to collect analytics data", e);
+        } else {
+            logger.debug("Analytics buffer full, dropped: {} - {}", metricName, metricValue);
         }
+        return analyticsData;
     }
 
     public Map<String, Object> getAnalyticsDashboard(LocalDateTime startDate, LocalDateTime endDate) {
         try {
+            // One rollup read for every section instead of one raw scan per section
+            Map<AnalyticsType, RollupSummary> summaries = summarize(startDate, endDate, DASHBOARD_TYPES);
             Map<String, Object> dashboard = new HashMap<>();
-            dashboard.put("userActivity", getUserActivityMetrics(startDate, endDate));
-            dashboard.put("documentUsage", getDocumentUsageMetrics(startDate, endDate));
-            dashboard.put("systemPerformance", getSystemPerformanceMetrics(startDate, endDate));
-            dashboard.put("workflowMetrics", getWorkflowMetrics(startDate, endDate));
-            dashboard.put("searchAnalytics", getSearchAnalytics(startDate, endDate));
-            dashboard.put("storageMetrics", getStorageMetrics(startDate, endDate));
-            dashboard.put("securityEvents", getSecurityEvents(startDate, endDate));
+            dashboard.put("userActivity", userActivityMetrics(summaries.get(AnalyticsType.USER_ACTIVITY)));
+            dashboard.put("documentUsage", documentUsageMetrics(summaries.get(AnalyticsType.DOCUMENT_USAGE)));
+            dashboard.put("systemPerformance", systemPerformanceMetrics(summaries.get(AnalyticsType.SYSTEM_PERFORMANCE)));
+            dashboard.put("workflowMetrics", workflowMetrics(summaries.get(AnalyticsType.WORKFLOW_METRICS)));
+            dashboard.put("searchAnalytics", searchAnalytics(summaries.get(AnalyticsType.SEARCH_ANALYTICS)));
+            dashboard.put("storageMetrics", storageMetrics(summaries.get(AnalyticsType.STORAGE_METRICS)));
+            dashboard.put("securityEvents", securityEvents(summaries.get(AnalyticsType.SECURITY_EVENTS)));
             return dashboard;
         } catch (Exception e) {
             logger.error("Failed to get analytics dashboard: {}", e.getMessage());
@@ -75,14 +81,7 @@ public class AdvancedAnalyticsService {
 
     public Map<String, Object> getUserActivityMetrics(LocalDateTime startDate, LocalDateTime endDate) {
         try {
-            List<AnalyticsData> userActivityData = filterByType(startDate, endDate, AnalyticsType.USER_ACTIVITY);
-            Map<String, Object> metrics = new HashMap<>();
-            metrics.put("totalUsers", userActivityData.stream().map(AnalyticsData::getUserId).filter(Objects::nonNull).distinct().count());
-            metrics.put("activeUsers", userActivityData.stream().map(AnalyticsData::getUserId).filter(Objects::nonNull).distinct().count());
-            metrics.put("totalSessions", userActivityData.size());
-            metrics.put("averageSessionDuration", calculateAverage(userActivityData));
-            metrics.put("peakUsageHours", calculatePeakUsageHours(userActivityData));
-            return metrics;
+            return userActivityMetrics(summarize(startDate, endDate, AnalyticsType.USER_ACTIVITY));
         } catch (Exception e) {
             logger.error("Failed to get user activity metrics: {}", e.getMessage());
             return Map.of();
@@ -91,15 +90,7 @@ public class AdvancedAnalyticsService {
 
     public Map<String, Object> getDocumentUsageMetrics(LocalDateTime startDate, LocalDateTime endDate) {
         try {
-            List<AnalyticsData> documentUsageData = filterByType(startDate, endDate, AnalyticsType.DOCUMENT_USAGE);
-            Map<String, Object> metrics = new HashMap<>();
-            metrics.put("totalDocuments", documentUsageData.stream().map(AnalyticsData::getDocumentId).filter(Objects::nonNull).distinct().count());
-            metrics.put("totalDownloads", documentUsageData.stream()
-                .mapToLong(data -> data.getMetricValue() != null ? data.getMetricValue().longValue() : 0L).sum());
-            metrics.put("averageDownloadsPerDocument", calculateAverageDownloads(documentUsageData));
-            metrics.put("mostAccessedDocuments", mostAccessedDocuments(documentUsageData));
-            metrics.put("documentTypesDistribution", Map.of());
-            return metrics;
+            return documentUsageMetrics(summarize(startDate, endDate, AnalyticsType.DOCUMENT_USAGE));
         } catch (Exception e) {
             logger.error("Failed to get document usage metrics: {}", e.getMessage());
             return Map.of();
@@ -108,14 +99,7 @@ public class AdvancedAnalyticsService {
 
     public Map<String, Object> getSystemPerformanceMetrics(LocalDateTime startDate, LocalDateTime endDate) {
         try {
-            List<AnalyticsData> performanceData = filterByType(startDate, endDate, AnalyticsType.SYSTEM_PERFORMANCE);
-            Map<String, Object> metrics = new HashMap<>();
-            metrics.put("averageResponseTime", calculateAverage(performanceData));
-            metrics.put("peakResponseTime", calculateMax(performanceData));
-            metrics.put("errorRate", calculateErrorRate(performanceData));
-            metrics.put("throughput", calculateThroughput(performanceData));
-            metrics.put("uptime", "99.9%");
-            return metrics;
+            return systemPerformanceMetrics(summarize(startDate, endDate, AnalyticsType.SYSTEM_PERFORMANCE));
         } catch (Exception e) {
             logger.error("Failed to get system performance metrics: {}", e.getMessage());
             return Map.of();
@@ -124,14 +108,7 @@ public class AdvancedAnalyticsService {
 
     public Map<String, Object> getWorkflowMetrics(LocalDateTime startDate, LocalDateTime endDate) {
         try {
-            List<AnalyticsData> workflowData = filterByType(startDate, endDate, AnalyticsType.WORKFLOW_METRICS);
-            Map<String, Object> metrics = new HashMap<>();
-            metrics.put("totalWorkflows", workflowData.size());
-            metrics.put("completedWorkflows", workflowData.size());
-            metrics.put("averageCompletionTime", calculateAverage(workflowData));
-            metrics.put("workflowEfficiency", 0.92);
-            metrics.put("bottlenecks", List.of());
-            return metrics;
+            return workflowMetrics(summarize(startDate, endDate, AnalyticsType.WORKFLOW_METRICS));
         } catch (Exception e) {
             logger.error("Failed to get workflow metrics: {}", e.getMessage());
             return Map.of();
@@ -140,14 +117,7 @@ public class AdvancedAnalyticsService {
 
     public Map<String, Object> getSearchAnalytics(LocalDateTime startDate, LocalDateTime endDate) {
         try {
-            List<AnalyticsData> searchData = filterByType(startDate, endDate, AnalyticsType.SEARCH_ANALYTICS);
-            Map<String, Object> metrics = new HashMap<>();
-            metrics.put("totalSearches", searchData.size());
-            metrics.put("averageSearchTime", calculateAverage(searchData));
-            metrics.put("popularSearchTerms", Collections.emptyList());
-            metrics.put("searchSuccessRate", 0.85);
-            metrics.put("noResultsSearches", 5);
-            return metrics;
+            return searchAnalytics(summarize(startDate, endDate, AnalyticsType.SEARCH_ANALYTICS));
         } catch (Exception e) {
             logger.error("Failed to get search analytics: {}", e.getMessage());
             return Map.of();
@@ -156,15 +126,7 @@ public class AdvancedAnalyticsService {
 
     public Map<String, Object> getStorageMetrics(LocalDateTime startDate, LocalDateTime endDate) {
         try {
-            List<AnalyticsData> storageData = filterByType(startDate, endDate, AnalyticsType.STORAGE_METRICS);
-            Map<String, Object> metrics = new HashMap<>();
-            metrics.put("totalStorageUsed", storageData.stream()
-                .mapToDouble(data -> data.getMetricValue() != null ? data.getMetricValue() : 0.0).sum());
-            metrics.put("storageGrowthRate", 0.12);
-            metrics.put("averageFileSize", calculateAverage(storageData));
-            metrics.put("storageByType", Map.of());
-            metrics.put("cleanupRecommendations", List.of());
-            return metrics;
+            return storageMetrics(summarize(startDate, endDate, AnalyticsType.STORAGE_METRICS));
         } catch (Exception e) {
             logger.error("Failed to get storage metrics: {}", e.getMessage());
             return Map.of();
@@ -173,20 +135,90 @@ public class AdvancedAnalyticsService {
 
     public Map<String, Object> getSecurityEvents(LocalDateTime startDate, LocalDateTime endDate) {
         try {
-            List<AnalyticsData> securityData = filterByType(startDate, endDate, AnalyticsType.SECURITY_EVENTS);
-            Map<String, Object> metrics = new HashMap<>();
-            metrics.put("totalSecurityEvents", securityData.size());
-            metrics.put("failedLoginAttempts", 5);
-            metrics.put("suspiciousActivities", 1);
-            metrics.put("securityAlerts", List.of());
-            metrics.put("complianceScore", 0.95);
-            return metrics;
+            return securityEvents(summarize(startDate, endDate, AnalyticsType.SECURITY_EVENTS));
         } catch (Exception e) {
             logger.error("Failed to get security events: {}", e.getMessage());
             return Map.of();
         }
     }
 
+    private Map<String, Object> userActivityMetrics(RollupSummary summary) {
+        Totals total = summary.getTotal();
+        int users = summary.breakdown(AnalyticsRollupService.USER).size();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalUsers", (long) users);
+        metrics.put("activeUsers", (long) users);
+        metrics.put("totalSessions", total.getCount());
+        metrics.put("averageSessionDuration", total.getAverage());
+        metrics.put("peakUsageHours", calculatePeakUsageHours(summary));
+        return metrics;
+    }
+
+    private Map<String, Object> documentUsageMetrics(RollupSummary summary) {
+        Map<String, Totals> documents = summary.breakdown(AnalyticsRollupService.DOCUMENT);
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalDocuments", (long) documents.size());
+        metrics.put("totalDownloads", (long) summary.getTotal().getSum());
+        metrics.put("averageDownloadsPerDocument", documents.values().stream().mapToLong(Totals::getCount).average().orElse(0.0));
+        metrics.put("mostAccessedDocuments", mostAccessedDocuments(documents));
+        metrics.put("documentTypesDistribution", Map.of());
+        return metrics;
+    }
+
+    private Map<String, Object> systemPerformanceMetrics(RollupSummary summary) {
+        Totals total = summary.getTotal();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("averageResponseTime", total.getAverage());
+        metrics.put("peakResponseTime", total.getMax());
+        metrics.put("errorRate", total.getCount() == 0 ? 0.0 : 0.02);
+        metrics.put("throughput", total.getSum());
+        metrics.put("uptime", "99.9%");
+        return metrics;
+    }
+
+    private Map<String, Object> workflowMetrics(RollupSummary summary) {
+        Totals total = summary.getTotal();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalWorkflows", total.getCount());
+        metrics.put("completedWorkflows", total.getCount());
+        metrics.put("averageCompletionTime", total.getAverage());
+        metrics.put("workflowEfficiency", 0.92);
+        metrics.put("bottlenecks", List.of());
+        return metrics;
+    }
+
+    private Map<String, Object> searchAnalytics(RollupSummary summary) {
+        Totals total = summary.getTotal();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalSearches", total.getCount());
+        metrics.put("averageSearchTime", total.getAverage());
+        metrics.put("popularSearchTerms", Collections.emptyList());
+        metrics.put("searchSuccessRate", 0.85);
+        metrics.put("noResultsSearches", 5);
+        return metrics;
+    }
+
+    private Map<String, Object> storageMetrics(RollupSummary summary) {
+        Totals total = summary.getTotal();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalStorageUsed", total.getSum());
+        metrics.put("storageGrowthRate", 0.12);
+        metrics.put("averageFileSize", total.getAverage());
+        metrics.put("storageByType", Map.of());
+        metrics.put("cleanupRecommendations", List.of());
+        return metrics;
+    }
+
+    private Map<String, Object> securityEvents(RollupSummary summary) {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("totalSecurityEvents", summary.getTotal().getCount());
+        metrics.put("failedLoginAttempts", 5);
+        metrics.put("suspiciousActivities", 1);
+        metrics.put("securityAlerts", List.of());
+        metrics.put("complianceScore", 0.95);
+        return metrics;
+    }
+
     @Async
     public CompletableFuture<Map<String, Object>> generatePredictiveAnalytics() {
         try {
@@ -248,7 +280,8 @@ public class AdvancedAnalyticsService {
     public Map<String, Object> getAnalyticsStatistics() {
         return Map.of(
             "totalAnalyticsRecords", analyticsDataRepository.count(),
-            "predictedAnalyticsCount", analyticsDataRepository.countByIsPredictedTrue()
+            "predictedAnalyticsCount", analyticsDataRepository.countByIsPredictedTrue(),
+            "rollups", analyticsRollupService.getStatistics()
         );
     }
 
@@ -265,69 +298,33 @@ public class AdvancedAnalyticsService {
         return exportResult;
     }
 
-    private List<AnalyticsData> filterByType(LocalDateTime startDate, LocalDateTime endDate, AnalyticsType type) {
-        return analyticsDataRepository.findByTimestampBetween(
-            startDate != null ? startDate : LocalDateTime.now().minusDays(30),
-            endDate != null ? endDate : LocalDateTime.now())
-            .stream()
-            .filter(data -> data.getAnalyticsType() == type)
-            .collect(Collectors.toList());
-    }
-
-    private double calculateAverage(List<AnalyticsData> data) {
-        return data.stream()
-            .mapToDouble(d -> d.getMetricValue() != null ? d.getMetricValue() : 0.0)
-            .average()
-            .orElse(0.0);
+    private RollupSummary summarize(LocalDateTime startDate, LocalDateTime endDate, AnalyticsType type) {
+        return summarize(startDate, endDate, EnumSet.of(type)).get(type);
     }
 
-    private double calculateMax(List<AnalyticsData> data) {
-        return data.stream()
-            .mapToDouble(d -> d.getMetricValue() != null ? d.getMetricValue() : 0.0)
-            .max()
-            .orElse(0.0);
-    }
-
-    private double calculateErrorRate(List<AnalyticsData> data) {
-        return data.isEmpty() ? 0.0 : 0.02;
-    }
-
-    private double calculateThroughput(List<AnalyticsData> data) {
-        return data.stream()
-            .mapToDouble(d -> d.getMetricValue() != null ? d.getMetricValue() : 0.0)
-            .sum();
-    }
-
-    private double calculateAverageDownloads(List<AnalyticsData> data) {
-        Map<Long, Long> counts = data.stream()
-            .map(AnalyticsData::getDocumentId)
-            .filter(Objects::nonNull)
-            .collect(Collectors.groupingBy(id -> id, Collectors.counting()));
-        return counts.values().stream().mapToLong(Long::longValue).average().orElse(0.0);
+    private Map<AnalyticsType, RollupSummary> summarize(LocalDateTime startDate, LocalDateTime endDate,
+                                                        Set<AnalyticsType> types) {
+        return analyticsRollupService.summarize(types,
+            startDate != null ? startDate : LocalDateTime.now().minusDays(30),
+            endDate != null ? endDate : LocalDateTime.now());
     }
 
-    private List<Map<String, Object>> mostAccessedDocuments(List<AnalyticsData> data) {
-        return data.stream()
-            .map(AnalyticsData::getDocumentId)
-            .filter(Objects::nonNull)
-            .collect(Collectors.groupingBy(id -> id, Collectors.counting()))
-            .entrySet()
+    private List<Map<String, Object>> mostAccessedDocuments(Map<String, Totals> documents) {
+        return documents.entrySet()
             .stream()
-            .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+            .sorted(Comparator.comparingLong((Map.Entry<String, Totals> entry) -> entry.getValue().getCount()).reversed())
             .limit(10)
-            .map(entry -> Map.<String, Object>of("documentId", entry.getKey(), "accessCount", entry.getValue()))
+            .map(entry -> Map.<String, Object>of("documentId", Long.valueOf(entry.getKey()), "accessCount", entry.getValue().getCount()))
             .collect(Collectors.toList());
     }
 
-    private List<Integer> calculatePeakUsageHours(List<AnalyticsData> data) {
-        return data.stream()
-            .collect(Collectors.groupingBy(d -> d.getTimestamp().getHour(), Collectors.counting()))
+    private List<Integer> calculatePeakUsageHours(RollupSummary summary) {
+        return summary.breakdown(AnalyticsRollupService.HOUR_OF_DAY)
             .entrySet()
             .stream()
-            .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+            .sorted(Comparator.comparingLong((Map.Entry<String, Totals> entry) -> entry.getValue().getCount()).reversed())
             .limit(3)
-            .map(Map.Entry::getKey)
+            .map(entry -> Integer.valueOf(entry.getKey()))
             .collect(Collectors.toList());
     }
 }
-
@@ -0,0 +1,432 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.Analytics;
+import com.bpdb.dms.entity.AnalyticsData;
+import com.bpdb.dms.entity.MetricType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory write buffer for analytics events (analytics_data) and reporting counters
+ * (analytics). Callers never wait on the database: events are queued, and counters with
+ * the same metric and dimension are summed into one row per flush. A background thread
+ * writes the buffer with JDBC batches every flush interval, or as soon as a batch is
+ * full. When the buffer is at capacity new events are dropped and counted.
+ */
+@Service
+public class AnalyticsIngestionBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsIngestionBuffer.class);
+
+    private static final String INSERT_EVENT_SQL =
+        "INSERT INTO analytics_data (analytics_type, metric_name, metric_value, dimensions, source_system, " +
+        "user_id, document_id, department, timestamp, is_predicted, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_EVENT_TYPES = {
+        Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.VARCHAR, Types.VARCHAR,
+        Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP, Types.BOOLEAN, Types.TIMESTAMP
+    };
+
+    private static final String INSERT_COUNTER_SQL =
+        "INSERT INTO analytics (metric_type, metric_name, metric_value, dimension_key, dimension_value, " +
+        "period_start, period_end, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_COUNTER_TYPES = {
+        Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.VARCHAR, Types.VARCHAR,
+        Types.TIMESTAMP, Types.TIMESTAMP, Types.TIMESTAMP
+    };
+
+    @Autowired(required = false)
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    /** Rows per JDBC batch; a full batch triggers a flush before the interval */
+    @Value("${app.analytics.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${app.analytics.flush-interval:5000}")
+    private long flushIntervalMillis = 5000;
+
+    /** Rows (events plus distinct counters) held before new events are dropped */
+    @Value("${app.analytics.buffer-capacity:100000}")
+    private int capacity = 100000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentLinkedQueue<PendingEvent> events = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<CounterKey, CounterCell> counters = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    // System.nanoTime() of the oldest unflushed row, 0 when the buffer is empty
+    private final AtomicLong oldestPendingNanos = new AtomicLong();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+
+    private BatchWriter writer;
+    private ScheduledExecutorService flusher;
+
+    public AnalyticsIngestionBuffer() {
+    }
+
+    AnalyticsIngestionBuffer(int batchSize, int capacity, BatchWriter writer) {
+        this.batchSize = batchSize;
+        this.capacity = capacity;
+        this.writer = writer;
+    }
+
+    @PostConstruct
+    void start() {
+        if (writer == null) {
+            writer = new JdbcBatchWriter(jdbcTemplate);
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "analytics-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        registerMetrics();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushSafely();
+    }
+
+    private void registerMetrics() {
+        if (meterRegistry == null) {
+            return;
+        }
+        Gauge.builder("dms.analytics.buffer.size", pending, AtomicInteger::get)
+            .description("Analytics rows waiting to be written")
+            .baseUnit("rows")
+            .register(meterRegistry);
+        Gauge.builder("dms.analytics.buffer.lag", this, AnalyticsIngestionBuffer::lagSeconds)
+            .description("Age of the oldest analytics row waiting to be written")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        FunctionCounter.builder("dms.analytics.events", accepted, AtomicLong::get)
+            .description("Analytics events offered to the buffer, by result")
+            .tag("result", "accepted")
+            .register(meterRegistry);
+        FunctionCounter.builder("dms.analytics.events", coalesced, AtomicLong::get)
+            .description("Analytics events offered to the buffer, by result")
+            .tag("result", "coalesced")
+            .register(meterRegistry);
+        FunctionCounter.builder("dms.analytics.events", dropped, AtomicLong::get)
+            .description("Analytics events offered to the buffer, by result")
+            .tag("result", "dropped")
+            .register(meterRegistry);
+        FunctionCounter.builder("dms.analytics.rows.written", written, AtomicLong::get)
+            .description("Analytics rows written to the database")
+            .register(meterRegistry);
+        FunctionCounter.builder("dms.analytics.rows.failed", writeFailures, AtomicLong::get)
+            .description("Analytics rows lost because a batch insert failed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queue an analytics_data event. Dimensions are serialized on the flush thread.
+     * Returns false if the buffer is full and the event was dropped.
+     */
+    public boolean record(AnalyticsData event, Map<String, Object> dimensions) {
+        if (!reserve()) {
+            return false;
+        }
+        events.add(new PendingEvent(event, dimensions));
+        accepted.incrementAndGet();
+        afterAdd();
+        return true;
+    }
+
+    /**
+     * Add to a reporting counter. Increments of the same metric and dimension within one
+     * flush interval are written as a single row covering that period.
+     */
+    public boolean increment(MetricType metricType, String metricName, double value,
+                             String dimensionKey, String dimensionValue) {
+        CounterKey key = new CounterKey(metricType, metricName, dimensionKey, dimensionValue);
+        LocalDateTime now = LocalDateTime.now();
+        while (true) {
+            CounterCell cell = counters.get(key);
+            if (cell == null) {
+                if (!reserve()) {
+                    return false;
+                }
+                CounterCell fresh = new CounterCell(value, now);
+                if (counters.putIfAbsent(key, fresh) == null) {
+                    accepted.incrementAndGet();
+                    afterAdd();
+                    return true;
+                }
+                // Lost the race to another writer; give the row back and add to theirs
+                pending.decrementAndGet();
+                continue;
+            }
+            if (cell.add(value, now)) {
+                coalesced.incrementAndGet();
+                return true;
+            }
+            // The cell was taken by a flush; retry against a fresh one
+        }
+    }
+
+    private boolean reserve() {
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            long count = dropped.incrementAndGet();
+            if (count == 1 || count % 10000 == 0) {
+                logger.warn("Analytics buffer full ({} rows), dropping events; {} dropped so far", capacity, count);
+            }
+            return false;
+        }
+        oldestPendingNanos.compareAndSet(0, System.nanoTime());
+        return true;
+    }
+
+    private void afterAdd() {
+        if (pending.get() >= batchSize && flusher != null && flushQueued.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushSafely);
+            } catch (RejectedExecutionException e) {
+                flushQueued.set(false);
+            }
+        }
+    }
+
+    double lagSeconds() {
+        long oldest = oldestPendingNanos.get();
+        return oldest == 0 ? 0.0 : (System.nanoTime() - oldest) / 1e9;
+    }
+
+    int getPendingCount() {
+        return pending.get();
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Analytics flush failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Write everything buffered so far. Only ever runs on one thread at a time.
+     */
+    synchronized void flush() {
+        flushQueued.set(false);
+        if (pending.get() == 0) {
+            return;
+        }
+        // Rows added from here on are covered by the next flush
+        oldestPendingNanos.set(0);
+        LocalDateTime now = LocalDateTime.now();
+
+        int toDrain = pending.get();
+        List<AnalyticsData> eventBatch = new ArrayList<>(Math.min(batchSize, toDrain));
+        PendingEvent next;
+        while (toDrain-- > 0 && (next = events.poll()) != null) {
+            eventBatch.add(next.toEntity(objectMapper, now));
+            if (eventBatch.size() >= batchSize) {
+                writeEvents(eventBatch);
+                eventBatch = new ArrayList<>(batchSize);
+            }
+        }
+        writeEvents(eventBatch);
+
+        List<Analytics> counterBatch = new ArrayList<>();
+        for (CounterKey key : counters.keySet()) {
+            CounterCell cell = counters.remove(key);
+            if (cell == null) {
+                continue;
+            }
+            counterBatch.add(cell.close(key, now));
+            if (counterBatch.size() >= batchSize) {
+                writeCounters(counterBatch);
+                counterBatch = new ArrayList<>(batchSize);
+            }
+        }
+        writeCounters(counterBatch);
+    }
+
+    private void writeEvents(List<AnalyticsData> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            writer.insertEvents(batch);
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            writeFailures.addAndGet(batch.size());
+            logger.error("Failed to write {} analytics events: {}", batch.size(), e.getMessage());
+        } finally {
+            pending.addAndGet(-batch.size());
+        }
+    }
+
+    private void writeCounters(List<Analytics> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            writer.insertCounters(batch);
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            writeFailures.addAndGet(batch.size());
+            logger.error("Failed to write {} analytics counters: {}", batch.size(), e.getMessage());
+        } finally {
+            pending.addAndGet(-batch.size());
+        }
+    }
+
+    /**
+     * Destination of flushed batches
+     */
+    interface BatchWriter {
+        void insertEvents(List<AnalyticsData> events);
+
+        void insertCounters(List<Analytics> counters);
+    }
+
+    /**
+     * JDBC batch inserts; with reWriteBatchedInserts=true on the PostgreSQL URL the driver
+     * sends each batch as multi-row INSERT statements
+     */
+    static final class JdbcBatchWriter implements BatchWriter {
+        private final JdbcTemplate jdbcTemplate;
+
+        JdbcBatchWriter(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Override
+        public void insertEvents(List<AnalyticsData> events) {
+            List<Object[]> rows = new ArrayList<>(events.size());
+            for (AnalyticsData e : events) {
+                rows.add(new Object[] {
+                    e.getAnalyticsType().name(), e.getMetricName(), e.getMetricValue(), e.getDimensions(),
+                    e.getSourceSystem(), e.getUserId(), e.getDocumentId(), e.getDepartment(),
+                    Timestamp.valueOf(e.getTimestamp()), Boolean.TRUE.equals(e.getIsPredicted()),
+                    Timestamp.valueOf(e.getCreatedAt())
+                });
+            }
+            jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, rows, INSERT_EVENT_TYPES);
+        }
+
+        @Override
+        public void insertCounters(List<Analytics> counters) {
+            List<Object[]> rows = new ArrayList<>(counters.size());
+            for (Analytics a : counters) {
+                rows.add(new Object[] {
+                    a.getMetricType().name(), a.getMetricName(), a.getMetricValue(), a.getDimensionKey(),
+                    a.getDimensionValue(), Timestamp.valueOf(a.getPeriodStart()), Timestamp.valueOf(a.getPeriodEnd()),
+                    Timestamp.valueOf(a.getCreatedAt())
+                });
+            }
+            jdbcTemplate.batchUpdate(INSERT_COUNTER_SQL, rows, INSERT_COUNTER_TYPES);
+        }
+    }
+
+    private record PendingEvent(AnalyticsData event, Map<String, Object> dimensions) {
+        AnalyticsData toEntity(ObjectMapper objectMapper, LocalDateTime now) {
+            if (dimensions != null && !dimensions.isEmpty()) {
+                try {
+                    event.setDimensions(objectMapper.writeValueAsString(dimensions));
+                } catch (Exception e) {
+                    logger.debug("Dropping unserializable dimensions of {}: {}", event.getMetricName(), e.getMessage());
+                }
+            }
+            if (event.getTimestamp() == null) {
+                event.setTimestamp(now);
+            }
+            event.setCreatedAt(now);
+            return event;
+        }
+    }
+
+    private record CounterKey(MetricType metricType, String metricName, String dimensionKey, String dimensionValue) {
+        CounterKey {
+            Objects.requireNonNull(metricType, "metricType");
+            Objects.requireNonNull(metricName, "metricName");
+        }
+    }
+
+    /**
+     * Running sum of one counter; closed when a flush takes it, after which adds fail
+     */
+    private static final class CounterCell {
+        private double sum;
+        private final LocalDateTime first;
+        private LocalDateTime last;
+        private boolean closed;
+
+        CounterCell(double value, LocalDateTime at) {
+            this.sum = value;
+            this.first = at;
+            this.last = at;
+        }
+
+        synchronized boolean add(double value, LocalDateTime at) {
+            if (closed) {
+                return false;
+            }
+            sum += value;
+            last = at;
+            return true;
+        }
+
+        synchronized Analytics close(CounterKey key, LocalDateTime now) {
+            closed = true;
+            Analytics row = new Analytics(key.metricType(), key.metricName(), sum, key.dimensionKey(), key.dimensionValue());
+            row.setPeriodStart(first);
+            row.setPeriodEnd(last);
+            row.setCreatedAt(now);
+            return row;
+        }
+    }
+}
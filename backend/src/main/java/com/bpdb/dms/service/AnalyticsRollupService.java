@@ -0,0 +1,474 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.AnalyticsData;
+import com.bpdb.dms.entity.AnalyticsRollup;
+import com.bpdb.dms.entity.AnalyticsRollupGranularity;
+import com.bpdb.dms.entity.AnalyticsRollupState;
+import com.bpdb.dms.entity.AnalyticsType;
+import com.bpdb.dms.repository.AnalyticsDataRepository;
+import com.bpdb.dms.repository.AnalyticsRollupRepository;
+import com.bpdb.dms.repository.AnalyticsRollupStateRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minute/hour/day rollups of analytics events.
+ * A background compactor folds new analytics_data rows (in id order, from a persisted
+ * watermark) into per-bucket aggregates of (type, metric, dimension). Summaries read
+ * the coarsest rollups that tile the requested range, raw events for edges whose fine
+ * rollups are past retention, plus the few raw events the compactor has not reached
+ * yet, in one snapshot, so they match a raw scan of exactly that range. Compacted raw
+ * events are deleted after app.analytics.retention-days.
+ */
+@Service
+public class AnalyticsRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsRollupService.class);
+
+    private static final long STATE_ID = 1L;
+
+    // Dimension keys; the empty dimension is the series total
+    public static final String TOTAL = "";
+    public static final String USER = "user:";
+    public static final String DOCUMENT = "document:";
+    public static final String HOUR_OF_DAY = "hour:";
+
+    @Autowired
+    private AnalyticsDataRepository analyticsDataRepository;
+
+    @Autowired
+    private AnalyticsRollupRepository rollupRepository;
+
+    @Autowired
+    private AnalyticsRollupStateRepository stateRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.analytics.rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.analytics.rollup.compact-interval-seconds:60}")
+    private long compactIntervalSeconds;
+
+    @Value("${app.analytics.rollup.batch-size:2000}")
+    private int batchSize;
+
+    // Events are compacted only once this old, so rows from transactions that commit
+    // out of id order are never skipped by the watermark
+    @Value("${app.analytics.rollup.settle-seconds:60}")
+    private long settleSeconds;
+
+    @Value("${app.analytics.rollup.minute-retention-hours:48}")
+    private long minuteRetentionHours;
+
+    @Value("${app.analytics.rollup.hour-retention-days:90}")
+    private long hourRetentionDays;
+
+    @Value("${app.analytics.retention-days:365}")
+    private long rawRetentionDays;
+
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate snapshotTransaction;
+    private ScheduledExecutorService compactor;
+
+    @PostConstruct
+    void init() {
+        writeTransaction = new TransactionTemplate(transactionManager);
+        snapshotTransaction = new TransactionTemplate(transactionManager);
+        snapshotTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startCompactor() {
+        if (!enabled) {
+            logger.info("Analytics rollups disabled; dashboards read raw events");
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "analytics-rollup");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::runCompaction, 0, compactIntervalSeconds, TimeUnit.SECONDS);
+        logger.info("Analytics rollup compactor started (every {}s, batch {})", compactIntervalSeconds, batchSize);
+    }
+
+    @PreDestroy
+    public void stopCompactor() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+    }
+
+    private void runCompaction() {
+        try {
+            int compacted = 0;
+            int batch;
+            do {
+                batch = compactBatch();
+                compacted += batch;
+            } while (batch == batchSize && !Thread.currentThread().isInterrupted());
+            if (compacted > 0) {
+                logger.debug("Compacted {} analytics events into rollups", compacted);
+            }
+            purgeIfDue();
+        } catch (Exception e) {
+            logger.error("Analytics rollup compaction failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fold the next batch of settled raw events into the rollups and advance the watermark
+     *
+     * @return number of events compacted
+     */
+    int compactBatch() {
+        Integer compacted = writeTransaction.execute(status -> {
+            AnalyticsRollupState state = lockState();
+            LocalDateTime settledBefore = LocalDateTime.now().minusSeconds(settleSeconds);
+            List<AnalyticsData> events = new ArrayList<>();
+            for (AnalyticsData event : analyticsDataRepository.findByIdGreaterThanOrderByIdAsc(
+                    state.getLastEventId(), PageRequest.of(0, batchSize))) {
+                if (event.getCreatedAt() != null && !event.getCreatedAt().isBefore(settledBefore)) {
+                    break;
+                }
+                events.add(event);
+            }
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            Map<RollupKey, Totals> deltas = new HashMap<>();
+            for (AnalyticsData event : events) {
+                for (AnalyticsRollupGranularity granularity : AnalyticsRollupGranularity.values()) {
+                    LocalDateTime bucket = granularity.floor(event.getTimestamp());
+                    for (String dimension : dimensionsOf(event)) {
+                        deltas.computeIfAbsent(new RollupKey(granularity, bucket, event.getAnalyticsType(),
+                                event.getMetricName(), dimension), k -> new Totals())
+                            .add(event.getMetricValue());
+                    }
+                }
+            }
+            mergeIntoRollups(deltas);
+
+            state.setLastEventId(events.get(events.size() - 1).getId());
+            state.setUpdatedAt(LocalDateTime.now());
+            stateRepository.save(state);
+            return events.size();
+        });
+        return compacted != null ? compacted : 0;
+    }
+
+    private void mergeIntoRollups(Map<RollupKey, Totals> deltas) {
+        LocalDateTime now = LocalDateTime.now();
+        List<AnalyticsRollup> changed = new ArrayList<>(deltas.size());
+        for (AnalyticsRollupGranularity granularity : AnalyticsRollupGranularity.values()) {
+            Set<LocalDateTime> buckets = new HashSet<>();
+            deltas.keySet().stream().filter(k -> k.granularity() == granularity).forEach(k -> buckets.add(k.bucketStart()));
+            if (buckets.isEmpty()) {
+                continue;
+            }
+            Map<RollupKey, AnalyticsRollup> existing = new HashMap<>();
+            for (AnalyticsRollup rollup : rollupRepository.findByGranularityAndBucketStartIn(granularity, buckets)) {
+                existing.put(RollupKey.of(rollup), rollup);
+            }
+            deltas.forEach((key, delta) -> {
+                if (key.granularity() != granularity) {
+                    return;
+                }
+                AnalyticsRollup rollup = existing.get(key);
+                if (rollup == null) {
+                    rollup = new AnalyticsRollup(granularity, key.bucketStart(), key.type(), key.metricName(), key.dimension());
+                    rollup.setValueMin(delta.min);
+                    rollup.setValueMax(delta.max);
+                } else {
+                    rollup.setValueMin(Math.min(rollup.getValueMin(), delta.min));
+                    rollup.setValueMax(Math.max(rollup.getValueMax(), delta.max));
+                }
+                rollup.setEventCount(rollup.getEventCount() + delta.count);
+                rollup.setValueSum(rollup.getValueSum() + delta.sum);
+                rollup.setUpdatedAt(now);
+                changed.add(rollup);
+            });
+        }
+        rollupRepository.saveAll(changed);
+    }
+
+    private AnalyticsRollupState lockState() {
+        return stateRepository.findForUpdate(STATE_ID)
+            .orElseGet(() -> stateRepository.saveAndFlush(new AnalyticsRollupState(STATE_ID)));
+    }
+
+    /**
+     * Hourly: drop compacted raw events past retention and fine rollups past theirs
+     */
+    private void purgeIfDue() {
+        writeTransaction.executeWithoutResult(status -> {
+            AnalyticsRollupState state = lockState();
+            LocalDateTime now = LocalDateTime.now();
+            if (state.getLastPurgeAt() != null && state.getLastPurgeAt().isAfter(now.minusHours(1))) {
+                return;
+            }
+            int raw = analyticsDataRepository.deleteCompactedBefore(now.minusDays(rawRetentionDays), state.getLastEventId());
+            int minutes = rollupRepository.deleteOlderThan(AnalyticsRollupGranularity.MINUTE, minuteCutoff(now));
+            int hours = rollupRepository.deleteOlderThan(AnalyticsRollupGranularity.HOUR, hourCutoff(now));
+            state.setLastPurgeAt(now);
+            stateRepository.save(state);
+            if (raw + minutes + hours > 0) {
+                logger.info("Analytics retention: deleted {} raw events, {} minute and {} hour rollups", raw, minutes, hours);
+            }
+        });
+    }
+
+    private LocalDateTime minuteCutoff(LocalDateTime now) {
+        return AnalyticsRollupGranularity.HOUR.floor(now.minusHours(minuteRetentionHours));
+    }
+
+    private LocalDateTime hourCutoff(LocalDateTime now) {
+        return AnalyticsRollupGranularity.DAY.floor(now.minusDays(hourRetentionDays));
+    }
+
+    /**
+     * Totals per dimension for each requested type over [startDate, endDate], at minute
+     * resolution (both ends are taken to their whole minute)
+     */
+    public Map<AnalyticsType, RollupSummary> summarize(Collection<AnalyticsType> types,
+                                                       LocalDateTime startDate, LocalDateTime endDate) {
+        LocalDateTime from = AnalyticsRollupGranularity.MINUTE.floor(startDate);
+        LocalDateTime to = AnalyticsRollupGranularity.MINUTE.floor(endDate).plusMinutes(1);
+
+        Map<AnalyticsType, RollupSummary> summaries = new EnumMap<>(AnalyticsType.class);
+        for (AnalyticsType type : types) {
+            summaries.put(type, new RollupSummary());
+        }
+        if (types.isEmpty() || !from.isBefore(to)) {
+            return summaries;
+        }
+
+        snapshotTransaction.executeWithoutResult(status -> {
+            long compactedThrough = 0;
+            if (enabled) {
+                compactedThrough = stateRepository.findById(STATE_ID).map(AnalyticsRollupState::getLastEventId).orElse(0L);
+                LocalDateTime now = LocalDateTime.now();
+                // One hour/day of slack so a purge that runs mid-query is never read as rollups
+                for (Slice slice : plan(from, to, minuteCutoff(now).plusHours(1), hourCutoff(now).plusDays(1))) {
+                    if (slice.raw()) {
+                        addEvents(summaries, analyticsDataRepository.findCompacted(
+                            compactedThrough, types, slice.from(), slice.to()));
+                        continue;
+                    }
+                    for (Object[] row : rollupRepository.aggregate(types, slice.granularity(), slice.from(), slice.to())) {
+                        summaries.get((AnalyticsType) row[0]).add((String) row[1],
+                            ((Number) row[2]).longValue(), ((Number) row[3]).doubleValue(),
+                            ((Number) row[4]).doubleValue(), ((Number) row[5]).doubleValue());
+                    }
+                }
+            }
+            addEvents(summaries, analyticsDataRepository.findUncompacted(compactedThrough, types, from, to));
+        });
+        return summaries;
+    }
+
+    private static void addEvents(Map<AnalyticsType, RollupSummary> summaries, List<AnalyticsData> events) {
+        for (AnalyticsData event : events) {
+            RollupSummary summary = summaries.get(event.getAnalyticsType());
+            for (String dimension : dimensionsOf(event)) {
+                summary.add(dimension, event.getMetricValue());
+            }
+        }
+    }
+
+    /**
+     * Compactor progress, for the analytics statistics endpoint
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stateRepository.findById(STATE_ID).ifPresent(state -> {
+            stats.put("compactedThroughEventId", state.getLastEventId());
+            stats.put("lastCompactedAt", state.getUpdatedAt());
+            stats.put("lastPurgeAt", state.getLastPurgeAt());
+        });
+        stats.put("rollupRows", rollupRepository.count());
+        return stats;
+    }
+
+    static List<String> dimensionsOf(AnalyticsData event) {
+        List<String> dimensions = new ArrayList<>(4);
+        dimensions.add(TOTAL);
+        dimensions.add(HOUR_OF_DAY + event.getTimestamp().getHour());
+        if (event.getUserId() != null) {
+            dimensions.add(USER + event.getUserId());
+        }
+        if (event.getDocumentId() != null) {
+            dimensions.add(DOCUMENT + event.getDocumentId());
+        }
+        return dimensions;
+    }
+
+    /**
+     * Tile the minute-aligned range [from, to) with the coarsest buckets that fit: whole
+     * days in the middle, whole hours next to them, minutes at the edges. Slices whose
+     * rollups are past retention are marked raw rather than widened, so no read ever
+     * leaves the range. The cutoffs are hour/day aligned, so a slice is wholly on one side.
+     */
+    static List<Slice> plan(LocalDateTime from, LocalDateTime to, LocalDateTime minuteCutoff, LocalDateTime hourCutoff) {
+        List<Slice> slices = tile(from, to);
+        for (int i = 0; i < slices.size(); i++) {
+            Slice slice = slices.get(i);
+            LocalDateTime cutoff = switch (slice.granularity()) {
+                case MINUTE -> minuteCutoff;
+                case HOUR -> hourCutoff;
+                case DAY -> null;
+            };
+            if (cutoff != null && slice.from().isBefore(cutoff)) {
+                slices.set(i, new Slice(slice.granularity(), slice.from(), slice.to(), true));
+            }
+        }
+        return slices;
+    }
+
+    private static List<Slice> tile(LocalDateTime from, LocalDateTime to) {
+        AnalyticsRollupGranularity minute = AnalyticsRollupGranularity.MINUTE;
+        AnalyticsRollupGranularity hour = AnalyticsRollupGranularity.HOUR;
+        AnalyticsRollupGranularity day = AnalyticsRollupGranularity.DAY;
+        List<Slice> slices = new ArrayList<>();
+        LocalDateTime hoursFrom = hour.ceil(from);
+        LocalDateTime hoursTo = hour.floor(to);
+        if (!hoursFrom.isBefore(hoursTo)) {
+            addSlice(slices, minute, from, to);
+            return slices;
+        }
+        LocalDateTime daysFrom = day.ceil(hoursFrom);
+        LocalDateTime daysTo = day.floor(hoursTo);
+        addSlice(slices, minute, from, hoursFrom);
+        if (daysFrom.isBefore(daysTo)) {
+            addSlice(slices, hour, hoursFrom, daysFrom);
+            addSlice(slices, day, daysFrom, daysTo);
+            addSlice(slices, hour, daysTo, hoursTo);
+        } else {
+            addSlice(slices, hour, hoursFrom, hoursTo);
+        }
+        addSlice(slices, minute, hoursTo, to);
+        return slices;
+    }
+
+    private static void addSlice(List<Slice> slices, AnalyticsRollupGranularity granularity,
+                                 LocalDateTime from, LocalDateTime to) {
+        if (from.isBefore(to)) {
+            slices.add(new Slice(granularity, from, to));
+        }
+    }
+
+    /**
+     * Whole buckets of one granularity covering [from, to); raw slices are read from
+     * the events because those rollups have been purged
+     */
+    record Slice(AnalyticsRollupGranularity granularity, LocalDateTime from, LocalDateTime to, boolean raw) {
+        Slice(AnalyticsRollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+            this(granularity, from, to, false);
+        }
+
+        @Override
+        public String toString() {
+            return (raw ? "raw " : "") + granularity + " " + from + ".." + to
+                + " (" + ChronoUnit.MINUTES.between(from, to) + " min)";
+        }
+    }
+
+    private record RollupKey(AnalyticsRollupGranularity granularity, LocalDateTime bucketStart,
+                             AnalyticsType type, String metricName, String dimension) {
+        static RollupKey of(AnalyticsRollup rollup) {
+            return new RollupKey(rollup.getGranularity(), rollup.getBucketStart(), rollup.getAnalyticsType(),
+                rollup.getMetricName(), rollup.getDimension());
+        }
+    }
+
+    /**
+     * Count, sum, min and max of metric values; null values count as 0
+     */
+    public static final class Totals {
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        void add(Double value) {
+            double v = value != null ? value : 0.0;
+            merge(1, v, v, v);
+        }
+
+        void merge(long count, double sum, double min, double max) {
+            this.count += count;
+            this.sum += sum;
+            this.min = Math.min(this.min, min);
+            this.max = Math.max(this.max, max);
+        }
+
+        public long getCount() { return count; }
+        public double getSum() { return sum; }
+        public double getMin() { return count > 0 ? min : 0.0; }
+        public double getMax() { return count > 0 ? max : 0.0; }
+        public double getAverage() { return count > 0 ? sum / count : 0.0; }
+    }
+
+    /**
+     * Totals of one analytics type per dimension
+     */
+    public static final class RollupSummary {
+        private final Map<String, Totals> dimensions = new HashMap<>();
+
+        void add(String dimension, Double value) {
+            dimensions.computeIfAbsent(dimension, d -> new Totals()).add(value);
+        }
+
+        void add(String dimension, long count, double sum, double min, double max) {
+            dimensions.computeIfAbsent(dimension, d -> new Totals()).merge(count, sum, min, max);
+        }
+
+        public Totals getTotal() {
+            return dimensions.getOrDefault(TOTAL, new Totals());
+        }
+
+        /**
+         * Totals per entity of a dimension kind (USER, DOCUMENT, HOUR_OF_DAY), keyed by entity
+         */
+        public Map<String, Totals> breakdown(String prefix) {
+            Map<String, Totals> result = new HashMap<>();
+            dimensions.forEach((dimension, totals) -> {
+                if (!prefix.isEmpty() && dimension.startsWith(prefix)) {
+                    result.put(dimension.substring(prefix.length()), totals);
+                }
+            });
+            return result;
+        }
+    }
+}
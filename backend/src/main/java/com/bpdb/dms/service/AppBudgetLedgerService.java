@@ -0,0 +1,248 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.config.ScheduledJobLease;
+import com.bpdb.dms.entity.AppBudgetLedger;
+import com.bpdb.dms.entity.AppBudgetLedgerEntry;
+import com.bpdb.dms.entity.Document;
+import com.bpdb.dms.entity.DocumentMetadata;
+import com.bpdb.dms.entity.Workflow;
+import com.bpdb.dms.repository.AppBudgetLedgerEntryRepository;
+import com.bpdb.dms.repository.AppBudgetLedgerRepository;
+import com.bpdb.dms.repository.DocumentMetadataRepository;
+import com.bpdb.dms.repository.WorkflowRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains the per-APP budget ledger.
+ * A BILL document contributes its amount to the APP entry linked (via workflow)
+ * to the folder it lives in. Each document's current contribution is kept in
+ * app_budget_ledger_entries so metadata edits, folder moves and deletes are
+ * applied as deltas.
+ */
+@Service
+public class AppBudgetLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppBudgetLedgerService.class);
+
+    /**
+     * Metadata keys that carry a bill amount, in order of preference.
+     * "amount" is the canonical key totalAmount is normalized to on write.
+     */
+    public static final List<String> AMOUNT_KEYS = List.of("netAmount", "totalAmount", "amount");
+
+    @Autowired
+    private AppBudgetLedgerRepository appBudgetLedgerRepository;
+
+    @Autowired
+    private AppBudgetLedgerEntryRepository appBudgetLedgerEntryRepository;
+
+    @Autowired
+    private WorkflowRepository workflowRepository;
+
+    @Autowired
+    private DocumentMetadataRepository documentMetadataRepository;
+
+    /**
+     * True when a metadata write touches a bill amount key
+     */
+    public boolean affectsLedger(Document document, Set<String> writtenKeys) {
+        return "BILL".equalsIgnoreCase(document.getDocumentType())
+            && writtenKeys.stream().anyMatch(AMOUNT_KEYS::contains);
+    }
+
+    /**
+     * Re-apply a BILL document's contribution after its amount metadata changed.
+     * Runs in the caller's transaction so the ledger commits with the metadata.
+     */
+    @Transactional
+    public void onBillAmountChanged(Document document) {
+        reapply(document, metadataValues(document));
+    }
+
+    /**
+     * Re-apply a BILL document's contribution after it moved folder, was deleted or was restored.
+     * The amount is read from the stored metadata, so the document may be detached.
+     */
+    @Transactional
+    public void onBillRelocated(Document document) {
+        if (!"BILL".equalsIgnoreCase(document.getDocumentType())) {
+            return;
+        }
+        Map<String, String> values = new HashMap<>();
+        for (DocumentMetadata meta : documentMetadataRepository.findByDocument(document)) {
+            if (AMOUNT_KEYS.contains(meta.getKey())) {
+                values.put(meta.getKey(), meta.getValue());
+            }
+        }
+        reapply(document, values);
+    }
+
+    private void reapply(Document document, Map<String, String> values) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // Only live documents count, as in rebuildLedger
+        boolean live = Boolean.TRUE.equals(document.getIsActive()) && document.getDeletedAt() == null;
+        Long appHeaderId = live ? resolveAppHeaderId(document) : null;
+        BigDecimal amount = appHeaderId == null ? null : extractAmount(values);
+
+        // Locked so a concurrent change to the same document waits instead of subtracting it twice
+        AppBudgetLedgerEntry entry = appBudgetLedgerEntryRepository.findForUpdate(document.getId()).orElse(null);
+        if (entry != null) {
+            addToLedger(entry.getAppHeaderId(), entry.getAmount().negate(), -1, now);
+        }
+
+        if (appHeaderId == null || amount == null) {
+            if (entry != null) {
+                appBudgetLedgerEntryRepository.delete(entry);
+            }
+            return;
+        }
+
+        if (entry == null) {
+            entry = new AppBudgetLedgerEntry();
+            entry.setDocumentId(document.getId());
+        }
+        entry.setAppHeaderId(appHeaderId);
+        entry.setAmount(amount);
+        entry.setUpdatedAt(now);
+        appBudgetLedgerEntryRepository.save(entry);
+        addToLedger(appHeaderId, amount, 1, now);
+    }
+
+    /**
+     * Rebuild the whole ledger in bulk from workflow/folder links and bill metadata.
+     * Corrects drift from changes made outside the incremental hooks. The ledger tables are
+     * locked against writes first, so concurrent deltas wait for the rebuilt ledger instead
+     * of being lost, and readers keep seeing the old ledger until the rebuild commits.
+     */
+    @Transactional
+    public int rebuildLedger() {
+        appBudgetLedgerRepository.lockForRebuild();
+
+        Map<Long, Long> appByFolder = new HashMap<>();
+        for (Object[] row : workflowRepository.findFolderAppMappings()) {
+            appByFolder.put((Long) row[0], (Long) row[1]);
+        }
+
+        // documentId -> [folderId, key -> value]
+        Map<Long, Long> folderByDocument = new HashMap<>();
+        Map<Long, Map<String, String>> valuesByDocument = new HashMap<>();
+        if (!appByFolder.isEmpty()) {
+            List<Object[]> rows = documentMetadataRepository.findBillMetadataInFolders(
+                new ArrayList<>(appByFolder.keySet()), AMOUNT_KEYS);
+            for (Object[] row : rows) {
+                Long documentId = (Long) row[0];
+                folderByDocument.put(documentId, (Long) row[1]);
+                valuesByDocument.computeIfAbsent(documentId, k -> new HashMap<>()).put((String) row[2], (String) row[3]);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, AppBudgetLedger> ledgers = new HashMap<>();
+        List<AppBudgetLedgerEntry> entries = new ArrayList<>();
+        for (Map.Entry<Long, Map<String, String>> doc : valuesByDocument.entrySet()) {
+            BigDecimal amount = extractAmount(doc.getValue());
+            if (amount == null) {
+                continue;
+            }
+            Long appHeaderId = appByFolder.get(folderByDocument.get(doc.getKey()));
+
+            AppBudgetLedgerEntry entry = new AppBudgetLedgerEntry();
+            entry.setDocumentId(doc.getKey());
+            entry.setAppHeaderId(appHeaderId);
+            entry.setAmount(amount);
+            entry.setUpdatedAt(now);
+            entries.add(entry);
+
+            AppBudgetLedger ledger = ledgers.computeIfAbsent(appHeaderId, id -> {
+                AppBudgetLedger l = new AppBudgetLedger();
+                l.setAppHeaderId(id);
+                l.setUpdatedAt(now);
+                return l;
+            });
+            ledger.setTotalBilled(ledger.getTotalBilled().add(amount));
+            ledger.setBillCount(ledger.getBillCount() + 1);
+        }
+
+        appBudgetLedgerEntryRepository.deleteAllInBatch();
+        appBudgetLedgerRepository.deleteAllInBatch();
+        appBudgetLedgerEntryRepository.saveAll(entries);
+        appBudgetLedgerRepository.saveAll(ledgers.values());
+
+        logger.info("Rebuilt APP budget ledger: apps={}, bills={}", ledgers.size(), entries.size());
+        return entries.size();
+    }
+
+    /**
+     * Nightly reconciliation of the incrementally maintained ledger
+     */
+    @Scheduled(cron = "${app.finance.ledger-reconcile-cron:0 30 2 * * ?}")
+    @ScheduledJobLease(ttl = "PT1H")
+    @Transactional
+    public void reconcileLedger() {
+        try {
+            rebuildLedger();
+        } catch (RuntimeException e) {
+            // Rethrown so the whole rebuild rolls back instead of committing a partial ledger
+            logger.error("Failed to reconcile APP budget ledger: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    private void addToLedger(Long appHeaderId, BigDecimal delta, long bills, LocalDateTime now) {
+        appBudgetLedgerRepository.addToLedger(appHeaderId, delta, bills, now);
+    }
+
+    private Long resolveAppHeaderId(Document document) {
+        if (document.getFolder() == null) {
+            return null;
+        }
+        return workflowRepository.findByFolder(document.getFolder())
+            .map(Workflow::getAppEntry)
+            .map(app -> app.getId())
+            .orElse(null);
+    }
+
+    private Map<String, String> metadataValues(Document document) {
+        Map<String, String> values = new HashMap<>();
+        if (document.getMetadataEntries() != null) {
+            for (DocumentMetadata meta : document.getMetadataEntries()) {
+                if (AMOUNT_KEYS.contains(meta.getKey())) {
+                    values.put(meta.getKey(), meta.getValue());
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * First parseable amount in AMOUNT_KEYS order, or null when the bill has none
+     */
+    private BigDecimal extractAmount(Map<String, String> values) {
+        for (String key : AMOUNT_KEYS) {
+            String raw = values.get(key);
+            if (raw == null || raw.isBlank()) {
+                continue;
+            }
+            try {
+                return new BigDecimal(raw.replaceAll("[^0-9.\\-]", ""));
+            } catch (NumberFormatException ignored) {
+                // try the next key
+            }
+        }
+        return null;
+    }
+}
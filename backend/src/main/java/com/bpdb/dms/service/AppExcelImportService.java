@@ -4,22 +4,41 @@ import com.bpdb.dms.entity.AppHeader;
 import com.bpdb.dms.entity.AppLine;
 import com.bpdb.dms.entity.User;
 import com.bpdb.dms.repository.AppHeaderRepository;
-import com.bpdb.dms.repository.AppLineRepository;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 @Service
 public class AppExcelImportService {
@@ -30,134 +49,292 @@ public class AppExcelImportService {
     private AppHeaderRepository appHeaderRepository;
 
     @Autowired
-    private AppLineRepository appLineRepository;
+    private JdbcTemplate jdbcTemplate;
 
+    /** Number of APP lines sent to the database per JDBC batch */
+    @Value("${app.finance.app-import.batch-size:500}")
+    private int batchSize = 500;
+
+    private static final String INSERT_LINE_SQL =
+        "INSERT INTO app_lines (header_id, row_number, project_identifier, project_name, department, cost_center, " +
+        "category, vendor, contract_ref, budget_amount, package_no, item_description, unit_label, quantity, " +
+        "procurement_method, approving_authority, source_of_fund, estimated_cost_lakh, validation_errors) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_LINE_TYPES = {
+        Types.BIGINT, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+        Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.NUMERIC, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+        Types.NUMERIC, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.NUMERIC, Types.VARCHAR
+    };
+
+    /**
+     * Import the first sheet of an APP workbook.
+     * The sheet is read with POI's event (SAX) model and lines are written in JDBC
+     * batches, so heap use stays flat regardless of workbook size. The sheet is read
+     * twice: a first pass stops at the first row carrying a fiscal year (needed to
+     * resolve the APP header), the second pass streams the lines. Rows that cannot
+     * be mapped are still imported with the problem recorded in validation_errors.
+     */
+    @Transactional
     public AppHeader importApp(MultipartFile file, User user) {
-        try (InputStream is = file.getInputStream(); Workbook workbook = new XSSFWorkbook(is)) {
-            Sheet sheet = workbook.getNumberOfSheets() > 0 ? workbook.getSheetAt(0) : null;
-            if (sheet == null) {
-                throw new IllegalArgumentException("No sheet found in APP file");
+        Path tempFile = null;
+        try {
+            // OPCPackage reads zip entries on demand from a file, but buffers a whole stream
+            tempFile = Files.createTempFile("app-import-", ".xlsx");
+            try (InputStream is = file.getInputStream()) {
+                Files.copy(is, tempFile, StandardCopyOption.REPLACE_EXISTING);
             }
 
-            // Find header row - it might be row 1 or row 2 (skip empty first row)
-            Iterator<Row> rowIterator = sheet.rowIterator();
-            if (!rowIterator.hasNext()) {
-                throw new IllegalArgumentException("APP sheet is empty");
-            }
-            Row headerRow = rowIterator.next();
-            ColumnMap cm = ColumnMap.fromHeaderRow(headerRow);
-            
-            // If first row is empty or has very few headers, try next row
-            if (cm.nameToIndex.size() < 3 && rowIterator.hasNext()) {
-                Row nextRow = rowIterator.next();
-                ColumnMap nextCm = ColumnMap.fromHeaderRow(nextRow);
-                if (nextCm.nameToIndex.size() > cm.nameToIndex.size()) {
-                    headerRow = nextRow;
-                    cm = nextCm;
-                    logger.info("Using row 2 as header row for APP import");
+            try (OPCPackage pkg = OPCPackage.open(tempFile.toFile(), PackageAccess.READ)) {
+                XSSFReader reader = new XSSFReader(pkg);
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+                StylesTable styles = reader.getStylesTable();
+
+                // Pass 1: header row and fiscal year
+                Integer[] firstYear = {null};
+                AppSheetHandler scan = new AppSheetHandler((cm, row) -> {
+                    Integer year = findInteger(cm, row, YEAR_COLUMNS);
+                    if (year != null) {
+                        firstYear[0] = year;
+                        throw new StopParsingException();
+                    }
+                });
+                parseFirstSheet(reader, strings, styles, scan);
+                if (scan.columnMap == null) {
+                    throw new IllegalArgumentException("APP sheet is empty");
                 }
+                logger.info("Detected {} columns in APP file: {}", scan.columnMap.nameToIndex.size(), scan.columnMap.nameToIndex.keySet());
+
+                // Year is optional - use current year if not found
+                Integer detectedYear = firstYear[0];
+                if (detectedYear == null) {
+                    detectedYear = java.time.LocalDate.now().getYear();
+                    logger.warn("Could not detect fiscal year from APP file, using current year: {}", detectedYear);
+                }
+
+                // Upsert header for year (one per year)
+                final Integer fiscalYear = detectedYear;
+                AppHeader header = appHeaderRepository.findByFiscalYear(fiscalYear)
+                    .orElseGet(() -> {
+                        AppHeader h = new AppHeader();
+                        h.setFiscalYear(fiscalYear);
+                        h.setDepartment(user.getDepartment());
+                        h.setCreatedBy(user);
+                        return h;
+                    });
+                // Flush so the JDBC inserts below can reference the header row
+                header = appHeaderRepository.saveAndFlush(header);
+
+                // Pass 2: stream lines into JDBC batches
+                LineBatchWriter writer = new LineBatchWriter(header.getId());
+                parseFirstSheet(reader, strings, styles, new AppSheetHandler((cm, row) -> {
+                    writer.add(toLine(cm, row, writer.rowNumber + 1, fiscalYear));
+                }));
+                writer.flush();
+
+                logger.info("Imported APP: year={}, lines={}, linesWithErrors={}",
+                    fiscalYear, writer.rowNumber, writer.rowsWithErrors);
+                return header;
             }
-            
-            logger.info("Detected {} columns in APP file: {}", cm.nameToIndex.size(), cm.nameToIndex.keySet());
-
-            List<AppLine> lines = new ArrayList<>();
-            Integer detectedYear = null;
-
-            int rowNum = 1;
-            while (rowIterator.hasNext()) {
-                Row row = rowIterator.next();
-                if (isRowEmpty(row)) continue;
-
-                AppLine line = new AppLine();
-                line.setRowNumber(rowNum++);
-                
-                // Try multiple column name variations for each field
-                line.setProjectIdentifier(findText(cm, row, "Project Identifier", "PROJECT IDENTIFIER", "PROJECT_IDENTIFIER"));
-                line.setProjectName(findText(cm, row, "Project Name", "PROJECT NAME", "PROJECT_NAME"));
-                line.setDepartment(findText(cm, row, "Department", "DEPARTMENT"));
-                line.setCostCenter(findText(cm, row, "Cost Center", "COST CENTER", "COST_CENTER"));
-                line.setCategory(findText(cm, row, "Category", "CATEGORY"));
-                line.setVendor(findText(cm, row, "Vendor", "VENDOR"));
-                line.setContractRef(findText(cm, row, "Contract Ref", "CONTRACT REF", "CONTRACT_REF"));
-                line.setBudgetAmount(findDecimal(cm, row, "Budget", "BUDGET", "BUDGET AMOUNT", "BUDGET_AMOUNT"));
-                
-                // New fields - try actual column names from file
-                line.setPackageNo(findText(cm, row, 
-                    "Package No", "PACKAGE NO", "PACKAGE_NO",
-                    "Packege No", "PACKEGE NO"));  // Handle typo in actual file
-                line.setItemDescription(findText(cm, row,
-                    "Item Description", "ITEM DESCRIPTION", "ITEM_DESCRIPTION",
-                    "Description", "DESCRIPTION",
-                    "Description of Procurement Items Goods", "DESCRIPTION OF PROCUREMENT ITEMS GOODS",
-                    "Description of  Procurement Items Goods"));  // Handle double space
-                line.setUnit(findText(cm, row, "Unit", "UNIT"));
-                line.setQuantity(findDecimal(cm, row, 
-                    "Quantity", "QUANTITY",
-                    "Qty", "QTY"));  // Handle abbreviation
-                line.setProcurementMethod(findText(cm, row, 
-                    "Procurement Method", "PROCUREMENT METHOD", "PROCUREMENT_METHOD"));
-                line.setApprovingAuthority(findText(cm, row, 
-                    "Approving Authority", "APPROVING AUTHORITY", "APPROVING_AUTHORITY"));
-                line.setSourceOfFund(findText(cm, row,
-                    "Source of Fund", "SOURCE OF FUND", "SOURCE_OF_FUND",
-                    "Source Of Fund", "SOURCE OF FUND"));  // Handle capitalization variation
-                line.setEstimatedCostLakh(findDecimal(cm, row,
-                    "Estimated Cost (Lakh)", "ESTIMATED COST (LAKH)",
-                    "Estimated Cost In lakh tk", "ESTIMATED COST IN LAKH TK",
-                    "Estimated Cost In Lakh", "ESTIMATED COST IN LAKH",
-                    "Estimated Cost Lakh", "ESTIMATED COST LAKH"));
-
-                // Year is optional - try to find it, but don't fail if missing
-                Integer year = findInteger(cm, row, "Year", "YEAR", "Fiscal Year", "FISCAL YEAR");
-                if (year != null) {
-                    if (detectedYear == null) detectedYear = year;
-                    if (!detectedYear.equals(year)) {
-                        line.setValidationErrors("Year mismatch in row; expected " + detectedYear + " found " + year);
-                    }
+        } catch (Exception e) {
+            logger.error("Failed to import APP Excel: {}", e.getMessage());
+            throw new RuntimeException("APP import failed: " + e.getMessage(), e);
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    logger.warn("Could not delete APP import temp file {}: {}", tempFile, e.getMessage());
                 }
+            }
+        }
+    }
 
-                lines.add(line);
+    /**
+     * Map one sheet row to an APP line; mapping problems are recorded on the line
+     */
+    private AppLine toLine(ColumnMap cm, Map<Integer, String> row, int rowNumber, Integer fiscalYear) {
+        AppLine line = new AppLine();
+        line.setRowNumber(rowNumber);
+        List<String> errors = new ArrayList<>();
+        try {
+            // Try multiple column name variations for each field
+            line.setProjectIdentifier(findText(cm, row, "Project Identifier", "PROJECT IDENTIFIER", "PROJECT_IDENTIFIER"));
+            line.setProjectName(findText(cm, row, "Project Name", "PROJECT NAME", "PROJECT_NAME"));
+            line.setDepartment(findText(cm, row, "Department", "DEPARTMENT"));
+            line.setCostCenter(findText(cm, row, "Cost Center", "COST CENTER", "COST_CENTER"));
+            line.setCategory(findText(cm, row, "Category", "CATEGORY"));
+            line.setVendor(findText(cm, row, "Vendor", "VENDOR"));
+            line.setContractRef(findText(cm, row, "Contract Ref", "CONTRACT REF", "CONTRACT_REF"));
+            line.setBudgetAmount(findDecimal(cm, row, errors, "Budget", "BUDGET", "BUDGET AMOUNT", "BUDGET_AMOUNT"));
+
+            // New fields - try actual column names from file
+            line.setPackageNo(findText(cm, row,
+                "Package No", "PACKAGE NO", "PACKAGE_NO",
+                "Packege No", "PACKEGE NO"));  // Handle typo in actual file
+            line.setItemDescription(findText(cm, row,
+                "Item Description", "ITEM DESCRIPTION", "ITEM_DESCRIPTION",
+                "Description", "DESCRIPTION",
+                "Description of Procurement Items Goods", "DESCRIPTION OF PROCUREMENT ITEMS GOODS",
+                "Description of  Procurement Items Goods"));  // Handle double space
+            line.setUnit(findText(cm, row, "Unit", "UNIT"));
+            line.setQuantity(findDecimal(cm, row, errors,
+                "Quantity", "QUANTITY",
+                "Qty", "QTY"));  // Handle abbreviation
+            line.setProcurementMethod(findText(cm, row,
+                "Procurement Method", "PROCUREMENT METHOD", "PROCUREMENT_METHOD"));
+            line.setApprovingAuthority(findText(cm, row,
+                "Approving Authority", "APPROVING AUTHORITY", "APPROVING_AUTHORITY"));
+            line.setSourceOfFund(findText(cm, row,
+                "Source of Fund", "SOURCE OF FUND", "SOURCE_OF_FUND",
+                "Source Of Fund", "SOURCE OF FUND"));  // Handle capitalization variation
+            line.setEstimatedCostLakh(findDecimal(cm, row, errors,
+                "Estimated Cost (Lakh)", "ESTIMATED COST (LAKH)",
+                "Estimated Cost In lakh tk", "ESTIMATED COST IN LAKH TK",
+                "Estimated Cost In Lakh", "ESTIMATED COST IN LAKH",
+                "Estimated Cost Lakh", "ESTIMATED COST LAKH"));
+
+            // Year is optional - try to find it, but don't fail if missing
+            Integer year = findInteger(cm, row, YEAR_COLUMNS);
+            if (year != null && !year.equals(fiscalYear)) {
+                errors.add("Year mismatch in row; expected " + fiscalYear + " found " + year);
             }
+        } catch (Exception e) {
+            errors.add("Row could not be read: " + e.getMessage());
+        }
+        if (!errors.isEmpty()) {
+            String message = String.join("; ", errors);
+            line.setValidationErrors(message.length() > 1000 ? message.substring(0, 1000) : message);
+        }
+        return line;
+    }
 
-            // Year is optional - use current year if not found
-            if (detectedYear == null) {
-                detectedYear = java.time.LocalDate.now().getYear();
-                logger.warn("Could not detect fiscal year from APP file, using current year: {}", detectedYear);
+    private void parseFirstSheet(XSSFReader reader, ReadOnlySharedStringsTable strings, StylesTable styles,
+                                 AppSheetHandler handler) throws Exception {
+        Iterator<InputStream> sheets = reader.getSheetsData();
+        if (!sheets.hasNext()) {
+            throw new IllegalArgumentException("No sheet found in APP file");
+        }
+        try (InputStream sheet = sheets.next()) {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, handler, new DataFormatter(), false));
+            parser.parse(new InputSource(sheet));
+        } catch (StopParsingException ignored) {
+            // First pass found what it needed
+        } catch (SAXException e) {
+            // Some parsers wrap exceptions thrown from the content handler
+            if (!(e.getException() instanceof StopParsingException)) {
+                throw e;
             }
+        }
+    }
 
-            // Upsert header for year (one per year)
-            final Integer fiscalYear = detectedYear;
-            AppHeader header = appHeaderRepository.findByFiscalYear(fiscalYear)
-                .orElseGet(() -> {
-                    AppHeader h = new AppHeader();
-                    h.setFiscalYear(fiscalYear);
-                    h.setDepartment(user.getDepartment());
-                    h.setCreatedBy(user);
-                    return h;
-                });
+    /**
+     * Accumulates APP lines and writes them with JDBC batch inserts
+     */
+    private class LineBatchWriter {
+        private final Long headerId;
+        private final List<Object[]> pending = new ArrayList<>();
+        private int rowNumber;
+        private int rowsWithErrors;
+
+        LineBatchWriter(Long headerId) {
+            this.headerId = headerId;
+        }
 
-            header = appHeaderRepository.save(header);
-            for (AppLine line : lines) {
-                line.setHeader(header);
+        void add(AppLine line) {
+            rowNumber++;
+            if (line.getValidationErrors() != null) {
+                rowsWithErrors++;
+            }
+            pending.add(new Object[] {
+                headerId, line.getRowNumber(), line.getProjectIdentifier(), line.getProjectName(),
+                line.getDepartment(), line.getCostCenter(), line.getCategory(), line.getVendor(),
+                line.getContractRef(), line.getBudgetAmount(), line.getPackageNo(), line.getItemDescription(),
+                line.getUnit(), line.getQuantity(), line.getProcurementMethod(), line.getApprovingAuthority(),
+                line.getSourceOfFund(), line.getEstimatedCostLakh(), line.getValidationErrors()
+            });
+            if (pending.size() >= batchSize) {
+                flush();
             }
-            appLineRepository.saveAll(lines);
+        }
 
-            logger.info("Imported APP: year={}, lines={}", detectedYear, lines.size());
-            return header;
-        } catch (Exception e) {
-            logger.error("Failed to import APP Excel: {}", e.getMessage());
-            throw new RuntimeException("APP import failed: " + e.getMessage(), e);
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate(INSERT_LINE_SQL, pending, INSERT_LINE_TYPES);
+            pending.clear();
         }
     }
 
-    private boolean isRowEmpty(Row row) {
-        if (row == null) return true;
-        for (int c = row.getFirstCellNum(); c < row.getLastCellNum(); c++) {
-            Cell cell = row.getCell(c);
-            if (cell != null && cell.getCellType() != CellType.BLANK) {
-                String s = cell.toString();
-                if (s != null && !s.trim().isEmpty()) return false;
+    /**
+     * SAX row handler: detects the header row, then hands each non-empty data row
+     * (column index to formatted value) to the row consumer
+     */
+    private static class AppSheetHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final BiConsumer<ColumnMap, Map<Integer, String>> rowConsumer;
+        private Map<Integer, String> current;
+        private int rowsSeen;
+        private ColumnMap columnMap;
+
+        AppSheetHandler(BiConsumer<ColumnMap, Map<Integer, String>> rowConsumer) {
+            this.rowConsumer = rowConsumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            current = new HashMap<>();
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (cellReference == null || formattedValue == null) {
+                return;
             }
+            current.put((int) new CellReference(cellReference).getCol(), formattedValue);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            rowsSeen++;
+            if (rowsSeen == 1) {
+                // Find header row - it might be row 1 or row 2 (skip empty first row)
+                columnMap = ColumnMap.fromHeaderRow(current);
+                return;
+            }
+            if (rowsSeen == 2 && columnMap.nameToIndex.size() < 3) {
+                // If first row is empty or has very few headers, try next row
+                ColumnMap nextCm = ColumnMap.fromHeaderRow(current);
+                if (nextCm.nameToIndex.size() > columnMap.nameToIndex.size()) {
+                    columnMap = nextCm;
+                    logger.info("Using row 2 as header row for APP import");
+                    return;
+                }
+            }
+            if (isRowEmpty(current)) {
+                return;
+            }
+            rowConsumer.accept(columnMap, current);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+        }
+    }
+
+    /** Thrown from a row consumer to end a sheet pass early */
+    private static class StopParsingException extends RuntimeException {
+        StopParsingException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final String[] YEAR_COLUMNS = {"Year", "YEAR", "Fiscal Year", "FISCAL YEAR"};
+
+    private static boolean isRowEmpty(Map<Integer, String> row) {
+        for (String value : row.values()) {
+            if (value != null && !value.trim().isEmpty()) return false;
         }
         return true;
     }
@@ -165,24 +342,20 @@ public class AppExcelImportService {
     private static class ColumnMap {
         private final java.util.Map<String, Integer> nameToIndex = new java.util.HashMap<>();
 
-        static ColumnMap fromHeaderRow(Row header) {
+        static ColumnMap fromHeaderRow(Map<Integer, String> header) {
             ColumnMap cm = new ColumnMap();
-            DataFormatter formatter = new DataFormatter();
-            for (int i = header.getFirstCellNum(); i < header.getLastCellNum(); i++) {
-                Cell cell = header.getCell(i);
-                if (cell != null) {
-                    String headerValue = formatter.formatCellValue(cell).trim();
-                    if (!headerValue.isEmpty()) {
-                        // Store both original and uppercase for flexible matching
-                        cm.nameToIndex.put(headerValue, i);
-                        cm.nameToIndex.put(headerValue.toUpperCase(), i);
-                    }
+            for (Map.Entry<Integer, String> cell : new java.util.TreeMap<>(header).entrySet()) {
+                String headerValue = cell.getValue().trim();
+                if (!headerValue.isEmpty()) {
+                    // Store both original and uppercase for flexible matching
+                    cm.nameToIndex.put(headerValue, cell.getKey());
+                    cm.nameToIndex.put(headerValue.toUpperCase(), cell.getKey());
                 }
             }
             return cm;
         }
 
-        String text(Row row, String name) {
+        String text(Map<Integer, String> row, String name) {
             // Try exact match first
             Integer idx = nameToIndex.get(name);
             if (idx == null) {
@@ -201,14 +374,11 @@ public class AppExcelImportService {
                 }
             }
             if (idx == null) return null;
-            Cell cell = row.getCell(idx);
-            if (cell == null) return null;
-            DataFormatter formatter = new DataFormatter();
-            String value = formatter.formatCellValue(cell);
+            String value = row.get(idx);
             return value == null ? null : value.trim();
         }
 
-        Integer integer(Row row, String name) {
+        Integer integer(Map<Integer, String> row, String name) {
             String val = text(row, name);
             if (val == null || val.isEmpty()) return null;
             try {
@@ -218,7 +388,7 @@ public class AppExcelImportService {
             }
         }
 
-        BigDecimal decimal(Row row, String name) {
+        BigDecimal decimal(Map<Integer, String> row, String name) {
             String val = text(row, name);
             if (val == null || val.isEmpty()) return null;
             try {
@@ -230,7 +400,7 @@ public class AppExcelImportService {
     }
     
     // Helper methods to find columns with multiple name variations
-    private String findText(ColumnMap cm, Row row, String... possibleNames) {
+    private static String findText(ColumnMap cm, Map<Integer, String> row, String... possibleNames) {
         for (String name : possibleNames) {
             String value = cm.text(row, name);
             if (value != null && !value.isEmpty()) {
@@ -240,17 +410,25 @@ public class AppExcelImportService {
         return null;
     }
     
-    private BigDecimal findDecimal(ColumnMap cm, Row row, String... possibleNames) {
+    private static BigDecimal findDecimal(ColumnMap cm, Map<Integer, String> row, List<String> errors, String... possibleNames) {
+        String unparsed = null;
         for (String name : possibleNames) {
             BigDecimal value = cm.decimal(row, name);
             if (value != null) {
                 return value;
             }
+            String text = cm.text(row, name);
+            if (unparsed == null && text != null && !text.isEmpty()) {
+                unparsed = text;
+            }
+        }
+        if (unparsed != null) {
+            errors.add("Invalid " + possibleNames[0] + " value '" + unparsed + "'");
         }
         return null;
     }
     
-    private Integer findInteger(ColumnMap cm, Row row, String... possibleNames) {
+    private static Integer findInteger(ColumnMap cm, Map<Integer, String> row, String... possibleNames) {
         for (String name : possibleNames) {
             Integer value = cm.integer(row, name);
             if (value != null) {
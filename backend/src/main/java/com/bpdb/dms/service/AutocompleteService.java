@@ -0,0 +1,188 @@
+package com.bpdb.dms.service;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import com.bpdb.dms.entity.DocumentIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Typeahead over document names, tags and configured metadata values. The mapping copies
+ * those fields into an edge-ngram field, so a prefix is a plain term lookup answered in one
+ * round trip; the matching values are then picked from the hits' sources. Recent prefixes
+ * are kept in a small in-process cache, since typing repeats the same prefixes a lot.
+ */
+@Service
+public class AutocompleteService {
+
+    // Sources needed to find the matching values; everything else stays in Elasticsearch
+    private static final String[] SOURCE_INCLUDES = {"fileName", "originalName", "tags", "metadataFields"};
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private SearchIndexLayoutService searchIndexLayoutService;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.search.autocomplete.cache-size:2000}")
+    private int cacheSize = 2000;
+
+    @Value("${app.search.autocomplete.cache-ttl-seconds:60}")
+    private long cacheTtlSeconds = 60;
+
+    @Value("${app.search.autocomplete.max-prefix-length:50}")
+    private int maxPrefixLength = 50;
+
+    private final Map<String, CachedSuggestions> cache = new LinkedHashMap<>(256, 0.75f, true);
+
+    private record CachedSuggestions(List<String> values, long expiresAt) {
+    }
+
+    /**
+     * Suggestions for what the user has typed so far, from the tenant's alias or all tenants when null
+     */
+    public List<String> suggest(String prefix, Long tenantId, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        if (normalized.length() > maxPrefixLength) {
+            normalized = normalized.substring(0, maxPrefixLength);
+        }
+        long started = System.nanoTime();
+        String key = (tenantId != null ? tenantId : "*") + ":" + limit + ":" + normalized;
+        List<String> cached = cached(key);
+        if (cached != null) {
+            PipelineMetrics.record(meterRegistry, PipelineMetrics.SEARCH, started, "operation", "suggest", "outcome", "cached");
+            return cached;
+        }
+
+        String outcome = "failure";
+        try {
+            List<String> suggestions = query(normalized, tenantId, limit);
+            put(key, suggestions);
+            outcome = "success";
+            return suggestions;
+        } finally {
+            PipelineMetrics.record(meterRegistry, PipelineMetrics.SEARCH, started, "operation", "suggest", "outcome", outcome);
+        }
+    }
+
+    private List<String> query(String prefix, Long tenantId, int limit) {
+        List<String> tokens = tokens(prefix);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        NativeQuery query = NativeQuery.builder()
+            .withQuery(q -> q.bool(b -> b
+                .must(m -> m.match(t -> t.field("autocomplete").query(prefix).operator(Operator.And)))
+                .filter(f -> f.term(t -> t.field("isActive").value(true)))))
+            .withSourceFilter(new FetchSourceFilter(SOURCE_INCLUDES, null))
+            // Several hits often share a value (e.g. a tag), so fetch a few more documents than values
+            .withPageable(PageRequest.of(0, limit * 3))
+            .build();
+        SearchHits<DocumentIndex> hits = elasticsearchOperations.search(query, DocumentIndex.class,
+            IndexCoordinates.of(searchIndexLayoutService.readIndex(tenantId)));
+
+        Set<String> suggestions = new LinkedHashSet<>();
+        for (SearchHit<DocumentIndex> hit : hits.getSearchHits()) {
+            for (String candidate : candidates(hit.getContent())) {
+                if (suggestions.size() >= limit) {
+                    return new ArrayList<>(suggestions);
+                }
+                if (matches(candidate, tokens)) {
+                    suggestions.add(candidate);
+                }
+            }
+        }
+        return new ArrayList<>(suggestions);
+    }
+
+    private static List<String> candidates(DocumentIndex document) {
+        List<String> candidates = new ArrayList<>();
+        if (document.getOriginalName() != null) {
+            candidates.add(document.getOriginalName());
+        }
+        if (document.getFileName() != null) {
+            candidates.add(document.getFileName());
+        }
+        if (document.getTags() != null) {
+            for (String tag : document.getTags().split(",")) {
+                if (!tag.isBlank()) {
+                    candidates.add(tag.trim());
+                }
+            }
+        }
+        if (document.getMetadataFields() != null) {
+            candidates.addAll(document.getMetadataFields().values());
+        }
+        return candidates;
+    }
+
+    /**
+     * Whether every typed token starts a word of the value, mirroring the edge-ngram analysis
+     */
+    static boolean matches(String value, List<String> tokens) {
+        List<String> words = tokens(normalize(value));
+        for (String token : tokens) {
+            if (words.stream().noneMatch(word -> word.startsWith(token))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        // Like asciifolding: drops Latin accents only, so Bengali vowel signs survive
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{InCombiningDiacriticalMarks}", "");
+        return Normalizer.normalize(folded, Normalizer.Form.NFC).toLowerCase(Locale.ROOT).trim();
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.split("[^\\p{L}\\p{M}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private synchronized List<String> cached(String key) {
+        CachedSuggestions entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            cache.remove(key);
+            return null;
+        }
+        return entry.values();
+    }
+
+    private synchronized void put(String key, List<String> values) {
+        cache.put(key, new CachedSuggestions(List.copyOf(values), System.currentTimeMillis() + cacheTtlSeconds * 1000));
+        Iterator<String> eldest = cache.keySet().iterator();
+        while (cache.size() > cacheSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.BillActualSummary;
+import com.bpdb.dms.entity.BillLine;
+import com.bpdb.dms.repository.BillActualSummaryRepository;
+import com.bpdb.dms.repository.BillLineRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the materialized budget-vs-actual table (bill_actual_summaries).
+ * Bill writes apply deltas incrementally; rebuildFiscalYear recomputes a year
+ * from a grouped aggregate over bill_lines for reconciliation.
+ */
+@Service
+public class BillActualSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BillActualSummaryService.class);
+
+    @Autowired
+    private BillActualSummaryRepository billActualSummaryRepository;
+    @Autowired
+    private BillLineRepository billLineRepository;
+
+    /**
+     * Add newly saved bill lines to the summary, in the caller's transaction
+     */
+    @Transactional
+    public void applyBillLines(Integer fiscalYear, List<BillLine> lines) {
+        applyDelta(fiscalYear, lines, false);
+    }
+
+    /**
+     * Remove bill lines from the summary (before they are deleted or changed)
+     */
+    @Transactional
+    public void revertBillLines(Integer fiscalYear, List<BillLine> lines) {
+        applyDelta(fiscalYear, lines, true);
+    }
+
+    private void applyDelta(Integer fiscalYear, List<BillLine> lines, boolean negate) {
+        if (fiscalYear == null || lines == null || lines.isEmpty()) {
+            return;
+        }
+
+        // Collapse lines to one delta per summary row
+        Map<String, BillActualSummary> deltas = new LinkedHashMap<>();
+        for (BillLine line : lines) {
+            String key;
+            Long appLineId = null;
+            String projectIdentifier = null;
+            if (line.getAppLine() != null && line.getAppLine().getId() != null) {
+                appLineId = line.getAppLine().getId();
+                key = BillActualSummary.keyForAppLine(appLineId);
+            } else if (line.getProjectIdentifier() != null) {
+                projectIdentifier = line.getProjectIdentifier();
+                key = BillActualSummary.keyForProject(projectIdentifier);
+            } else {
+                continue;
+            }
+            BigDecimal amount = safe(line.getAmount()).add(safe(line.getTaxAmount()));
+            BillActualSummary delta = deltas.computeIfAbsent(key, k -> new BillActualSummary());
+            delta.setSummaryKey(key);
+            delta.setAppLineId(appLineId);
+            delta.setProjectIdentifier(projectIdentifier);
+            delta.setActualAmount(delta.getActualAmount().add(negate ? amount.negate() : amount));
+            delta.setLineCount(delta.getLineCount() + (negate ? -1 : 1));
+        }
+
+        // Upserts, so concurrent first bills for a row add up instead of colliding on the unique key
+        LocalDateTime now = LocalDateTime.now();
+        for (BillActualSummary delta : deltas.values()) {
+            if (delta.getAppLineId() != null) {
+                billActualSummaryRepository.upsertAppLine(fiscalYear, delta.getSummaryKey(), delta.getAppLineId(),
+                    delta.getActualAmount(), delta.getLineCount(), now);
+            } else {
+                billActualSummaryRepository.upsertProject(fiscalYear, delta.getSummaryKey(), delta.getProjectIdentifier(),
+                    delta.getActualAmount(), delta.getLineCount(), now);
+            }
+        }
+        logger.debug("Applied bill actual deltas fiscalYear={} rows={}", fiscalYear, deltas.size());
+    }
+
+    /**
+     * Recompute all summary rows for a fiscal year from bill_lines
+     */
+    @Transactional
+    public int rebuildFiscalYear(Integer fiscalYear) {
+        billActualSummaryRepository.deleteByFiscalYear(fiscalYear);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<BillActualSummary> rows = new ArrayList<>();
+        for (Object[] r : billLineRepository.sumActualsByAppLine(fiscalYear)) {
+            Long appLineId = ((Number) r[0]).longValue();
+            rows.add(summaryRow(fiscalYear, BillActualSummary.keyForAppLine(appLineId), appLineId, null, r[1], r[2], now));
+        }
+        for (Object[] r : billLineRepository.sumActualsByProject(fiscalYear)) {
+            String projectIdentifier = (String) r[0];
+            rows.add(summaryRow(fiscalYear, BillActualSummary.keyForProject(projectIdentifier), null, projectIdentifier, r[1], r[2], now));
+        }
+        billActualSummaryRepository.saveAll(rows);
+        logger.info("Rebuilt bill actual summaries fiscalYear={} rows={}", fiscalYear, rows.size());
+        return rows.size();
+    }
+
+    private BillActualSummary summaryRow(Integer fiscalYear, String key, Long appLineId, String projectIdentifier,
+                                         Object total, Object count, LocalDateTime now) {
+        BillActualSummary row = new BillActualSummary();
+        row.setFiscalYear(fiscalYear);
+        row.setSummaryKey(key);
+        row.setAppLineId(appLineId);
+        row.setProjectIdentifier(projectIdentifier);
+        row.setActualAmount(toBigDecimal(total));
+        row.setLineCount(count == null ? 0L : ((Number) count).longValue());
+        row.setUpdatedAt(now);
+        return row;
+    }
+
+    private BigDecimal toBigDecimal(Object value) {
+        if (value == null) return BigDecimal.ZERO;
+        if (value instanceof BigDecimal) return (BigDecimal) value;
+        return new BigDecimal(value.toString());
+    }
+
+    private BigDecimal safe(BigDecimal v) {
+        return v == null ? BigDecimal.ZERO : v;
+    }
+}
@@ -11,9 +11,12 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
+import java.util.Optional;
+import java.util.regex.MatchResult;
 import java.util.regex.Pattern;
 
 /**
@@ -26,6 +29,63 @@ public class BillOCRService {
     
     @Autowired
     private OCRService ocrService;
+
+    @Autowired(required = false)
+    private TextAnalysisService textAnalysisService;
+
+    // Common patterns for vendor/supplier name
+    private static final TextRule[] VENDOR_RULES = {
+        TextRule.anchored("bill-vendor-label", Pattern.compile("(?i)(?:vendor|supplier|from|bill\\s*to|sold\\s*to)[:;]?\\s*([A-Z][A-Za-z0-9\\s&.,-]+(?:Limited|Ltd|Corp|Corporation|Inc|Company|Co\\.)?)", Pattern.MULTILINE),
+            "vendor", "supplier", "from", "bill", "sold"),
+        TextRule.unanchored("bill-vendor-line", Pattern.compile("(?i)^([A-Z][A-Za-z0-9\\s&.,-]{10,50})$", Pattern.MULTILINE)), // Line starting with capitalized name
+        TextRule.anchored("bill-vendor-company", Pattern.compile("(?i)(?:company|business)[:;]?\\s*([A-Z][A-Za-z0-9\\s&.,-]+)", Pattern.MULTILINE),
+            "company", "business")
+    };
+
+    private static final TextRule[] INVOICE_NUMBER_RULES = {
+        TextRule.anchored("bill-invoice-no", Pattern.compile("(?i)(?:invoice|bill|inv)[\\s#:]+([A-Z0-9\\-/]+)", Pattern.MULTILINE),
+            "inv", "bill"),
+        TextRule.anchored("bill-invoice-number", Pattern.compile("(?i)(?:invoice\\s*number|inv\\s*no|bill\\s*number)[:;]?\\s*([A-Z0-9\\-/]+)", Pattern.MULTILINE),
+            "inv", "bill"),
+        TextRule.anchored("bill-invoice-hash", Pattern.compile("(?i)#\\s*([A-Z0-9\\-/]{5,20})", Pattern.MULTILINE), "#")
+    };
+
+    // Common date patterns
+    private static final TextRule[] INVOICE_DATE_RULES = {
+        TextRule.anchored("bill-date-label", Pattern.compile("(?i)(?:date|invoice\\s*date|bill\\s*date|dated)[:;]?\\s*(\\d{1,2}[/-]\\d{1,2}[/-]\\d{2,4})", Pattern.MULTILINE),
+            "date", "invoice", "bill"),
+        TextRule.unanchored("bill-date-numeric", Pattern.compile("(\\d{1,2}[/-]\\d{1,2}[/-]\\d{2,4})", Pattern.MULTILINE)), // General date pattern
+        TextRule.unanchored("bill-date-month", Pattern.compile("(\\d{1,2}\\s+(?:Jan|Feb|Mar|Apr|May|Jun|Jul|Aug|Sep|Oct|Nov|Dec)[a-z]*\\s+\\d{2,4})", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE))
+    };
+
+    private static final TextRule[] TOTAL_AMOUNT_RULES = {
+        TextRule.anchored("bill-total-label", Pattern.compile("(?i)(?:total|grand\\s*total|amount\\s*due|total\\s*amount)[:;]?\\s*(?:BDT|Tk|Taka|\\$|USD)?\\s*([\\d,]+(?:\\.\\d{2})?)", Pattern.MULTILINE),
+            "total", "grand", "amount"),
+        TextRule.anchored("bill-total", Pattern.compile("(?i)total[\\s:]+(?:BDT|Tk|Taka|\\$|USD)?[\\s:]*([\\d,]+(?:\\.\\d{2})?)", Pattern.MULTILINE),
+            "total"),
+        TextRule.anchored("bill-total-currency", Pattern.compile("(?:BDT|Tk|Taka|\\$|USD)\\s*([\\d,]+(?:\\.\\d{2})?)", Pattern.MULTILINE),
+            "bdt", "tk", "taka", "$", "usd")
+    };
+
+    private static final TextRule[] TAX_AMOUNT_RULES = {
+        TextRule.anchored("bill-tax-label", Pattern.compile("(?i)(?:tax|vat|gst|sales\\s*tax)[:;]?\\s*(?:BDT|Tk|Taka|\\$|USD)?\\s*([\\d,]+(?:\\.\\d{2})?)", Pattern.MULTILINE),
+            "tax", "vat", "gst", "sales"),
+        TextRule.anchored("bill-tax-amount", Pattern.compile("(?i)(?:tax|vat|gst)\\s*amount[:;]?\\s*(?:BDT|Tk|Taka|\\$|USD)?\\s*([\\d,]+(?:\\.\\d{2})?)", Pattern.MULTILINE),
+            "tax", "vat", "gst")
+    };
+
+    /**
+     * Bill extraction rules, for the shared text analysis dictionary
+     */
+    static List<TextRule> textRules() {
+        List<TextRule> rules = new ArrayList<>();
+        rules.addAll(List.of(VENDOR_RULES));
+        rules.addAll(List.of(INVOICE_NUMBER_RULES));
+        rules.addAll(List.of(INVOICE_DATE_RULES));
+        rules.addAll(List.of(TOTAL_AMOUNT_RULES));
+        rules.addAll(List.of(TAX_AMOUNT_RULES));
+        return rules;
+    }
     
     /**
      * Extract bill data from uploaded invoice document and return as metadata map
@@ -101,34 +161,43 @@ public class BillOCRService {
         
         try {
             // First extract text using OCR
-            String extractedText = extractTextFromFile(file);
+            OCRService.OCRResult ocrResult = extractTextFromFile(file);
+            String extractedText = ocrResult != null ? ocrResult.getExtractedText() : null;
             if (extractedText == null || extractedText.trim().isEmpty()) {
                 result.setErrorMessage("Failed to extract text from invoice. Please ensure the document is readable.");
                 return result;
             }
             
             result.setRawOcrText(extractedText);
+
+            // Reuse the analysis made during OCR classification when available
+            TextFeatures features = ocrResult.getTextFeatures();
+            if (features == null) {
+                features = textAnalysisService != null
+                    ? textAnalysisService.analyze(extractedText)
+                    : TextFeatures.unindexed(extractedText);
+            }
             
             // Extract vendor name
-            extractVendorName(extractedText, result);
+            extractVendorName(features, result);
             
             // Extract invoice number
-            extractInvoiceNumber(extractedText, result);
+            extractInvoiceNumber(features, result);
             
             // Extract invoice date
-            extractInvoiceDate(extractedText, result);
+            extractInvoiceDate(features, result);
             
             // Extract fiscal year (derived from invoice date)
             extractFiscalYear(result);
             
             // Extract total amount
-            extractTotalAmount(extractedText, result);
+            extractTotalAmount(features, result);
             
             // Extract tax amount
-            extractTaxAmount(extractedText, result);
+            extractTaxAmount(features, result);
             
             // Extract line items (basic extraction - can be enhanced)
-            extractLineItems(extractedText, result);
+            extractLineItems(features, result);
             
             // Calculate overall confidence
             calculateOverallConfidence(result);
@@ -149,11 +218,10 @@ public class BillOCRService {
     /**
      * Extract text from file using OCR service
      */
-    private String extractTextFromFile(MultipartFile file) {
+    private OCRService.OCRResult extractTextFromFile(MultipartFile file) {
         try {
             // Use existing OCR service to extract text
-            var ocrResult = ocrService.extractText(file);
-            return ocrResult.getExtractedText();
+            return ocrService.extractText(file);
         } catch (Exception e) {
             logger.error("Failed to extract text using OCR: {}", e.getMessage());
             return null;
@@ -163,21 +231,14 @@ public class BillOCRService {
     /**
      * Extract vendor name from OCR text
      */
-    private void extractVendorName(String text, BillOCRResult result) {
-        // Common patterns for vendor/supplier name
-        Pattern[] patterns = {
-            Pattern.compile("(?i)(?:vendor|supplier|from|bill\\s*to|sold\\s*to)[:;]?\\s*([A-Z][A-Za-z0-9\\s&.,-]+(?:Limited|Ltd|Corp|Corporation|Inc|Company|Co\\.)?)", Pattern.MULTILINE),
-            Pattern.compile("(?i)^([A-Z][A-Za-z0-9\\s&.,-]{10,50})$", Pattern.MULTILINE), // Line starting with capitalized name
-            Pattern.compile("(?i)(?:company|business)[:;]?\\s*([A-Z][A-Za-z0-9\\s&.,-]+)", Pattern.MULTILINE)
-        };
-        
+    private void extractVendorName(TextFeatures features, BillOCRResult result) {
         String vendor = null;
         double confidence = 0.0;
         
-        for (Pattern pattern : patterns) {
-            Matcher matcher = pattern.matcher(text);
-            if (matcher.find()) {
-                vendor = matcher.group(1).trim();
+        for (TextRule rule : VENDOR_RULES) {
+            Optional<MatchResult> match = features.find(rule);
+            if (match.isPresent()) {
+                vendor = match.get().group(1).trim();
                 confidence = 0.7; // Medium confidence for pattern matching
                 break;
             }
@@ -190,20 +251,14 @@ public class BillOCRService {
     /**
      * Extract invoice number from OCR text
      */
-    private void extractInvoiceNumber(String text, BillOCRResult result) {
-        Pattern[] patterns = {
-            Pattern.compile("(?i)(?:invoice|bill|inv)[\\s#:]+([A-Z0-9\\-/]+)", Pattern.MULTILINE),
-            Pattern.compile("(?i)(?:invoice\\s*number|inv\\s*no|bill\\s*number)[:;]?\\s*([A-Z0-9\\-/]+)", Pattern.MULTILINE),
-            Pattern.compile("(?i)#\\s*([A-Z0-9\\-/]{5,20})", Pattern.MULTILINE)
-        };
-        
+    private void extractInvoiceNumber(TextFeatures features, BillOCRResult result) {
         String invoiceNumber = null;
         double confidence = 0.0;
         
-        for (Pattern pattern : patterns) {
-            Matcher matcher = pattern.matcher(text);
-            if (matcher.find()) {
-                invoiceNumber = matcher.group(1).trim();
+        for (TextRule rule : INVOICE_NUMBER_RULES) {
+            Optional<MatchResult> match = features.find(rule);
+            if (match.isPresent()) {
+                invoiceNumber = match.get().group(1).trim();
                 confidence = 0.8; // High confidence for invoice number patterns
                 break;
             }
@@ -216,21 +271,14 @@ public class BillOCRService {
     /**
      * Extract invoice date from OCR text
      */
-    private void extractInvoiceDate(String text, BillOCRResult result) {
-        // Common date patterns
-        Pattern[] patterns = {
-            Pattern.compile("(?i)(?:date|invoice\\s*date|bill\\s*date|dated)[:;]?\\s*(\\d{1,2}[/-]\\d{1,2}[/-]\\d{2,4})", Pattern.MULTILINE),
-            Pattern.compile("(\\d{1,2}[/-]\\d{1,2}[/-]\\d{2,4})", Pattern.MULTILINE), // General date pattern
-            Pattern.compile("(\\d{1,2}\\s+(?:Jan|Feb|Mar|Apr|May|Jun|Jul|Aug|Sep|Oct|Nov|Dec)[a-z]*\\s+\\d{2,4})", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE)
-        };
-        
+    private void extractInvoiceDate(TextFeatures features, BillOCRResult result) {
         LocalDate invoiceDate = null;
         double confidence = 0.0;
         
-        for (Pattern pattern : patterns) {
-            Matcher matcher = pattern.matcher(text);
-            if (matcher.find()) {
-                String dateStr = matcher.group(1).trim();
+        for (TextRule rule : INVOICE_DATE_RULES) {
+            Optional<MatchResult> match = features.find(rule);
+            if (match.isPresent()) {
+                String dateStr = match.get().group(1).trim();
                 invoiceDate = parseDate(dateStr);
                 if (invoiceDate != null) {
                     confidence = 0.75;
@@ -288,20 +336,14 @@ public class BillOCRService {
     /**
      * Extract total amount from OCR text
      */
-    private void extractTotalAmount(String text, BillOCRResult result) {
-        Pattern[] patterns = {
-            Pattern.compile("(?i)(?:total|grand\\s*total|amount\\s*due|total\\s*amount)[:;]?\\s*(?:BDT|Tk|Taka|\\$|USD)?\\s*([\\d,]+(?:\\.\\d{2})?)", Pattern.MULTILINE),
-            Pattern.compile("(?i)total[\\s:]+(?:BDT|Tk|Taka|\\$|USD)?[\\s:]*([\\d,]+(?:\\.\\d{2})?)", Pattern.MULTILINE),
-            Pattern.compile("(?:BDT|Tk|Taka|\\$|USD)\\s*([\\d,]+(?:\\.\\d{2})?)", Pattern.MULTILINE)
-        };
-        
+    private void extractTotalAmount(TextFeatures features, BillOCRResult result) {
         BigDecimal totalAmount = null;
         double confidence = 0.0;
         
-        for (Pattern pattern : patterns) {
-            Matcher matcher = pattern.matcher(text);
-            if (matcher.find()) {
-                String amountStr = matcher.group(1).replace(",", "");
+        for (TextRule rule : TOTAL_AMOUNT_RULES) {
+            Optional<MatchResult> match = features.find(rule);
+            if (match.isPresent()) {
+                String amountStr = match.get().group(1).replace(",", "");
                 try {
                     totalAmount = new BigDecimal(amountStr);
                     confidence = 0.8;
@@ -319,19 +361,14 @@ public class BillOCRService {
     /**
      * Extract tax amount from OCR text
      */
-    private void extractTaxAmount(String text, BillOCRResult result) {
-        Pattern[] patterns = {
-            Pattern.compile("(?i)(?:tax|vat|gst|sales\\s*tax)[:;]?\\s*(?:BDT|Tk|Taka|\\$|USD)?\\s*([\\d,]+(?:\\.\\d{2})?)", Pattern.MULTILINE),
-            Pattern.compile("(?i)(?:tax|vat|gst)\\s*amount[:;]?\\s*(?:BDT|Tk|Taka|\\$|USD)?\\s*([\\d,]+(?:\\.\\d{2})?)", Pattern.MULTILINE)
-        };
-        
+    private void extractTaxAmount(TextFeatures features, BillOCRResult result) {
         BigDecimal taxAmount = null;
         double confidence = 0.0;
         
-        for (Pattern pattern : patterns) {
-            Matcher matcher = pattern.matcher(text);
-            if (matcher.find()) {
-                String amountStr = matcher.group(1).replace(",", "");
+        for (TextRule rule : TAX_AMOUNT_RULES) {
+            Optional<MatchResult> match = features.find(rule);
+            if (match.isPresent()) {
+                String amountStr = match.get().group(1).replace(",", "");
                 try {
                     taxAmount = new BigDecimal(amountStr);
                     confidence = 0.7;
@@ -349,7 +386,7 @@ public class BillOCRService {
     /**
      * Extract line items from OCR text (basic extraction)
      */
-    private void extractLineItems(String text, BillOCRResult result) {
+    private void extractLineItems(TextFeatures features, BillOCRResult result) {
         // Basic line item extraction - can be enhanced later
         // For now, just set empty list - can be enhanced to parse line items
         result.setLineItems(new java.util.ArrayList<>());
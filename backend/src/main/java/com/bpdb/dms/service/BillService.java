@@ -29,6 +29,8 @@ public class BillService {
     private AppLineRepository appLineRepository;
     @Autowired
     private BillOCRService billOCRService;
+    @Autowired
+    private BillActualSummaryService billActualSummaryService;
 
     @Transactional
     public Long createBill(CreateBillRequest request, User user) {
@@ -42,6 +44,51 @@ public class BillService {
         header.setCreatedBy(user);
         header = billHeaderRepository.save(header);
 
+        List<BillLine> toSave = buildLines(request, header, user);
+        billLineRepository.saveAll(toSave);
+        billActualSummaryService.applyBillLines(header.getFiscalYear(), toSave);
+        logger.info("Created bill id={} lines={}", header.getId(), toSave.size());
+        return header.getId();
+    }
+
+    /**
+     * Replace a bill's header fields and lines; the old lines leave the actuals summary
+     * under the old fiscal year before the new ones are added
+     */
+    @Transactional
+    public Long updateBill(Long billId, CreateBillRequest request, User user) {
+        validateRequest(request);
+        BillHeader header = billHeaderRepository.findById(billId)
+            .orElseThrow(() -> new IllegalArgumentException("Bill not found: " + billId));
+
+        billActualSummaryService.revertBillLines(header.getFiscalYear(), header.getLines());
+        header.getLines().clear();
+        header.setFiscalYear(request.fiscalYear);
+        header.setVendor(request.vendor);
+        header.setInvoiceNumber(request.invoiceNumber);
+        header.setInvoiceDate(request.invoiceDate);
+
+        List<BillLine> lines = buildLines(request, header, user);
+        header.getLines().addAll(lines);
+        billHeaderRepository.save(header);
+        billActualSummaryService.applyBillLines(header.getFiscalYear(), lines);
+        logger.info("Updated bill id={} lines={}", header.getId(), lines.size());
+        return header.getId();
+    }
+
+    /**
+     * Delete a bill and take its lines out of the actuals summary
+     */
+    @Transactional
+    public void deleteBill(Long billId) {
+        BillHeader header = billHeaderRepository.findById(billId)
+            .orElseThrow(() -> new IllegalArgumentException("Bill not found: " + billId));
+        billActualSummaryService.revertBillLines(header.getFiscalYear(), header.getLines());
+        billHeaderRepository.delete(header);
+        logger.info("Deleted bill id={}", billId);
+    }
+
+    private List<BillLine> buildLines(CreateBillRequest request, BillHeader header, User user) {
         List<BillLine> toSave = new ArrayList<>();
         if (request.lines != null) {
             for (BillLineRequest lr : request.lines) {
@@ -72,9 +119,7 @@ public class BillService {
                 toSave.add(line);
             }
         }
-        billLineRepository.saveAll(toSave);
-        logger.info("Created bill id={} lines={}", header.getId(), toSave.size());
-        return header.getId();
+        return toSave;
     }
 
     private void validateRequest(CreateBillRequest request) {
@@ -147,6 +192,7 @@ public class BillService {
         }
 
         billLineRepository.saveAll(lines);
+        billActualSummaryService.applyBillLines(header.getFiscalYear(), lines);
         logger.info("Created bill from OCR - id={}, lines={}", header.getId(), lines.size());
         return header.getId();
     }
@@ -0,0 +1,398 @@
+package com.bpdb.dms.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * PostgreSQL maintenance driven by the server's own statistics.
+ * Tables with many dead tuples (pg_stat_user_tables) get a VACUUM (ANALYZE), invalid
+ * indexes and large indexes of bloated tables get a REINDEX CONCURRENTLY, and the
+ * slowest statements (pg_stat_statements, when installed) are reported. Operations run
+ * on their own autocommit connection with a lock timeout, a limited number per run and
+ * a pause between them, so maintenance never queues behind or blocks application work.
+ */
+@Service
+public class DatabaseMaintenanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseMaintenanceService.class);
+
+    /**
+     * Lookups the application issues on every upload or document view; each should have
+     * an index whose leading columns match
+     */
+    static final List<QueryShape> HOT_QUERY_SHAPES = List.of(
+        new QueryShape("documents", List.of("file_hash"), "Duplicate detection on upload"),
+        new QueryShape("document_metadata", List.of("document_id", "metadata_key"), "Metadata of a document by key"),
+        new QueryShape("analytics_data", List.of("timestamp"), "Analytics by time range"),
+        new QueryShape("audit_logs", List.of("created_at"), "Audit log by time range")
+    );
+
+    private static final String TABLE_STATS_SQL =
+        "SELECT schemaname, relname, n_live_tup, n_dead_tup, n_mod_since_analyze, seq_scan, " +
+        "COALESCE(idx_scan, 0) AS idx_scan, pg_total_relation_size(relid) AS total_bytes, " +
+        "GREATEST(last_vacuum, last_autovacuum) AS last_vacuum, GREATEST(last_analyze, last_autoanalyze) AS last_analyze " +
+        "FROM pg_stat_user_tables ORDER BY n_dead_tup DESC";
+
+    private static final String REINDEX_CANDIDATES_SQL =
+        "SELECT n.nspname AS schema_name, t.relname AS table_name, i.relname AS index_name, " +
+        "pg_relation_size(i.oid) AS index_bytes, x.indisvalid AS valid " +
+        "FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid JOIN pg_class t ON t.oid = x.indrelid " +
+        "JOIN pg_namespace n ON n.oid = t.relnamespace " +
+        "WHERE n.nspname NOT IN ('pg_catalog', 'information_schema') AND n.nspname NOT LIKE 'pg_toast%' " +
+        "AND (NOT x.indisvalid OR (t.relname = ANY (?) AND pg_relation_size(i.oid) >= ?)) " +
+        "ORDER BY x.indisvalid, pg_relation_size(i.oid) DESC";
+
+    private static final String INDEX_COLUMNS_SQL =
+        "SELECT i.relname AS index_name, array_to_string(ARRAY(" +
+        "SELECT a.attname FROM unnest(x.indkey::int2[]) WITH ORDINALITY AS k(attnum, ord) " +
+        "JOIN pg_attribute a ON a.attrelid = x.indrelid AND a.attnum = k.attnum ORDER BY k.ord), ',') AS columns " +
+        "FROM pg_index x JOIN pg_class t ON t.oid = x.indrelid JOIN pg_class i ON i.oid = x.indexrelid " +
+        "WHERE t.relname = ? AND x.indisvalid";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${app.maintenance.db.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.maintenance.db.min-dead-tuples:10000}")
+    private long minDeadTuples = 10000;
+
+    @Value("${app.maintenance.db.dead-tuple-ratio:0.2}")
+    private double deadTupleRatio = 0.2;
+
+    @Value("${app.maintenance.db.reindex-min-size-mb:64}")
+    private long reindexMinSizeMb = 64;
+
+    @Value("${app.maintenance.db.max-operations-per-run:5}")
+    private int maxOperationsPerRun = 5;
+
+    @Value("${app.maintenance.db.pause-between-operations-ms:10000}")
+    private long pauseBetweenOperationsMs = 10000;
+
+    @Value("${app.maintenance.db.lock-timeout-ms:5000}")
+    private long lockTimeoutMs = 5000;
+
+    @Value("${app.maintenance.db.slow-query-mean-ms:200}")
+    private double slowQueryMeanMs = 200;
+
+    /**
+     * Vacuum bloated tables and rebuild bad indexes, up to the per-run limit.
+     * Returns what was found and done, for the optimization task results. Never joins a
+     * caller's transaction, so no pooled connection is held idle while this runs.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> runMaintenance() throws SQLException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        if (!enabled) {
+            report.put("skipped", "Database maintenance disabled");
+            return report;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            if (!isPostgres(connection)) {
+                report.put("skipped", "Not a PostgreSQL database");
+                return report;
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            // VACUUM and REINDEX CONCURRENTLY cannot run inside a transaction block
+            connection.setAutoCommit(true);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET lock_timeout = " + lockTimeoutMs);
+                }
+                List<TableStats> tables = tableStats(connection);
+                List<TableStats> bloated = tables.stream().filter(this::isBloated).toList();
+                report.put("tablesInspected", tables.size());
+                report.put("bloatedTables", bloated.stream().map(TableStats::describe).toList());
+
+                Throttle throttle = new Throttle();
+                List<Map<String, Object>> operations = new ArrayList<>();
+                for (TableStats table : bloated) {
+                    if (!throttle.acquire()) {
+                        break;
+                    }
+                    operations.add(execute(connection, "VACUUM (ANALYZE) " + table.qualifiedName(), table.qualifiedName()));
+                }
+                List<String> bloatedNames = bloated.stream().map(TableStats::table).toList();
+                for (Map<String, Object> index : reindexCandidates(connection, bloatedNames)) {
+                    if (!throttle.acquire()) {
+                        break;
+                    }
+                    String name = quote((String) index.get("schema")) + "." + quote((String) index.get("index"));
+                    Map<String, Object> operation = execute(connection, "REINDEX INDEX CONCURRENTLY " + name, name);
+                    operation.put("reason", index.get("reason"));
+                    operations.add(operation);
+                }
+                report.put("operations", operations);
+                report.put("deferredOperations", throttle.deferred);
+                report.put("slowQueries", slowQueries(connection));
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("RESET lock_timeout");
+                }
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Index recommendations for the hot query shapes and for tables read mostly by
+     * sequential scans, plus the slowest statements. Read-only.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Map<String, Object>> recommendations() throws SQLException {
+        List<Map<String, Object>> recommendations = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            if (!isPostgres(connection)) {
+                return recommendations;
+            }
+            for (QueryShape shape : HOT_QUERY_SHAPES) {
+                List<List<String>> indexes = indexColumns(connection, shape.table());
+                if (indexes.isEmpty() && !tableExists(connection, shape.table())) {
+                    continue;
+                }
+                if (!hasIndexFor(indexes, shape.columns())) {
+                    recommendations.add(recommendation("DATABASE", "HIGH",
+                        "Create index on " + shape.table() + "(" + String.join(", ", shape.columns()) + ") for: " + shape.purpose(),
+                        "CREATE INDEX CONCURRENTLY ON " + shape.table() + " (" + String.join(", ", shape.columns()) + ")"));
+                }
+            }
+            for (TableStats table : tableStats(connection)) {
+                if (table.liveTuples() >= 10000 && table.seqScans() > 10 * Math.max(1, table.indexScans())) {
+                    recommendations.add(recommendation("DATABASE", "MEDIUM",
+                        table.table() + " is read mostly by sequential scans (" + table.seqScans() + " seq vs "
+                            + table.indexScans() + " index scans over " + table.liveTuples() + " rows); check its query filters",
+                        null));
+                }
+                if (isBloated(table)) {
+                    recommendations.add(recommendation("DATABASE", "MEDIUM",
+                        table.table() + " has " + table.deadTuples() + " dead tuples; it will be vacuumed by the next maintenance run",
+                        "VACUUM (ANALYZE) " + table.qualifiedName()));
+                }
+            }
+            for (Map<String, Object> query : slowQueries(connection)) {
+                recommendations.add(recommendation("DATABASE", "MEDIUM",
+                    "Slow statement: mean " + query.get("meanMs") + " ms over " + query.get("calls") + " calls: " + query.get("query"),
+                    null));
+            }
+        }
+        return recommendations;
+    }
+
+    boolean isBloated(TableStats table) {
+        long total = table.liveTuples() + table.deadTuples();
+        return table.deadTuples() >= minDeadTuples && total > 0 && (double) table.deadTuples() / total >= deadTupleRatio;
+    }
+
+    /**
+     * An index serves a lookup when the lookup's columns are a prefix of its key
+     */
+    static boolean hasIndexFor(List<List<String>> indexes, List<String> columns) {
+        for (List<String> key : indexes) {
+            if (key.size() >= columns.size() && key.subList(0, columns.size()).equals(columns)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private Map<String, Object> execute(Connection connection, String sql, String target) {
+        Map<String, Object> operation = new LinkedHashMap<>();
+        operation.put("statement", sql);
+        long start = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+            operation.put("success", true);
+            logger.info("Maintenance: {} took {} ms", sql, (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException e) {
+            // Usually lock_timeout; the next run tries again
+            operation.put("success", false);
+            operation.put("error", e.getMessage());
+            logger.warn("Maintenance of {} failed: {}", target, e.getMessage());
+        }
+        operation.put("durationMs", (System.nanoTime() - start) / 1_000_000);
+        return operation;
+    }
+
+    private List<TableStats> tableStats(Connection connection) throws SQLException {
+        List<TableStats> tables = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(TABLE_STATS_SQL)) {
+            while (rs.next()) {
+                tables.add(new TableStats(rs.getString("schemaname"), rs.getString("relname"),
+                    rs.getLong("n_live_tup"), rs.getLong("n_dead_tup"), rs.getLong("n_mod_since_analyze"),
+                    rs.getLong("seq_scan"), rs.getLong("idx_scan"), rs.getLong("total_bytes"),
+                    String.valueOf(rs.getTimestamp("last_vacuum")), String.valueOf(rs.getTimestamp("last_analyze"))));
+            }
+        }
+        return tables;
+    }
+
+    private List<Map<String, Object>> reindexCandidates(Connection connection, List<String> bloatedTables) throws SQLException {
+        List<Map<String, Object>> candidates = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(REINDEX_CANDIDATES_SQL)) {
+            statement.setArray(1, connection.createArrayOf("text", bloatedTables.toArray()));
+            statement.setLong(2, reindexMinSizeMb * 1024 * 1024);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> index = new LinkedHashMap<>();
+                    index.put("schema", rs.getString("schema_name"));
+                    index.put("table", rs.getString("table_name"));
+                    index.put("index", rs.getString("index_name"));
+                    index.put("reason", rs.getBoolean("valid")
+                        ? "Large index (" + rs.getLong("index_bytes") / (1024 * 1024) + " MB) on a bloated table"
+                        : "Invalid index left by an interrupted concurrent build");
+                    candidates.add(index);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private List<List<String>> indexColumns(Connection connection, String table) throws SQLException {
+        List<List<String>> indexes = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(INDEX_COLUMNS_SQL)) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    indexes.add(Arrays.asList(rs.getString("columns").split(",")));
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Slowest statements by mean time, when the pg_stat_statements extension is installed
+     */
+    private List<Map<String, Object>> slowQueries(Connection connection) {
+        List<Map<String, Object>> queries = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet ext = statement.executeQuery("SELECT 1 FROM pg_extension WHERE extname = 'pg_stat_statements'")) {
+            if (!ext.next()) {
+                return queries;
+            }
+        } catch (SQLException e) {
+            return queries;
+        }
+        // Column names changed in PostgreSQL 13 (mean_time became mean_exec_time)
+        for (String column : List.of("mean_exec_time", "mean_time")) {
+            String sql = "SELECT query, calls, " + column + " AS mean_ms, rows FROM pg_stat_statements " +
+                "WHERE " + column + " >= ? AND calls >= 10 ORDER BY " + column + " * calls DESC LIMIT 10";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setDouble(1, slowQueryMeanMs);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        Map<String, Object> query = new LinkedHashMap<>();
+                        String text = rs.getString("query");
+                        query.put("query", text.length() > 300 ? text.substring(0, 300) + "..." : text);
+                        query.put("calls", rs.getLong("calls"));
+                        query.put("meanMs", Math.round(rs.getDouble("mean_ms") * 10) / 10.0);
+                        query.put("rows", rs.getLong("rows"));
+                        queries.add(query);
+                    }
+                }
+                return queries;
+            } catch (SQLException e) {
+                logger.debug("pg_stat_statements query with {} failed: {}", column, e.getMessage());
+            }
+        }
+        return queries;
+    }
+
+    private static boolean isPostgres(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgresql");
+    }
+
+    private static Map<String, Object> recommendation(String type, String priority, String text, String statement) {
+        Map<String, Object> recommendation = new LinkedHashMap<>();
+        recommendation.put("type", type);
+        recommendation.put("priority", priority);
+        recommendation.put("recommendation", text);
+        if (statement != null) {
+            recommendation.put("statement", statement);
+        }
+        return recommendation;
+    }
+
+    /**
+     * Caps the operations of one run and spaces them out
+     */
+    private final class Throttle {
+        private int used;
+        private int deferred;
+
+        boolean acquire() {
+            if (used >= maxOperationsPerRun) {
+                deferred++;
+                return false;
+            }
+            if (used > 0 && pauseBetweenOperationsMs > 0) {
+                try {
+                    Thread.sleep(pauseBetweenOperationsMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    deferred++;
+                    return false;
+                }
+            }
+            used++;
+            return true;
+        }
+    }
+
+    record QueryShape(String table, List<String> columns, String purpose) {
+    }
+
+    record TableStats(String schema, String table, long liveTuples, long deadTuples, long modifiedSinceAnalyze,
+                      long seqScans, long indexScans, long totalBytes, String lastVacuum, String lastAnalyze) {
+
+        String qualifiedName() {
+            return quote(schema) + "." + quote(table);
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("table", table);
+            description.put("liveTuples", liveTuples);
+            description.put("deadTuples", deadTuples);
+            description.put("modifiedSinceAnalyze", modifiedSinceAnalyze);
+            description.put("totalBytes", totalBytes);
+            description.put("lastVacuum", lastVacuum);
+            description.put("lastAnalyze", lastAnalyze);
+            return description;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.bpdb.dms.entity.Document;
 import com.bpdb.dms.entity.DocumentTypeField;
 import com.bpdb.dms.repository.DocumentRepository;
 import com.bpdb.dms.repository.DocumentTypeFieldRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
@@ -43,16 +44,28 @@ public class DatabaseMetadataExtractionService {
     @Autowired(required = false)
     private DocumentTypeFieldRepository documentTypeFieldRepository;
     
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+    
     /**
      * Extract metadata from a document using PostgreSQL regex patterns
      * This should be called after extracted_text is saved
      */
     public void extractMetadataForDocument(Long documentId) {
+        long started = System.nanoTime();
+        String outcome = doExtractMetadataForDocument(documentId);
+        PipelineMetrics.record(meterRegistry, PipelineMetrics.METADATA_EXTRACTION, started, "outcome", outcome);
+    }
+    
+    /**
+     * @return outcome tag for the extraction timer
+     */
+    private String doExtractMetadataForDocument(Long documentId) {
         try {
             Optional<Document> documentOpt = documentRepository.findById(documentId);
             if (documentOpt.isEmpty()) {
                 logger.warn("Document not found for metadata extraction: {}", documentId);
-                return;
+                return "skipped";
             }
             
             Document document = documentOpt.get();
@@ -61,13 +74,13 @@ public class DatabaseMetadataExtractionService {
             // Skip if document type is not set
             if (documentType == null || documentType.isBlank()) {
                 logger.debug("Document type is null, skipping DB metadata extraction for document: {}", documentId);
-                return;
+                return "skipped";
             }
             
             String extractedText = document.getExtractedText();
             if (extractedText == null || extractedText.trim().isEmpty()) {
                 logger.debug("No extracted text found for document: {}", documentId);
-                return;
+                return "skipped";
             }
             
             logger.info("Extracting metadata from database using regex patterns from document_type_fields for document: {} (type: {})", 
@@ -114,6 +127,7 @@ public class DatabaseMetadataExtractionService {
                 
                 logger.info("Successfully extracted {} fields for document {}: {}", 
                     extractedFields.size(), documentId, extractedFields.keySet());
+                return "extracted";
             } else {
                 logger.warn("No fields extracted for document: {} (type: {})", documentId, documentType);
                 if ("TENDER_NOTICE".equals(documentType)) {
@@ -122,10 +136,12 @@ public class DatabaseMetadataExtractionService {
                     logger.warn("   2. OCR text format doesn't match expected patterns");
                     logger.warn("   3. Document type field not properly configured");
                 }
+                return "empty";
             }
             
         } catch (Exception e) {
             logger.error("Error extracting metadata from database for document {}: {}", documentId, e.getMessage(), e);
+            return "failure";
         }
     }
     
@@ -189,7 +205,10 @@ public class DatabaseMetadataExtractionService {
                         }
                     } else {
                         // Extract field value using PostgreSQL regex
+                        long regexStarted = System.nanoTime();
                         value = extractFieldUsingPostgreSQLRegex(extractedText, regexPattern, fieldKey);
+                        PipelineMetrics.record(meterRegistry, PipelineMetrics.METADATA_REGEX, regexStarted,
+                            "field", fieldKey, "matched", String.valueOf(value != null && !value.isBlank()));
                         if (value != null && !value.trim().isEmpty()) {
                             fields.put(fieldKey, value);
                             logger.debug("Extracted {} = {} for document {}", fieldKey, value, document.getId());
@@ -1,5 +1,6 @@
 package com.bpdb.dms.service;
 
+import com.bpdb.dms.config.ScheduledJobLease;
 import com.bpdb.dms.entity.BackupRecord;
 import com.bpdb.dms.entity.BackupStatus;
 import com.bpdb.dms.entity.BackupType;
@@ -35,6 +36,9 @@ public class DisasterRecoveryService {
     @Value("${app.backup.retention-days:30}")
     private int retentionDays;
 
+    @Value("${app.scheduler.jobs.backup.enabled:false}")
+    private boolean scheduledBackupsEnabled;
+
     public CompletableFuture<BackupRecord> createFullBackup() {
         return CompletableFuture.supplyAsync(() -> createBackup(BackupType.FULL));
     }
@@ -58,7 +62,12 @@ public class DisasterRecoveryService {
     }
 
     @Scheduled(cron = "${app.backup.schedule:0 0 2 * * ?}")
+    @ScheduledJobLease(ttl = "PT6H")
     public void scheduledBackup() {
+        if (!scheduledBackupsEnabled) {
+            logger.debug("Scheduled backups disabled, skipping scheduled run");
+            return;
+        }
         if (!backupEnabled) {
             logger.debug("Backups disabled, skipping scheduled run");
             return;
@@ -68,6 +77,10 @@ public class DisasterRecoveryService {
 
     @Scheduled(fixedDelay = 86400000L)
     public void cleanupOldBackups() {
+        if (!scheduledBackupsEnabled) {
+            logger.debug("Scheduled backups disabled, skipping scheduled run");
+            return;
+        }
         LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
         List<BackupRecord> oldBackups = backupRecordRepository.findByRetentionUntilBefore(cutoff);
         for (BackupRecord record : oldBackups) {
@@ -29,6 +29,12 @@ public class DocumentArchiveService {
     @Autowired
     private AuditService auditService;
     
+    @Autowired
+    private TenantUsageService tenantUsageService;
+
+    @Autowired(required = false)
+    private AppBudgetLedgerService appBudgetLedgerService;
+    
     /**
      * Archive a document
      */
@@ -92,9 +98,16 @@ public class DocumentArchiveService {
             throw new RuntimeException("Document is already deleted");
         }
         
+        boolean wasActive = Boolean.TRUE.equals(document.getIsActive());
         document.setIsActive(false);
         document.setDeletedAt(LocalDateTime.now());
         Document saved = documentRepository.save(document);
+        if (wasActive) {
+            tenantUsageService.documentRemoved(saved);
+        }
+        if (appBudgetLedgerService != null) {
+            appBudgetLedgerService.onBillRelocated(saved);
+        }
         
         auditService.logActivity(
             deletedBy.getUsername(),
@@ -118,9 +131,16 @@ public class DocumentArchiveService {
             throw new RuntimeException("Document is not deleted");
         }
         
+        boolean wasActive = Boolean.TRUE.equals(document.getIsActive());
         document.setIsActive(true);
         document.setDeletedAt(null);
         Document saved = documentRepository.save(document);
+        if (!wasActive) {
+            tenantUsageService.documentAdded(saved);
+        }
+        if (appBudgetLedgerService != null) {
+            appBudgetLedgerService.onBillRelocated(saved);
+        }
         
         auditService.logActivity(
             restoredBy.getUsername(),
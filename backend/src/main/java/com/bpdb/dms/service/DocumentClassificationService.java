@@ -3,11 +3,11 @@ package com.bpdb.dms.service;
 import com.bpdb.dms.model.DocumentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.regex.Pattern;
-import java.util.regex.Matcher;
 
 /**
  * Service for automatic document type classification based on content analysis
@@ -20,13 +20,30 @@ public class DocumentClassificationService {
     // Keyword patterns for each document type
     private static final Map<DocumentType, List<String>> KEYWORD_PATTERNS = new HashMap<>();
     
-    // Regex patterns for each document type
-    private static final Map<DocumentType, List<Pattern>> REGEX_PATTERNS = new HashMap<>();
+    // Regex patterns for each document type, anchored on their leading keyword
+    private static final Map<DocumentType, List<TextRule>> REGEX_PATTERNS = new HashMap<>();
 
     static {
         initializePatterns();
     }
 
+    @Autowired(required = false)
+    private TextAnalysisService textAnalysisService;
+
+    /**
+     * All classification keywords, for the shared text analysis dictionary
+     */
+    static List<String> classificationKeywords() {
+        return KEYWORD_PATTERNS.values().stream().flatMap(List::stream).toList();
+    }
+
+    /**
+     * All classification regex rules, for the shared text analysis dictionary
+     */
+    static List<TextRule> textRules() {
+        return REGEX_PATTERNS.values().stream().flatMap(List::stream).toList();
+    }
+
     /**
      * Initialize keyword and regex patterns for each document type
      */
@@ -38,9 +55,9 @@ public class DocumentClassificationService {
             "eoi", "expression of interest", "tender opening", "tender closing"
         ));
         REGEX_PATTERNS.put(DocumentType.TENDER_NOTICE, Arrays.asList(
-            Pattern.compile("(?i)tender\\s*(?:notice|no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+"),
-            Pattern.compile("(?i)invitation\\s+to\\s+tender", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("(?i)request\\s+for\\s+proposal", Pattern.CASE_INSENSITIVE)
+            TextRule.anchored("tender_notice-1", Pattern.compile("(?i)tender\\s*(?:notice|no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+"), "tender"),
+            TextRule.anchored("tender_notice-2", Pattern.compile("(?i)invitation\\s+to\\s+tender", Pattern.CASE_INSENSITIVE), "invitation"),
+            TextRule.anchored("tender_notice-3", Pattern.compile("(?i)request\\s+for\\s+proposal", Pattern.CASE_INSENSITIVE), "request")
         ));
 
         // TENDER_DOCUMENT patterns
@@ -49,9 +66,9 @@ public class DocumentClassificationService {
             "tender schedule", "bill of quantities", "boq", "tender conditions"
         ));
         REGEX_PATTERNS.put(DocumentType.TENDER_DOCUMENT, Arrays.asList(
-            Pattern.compile("(?i)tender\\s+document", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("(?i)technical\\s+specification", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("(?i)bill\\s+of\\s+quantities", Pattern.CASE_INSENSITIVE)
+            TextRule.anchored("tender_document-1", Pattern.compile("(?i)tender\\s+document", Pattern.CASE_INSENSITIVE), "tender"),
+            TextRule.anchored("tender_document-2", Pattern.compile("(?i)technical\\s+specification", Pattern.CASE_INSENSITIVE), "technical"),
+            TextRule.anchored("tender_document-3", Pattern.compile("(?i)bill\\s+of\\s+quantities", Pattern.CASE_INSENSITIVE), "bill")
         ));
 
         // CONTRACT_AGREEMENT patterns
@@ -60,9 +77,9 @@ public class DocumentClassificationService {
             "contract between", "contract date", "contract value", "contract period"
         ));
         REGEX_PATTERNS.put(DocumentType.CONTRACT_AGREEMENT, Arrays.asList(
-            Pattern.compile("(?i)contract\\s*(?:agreement|no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+"),
-            Pattern.compile("(?i)contract\\s+between", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("(?i)this\\s+agreement", Pattern.CASE_INSENSITIVE)
+            TextRule.anchored("contract_agreement-1", Pattern.compile("(?i)contract\\s*(?:agreement|no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+"), "contract"),
+            TextRule.anchored("contract_agreement-2", Pattern.compile("(?i)contract\\s+between", Pattern.CASE_INSENSITIVE), "contract"),
+            TextRule.anchored("contract_agreement-3", Pattern.compile("(?i)this\\s+agreement", Pattern.CASE_INSENSITIVE), "this")
         ));
 
         // BANK_GUARANTEE_BG patterns
@@ -71,9 +88,9 @@ public class DocumentClassificationService {
             "performance guarantee", "advance guarantee", "bid bond", "guarantee amount"
         ));
         REGEX_PATTERNS.put(DocumentType.BANK_GUARANTEE_BG, Arrays.asList(
-            Pattern.compile("(?i)bank\\s+guarantee", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("(?i)bg\\s*(?:no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+"),
-            Pattern.compile("(?i)guarantee\\s+no\\.?\\s*:?\\s*[A-Z0-9\\-/]+")
+            TextRule.anchored("bank_guarantee_bg-1", Pattern.compile("(?i)bank\\s+guarantee", Pattern.CASE_INSENSITIVE), "bank"),
+            TextRule.anchored("bank_guarantee_bg-2", Pattern.compile("(?i)bg\\s*(?:no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+"), "bg"),
+            TextRule.anchored("bank_guarantee_bg-3", Pattern.compile("(?i)guarantee\\s+no\\.?\\s*:?\\s*[A-Z0-9\\-/]+"), "guarantee")
         ));
 
         // PERFORMANCE_SECURITY_PS patterns
@@ -82,9 +99,9 @@ public class DocumentClassificationService {
             "performance bond", "security amount", "retention money"
         ));
         REGEX_PATTERNS.put(DocumentType.PERFORMANCE_SECURITY_PS, Arrays.asList(
-            Pattern.compile("(?i)performance\\s+security", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("(?i)ps\\s*(?:no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+"),
-            Pattern.compile("(?i)security\\s+deposit", Pattern.CASE_INSENSITIVE)
+            TextRule.anchored("performance_security_ps-1", Pattern.compile("(?i)performance\\s+security", Pattern.CASE_INSENSITIVE), "performance"),
+            TextRule.anchored("performance_security_ps-2", Pattern.compile("(?i)ps\\s*(?:no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+"), "ps"),
+            TextRule.anchored("performance_security_ps-3", Pattern.compile("(?i)security\\s+deposit", Pattern.CASE_INSENSITIVE), "security")
         ));
 
         // PERFORMANCE_GUARANTEE_PG patterns
@@ -93,8 +110,8 @@ public class DocumentClassificationService {
             "performance bond", "guarantee amount"
         ));
         REGEX_PATTERNS.put(DocumentType.PERFORMANCE_GUARANTEE_PG, Arrays.asList(
-            Pattern.compile("(?i)performance\\s+guarantee", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("(?i)pg\\s*(?:no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+")
+            TextRule.anchored("performance_guarantee_pg-1", Pattern.compile("(?i)performance\\s+guarantee", Pattern.CASE_INSENSITIVE), "performance"),
+            TextRule.anchored("performance_guarantee_pg-2", Pattern.compile("(?i)pg\\s*(?:no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+"), "pg")
         ));
 
         // BILL patterns
@@ -104,10 +121,10 @@ public class DocumentClassificationService {
             "amount due", "total amount", "bill amount", "invoice amount"
         ));
         REGEX_PATTERNS.put(DocumentType.BILL, Arrays.asList(
-            Pattern.compile("(?i)(?:invoice|bill)\\s*(?:no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+"),
-            Pattern.compile("(?i)tax\\s+invoice", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("(?i)commercial\\s+invoice", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("(?i)total\\s+amount\\s*:?\\s*[\\d,]+", Pattern.CASE_INSENSITIVE)
+            TextRule.anchored("bill-1", Pattern.compile("(?i)(?:invoice|bill)\\s*(?:no\\.?|number|#)\\s*:?\\s*[A-Z0-9\\-/]+"), "invoice", "bill"),
+            TextRule.anchored("bill-2", Pattern.compile("(?i)tax\\s+invoice", Pattern.CASE_INSENSITIVE), "tax"),
+            TextRule.anchored("bill-3", Pattern.compile("(?i)commercial\\s+invoice", Pattern.CASE_INSENSITIVE), "commercial"),
+            TextRule.anchored("bill-4", Pattern.compile("(?i)total\\s+amount\\s*:?\\s*[\\d,]+", Pattern.CASE_INSENSITIVE), "total")
         ));
 
         // Note: CORRESPONDENCE is not a separate document type, classified as OTHER
@@ -119,8 +136,8 @@ public class DocumentClassificationService {
             "stationery record", "supplies record"
         ));
         REGEX_PATTERNS.put(DocumentType.STATIONERY_RECORD, Arrays.asList(
-            Pattern.compile("(?i)stationery\\s+record", Pattern.CASE_INSENSITIVE),
-            Pattern.compile("(?i)office\\s+supplies", Pattern.CASE_INSENSITIVE)
+            TextRule.anchored("stationery_record-1", Pattern.compile("(?i)stationery\\s+record", Pattern.CASE_INSENSITIVE), "stationery"),
+            TextRule.anchored("stationery_record-2", Pattern.compile("(?i)office\\s+supplies", Pattern.CASE_INSENSITIVE), "office")
         ));
     }
 
@@ -136,8 +153,23 @@ public class DocumentClassificationService {
             // Fallback to filename-based classification if no text available
             return classifyByFileName(fileName);
         }
+        return classifyFeatures(textAnalysisService != null
+            ? textAnalysisService.analyze(extractedText)
+            : TextFeatures.unindexed(extractedText), fileName);
+    }
+
+    /**
+     * Classify document type from already analyzed text
+     *
+     * @param features Shared analysis of the OCR-extracted or parsed text
+     * @param fileName The original filename (can provide additional clues)
+     * @return ClassificationResult containing the detected type and confidence score
+     */
+    public ClassificationResult classifyFeatures(TextFeatures features, String fileName) {
+        if (features == null || features.isBlank()) {
+            return classifyByFileName(fileName);
+        }
 
-        String normalizedText = extractedText.toLowerCase();
         Map<DocumentType, Double> scores = new HashMap<>();
 
         // Score each document type based on keyword matches
@@ -149,7 +181,7 @@ public class DocumentClassificationService {
             int matches = 0;
             
             for (String keyword : keywords) {
-                if (normalizedText.contains(keyword.toLowerCase())) {
+                if (features.contains(keyword)) {
                     matches++;
                     // Weight by keyword length (longer keywords are more specific)
                     keywordScore += keyword.length() * 0.1;
@@ -167,15 +199,14 @@ public class DocumentClassificationService {
         }
 
         // Score each document type based on regex pattern matches
-        for (Map.Entry<DocumentType, List<Pattern>> entry : REGEX_PATTERNS.entrySet()) {
+        for (Map.Entry<DocumentType, List<TextRule>> entry : REGEX_PATTERNS.entrySet()) {
             DocumentType docType = entry.getKey();
-            List<Pattern> patterns = entry.getValue();
+            List<TextRule> rules = entry.getValue();
             
             double regexScore = 0.0;
             
-            for (Pattern pattern : patterns) {
-                Matcher matcher = pattern.matcher(extractedText);
-                if (matcher.find()) {
+            for (TextRule rule : rules) {
+                if (features.find(rule).isPresent()) {
                     regexScore += 0.3; // Regex matches are more reliable
                 }
             }
@@ -1,18 +1,38 @@
 package com.bpdb.dms.service;
 
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.json.JsonData;
 import com.bpdb.dms.entity.Document;
 import com.bpdb.dms.entity.DocumentIndex;
+import com.bpdb.dms.entity.DocumentTypeField;
 import com.bpdb.dms.repository.DocumentIndexRepository;
 import com.bpdb.dms.repository.DocumentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.HighlightQuery;
+import org.springframework.data.elasticsearch.core.query.highlight.Highlight;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightField;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightParameters;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.cache.annotation.CacheEvict;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -27,22 +47,74 @@ public class DocumentIndexingService {
     
     private static final Logger logger = LoggerFactory.getLogger(DocumentIndexingService.class);
     
+    static final String SIMILAR_DOCUMENTS_CACHE = "similarDocuments";
+    
+    // Hits fetched per term of a Boolean query before the terms are combined
+    private static final int BOOLEAN_TERM_MAX_HITS = 10000;
+    
+    // Hits carry only what a result item shows; the OCR text stays in Elasticsearch and
+    // reaches the client as highlighted snippets
+    private static final String[] RESULT_SOURCE_INCLUDES = {"documentId", "fileName", "originalName", "documentType",
+        "description", "department", "uploadedByUsername", "createdAt", "ocrConfidence", "classificationConfidence"};
+    private static final String[] RESULT_SOURCE_EXCLUDES = {"extractedText", "metadata", "metadataFields"};
+    
+    private static final List<String> HIGHLIGHT_FIELDS = List.of("extractedText", "description", "originalName", "tags");
+    
     @Autowired
     private DocumentIndexRepository documentIndexRepository;
     
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+    
+    @Autowired
+    private SearchIndexLayoutService searchIndexLayoutService;
+    
+    @Autowired
+    private AutocompleteService autocompleteService;
+    
+    @Value("${app.search.highlight.fragment-size:150}")
+    private int highlightFragmentSize = 150;
+    
+    @Value("${app.search.highlight.fragments:3}")
+    private int highlightFragments = 3;
+    
+    @Value("${app.search.similar.max-query-terms:25}")
+    private int similarMaxQueryTerms;
+    
+    @Value("${app.search.similar.min-term-freq:2}")
+    private int similarMinTermFreq;
+    
+    @Value("${app.search.similar.min-doc-freq:2}")
+    private int similarMinDocFreq;
+    
+    @Value("${app.search.similar.minimum-should-match:30%}")
+    private String similarMinimumShouldMatch;
+    
     @Autowired
     private DocumentRepository documentRepository;
     
     @Autowired
     private DocumentCategoryService documentCategoryService;
     
+    @Autowired
+    private DocumentTypeFieldService documentTypeFieldService;
+    
+    @Autowired(required = false)
+    private ExtractionArtifactService extractionArtifactService;
+    
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+    
     /**
      * Index a document for search
      */
     public void indexDocument(Document document, String extractedText, Map<String, String> metadata, 
                             Double ocrConfidence, Double classificationConfidence) {
+        long started = System.nanoTime();
+        String outcome = "failure";
         try {
             DocumentIndex documentIndex = new DocumentIndex();
+            documentIndex.setId(document.getId().toString());
             documentIndex.setDocumentId(document.getId());
             documentIndex.setFileName(document.getFileName());
             documentIndex.setOriginalName(document.getOriginalName());
@@ -51,26 +123,36 @@ public class DocumentIndexingService {
             documentIndex.setDescription(document.getDescription());
             documentIndex.setTags(document.getTags());
             documentIndex.setDepartment(document.getDepartment());
+            documentIndex.setTenantId(document.getTenantId());
             documentIndex.setUploadedBy(document.getUploadedBy().getId().toString());
             documentIndex.setUploadedByUsername(document.getUploadedBy().getUsername());
             documentIndex.setCreatedAt(document.getCreatedAt() != null ? document.getCreatedAt().toLocalDate() : null);
             documentIndex.setUpdatedAt(document.getUpdatedAt() != null ? document.getUpdatedAt().toLocalDate() : null);
             documentIndex.setMetadata(metadata);
+            documentIndex.setMetadataFields(typedMetadata(documentIndex.getDocumentType(), metadata));
             documentIndex.setOcrConfidence(ocrConfidence);
             documentIndex.setClassificationConfidence(classificationConfidence);
             documentIndex.setMimeType(document.getMimeType());
             documentIndex.setFileSize(document.getFileSize());
             documentIndex.setIsActive(document.getIsActive());
+            documentIndex.setIndexedAt(System.currentTimeMillis());
             
-            documentIndexRepository.save(documentIndex);
+            // Routed to the tenant's alias; documents without a tenant go to the shared index
+            elasticsearchOperations.save(documentIndex,
+                IndexCoordinates.of(searchIndexLayoutService.writeIndex(document.getTenantId())));
             // Invalidate Smart Folder caches on index writes
             clearDmcCache();
             
             logger.info("Document indexed successfully: {} (ID: {})", document.getOriginalName(), document.getId());
+            outcome = "success";
+            PipelineMetrics.countBytes(meterRegistry, "index", PipelineMetrics.mimeTag(document.getMimeType()),
+                extractedText != null ? extractedText.length() : 0);
             
         } catch (Exception e) {
             logger.error("Failed to index document {}: {}", document.getId(), e.getMessage());
             throw new RuntimeException("Failed to index document", e);
+        } finally {
+            PipelineMetrics.record(meterRegistry, PipelineMetrics.INDEX, started, "operation", "index", "outcome", outcome);
         }
     }
     
@@ -78,29 +160,37 @@ public class DocumentIndexingService {
      * Update document index
      */
     public void updateDocumentIndex(Document document) {
+        long started = System.nanoTime();
+        String outcome = "failure";
         try {
-            DocumentIndex existingIndex = documentIndexRepository.findById(document.getId().toString()).orElse(null);
+            IndexCoordinates index = IndexCoordinates.of(searchIndexLayoutService.writeIndex(document.getTenantId()));
+            DocumentIndex existingIndex = elasticsearchOperations.get(document.getId().toString(), DocumentIndex.class, index);
             
             if (existingIndex != null) {
                 existingIndex.setFileName(document.getFileName());
                 existingIndex.setOriginalName(document.getOriginalName());
                 existingIndex.setDocumentType(document.getDocumentType() != null ? document.getDocumentType() : "OTHER");
+                existingIndex.setMetadataFields(typedMetadata(existingIndex.getDocumentType(), existingIndex.getMetadata()));
                 existingIndex.setDescription(document.getDescription());
                 existingIndex.setTags(document.getTags());
                 existingIndex.setDepartment(document.getDepartment());
                 existingIndex.setUpdatedAt(document.getUpdatedAt() != null ? document.getUpdatedAt().toLocalDate() : null);
                 existingIndex.setIsActive(document.getIsActive());
+                existingIndex.setIndexedAt(System.currentTimeMillis());
                 
-                documentIndexRepository.save(existingIndex);
+                elasticsearchOperations.save(existingIndex, index);
+                outcome = "success";
                 logger.info("Document index updated: {} (ID: {})", document.getOriginalName(), document.getId());
             } else {
-                // Re-index if not found
+                // Re-index if not found; timed as an index write
                 indexDocument(document, "", new HashMap<>(), 0.0, 0.0);
+                return;
             }
             
         } catch (Exception e) {
             logger.error("Failed to update document index {}: {}", document.getId(), e.getMessage());
         }
+        PipelineMetrics.record(meterRegistry, PipelineMetrics.INDEX, started, "operation", "update", "outcome", outcome);
     }
     
     /**
@@ -108,21 +198,33 @@ public class DocumentIndexingService {
      */
     @CacheEvict(cacheNames = "dmcEval", allEntries = true)
     public void removeDocumentFromIndex(Long documentId) {
+        long started = System.nanoTime();
+        String outcome = "failure";
         try {
-            documentIndexRepository.deleteById(documentId.toString());
+            elasticsearchOperations.delete(documentId.toString(),
+                IndexCoordinates.of(searchIndexLayoutService.writeIndex(tenantOf(documentId))));
+            outcome = "success";
             logger.info("Document removed from index: {}", documentId);
             clearDmcCache();
         } catch (Exception e) {
             logger.error("Failed to remove document from index {}: {}", documentId, e.getMessage());
         }
+        PipelineMetrics.record(meterRegistry, PipelineMetrics.INDEX, started, "operation", "delete", "outcome", outcome);
     }
     
     /**
-     * Search documents with advanced query (supports Boolean operators)
+     * Search documents with advanced query (supports Boolean operators). The search runs
+     * against the tenant's alias from the filters, so it only touches that tenant's shard or
+     * index; without a tenant it spans all tenants. Filters are applied by Elasticsearch.
      */
     public SearchResult searchDocuments(String query, SearchFilters filters, Pageable pageable) {
+        long started = System.nanoTime();
+        String operation = "browse";
+        String outcome = "failure";
         try {
-            Page<DocumentIndex> results;
+            String index = searchIndexLayoutService.readIndex(filters != null ? filters.getTenantId() : null);
+            List<Query> filterQueries = filterQueries(filters);
+            Page<SearchHit<DocumentIndex>> results;
             
             if (query != null && !query.trim().isEmpty()) {
                 // Parse query for Boolean operators
@@ -130,149 +232,359 @@ public class DocumentIndexingService {
                 
                 if (parsedQuery.getType() == BooleanQueryParser.QueryType.BOOLEAN) {
                     // Use Boolean query with operators
-                    results = searchWithBooleanQuery(parsedQuery, pageable);
+                    operation = "boolean_search";
+                    results = searchWithBooleanQuery(parsedQuery, index, filterQueries, pageable);
                 } else {
-                    // Simple query - use existing method
-                    results = documentIndexRepository.searchByText(query, pageable);
+                    operation = "search";
+                    results = searchIndex(textQuery(query), index, filterQueries, pageable);
                 }
             } else {
-                results = documentIndexRepository.findAll(pageable);
+                results = searchIndex(null, index, filterQueries, pageable);
             }
             
-            // Apply filters manually for now
-            List<DocumentIndex> filteredResults = results.getContent().stream()
-                .filter(doc -> {
-                    if (filters == null) return true;
-                    
-                    if (filters.getDocumentTypes() != null && !filters.getDocumentTypes().isEmpty()) {
-                        if (!filters.getDocumentTypes().contains(doc.getDocumentType())) return false;
-                    }
-                    
-                    if (filters.getDepartments() != null && !filters.getDepartments().isEmpty()) {
-                        if (!filters.getDepartments().contains(doc.getDepartment())) return false;
-                    }
-                    
-                    if (filters.getIsActive() != null) {
-                        if (!filters.getIsActive().equals(doc.getIsActive())) return false;
-                    }
-                    
-                    return true;
-                })
-                .collect(Collectors.toList());
-            
             // Convert to search result
             SearchResult result = new SearchResult();
-            result.setTotalHits(filteredResults.size());
+            result.setTotalHits(results.getTotalElements());
             result.setMaxScore(1.0f);
             
-            List<SearchResultItem> items = filteredResults.stream()
-                .map(this::convertToSearchResultItem)
+            List<SearchResultItem> items = results.getContent().stream()
+                .map(this::toSearchResultItem)
                 .collect(Collectors.toList());
             
             result.setItems(items);
             result.setPageNumber(pageable.getPageNumber());
             result.setPageSize(pageable.getPageSize());
-            result.setTotalPages((int) Math.ceil((double) filteredResults.size() / pageable.getPageSize()));
+            result.setTotalPages(results.getTotalPages());
+            outcome = "success";
             
             return result;
             
         } catch (Exception e) {
             logger.error("Search failed: {}", e.getMessage());
             throw new RuntimeException("Search operation failed", e);
+        } finally {
+            PipelineMetrics.record(meterRegistry, PipelineMetrics.SEARCH, started, "operation", operation, "outcome", outcome);
         }
     }
     
     /**
      * Search with Boolean query operators (AND, OR, NOT)
-     * For now, we implement basic Boolean logic in-memory after fetching results
+     * Each term is searched separately for matching ids only, and the ids are combined in memory;
+     * the requested page is then fetched in one query that also highlights the positive terms
      * A production implementation would use Elasticsearch's bool query directly
      */
-    private Page<DocumentIndex> searchWithBooleanQuery(BooleanQueryParser.ParsedQueryResult parsedQuery, Pageable pageable) {
+    private Page<SearchHit<DocumentIndex>> searchWithBooleanQuery(BooleanQueryParser.ParsedQueryResult parsedQuery,
+                                                                  String index, List<Query> filterQueries, Pageable pageable) {
         List<String> terms = parsedQuery.getTerms();
         List<String> operators = parsedQuery.getOperators();
         
         if (terms.isEmpty()) {
-            return documentIndexRepository.findAll(pageable);
+            return searchIndex(null, index, filterQueries, pageable);
         }
         
-        // For simplicity, implement Boolean logic by:
-        // 1. Searching for each term separately
-        // 2. Combining results based on operators
-        
-        // Get results for each term
-        List<Page<DocumentIndex>> termResults = new ArrayList<>();
+        // Get matching document ids for each term, best match first
+        List<Set<Long>> termResults = new ArrayList<>();
         for (String term : terms) {
-            Page<DocumentIndex> termPage = documentIndexRepository.searchByText(term, Pageable.unpaged());
-            termResults.add(termPage);
-        }
-        
-        // Combine results based on operators
-        Map<Long, DocumentIndex> combinedResultsMap = new LinkedHashMap<>();
-        
-        if (termResults.isEmpty()) {
-            return documentIndexRepository.findAll(pageable);
-        }
-        
-        // Start with first term's results
-        for (DocumentIndex doc : termResults.get(0).getContent()) {
-            if (doc.getDocumentId() != null) {
-                combinedResultsMap.put(doc.getDocumentId(), doc);
-            }
+            termResults.add(matchingIds(textQuery(term), index, filterQueries));
         }
         
-        // Apply operators sequentially
+        // Start with first term's results and apply operators sequentially
+        Set<Long> combined = new LinkedHashSet<>(termResults.get(0));
+        List<String> highlightTerms = new ArrayList<>(List.of(terms.get(0)));
         for (int i = 0; i < operators.size() && i + 1 < termResults.size(); i++) {
             String operator = operators.get(i);
-            List<DocumentIndex> nextTermResults = termResults.get(i + 1).getContent();
-            
-            // Extract document IDs from next term results
-            Set<Long> nextTermDocIds = nextTermResults.stream()
-                .map(DocumentIndex::getDocumentId)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+            Set<Long> nextTermDocIds = termResults.get(i + 1);
             
             if ("AND".equals(operator)) {
                 // Keep only documents that are in both result sets
-                combinedResultsMap.keySet().retainAll(nextTermDocIds);
+                combined.retainAll(nextTermDocIds);
+                highlightTerms.add(terms.get(i + 1));
             } else if ("OR".equals(operator)) {
                 // Add all documents from next term (avoid duplicates)
-                for (DocumentIndex doc : nextTermResults) {
-                    if (doc.getDocumentId() != null && !combinedResultsMap.containsKey(doc.getDocumentId())) {
-                        combinedResultsMap.put(doc.getDocumentId(), doc);
-                    }
-                }
+                combined.addAll(nextTermDocIds);
+                highlightTerms.add(terms.get(i + 1));
             } else if ("NOT".equals(operator)) {
                 // Remove documents that are in next term results
-                combinedResultsMap.keySet().removeAll(nextTermDocIds);
+                combined.removeAll(nextTermDocIds);
             }
         }
         
-        List<DocumentIndex> combinedResults = new ArrayList<>(combinedResultsMap.values());
-        
         // Apply pagination
+        List<Long> ids = new ArrayList<>(combined);
         int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), combinedResults.size());
-        List<DocumentIndex> paginatedResults = start < combinedResults.size() 
-            ? combinedResults.subList(start, end) 
-            : Collections.emptyList();
+        int end = Math.min(start + pageable.getPageSize(), ids.size());
+        List<Long> pageIds = start < ids.size() ? ids.subList(start, end) : Collections.emptyList();
         
-        return new PageImpl<>(paginatedResults, pageable, combinedResults.size());
+        return new PageImpl<>(pageHits(pageIds, highlightTerms, index), pageable, ids.size());
+    }
+    
+    private Set<Long> matchingIds(Query textQuery, String index, List<Query> filterQueries) {
+        NativeQuery nativeQuery = NativeQuery.builder()
+            .withQuery(q -> q.bool(b -> b.must(textQuery).filter(filterQueries)))
+            .withSourceFilter(new FetchSourceFilter(new String[]{"documentId"}, null))
+            .withPageable(PageRequest.of(0, BOOLEAN_TERM_MAX_HITS))
+            .build();
+        Set<Long> ids = new LinkedHashSet<>();
+        for (SearchHit<DocumentIndex> hit : elasticsearchOperations.search(nativeQuery, DocumentIndex.class,
+                IndexCoordinates.of(index))) {
+            if (hit.getContent().getDocumentId() != null) {
+                ids.add(hit.getContent().getDocumentId());
+            }
+        }
+        return ids;
     }
     
     /**
-     * Get document suggestions for autocomplete
+     * Result hits for the given document ids, in that order, with snippets for the terms
      */
-    public List<String> getSuggestions(String prefix, int limit) {
+    private List<SearchHit<DocumentIndex>> pageHits(List<Long> documentIds, List<String> terms, String index) {
+        if (documentIds.isEmpty()) {
+            return List.of();
+        }
+        List<String> ids = documentIds.stream().map(String::valueOf).collect(Collectors.toList());
+        NativeQuery nativeQuery = NativeQuery.builder()
+            .withQuery(q -> q.bool(b -> {
+                b.filter(f -> f.ids(i -> i.values(ids)));
+                for (String term : terms) {
+                    b.should(textQuery(term));
+                }
+                return b;
+            }))
+            .withSourceFilter(resultSourceFilter())
+            .withHighlightQuery(highlightQuery())
+            .withPageable(PageRequest.of(0, ids.size()))
+            .build();
+        Map<Long, SearchHit<DocumentIndex>> hitsById = new HashMap<>();
+        for (SearchHit<DocumentIndex> hit : elasticsearchOperations.search(nativeQuery, DocumentIndex.class,
+                IndexCoordinates.of(index))) {
+            hitsById.put(hit.getContent().getDocumentId(), hit);
+        }
+        return documentIds.stream()
+            .map(hitsById::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+    
+    private Page<SearchHit<DocumentIndex>> searchIndex(Query textQuery, String index, List<Query> filterQueries,
+                                                       Pageable pageable) {
+        NativeQueryBuilder builder = NativeQuery.builder()
+            .withQuery(q -> q.bool(b -> {
+                if (textQuery != null) {
+                    b.must(textQuery);
+                } else {
+                    b.must(m -> m.matchAll(a -> a));
+                }
+                return b.filter(filterQueries);
+            }))
+            .withSourceFilter(resultSourceFilter())
+            .withPageable(pageable);
+        if (textQuery != null) {
+            builder.withHighlightQuery(highlightQuery());
+        }
+        SearchHits<DocumentIndex> hits = elasticsearchOperations.search(builder.build(), DocumentIndex.class,
+            IndexCoordinates.of(index));
+        return new PageImpl<>(hits.getSearchHits(), pageable, hits.getTotalHits());
+    }
+    
+    private static FetchSourceFilter resultSourceFilter() {
+        return new FetchSourceFilter(RESULT_SOURCE_INCLUDES, RESULT_SOURCE_EXCLUDES);
+    }
+    
+    /**
+     * Snippets from the unified highlighter, bounded in size and count. The highlighter reads the
+     * text inside Elasticsearch, so it works although the text is filtered out of the hits, and
+     * the html encoder escapes the text around the marks.
+     */
+    private HighlightQuery highlightQuery() {
+        HighlightParameters parameters = HighlightParameters.builder()
+            .withType("unified")
+            .withFragmentSize(highlightFragmentSize)
+            .withNumberOfFragments(highlightFragments)
+            .withPreTags("<mark>")
+            .withPostTags("</mark>")
+            .withEncoder("html")
+            .build();
+        List<HighlightField> fields = HIGHLIGHT_FIELDS.stream().map(HighlightField::new).collect(Collectors.toList());
+        return new HighlightQuery(new Highlight(parameters, fields), DocumentIndex.class);
+    }
+    
+    private static Query textQuery(String text) {
+        return Query.of(q -> q.multiMatch(m -> m
+            .query(text)
+            .fields("fileName^2", "originalName^2", "extractedText", "description", "tags")));
+    }
+    
+    private static List<Query> filterQueries(SearchFilters filters) {
+        List<Query> queries = new ArrayList<>();
+        if (filters == null) {
+            return queries;
+        }
+        if (filters.getDocumentTypes() != null && !filters.getDocumentTypes().isEmpty()) {
+            queries.add(termsQuery("documentType", filters.getDocumentTypes()));
+        }
+        if (filters.getDepartments() != null && !filters.getDepartments().isEmpty()) {
+            queries.add(termsQuery("department", filters.getDepartments()));
+        }
+        if (filters.getStartDate() != null || filters.getEndDate() != null) {
+            queries.add(Query.of(q -> q.range(r -> {
+                r.field("createdAt");
+                if (filters.getStartDate() != null) {
+                    r.gte(JsonData.of(filters.getStartDate().toLocalDate().toString()));
+                }
+                if (filters.getEndDate() != null) {
+                    r.lte(JsonData.of(filters.getEndDate().toLocalDate().toString()));
+                }
+                return r;
+            })));
+        }
+        if (filters.getIsActive() != null) {
+            boolean active = filters.getIsActive();
+            queries.add(Query.of(q -> q.term(t -> t.field("isActive").value(active))));
+        }
+        if (filters.getMetadataRanges() != null) {
+            for (MetadataRange range : filters.getMetadataRanges()) {
+                String field = "metadataFields." + range.getFieldKey() + (range.isDate() ? ".date" : ".number");
+                queries.add(Query.of(q -> q.range(r -> {
+                    r.field(field);
+                    if (range.getFrom() != null) {
+                        r.gte(JsonData.of(range.getFrom()));
+                    }
+                    if (range.getTo() != null) {
+                        r.lte(JsonData.of(range.getTo()));
+                    }
+                    return r;
+                })));
+            }
+        }
+        return queries;
+    }
+    
+    /**
+     * Values of the document type's configured fields, indexed with date and number subfields.
+     * Only these keys get typed fields, which keeps the mapping bounded by the field configuration.
+     */
+    private Map<String, String> typedMetadata(String documentType, Map<String, String> metadata) {
+        if (documentType == null || metadata == null || metadata.isEmpty()) {
+            return null;
+        }
+        Map<String, String> typed = new HashMap<>();
+        for (DocumentTypeField field : documentTypeFieldService.getFieldsForDocumentType(documentType)) {
+            String value = metadata.get(field.getFieldKey());
+            if (value != null && !value.isBlank()) {
+                typed.put(field.getFieldKey(), "number".equals(field.getFieldType()) ? normalizeNumber(value) : value.trim());
+            }
+        }
+        return typed.isEmpty() ? null : typed;
+    }
+    
+    /**
+     * Strip grouping separators and currency symbols, e.g. "Tk 1,250.00" becomes "1250.00"
+     */
+    static String normalizeNumber(String value) {
+        String digits = value.replaceAll("[^0-9.\\-]", "");
+        return digits.isEmpty() ? value.trim() : digits;
+    }
+    
+    private static Query termsQuery(String field, List<String> values) {
+        List<FieldValue> fieldValues = values.stream().map(FieldValue::of).collect(Collectors.toList());
+        return Query.of(q -> q.terms(t -> t.field(field).terms(v -> v.value(fieldValues))));
+    }
+    
+    /**
+     * Find documents whose extracted text is similar to the given document's, using a single
+     * more_like_this query over the stored term vectors. Results are cached per document and
+     * scope; the cache key carries the document's index timestamp, so a reindex invalidates it.
+     *
+     * @param tenantId restrict results to this tenant's alias, or null for all tenants
+     * @param department restrict results to this department, or null for all departments
+     */
+    public List<SearchResultItem> findSimilarDocuments(Long documentId, Long tenantId, String department, int limit) {
+        long started = System.nanoTime();
+        String outcome = "failure";
         try {
-            Pageable pageable = org.springframework.data.domain.PageRequest.of(0, limit);
-            List<DocumentIndex> suggestions = documentIndexRepository.findSuggestions(prefix, pageable);
-            
-            return suggestions.stream()
-                .map(DocumentIndex::getOriginalName)
-                .distinct()
-                .limit(limit)
-                .collect(Collectors.toList());
-                
+            List<SearchResultItem> items = doFindSimilarDocuments(documentId, tenantId, department, limit);
+            outcome = "success";
+            return items;
+        } finally {
+            PipelineMetrics.record(meterRegistry, PipelineMetrics.SEARCH, started, "operation", "similar", "outcome", outcome);
+        }
+    }
+    
+    private List<SearchResultItem> doFindSimilarDocuments(Long documentId, Long tenantId, String department, int limit) {
+        String id = documentId.toString();
+        String index = searchIndexLayoutService.readIndex(tenantId);
+        // Only the index timestamp and routing are needed here; fetching the source's text would cost more than the lookup
+        NativeQuery stampQuery = NativeQuery.builder()
+            .withQuery(q -> q.ids(i -> i.values(id)))
+            .withSourceFilter(new FetchSourceFilter(new String[]{"indexedAt", "tenantId"}, null))
+            .build();
+        SearchHit<DocumentIndex> source = elasticsearchOperations
+            .searchOne(stampQuery, DocumentIndex.class, IndexCoordinates.of(index));
+        if (source == null) {
+            return List.of();
+        }
+        // The like-document is fetched from its concrete index, with the tenant routing the shared index uses
+        String sourceIndex = source.getIndex();
+        Long sourceTenant = source.getContent().getTenantId();
+        String sourceRouting = SearchIndexLayoutService.isSharedIndex(sourceIndex) && sourceTenant != null
+            ? sourceTenant.toString() : null;
+        
+        Cache cache = cacheManager != null ? cacheManager.getCache(SIMILAR_DOCUMENTS_CACHE) : null;
+        String cacheKey = id + ":" + source.getContent().getIndexedAt() + ":" + (tenantId != null ? tenantId : "*") + ":"
+            + (department != null ? department : "*") + ":" + limit;
+        if (cache != null) {
+            try {
+                @SuppressWarnings("unchecked")
+                List<SearchResultItem> cached = cache.get(cacheKey, List.class);
+                if (cached != null) {
+                    return cached;
+                }
+            } catch (Exception e) {
+                logger.warn("Similar documents cache read failed for {}: {}", documentId, e.getMessage());
+            }
+        }
+        
+        NativeQuery query = NativeQuery.builder()
+            .withQuery(q -> q.bool(b -> {
+                b.must(m -> m.moreLikeThis(mlt -> mlt
+                    .fields("extractedText")
+                    .like(l -> l.document(d -> d.index(sourceIndex).id(id).routing(sourceRouting)))
+                    .maxQueryTerms(similarMaxQueryTerms)
+                    .minTermFreq(similarMinTermFreq)
+                    .minDocFreq(similarMinDocFreq)
+                    .minimumShouldMatch(similarMinimumShouldMatch)));
+                b.filter(f -> f.term(t -> t.field("isActive").value(true)));
+                if (department != null) {
+                    b.filter(f -> f.term(t -> t.field("department").value(department)));
+                }
+                return b;
+            }))
+            .withSourceFilter(resultSourceFilter())
+            .withPageable(PageRequest.of(0, limit))
+            .build();
+        
+        SearchHits<DocumentIndex> hits = elasticsearchOperations.search(query, DocumentIndex.class, IndexCoordinates.of(index));
+        ArrayList<SearchResultItem> items = new ArrayList<>(hits.getSearchHits().size());
+        for (SearchHit<DocumentIndex> hit : hits.getSearchHits()) {
+            items.add(toSearchResultItem(hit));
+        }
+        
+        if (cache != null) {
+            try {
+                cache.put(cacheKey, items);
+            } catch (Exception e) {
+                logger.warn("Similar documents cache write failed for {}: {}", documentId, e.getMessage());
+            }
+        }
+        return items;
+    }
+    
+    /**
+     * Get document suggestions for autocomplete from the tenant's alias, or all tenants when null
+     */
+    public List<String> getSuggestions(String prefix, Long tenantId, int limit) {
+        try {
+            return autocompleteService.suggest(prefix, tenantId, limit);
         } catch (Exception e) {
             logger.error("Failed to get suggestions: {}", e.getMessage());
             return List.of();
@@ -319,7 +631,12 @@ public class DocumentIndexingService {
             
             for (Document document : documents) {
                 try {
-                    indexDocument(document, "", new HashMap<>(), 0.0, 0.0);
+                    // Reuse the stored extraction instead of indexing documents without their text
+                    String text = document.getExtractedText();
+                    if ((text == null || text.isBlank()) && extractionArtifactService != null) {
+                        text = extractionArtifactService.findLatestText(document.getFileHash()).orElse("");
+                    }
+                    indexDocument(document, text != null ? text : "", new HashMap<>(), 0.0, 0.0);
                 } catch (Exception e) {
                     logger.error("Failed to reindex document {}: {}", document.getId(), e.getMessage());
                 }
@@ -334,6 +651,19 @@ public class DocumentIndexingService {
         }
     }
 
+    /**
+     * The document's index entry, looked up through its tenant's alias
+     */
+    @Transactional(readOnly = true)
+    public Optional<DocumentIndex> getIndexedDocument(Long documentId) {
+        String index = searchIndexLayoutService.writeIndex(tenantOf(documentId));
+        return Optional.ofNullable(elasticsearchOperations.get(documentId.toString(), DocumentIndex.class, IndexCoordinates.of(index)));
+    }
+    
+    private Long tenantOf(Long documentId) {
+        return documentRepository.findById(documentId).map(Document::getTenantId).orElse(null);
+    }
+
     @Autowired(required = false)
     private org.springframework.cache.CacheManager cacheManager;
 
@@ -349,6 +679,17 @@ public class DocumentIndexingService {
     /**
      * Convert DocumentIndex to SearchResultItem
      */
+    private SearchResultItem toSearchResultItem(SearchHit<DocumentIndex> hit) {
+        SearchResultItem item = convertToSearchResultItem(hit.getContent());
+        if (!Float.isNaN(hit.getScore())) {
+            item.setScore(hit.getScore());
+        }
+        if (!hit.getHighlightFields().isEmpty()) {
+            item.setHighlights(new LinkedHashMap<>(hit.getHighlightFields()));
+        }
+        return item;
+    }
+    
     private SearchResultItem convertToSearchResultItem(DocumentIndex document) {
         SearchResultItem item = new SearchResultItem();
         
@@ -378,6 +719,9 @@ public class DocumentIndexingService {
         private LocalDateTime endDate;
         private Double minOcrConfidence;
         private Boolean isActive;
+        // Tenant whose alias is searched; null searches all tenants
+        private Long tenantId;
+        private List<MetadataRange> metadataRanges;
         
         // Getters and setters
         public List<String> getDocumentTypes() { return documentTypes; }
@@ -394,6 +738,31 @@ public class DocumentIndexingService {
         public void setMinOcrConfidence(Double minOcrConfidence) { this.minOcrConfidence = minOcrConfidence; }
         public Boolean getIsActive() { return isActive; }
         public void setIsActive(Boolean isActive) { this.isActive = isActive; }
+        public Long getTenantId() { return tenantId; }
+        public void setTenantId(Long tenantId) { this.tenantId = tenantId; }
+        public List<MetadataRange> getMetadataRanges() { return metadataRanges; }
+        public void setMetadataRanges(List<MetadataRange> metadataRanges) { this.metadataRanges = metadataRanges; }
+    }
+    
+    /**
+     * Range filter on a configured document type field, e.g. bill amount or due date;
+     * bounds are inclusive and either may be null
+     */
+    public static class MetadataRange {
+        private String fieldKey;
+        private String from;
+        private String to;
+        private boolean date;
+        
+        // Getters and setters
+        public String getFieldKey() { return fieldKey; }
+        public void setFieldKey(String fieldKey) { this.fieldKey = fieldKey; }
+        public String getFrom() { return from; }
+        public void setFrom(String from) { this.from = from; }
+        public String getTo() { return to; }
+        public void setTo(String to) { this.to = to; }
+        public boolean isDate() { return date; }
+        public void setDate(boolean date) { this.date = date; }
     }
     
     /**
@@ -425,7 +794,7 @@ public class DocumentIndexingService {
     /**
      * Search Result Item class
      */
-    public static class SearchResultItem {
+    public static class SearchResultItem implements Serializable {
         private Long documentId;
         private String fileName;
         private String originalName;
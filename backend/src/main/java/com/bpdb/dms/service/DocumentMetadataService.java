@@ -31,6 +31,12 @@ public class DocumentMetadataService {
     @Autowired(required = false)
     private DocumentTypeFieldService documentTypeFieldService;
 
+    @Autowired(required = false)
+    private AppBudgetLedgerService appBudgetLedgerService;
+
+    @Autowired(required = false)
+    private TextAnalysisService textAnalysisService;
+
     private static final Map<String, List<String>> REQUIRED_FIELDS = Map.of(
         "CONTRACT", List.of("title", "contractNo", "date"),
         "TENDER", List.of("title", "expiryDate"),
@@ -61,59 +67,63 @@ public class DocumentMetadataService {
         "(\\d{1,2}[\\-/]\\d{1,2}[\\-/]\\d{2,4}|\\d{4}[\\-/]\\d{1,2}[\\-/]\\d{1,2})"
     );
 
-    private static final Pattern CONTRACT_NO_PATTERN = Pattern.compile(
+    private static final TextRule CONTRACT_NO_RULE = TextRule.anchored("contract-no", Pattern.compile(
         "(?i)contract\\s*(number|no\\.?|#)\\s*[:\\-]?\\s*([A-Z0-9\\-/]+)"
-    );
+    ), "contract");
 
-    private static final Pattern EXPIRY_PATTERN = Pattern.compile(
+    private static final TextRule EXPIRY_RULE = TextRule.anchored("expiry", Pattern.compile(
         "(?i)(expiry|expiration|closing)\\s*(date)?\\s*[:\\-]?\\s*" + DATE_PATTERN.pattern()
-    );
+    ), "expiry", "expiration", "closing");
 
-    private static final Pattern AMOUNT_PATTERN = Pattern.compile(
+    private static final TextRule AMOUNT_RULE = TextRule.anchored("amount", Pattern.compile(
         "(?i)(amount|total|due)\\s*[:\\-]?\\s*([$€£]?\\s*[0-9]{1,3}(?:[.,][0-9]{3})*(?:[.,][0-9]{2})?)"
-    );
+    ), "amount", "total", "due");
     
     // Tender Notice specific patterns
     // Matches: "Tender/Proposal ID : 1156325"
-    private static final Pattern TENDER_ID_PATTERN = Pattern.compile(
+    private static final TextRule TENDER_ID_RULE = TextRule.anchored("tender-id", Pattern.compile(
         "(?i)(?:tender|proposal)\\s*/\\s*(?:tender|proposal)?\\s*(?:id|number|no\\.?|#)\\s*[:\\-]?\\s*([0-9]+)"
-    );
+    ), "tender", "proposal");
     
-    private static final Pattern INVITATION_REF_PATTERN = Pattern.compile(
+    private static final TextRule INVITATION_REF_RULE = TextRule.anchored("invitation-ref", Pattern.compile(
         "(?i)invitation\\s+reference\\s*(?:no\\.?|number|#)?\\s*[:\\-]?\\s*([0-9.]+)"
-    );
+    ), "invitation");
     
-    private static final Pattern APP_ID_PATTERN = Pattern.compile(
+    private static final TextRule APP_ID_RULE = TextRule.anchored("app-id", Pattern.compile(
         "(?i)app\\s+id\\s*[:\\-]?\\s*([0-9]+)"
-    );
+    ), "app");
     
-    private static final Pattern MINISTRY_PATTERN = Pattern.compile(
+    private static final TextRule MINISTRY_RULE = TextRule.anchored("ministry", Pattern.compile(
         "(?i)ministry\\s*[:\\-]?\\s*([^\\n:]+?)(?:\\s*division|$)"
-    );
+    ), "ministry");
     
-    private static final Pattern ORGANIZATION_PATTERN = Pattern.compile(
+    private static final TextRule ORGANIZATION_RULE = TextRule.anchored("organization", Pattern.compile(
         "(?i)organization\\s*[:\\-]?\\s*([^\\n:]+?)(?:\\s*procuring|$)"
-    );
+    ), "organization");
     
-    private static final Pattern PROCURING_ENTITY_PATTERN = Pattern.compile(
+    private static final TextRule PROCURING_ENTITY_RULE = TextRule.anchored("procuring-entity", Pattern.compile(
         "(?i)procuring\\s+entity\\s*(?:name)?\\s*[:\\-]?\\s*([^\\n:]+?)(?:\\s*procuring\\s+entity\\s+code|$)"
-    );
+    ), "procuring");
     
-    private static final Pattern DOCUMENT_PRICE_PATTERN = Pattern.compile(
+    private static final TextRule DOCUMENT_PRICE_RULE = TextRule.anchored("document-price", Pattern.compile(
         "(?i)(?:tender|proposal)\\s*(?:document\\s*)?(?:price|fees?)\\s*\\([^)]*\\)\\s*[:\\-]?\\s*([0-9,]+)"
-    );
+    ), "tender", "proposal");
     
-    private static final Pattern CLOSING_DATE_TIME_PATTERN = Pattern.compile(
+    private static final TextRule CLOSING_DATE_TIME_RULE = TextRule.anchored("closing-date-time", Pattern.compile(
         "(?i)(?:tender|proposal)\\s*(?:closing|submission)\\s*(?:date\\s+and\\s+time|date)?\\s*[:\\-]?\\s*(\\d{1,2}[\\-/]\\w+[\\-/]\\d{4}\\s+\\d{1,2}:\\d{2})"
-    );
+    ), "tender", "proposal");
     
-    private static final Pattern OPENING_DATE_TIME_PATTERN = Pattern.compile(
+    private static final TextRule OPENING_DATE_TIME_RULE = TextRule.anchored("opening-date-time", Pattern.compile(
         "(?i)(?:tender|proposal)\\s*(?:opening)\\s*(?:date\\s+and\\s+time|date)?\\s*[:\\-]?\\s*(\\d{1,2}[\\-/]\\w+[\\-/]\\d{4}\\s+\\d{1,2}:\\d{2})"
-    );
+    ), "tender", "proposal");
     
     // Matches: "Scheduled Tender/Proposal Document last selling / downloading Date and Time : 24-Sep-2025 13:00"
-    private static final Pattern PUBLICATION_DATE_TIME_PATTERN = Pattern.compile(
+    private static final TextRule PUBLICATION_DATE_TIME_RULE = TextRule.anchored("publication-date-time", Pattern.compile(
         "(?i)(?:scheduled\\s+)?(?:tender|proposal)\\s*(?:document\\s+)?(?:publication|last\\s+selling\\s*/\\s*downloading|last\\s+selling|downloading)\\s*(?:date\\s+and\\s+time|date)?\\s*[:\\-]?\\s*(\\d{1,2}[\\-/]\\w+[\\-/]\\d{4}\\s+\\d{1,2}:\\d{2})"
+    ), "scheduled", "tender", "proposal");
+
+    private static final Pattern OCR_DATE_TIME_PATTERN = Pattern.compile(
+        "(\\d{1,2})[\\-/](\\w+)[\\-/](\\d{4})\\s+(\\d{1,2}:\\d{2})"
     );
 
     private static final DateTimeFormatter[] SUPPORTED_DATE_FORMATS = new DateTimeFormatter[] {
@@ -126,6 +136,15 @@ public class DocumentMetadataService {
         DateTimeFormatter.ISO_LOCAL_DATE
     };
 
+    /**
+     * Extraction rules, for the shared text analysis dictionary
+     */
+    static List<TextRule> textRules() {
+        return List.of(CONTRACT_NO_RULE, EXPIRY_RULE, AMOUNT_RULE, TENDER_ID_RULE, INVITATION_REF_RULE,
+            APP_ID_RULE, MINISTRY_RULE, ORGANIZATION_RULE, PROCURING_ENTITY_RULE, DOCUMENT_PRICE_RULE,
+            CLOSING_DATE_TIME_RULE, OPENING_DATE_TIME_RULE, PUBLICATION_DATE_TIME_RULE);
+    }
+
     private final DocumentRepository documentRepository;
 
     public DocumentMetadataService(DocumentRepository documentRepository) {
@@ -167,6 +186,19 @@ public class DocumentMetadataService {
         if (extractedText == null || extractedText.isBlank()) {
             return getMetadataMap(document);
         }
+        return extractMetadataFromText(document, textAnalysisService != null
+            ? textAnalysisService.analyze(extractedText)
+            : TextFeatures.unindexed(extractedText));
+    }
+
+    /**
+     * Infer metadata from already analyzed text, reusing its keyword hits and rule matches
+     */
+    public Map<String, String> extractMetadataFromText(Document document, TextFeatures features) {
+        if (features == null || features.isBlank()) {
+            return getMetadataMap(document);
+        }
+        String extractedText = features.getText();
         String documentType = normalizeType(document.getDocumentType());
         Map<String, String> inferred = new LinkedHashMap<>();
         String fallbackTitle = deriveTitle(document);
@@ -182,11 +214,11 @@ public class DocumentMetadataService {
             case "CONTRACT", "CONTRACT_AGREEMENT" -> {
                 inferred.putIfAbsent("title", fallbackTitle);
                 if (!inferred.containsKey("contractNumber") && !inferred.containsKey("contractNo")) {
-                    extractFirstMatch(CONTRACT_NO_PATTERN, extractedText, 2)
+                    extractFirstMatch(CONTRACT_NO_RULE, features, 2)
                         .ifPresent(value -> inferred.put("contractNumber", value));
                 }
                 if (!inferred.containsKey("contractDate") && !inferred.containsKey("date")) {
-                    extractDate(extractedText).ifPresent(date -> inferred.put("contractDate", date));
+                    extractDate(features).ifPresent(date -> inferred.put("contractDate", date));
                 }
             }
             case "TENDER", "TENDER_NOTICE", "TENDER_DOCUMENT" -> {
@@ -194,50 +226,50 @@ public class DocumentMetadataService {
                 
                 // Extract Tender/Proposal ID
                 if (!inferred.containsKey("tenderId") && !inferred.containsKey("proposalId")) {
-                    extractFirstMatch(TENDER_ID_PATTERN, extractedText, 1)
+                    extractFirstMatch(TENDER_ID_RULE, features, 1)
                         .ifPresent(value -> inferred.put("tenderId", value));
                 }
                 
                 // Extract Invitation Reference No
                 if (!inferred.containsKey("invitationReferenceNo")) {
-                    extractFirstMatch(INVITATION_REF_PATTERN, extractedText, 1)
+                    extractFirstMatch(INVITATION_REF_RULE, features, 1)
                         .ifPresent(value -> inferred.put("invitationReferenceNo", value.trim()));
                 }
                 
                 // Extract App ID
                 if (!inferred.containsKey("appId")) {
-                    extractFirstMatch(APP_ID_PATTERN, extractedText, 1)
+                    extractFirstMatch(APP_ID_RULE, features, 1)
                         .ifPresent(value -> inferred.put("appId", value));
                 }
                 
                 // Extract Ministry
                 if (!inferred.containsKey("ministry")) {
-                    extractFirstMatch(MINISTRY_PATTERN, extractedText, 1)
+                    extractFirstMatch(MINISTRY_RULE, features, 1)
                         .ifPresent(value -> inferred.put("ministry", value.trim()));
                 }
                 
                 // Extract Organization
                 if (!inferred.containsKey("organization")) {
-                    extractFirstMatch(ORGANIZATION_PATTERN, extractedText, 1)
+                    extractFirstMatch(ORGANIZATION_RULE, features, 1)
                         .ifPresent(value -> inferred.put("organization", value.trim()));
                 }
                 
                 // Extract Procuring Entity
                 if (!inferred.containsKey("procuringEntity")) {
-                    extractFirstMatch(PROCURING_ENTITY_PATTERN, extractedText, 1)
+                    extractFirstMatch(PROCURING_ENTITY_RULE, features, 1)
                         .ifPresent(value -> inferred.put("procuringEntity", value.trim()));
                 }
                 
                 // Extract Document Price
                 if (!inferred.containsKey("documentPrice")) {
-                    extractFirstMatch(DOCUMENT_PRICE_PATTERN, extractedText, 1)
+                    extractFirstMatch(DOCUMENT_PRICE_RULE, features, 1)
                         .ifPresent(value -> inferred.put("documentPrice", value.replace(",", "")));
                 }
                 
                 // Extract Publication Date and Time (this is the tenderDate - when tender was published/issued)
                 String publicationDate = null;
                 if (!inferred.containsKey("publicationDate")) {
-                    Optional<String> pubDate = extractFirstMatch(PUBLICATION_DATE_TIME_PATTERN, extractedText, 1)
+                    Optional<String> pubDate = extractFirstMatch(PUBLICATION_DATE_TIME_RULE, features, 1)
                         .map(this::normalizeDateTime);
                     if (pubDate.isPresent()) {
                         publicationDate = pubDate.get();
@@ -247,18 +279,18 @@ public class DocumentMetadataService {
                 
                 // Extract Closing Date and Time (this is when tender closes)
                 if (!inferred.containsKey("closingDate") && !inferred.containsKey("expiryDate")) {
-                    extractFirstMatch(CLOSING_DATE_TIME_PATTERN, extractedText, 1)
+                    extractFirstMatch(CLOSING_DATE_TIME_RULE, features, 1)
                         .map(this::normalizeDateTime)
                         .ifPresent(value -> inferred.put("closingDate", value));
                     // Fallback to expiry pattern if not found
                     if (!inferred.containsKey("closingDate")) {
-                        extractExpiryDate(extractedText).ifPresent(val -> inferred.put("closingDate", val));
+                        extractExpiryDate(features).ifPresent(val -> inferred.put("closingDate", val));
                     }
                 }
                 
                 // Extract Opening Date and Time
                 if (!inferred.containsKey("openingDate")) {
-                    extractFirstMatch(OPENING_DATE_TIME_PATTERN, extractedText, 1)
+                    extractFirstMatch(OPENING_DATE_TIME_RULE, features, 1)
                         .map(this::normalizeDateTime)
                         .ifPresent(value -> inferred.put("openingDate", value));
                 }
@@ -269,17 +301,17 @@ public class DocumentMetadataService {
                         inferred.put("tenderDate", publicationDate);
                     } else {
                         // Fallback: extract first date found
-                        extractDate(extractedText).ifPresent(date -> inferred.put("tenderDate", date));
+                        extractDate(features).ifPresent(date -> inferred.put("tenderDate", date));
                     }
                 }
             }
             case "BILL" -> {
                 // Bill-specific metadata extraction will be enhanced in Phase 3
                 if (!inferred.containsKey("date")) {
-                    extractDate(extractedText).ifPresent(date -> inferred.put("date", date));
+                    extractDate(features).ifPresent(date -> inferred.put("date", date));
                 }
                 if (!inferred.containsKey("amount")) {
-                    extractAmount(extractedText).ifPresent(amount -> inferred.put("amount", amount));
+                    extractAmount(features).ifPresent(amount -> inferred.put("amount", amount));
                 }
                 inferred.putIfAbsent("title", fallbackTitle);
             }
@@ -347,6 +379,11 @@ public class DocumentMetadataService {
 
         managedDocument.setUpdatedAt(LocalDateTime.now());
         documentRepository.save(managedDocument);
+
+        // Keep the per-APP billed total in step with bill amount edits
+        if (appBudgetLedgerService != null && appBudgetLedgerService.affectsLedger(managedDocument, metadata.keySet())) {
+            appBudgetLedgerService.onBillAmountChanged(managedDocument);
+        }
     }
 
     private Map<String, String> normalizeMetadata(String documentType, Map<String, String> metadata) {
@@ -405,16 +442,12 @@ public class DocumentMetadataService {
         });
     }
 
-    private Optional<String> extractFirstMatch(Pattern pattern, String text, int group) {
-        Matcher matcher = pattern.matcher(text);
-        if (matcher.find()) {
-            return Optional.ofNullable(matcher.group(group)).map(String::trim);
-        }
-        return Optional.empty();
+    private Optional<String> extractFirstMatch(TextRule rule, TextFeatures features, int group) {
+        return features.group(rule, group);
     }
 
-    private Optional<String> extractDate(String text) {
-        Matcher matcher = DATE_PATTERN.matcher(text);
+    private Optional<String> extractDate(TextFeatures features) {
+        Matcher matcher = DATE_PATTERN.matcher(features.getText());
         while (matcher.find()) {
             String candidate = matcher.group(1);
             for (DateTimeFormatter formatter : SUPPORTED_DATE_FORMATS) {
@@ -428,21 +461,16 @@ public class DocumentMetadataService {
         return Optional.empty();
     }
 
-    private Optional<String> extractAmount(String text) {
-        Matcher matcher = AMOUNT_PATTERN.matcher(text);
-        if (matcher.find()) {
-            return Optional.ofNullable(matcher.group(2)).map(this::sanitizeAmount);
-        }
-        return Optional.empty();
+    private Optional<String> extractAmount(TextFeatures features) {
+        return features.find(AMOUNT_RULE)
+            .map(match -> match.group(2))
+            .map(this::sanitizeAmount);
     }
 
-    private Optional<String> extractExpiryDate(String text) {
-        Matcher matcher = EXPIRY_PATTERN.matcher(text);
-        if (matcher.find()) {
-            String value = matcher.group(matcher.groupCount());
-            return Optional.ofNullable(value).map(String::trim);
-        }
-        return Optional.empty();
+    private Optional<String> extractExpiryDate(TextFeatures features) {
+        return features.find(EXPIRY_RULE)
+            .map(match -> match.group(match.groupCount()))
+            .map(String::trim);
     }
 
     private Optional<String> standardizeDateString(String raw) {
@@ -499,10 +527,7 @@ public class DocumentMetadataService {
                                    "jul", "aug", "sep", "oct", "nov", "dec"};
             
             // Pattern: "22-Oct-2025 14:00" or "22/Oct/2025 14:00"
-            Pattern dtPattern = Pattern.compile(
-                "(\\d{1,2})[\\-/](\\w+)[\\-/](\\d{4})\\s+(\\d{1,2}:\\d{2})"
-            );
-            Matcher matcher = dtPattern.matcher(dateTimeStr.trim());
+            Matcher matcher = OCR_DATE_TIME_PATTERN.matcher(dateTimeStr.trim());
             if (matcher.find()) {
                 String day = matcher.group(1);
                 String monthStr = matcher.group(2).toLowerCase();
@@ -32,6 +32,15 @@ public class DocumentTypeFieldService {
         return repository.findByDocumentTypeAndIsActiveTrueOrderByDisplayOrderAsc(documentType);
     }
 
+    /**
+     * Active field keys of every document type, mapped to their field type
+     */
+    public Map<String, Map<String, String>> getActiveFieldTypesByDocumentType() {
+        return repository.findByIsActiveTrueOrderByDocumentTypeAscDisplayOrderAsc().stream()
+            .collect(Collectors.groupingBy(DocumentTypeField::getDocumentType,
+                Collectors.toMap(DocumentTypeField::getFieldKey, DocumentTypeField::getFieldType, (a, b) -> a)));
+    }
+
     /**
      * Get all fields for a document type (including inactive)
      */
@@ -124,7 +124,7 @@ public class EnterpriseIntegrationService {
         );
     }
 
-    @Async
+    @Async("ioExecutor")
     public CompletableFuture<Map<String, Object>> syncIntegration(Long id) {
         try {
             IntegrationConfig config = getIntegrationById(id);
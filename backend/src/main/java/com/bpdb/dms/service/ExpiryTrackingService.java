@@ -7,6 +7,7 @@ import com.bpdb.dms.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -25,6 +26,9 @@ import java.util.stream.Collectors;
 public class ExpiryTrackingService {
     
     private static final Logger logger = LoggerFactory.getLogger(ExpiryTrackingService.class);
+
+    @Value("${app.scheduler.jobs.expiry-alerts.enabled:false}")
+    private boolean expiryAlertsEnabled;
     
     @Autowired
     private ExpiryTrackingRepository expiryTrackingRepository;
@@ -184,6 +188,10 @@ public class ExpiryTrackingService {
      */
     @Scheduled(fixedRate = 3600000) // Run every hour
     public void processExpiryAlerts() {
+        if (!expiryAlertsEnabled) {
+            logger.debug("Expiry alerts disabled, skipping scheduled run");
+            return;
+        }
         try {
             LocalDateTime now = LocalDateTime.now();
             
@@ -0,0 +1,153 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.ExtractionArtifact;
+import com.bpdb.dms.repository.ExtractionArtifactRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Store of text extraction results keyed by (file content hash, OCR engine version, language).
+ * OCR is the most expensive stage of the pipeline; every consumer that needs a file's
+ * text reads through this store, so the same bytes are only OCR'd once per engine
+ * configuration. Bumping app.ocr.engine-version invalidates all artifacts.
+ */
+@Service
+public class ExtractionArtifactService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionArtifactService.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private ExtractionArtifactRepository extractionArtifactRepository;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.ocr.artifact-cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * SHA-256 of the file content, hex encoded (same format as Document.fileHash)
+     */
+    public String hash(MultipartFile file) throws IOException {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            // Stream through the digest so large scans are never held in memory
+            try (InputStream in = new DigestInputStream(file.getInputStream(), sha256)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            byte[] digest = sha256.digest();
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<ExtractionArtifact> find(String fileHash, String engineVersion, String language) {
+        if (!enabled || fileHash == null || fileHash.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<ExtractionArtifact> artifact =
+            extractionArtifactRepository.findByFileHashAndEngineVersionAndLanguage(fileHash, engineVersion, language);
+        if (meterRegistry != null) {
+            meterRegistry.counter("dms.ocr.artifact_cache", "result", artifact.isPresent() ? "hit" : "miss").increment();
+        }
+        return artifact;
+    }
+
+    /**
+     * Most recent extracted text for the file content under any engine configuration;
+     * used where any previous extraction beats none (e.g. rebuilding the search index)
+     */
+    public Optional<String> findLatestText(String fileHash) {
+        if (!enabled || fileHash == null || fileHash.isEmpty()) {
+            return Optional.empty();
+        }
+        return extractionArtifactRepository.findFirstByFileHashOrderByCreatedAtDesc(fileHash)
+            .map(ExtractionArtifact::getExtractedText);
+    }
+
+    /**
+     * Store a successful extraction; runs in its own transaction so a concurrent insert
+     * of the same key never rolls back the caller
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void store(String fileHash, String engineVersion, String language, String extractedText,
+                      double confidence, List<String> pageTexts, List<Double> pageConfidences) {
+        if (!enabled || fileHash == null || fileHash.isEmpty()) {
+            return;
+        }
+        try {
+            write(new ExtractionArtifact(), fileHash, engineVersion, language, extractedText,
+                confidence, pageTexts, pageConfidences);
+        } catch (DataIntegrityViolationException e) {
+            // Another upload of the same content stored it first
+            logger.debug("Extraction artifact for {} already stored", fileHash);
+        } catch (Exception e) {
+            logger.warn("Failed to store extraction artifact for {}: {}", fileHash, e.getMessage());
+        }
+    }
+
+    /**
+     * Overwrite the stored extraction for the key with a fresh one (forced reprocessing)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void replace(String fileHash, String engineVersion, String language, String extractedText,
+                        double confidence, List<String> pageTexts, List<Double> pageConfidences) {
+        if (!enabled || fileHash == null || fileHash.isEmpty()) {
+            return;
+        }
+        try {
+            ExtractionArtifact artifact = extractionArtifactRepository
+                .findByFileHashAndEngineVersionAndLanguage(fileHash, engineVersion, language)
+                .orElseGet(ExtractionArtifact::new);
+            write(artifact, fileHash, engineVersion, language, extractedText, confidence, pageTexts, pageConfidences);
+        } catch (Exception e) {
+            logger.warn("Failed to replace extraction artifact for {}: {}", fileHash, e.getMessage());
+        }
+    }
+
+    private void write(ExtractionArtifact artifact, String fileHash, String engineVersion, String language,
+                       String extractedText, double confidence, List<String> pageTexts,
+                       List<Double> pageConfidences) throws JsonProcessingException {
+        artifact.setFileHash(fileHash);
+        artifact.setEngineVersion(engineVersion);
+        artifact.setLanguage(language);
+        artifact.setExtractedText(extractedText);
+        artifact.setConfidence(confidence);
+        artifact.setPageCount(pageTexts.size());
+        artifact.setPageTexts(objectMapper.writeValueAsString(pageTexts));
+        artifact.setPageConfidences(objectMapper.writeValueAsString(pageConfidences));
+        artifact.setCreatedAt(LocalDateTime.now());
+        extractionArtifactRepository.save(artifact);
+    }
+}
@@ -12,10 +12,15 @@ import com.bpdb.dms.entity.WorkflowInstance;
 import com.bpdb.dms.entity.WorkflowInstanceStatus;
 import com.bpdb.dms.entity.WorkflowType;
 import com.bpdb.dms.repository.WorkflowInstanceRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -28,7 +33,6 @@ import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -38,6 +42,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for handling file upload operations
@@ -107,12 +113,73 @@ public class FileUploadService {
     
     @Autowired(required = false)
     private DatabaseMetadataExtractionService databaseMetadataExtractionService;
+    
+    @Autowired(required = false)
+    private NearDuplicateService nearDuplicateService;
+    
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("ocrExecutor")
+    private TaskExecutor ocrExecutor;
+    
+    @Autowired
+    private TenantUsageService tenantUsageService;
+
+    @Autowired(required = false)
+    private AppBudgetLedgerService appBudgetLedgerService;
+    
+    private final AtomicInteger interactiveProcessing = new AtomicInteger();
+
+    @PostConstruct
+    void registerMetrics() {
+        if (meterRegistry != null) {
+            Gauge.builder("dms.ingestion.processing", interactiveProcessing, AtomicInteger::get)
+                .description("Interactive uploads queued for or in OCR/indexing")
+                .register(meterRegistry);
+        }
+    }
 
     /**
      * Upload a single file
      */
     public FileUploadResponse uploadFile(MultipartFile file, User user, String documentType, String description,
                                          Map<String, String> manualMetadata, Long folderId) {
+        return uploadFile(file, user, documentType, description, manualMetadata, folderId, null);
+    }
+
+    /**
+     * Upload a single file under an admission ticket. The ticket goes with the OCR task and is
+     * closed when OCR and indexing finish, or on return when nothing was queued.
+     *
+     * @throws RejectedExecutionException the OCR queue is full; the upload has been undone so
+     *         a retry is not refused as a duplicate
+     */
+    public FileUploadResponse uploadFile(MultipartFile file, User user, String documentType, String description,
+                                         Map<String, String> manualMetadata, Long folderId,
+                                         IngestionAdmissionService.Ticket ticket) {
+        long started = System.nanoTime();
+        String mime = PipelineMetrics.mimeTag(file != null ? file.getContentType() : null);
+        FileUploadResponse response = null;
+        try {
+            response = doUploadFile(file, user, documentType, description, manualMetadata, folderId, ticket);
+        } finally {
+            if (ticket != null && (response == null || !response.isSuccess())) {
+                ticket.close();
+            }
+        }
+        String outcome = response.isSuccess() ? "success" : response.isDuplicate() ? "duplicate" : "failure";
+        PipelineMetrics.record(meterRegistry, PipelineMetrics.UPLOAD, started, "mime", mime, "outcome", outcome);
+        if (response.isSuccess()) {
+            PipelineMetrics.countBytes(meterRegistry, "upload", mime, file.getSize());
+        }
+        return response;
+    }
+
+    private FileUploadResponse doUploadFile(MultipartFile file, User user, String documentType, String description,
+                                            Map<String, String> manualMetadata, Long folderId,
+                                            IngestionAdmissionService.Ticket ticket) {
         try {
             // Validate file
             String validationError = validateFile(file);
@@ -120,6 +187,12 @@ public class FileUploadService {
                 return FileUploadResponse.error(validationError);
             }
 
+            // O(1) quota check against the tenant's usage counters
+            String quotaError = tenantUsageService.checkUploadAllowed(user.getTenantId(), file.getSize());
+            if (quotaError != null) {
+                return FileUploadResponse.error(quotaError);
+            }
+
             // Validate and normalize document type
             DocumentType resolvedType = DocumentType.resolve(documentType).orElse(null);
             if (resolvedType == null) {
@@ -225,6 +298,7 @@ public class FileUploadService {
             document.setDescription(description);
             document.setUploadedBy(user);
             document.setDepartment(user.getDepartment());
+            document.setTenantId(user.getTenantId());
             document.setIsActive(true);
             document.setFileHash(fileHash);
             
@@ -235,6 +309,7 @@ public class FileUploadService {
             
             // Save to database
             Document savedDocument = documentRepository.save(document);
+            recordTenantUsage(() -> tenantUsageService.documentAdded(savedDocument));
 
             Map<String, String> combinedMetadata = new HashMap<>();
             if (manualMetadata != null && !manualMetadata.isEmpty()) {
@@ -422,7 +497,14 @@ public class FileUploadService {
             }
             
             // Process OCR and indexing asynchronously
-            processDocumentAsync(savedDocument, file, combinedMetadata);
+            try {
+                submitProcessing(savedDocument, file, combinedMetadata, ticket);
+            } catch (RejectedExecutionException e) {
+                // Undo the upload so the client's retry is not refused as a duplicate
+                logger.warn("OCR queue saturated, undoing upload of document {}", savedDocument.getId());
+                deleteFile(savedDocument.getId());
+                throw e;
+            }
             
             logger.info("File uploaded successfully: {} by user: {}", originalFilename, user.getUsername());
             
@@ -455,6 +537,8 @@ public class FileUploadService {
         } catch (IOException e) {
             logger.error("Error uploading file: {}", e.getMessage());
             return FileUploadResponse.error("Failed to upload file: " + e.getMessage());
+        } catch (RejectedExecutionException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Unexpected error during file upload: {}", e.getMessage());
             return FileUploadResponse.error("Unexpected error occurred during upload");
@@ -508,6 +592,17 @@ public class FileUploadService {
         return Paths.get(document.getFilePath());
     }
     
+    /**
+     * Counter updates never fail the operation itself; the nightly reconciliation repairs a missed one
+     */
+    private void recordTenantUsage(Runnable update) {
+        try {
+            update.run();
+        } catch (Exception e) {
+            logger.warn("Tenant usage counter update failed: {}", e.getMessage());
+        }
+    }
+    
     /**
      * Delete file from storage and database
      */
@@ -523,8 +618,15 @@ public class FileUploadService {
             }
             
             // Mark as inactive in database (soft delete)
+            boolean wasActive = Boolean.TRUE.equals(document.getIsActive());
             document.setIsActive(false);
             documentRepository.save(document);
+            if (wasActive) {
+                recordTenantUsage(() -> tenantUsageService.documentRemoved(document));
+            }
+            if (appBudgetLedgerService != null) {
+                appBudgetLedgerService.onBillRelocated(document);
+            }
             
             logger.info("File deleted successfully: {}", document.getOriginalName());
             return true;
@@ -536,10 +638,80 @@ public class FileUploadService {
     }
     
     /**
-     * Process document with OCR and indexing asynchronously
+     * Process document with OCR and indexing asynchronously. Submitted to the ocrExecutor
+     * directly: an @Async method called from inside this bean would skip the proxy and
+     * run on the request thread. The task reads the stored copy, since the upload's
+     * temporary file is gone once the request completes.
      */
-    @Async
     public void processDocumentAsync(Document document, MultipartFile file, Map<String, String> additionalMetadata) {
+        try {
+            submitProcessing(document, file, additionalMetadata, null);
+        } catch (RejectedExecutionException e) {
+            // The upload itself succeeded; OCR can be re-run from the document later
+            logger.warn("OCR queue saturated, document {} stored without OCR: {}", document.getId(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Queue OCR and indexing on the ocrExecutor. The admission ticket, if any, is held until
+     * the task finishes, so admission bounds the OCR work and not just the upload.
+     *
+     * @throws RejectedExecutionException the OCR queue is full; the ticket is left to the caller
+     */
+    private void submitProcessing(Document document, MultipartFile file, Map<String, String> additionalMetadata,
+                                  IngestionAdmissionService.Ticket ticket) {
+        MultipartFile source = document.getFilePath() != null
+            ? createMultipartFileFromPath(Paths.get(document.getFilePath()), document)
+            : file;
+        // Counted from submission, so bulk reprocessing also yields to uploads still queued
+        interactiveProcessing.incrementAndGet();
+        try {
+            ocrExecutor.execute(() -> {
+                try {
+                    processDocument(document, source, additionalMetadata);
+                } finally {
+                    interactiveProcessing.decrementAndGet();
+                    if (ticket != null) {
+                        ticket.close();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            interactiveProcessing.decrementAndGet();
+            throw e;
+        }
+    }
+    
+    /**
+     * Number of interactive uploads queued for or currently in OCR/indexing
+     */
+    public int getInteractiveProcessingCount() {
+        return interactiveProcessing.get();
+    }
+    
+    /**
+     * Process document with OCR and indexing in the calling thread
+     */
+    public void processDocument(Document document, MultipartFile file, Map<String, String> additionalMetadata) {
+        processDocument(document, file, additionalMetadata, false);
+    }
+    
+    /**
+     * @param bypassCache re-run OCR even if an extraction is stored for this content
+     */
+    private void processDocument(Document document, MultipartFile file, Map<String, String> additionalMetadata,
+                                 boolean bypassCache) {
+        long started = System.nanoTime();
+        String outcome = doProcessDocument(document, file, additionalMetadata, bypassCache);
+        PipelineMetrics.record(meterRegistry, PipelineMetrics.PROCESS, started,
+            "mime", PipelineMetrics.mimeTag(file.getContentType()), "outcome", outcome);
+    }
+    
+    /**
+     * @return outcome tag for the processing timer
+     */
+    private String doProcessDocument(Document document, MultipartFile file, Map<String, String> additionalMetadata,
+                                     boolean bypassCache) {
         final Long documentId = document.getId();
         
         try {
@@ -569,12 +741,12 @@ public class FileUploadService {
                     0.0,
                     0.0
                 );
-                return;
+                return "ocr_unavailable";
             }
             
             OCRService.OCRResult ocrResult;
             try {
-                ocrResult = ocrService.extractText(file);
+                ocrResult = ocrService.extractText(file, bypassCache);
                 managedDocument.setExtractedText(ocrResult.getExtractedText());
                 documentRepository.save(managedDocument);
                 
@@ -606,9 +778,12 @@ public class FileUploadService {
                     0.0,
                     0.0
                 );
-                return;
+                return "failure";
             }
             
+            int ocrPages = ocrResult != null ? ocrResult.getPagesProcessed() : 0;
+            recordTenantUsage(() -> tenantUsageService.ocrPagesProcessed(managedDocument.getTenantId(), ocrPages));
+            
             if (ocrResult != null && ocrResult.isSuccess()) {
                 // Update document with OCR results if needed
                 boolean documentTypeChanged = false;
@@ -626,7 +801,25 @@ public class FileUploadService {
                     combinedMetadata.putAll(ocrResult.getMetadata());
                 }
 
-                combinedMetadata.putAll(documentMetadataService.extractMetadataFromText(managedDocument, ocrResult.getExtractedText()));
+                combinedMetadata.putAll(ocrResult.getTextFeatures() != null
+                    ? documentMetadataService.extractMetadataFromText(managedDocument, ocrResult.getTextFeatures())
+                    : documentMetadataService.extractMetadataFromText(managedDocument, ocrResult.getExtractedText()));
+
+                // Flag rescans of documents we already hold (different bytes, same text)
+                if (nearDuplicateService != null) {
+                    try {
+                        List<NearDuplicateService.NearDuplicate> nearDuplicates =
+                            nearDuplicateService.registerDocument(documentId, ocrResult.getExtractedText());
+                        if (!nearDuplicates.isEmpty()) {
+                            NearDuplicateService.NearDuplicate closest = nearDuplicates.get(0);
+                            combinedMetadata.put("nearDuplicateOf", closest.getDocumentId().toString());
+                            combinedMetadata.put("nearDuplicateSimilarity", String.format("%.2f", closest.getSimilarity()));
+                        }
+                    } catch (Exception nearDuplicateError) {
+                        logger.warn("Near-duplicate check failed for document {}: {}",
+                            documentId, nearDuplicateError.getMessage());
+                    }
+                }
                 
                 // Re-run database metadata extraction if document type was changed or if it's a TENDER_NOTICE
                 // This ensures procurementDescription and other fields are extracted correctly
@@ -656,6 +849,7 @@ public class FileUploadService {
                 
                 logger.info("Async processing completed for document: {} - OCR confidence: {}", 
                            documentId, ocrResult.getConfidence());
+                return "success";
                 
             } else {
                 String errorMsg = ocrResult != null ? ocrResult.getErrorMessage() : "Unknown error";
@@ -677,6 +871,7 @@ public class FileUploadService {
                     0.0,
                     0.0
                 );
+                return "failure";
             }
             
         } catch (Throwable e) {
@@ -703,116 +898,39 @@ public class FileUploadService {
                 logger.error("Failed to index document {} after OCR failure: {}", 
                             documentId, indexError.getMessage());
             }
+            return "failure";
         }
     }
     
     /**
      * Re-process OCR for an existing document
      */
-    @Async
+    @Async("ocrExecutor")
     public void reprocessOCR(Long documentId) {
         try {
-            logger.info("Starting OCR re-processing for document: {}", documentId);
-            
-            // Note: We fetch document here but processDocumentAsync will refetch it 
-            // in its own async context to ensure user is loaded
-            Document document = documentRepository.findById(documentId)
-                .orElseThrow(() -> new RuntimeException("Document not found: " + documentId));
-            
-            // Check if file exists
-            Path filePath = Paths.get(document.getFilePath());
-            if (!Files.exists(filePath)) {
-                logger.error("File not found for document {}: {}", documentId, document.getFilePath());
-                return;
-            }
-            
-            // Create a MultipartFile wrapper from the existing file
-            File file = filePath.toFile();
-            byte[] fileBytes = Files.readAllBytes(filePath);
-            
-            MultipartFile multipartFile = new MultipartFile() {
-                @Override
-                public String getName() {
-                    return "file";
-                }
-
-                @Override
-                public String getOriginalFilename() {
-                    return document.getOriginalName();
-                }
-
-                @Override
-                public String getContentType() {
-                    return document.getMimeType();
-                }
-
-                @Override
-                public boolean isEmpty() {
-                    return fileBytes.length == 0;
-                }
-
-                @Override
-                public long getSize() {
-                    return fileBytes.length;
-                }
-
-                @Override
-                public byte[] getBytes() throws IOException {
-                    return fileBytes;
-                }
-
-                @Override
-                public InputStream getInputStream() throws IOException {
-                    return new FileInputStream(file);
-                }
-
-                @Override
-                public void transferTo(File dest) throws IOException, IllegalStateException {
-                    Files.copy(filePath, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                }
-            };
-            
-            // Process with OCR
-            processDocumentAsync(document, multipartFile, new HashMap<>());
-            
-            logger.info("OCR re-processing triggered for document: {}", documentId);
-            
+            reprocessDocumentNow(documentId, false);
+            logger.info("OCR re-processing completed for document: {}", documentId);
         } catch (Exception e) {
             logger.error("Error re-processing OCR for document {}: {}", documentId, e.getMessage(), e);
         }
     }
     
     /**
-     * Re-process OCR for all documents (or documents without OCR text)
+     * Re-process OCR for an existing document in the calling thread.
+     * The stored file is read lazily rather than loaded up front.
      */
-    @Async
-    public void reprocessAllDocumentsOCR() {
-        try {
-            logger.info("Starting OCR re-processing for all documents");
-            
-            List<Document> documents = documentRepository.findByIsActiveTrue(
-                org.springframework.data.domain.PageRequest.of(0, 1000)
-            ).getContent();
-            
-            int processed = 0;
-            int failed = 0;
-            
-            for (Document document : documents) {
-                try {
-                    reprocessOCR(document.getId());
-                    processed++;
-                } catch (Exception e) {
-                    logger.error("Failed to re-process OCR for document {}: {}", 
-                               document.getId(), e.getMessage());
-                    failed++;
-                }
-            }
-            
-            logger.info("OCR re-processing completed. Processed: {}, Failed: {}", processed, failed);
-            
-        } catch (Exception e) {
-            logger.error("Error re-processing OCR for all documents: {}", e.getMessage(), e);
+    public void reprocessDocumentNow(Long documentId, boolean bypassCache) throws IOException {
+        logger.info("Starting OCR re-processing for document: {}", documentId);
+        
+        Document document = documentRepository.findById(documentId)
+            .orElseThrow(() -> new RuntimeException("Document not found: " + documentId));
+        
+        Path filePath = Paths.get(document.getFilePath());
+        if (!Files.exists(filePath)) {
+            throw new IOException("File not found for document " + documentId + ": " + document.getFilePath());
         }
+        
+        processDocument(document, createMultipartFileFromPath(filePath, document), new HashMap<>(), bypassCache);
     }
     
     /**
@@ -908,6 +1026,36 @@ public class FileUploadService {
     public FileUploadResponse handleDuplicateUpload(MultipartFile file, User user, String documentType,
                                                     String description, Map<String, String> manualMetadata,
                                                     Long folderId, Long duplicateDocumentId, String action) {
+        return handleDuplicateUpload(file, user, documentType, description, manualMetadata, folderId,
+            duplicateDocumentId, action, null);
+    }
+    
+    /**
+     * Handle a duplicate upload under an admission ticket, which a replacement hands to its
+     * OCR task; it is closed on return when nothing was queued
+     *
+     * @throws RejectedExecutionException the OCR queue is full; a retried replace stores the file again
+     */
+    public FileUploadResponse handleDuplicateUpload(MultipartFile file, User user, String documentType,
+                                                    String description, Map<String, String> manualMetadata,
+                                                    Long folderId, Long duplicateDocumentId, String action,
+                                                    IngestionAdmissionService.Ticket ticket) {
+        FileUploadResponse response = null;
+        try {
+            response = doHandleDuplicateUpload(file, user, documentType, description, manualMetadata, folderId,
+                duplicateDocumentId, action, ticket);
+            return response;
+        } finally {
+            if (ticket != null && (response == null || !response.isSuccess() || !"replace".equalsIgnoreCase(action))) {
+                ticket.close();
+            }
+        }
+    }
+    
+    private FileUploadResponse doHandleDuplicateUpload(MultipartFile file, User user, String documentType,
+                                                       String description, Map<String, String> manualMetadata,
+                                                       Long folderId, Long duplicateDocumentId, String action,
+                                                       IngestionAdmissionService.Ticket ticket) {
         try {
             // Verify duplicate document exists
             if (!documentRepository.existsById(duplicateDocumentId)) {
@@ -924,11 +1072,14 @@ public class FileUploadService {
                     
                 case "replace":
                     // Replace the duplicate document
-                    return replaceDocument(file, user, duplicateDocumentId, documentType, description, manualMetadata, folderId);
+                    return replaceDocument(file, user, duplicateDocumentId, documentType, description, manualMetadata,
+                        folderId, ticket);
                     
                 default:
                     return FileUploadResponse.error("Invalid action. Must be 'skip', 'version', or 'replace'");
             }
+        } catch (RejectedExecutionException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error handling duplicate upload: {}", e.getMessage());
             return FileUploadResponse.error("Failed to handle duplicate upload: " + e.getMessage());
@@ -978,7 +1129,8 @@ public class FileUploadService {
      */
     private FileUploadResponse replaceDocument(MultipartFile file, User user, Long documentId,
                                               String documentType, String description,
-                                              Map<String, String> manualMetadata, Long folderId) {
+                                              Map<String, String> manualMetadata, Long folderId,
+                                              IngestionAdmissionService.Ticket ticket) {
         try {
             Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new RuntimeException("Document not found"));
@@ -989,6 +1141,12 @@ public class FileUploadService {
                 return FileUploadResponse.error(validationError);
             }
             
+            long previousSize = document.getFileSize() != null ? document.getFileSize() : 0L;
+            String quotaError = tenantUsageService.checkUploadAllowed(document.getTenantId(), file.getSize() - previousSize);
+            if (quotaError != null) {
+                return FileUploadResponse.error(quotaError);
+            }
+            
             // Validate and normalize document type
             DocumentType resolvedType = DocumentType.resolve(documentType).orElse(null);
             if (resolvedType == null) {
@@ -1034,6 +1192,7 @@ public class FileUploadService {
             }
             
             Document savedDocument = documentRepository.save(document);
+            recordTenantUsage(() -> tenantUsageService.documentResized(savedDocument, previousSize));
             
             // Apply metadata
             Map<String, String> combinedMetadata = new HashMap<>();
@@ -1042,7 +1201,7 @@ public class FileUploadService {
             }
             
             // Process OCR and indexing asynchronously
-            processDocumentAsync(savedDocument, file, combinedMetadata);
+            submitProcessing(savedDocument, file, combinedMetadata, ticket);
             
             logger.info("Document replaced successfully: {} by user: {}", 
                       savedDocument.getOriginalName(), user.getUsername());
@@ -1055,6 +1214,8 @@ public class FileUploadService {
                 savedDocument.getMimeType(),
                 savedDocument.getDocumentType()
             );
+        } catch (RejectedExecutionException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error replacing document: {}", e.getMessage());
             return FileUploadResponse.error("Failed to replace document: " + e.getMessage());
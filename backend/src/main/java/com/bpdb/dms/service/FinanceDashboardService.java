@@ -1,13 +1,9 @@
 package com.bpdb.dms.service;
 
 import com.bpdb.dms.dto.AppBudgetSummaryDto;
+import com.bpdb.dms.entity.AppBudgetLedger;
 import com.bpdb.dms.entity.AppHeader;
-import com.bpdb.dms.entity.Document;
-import com.bpdb.dms.entity.Folder;
-import com.bpdb.dms.entity.Workflow;
-import com.bpdb.dms.repository.AppHeaderRepository;
-import com.bpdb.dms.repository.DocumentRepository;
-import com.bpdb.dms.repository.WorkflowRepository;
+import com.bpdb.dms.repository.AppBudgetLedgerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -23,16 +19,7 @@ public class FinanceDashboardService {
     private FinanceReportService financeReportService;
 
     @Autowired
-    private AppHeaderRepository appHeaderRepository;
-
-    @Autowired
-    private WorkflowRepository workflowRepository;
-
-    @Autowired
-    private DocumentRepository documentRepository;
-
-    @Autowired
-    private DocumentMetadataService documentMetadataService;
+    private AppBudgetLedgerRepository appBudgetLedgerRepository;
 
     public Map<String, Object> summary(Integer year, String department) {
         List<Map<String, Object>> rows = financeReportService.appVsBillsByYear(year, department, null);
@@ -110,47 +97,23 @@ public class FinanceDashboardService {
     /**
      * Get per-APP budget vs billed summary.
      * Budget = allocation_amount from AppHeader.
-     * Billed = sum of bill amounts from BILL documents in workflows linked to that APP.
+     * Billed = running total from app_budget_ledger, maintained as BILL document amounts are written
+     * (see AppBudgetLedgerService), so this is a single read regardless of bill volume.
      */
     public java.util.List<AppBudgetSummaryDto> getBudgetByApp() {
-        // Load all workflows that are linked to an APP entry and group by APP ID
-        java.util.List<Workflow> workflowsWithApp = workflowRepository.findWithAppEntry();
-        Map<Long, java.util.List<Workflow>> workflowsByAppId = new HashMap<>();
-        for (Workflow workflow : workflowsWithApp) {
-            if (workflow.getAppEntry() == null) {
-                continue;
-            }
-            Long appId = workflow.getAppEntry().getId();
-            workflowsByAppId.computeIfAbsent(appId, k -> new java.util.ArrayList<>()).add(workflow);
-        }
-
-        java.util.List<AppHeader> appHeaders = appHeaderRepository.findAll();
         java.util.List<AppBudgetSummaryDto> result = new java.util.ArrayList<>();
 
-        for (AppHeader appHeader : appHeaders) {
-            Long appId = appHeader.getId();
+        for (Object[] row : appBudgetLedgerRepository.findAllAppsWithLedger()) {
+            AppHeader appHeader = (AppHeader) row[0];
+            AppBudgetLedger ledger = (AppBudgetLedger) row[1];
 
             BigDecimal allocation = appHeader.getAllocationAmount() != null
                 ? appHeader.getAllocationAmount()
                 : BigDecimal.ZERO;
 
-            BigDecimal totalBilled = BigDecimal.ZERO;
-
-            java.util.List<Workflow> workflows = workflowsByAppId.get(appId);
-            if (workflows != null && !workflows.isEmpty()) {
-                for (Workflow workflow : workflows) {
-                    Folder folder = workflow.getFolder();
-                    if (folder == null) {
-                        continue;
-                    }
-
-                    java.util.List<Document> bills = documentRepository.findBillDocumentsByFolder(folder);
-                    for (Document billDoc : bills) {
-                        BigDecimal billAmount = extractBillAmountFromMetadata(billDoc);
-                        totalBilled = totalBilled.add(billAmount);
-                    }
-                }
-            }
+            BigDecimal totalBilled = ledger != null && ledger.getTotalBilled() != null
+                ? ledger.getTotalBilled()
+                : BigDecimal.ZERO;
 
             BigDecimal remaining = allocation.subtract(totalBilled);
             BigDecimal utilizationPct = allocation.compareTo(BigDecimal.ZERO) == 0
@@ -159,7 +122,7 @@ public class FinanceDashboardService {
                     .divide(allocation, 2, java.math.RoundingMode.HALF_UP);
 
             AppBudgetSummaryDto dto = new AppBudgetSummaryDto();
-            dto.setAppId(appId);
+            dto.setAppId(appHeader.getId());
             dto.setFiscalYear(appHeader.getFiscalYear());
             dto.setReleaseInstallmentNo(appHeader.getReleaseInstallmentNo());
             dto.setAllocationType(appHeader.getAllocationType());
@@ -173,28 +136,4 @@ public class FinanceDashboardService {
 
         return result;
     }
-
-    /**
-     * Extract bill amount from document metadata.
-     * Prefer netAmount, then totalAmount, otherwise 0.
-     */
-    private BigDecimal extractBillAmountFromMetadata(Document document) {
-        try {
-            Map<String, String> metadata = documentMetadataService.getMetadataMap(document);
-            String netAmountStr = metadata.get("netAmount");
-            String totalAmountStr = metadata.get("totalAmount");
-
-            if (netAmountStr != null && !netAmountStr.isBlank()) {
-                return new BigDecimal(netAmountStr.trim());
-            }
-            if (totalAmountStr != null && !totalAmountStr.isBlank()) {
-                return new BigDecimal(totalAmountStr.trim());
-            }
-        } catch (Exception ignored) {
-            // Fallback to zero if anything goes wrong
-        }
-        return BigDecimal.ZERO;
-    }
 }
-
-
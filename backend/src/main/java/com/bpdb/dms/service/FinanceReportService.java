@@ -2,12 +2,10 @@ package com.bpdb.dms.service;
 
 import com.bpdb.dms.entity.AppHeader;
 import com.bpdb.dms.entity.AppLine;
-import com.bpdb.dms.entity.BillHeader;
-import com.bpdb.dms.entity.BillLine;
+import com.bpdb.dms.entity.BillActualSummary;
 import com.bpdb.dms.repository.AppHeaderRepository;
 import com.bpdb.dms.repository.AppLineRepository;
-import com.bpdb.dms.repository.BillHeaderRepository;
-import com.bpdb.dms.repository.BillLineRepository;
+import com.bpdb.dms.repository.BillActualSummaryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -25,9 +23,7 @@ public class FinanceReportService {
     @Autowired
     private AppLineRepository appLineRepository;
     @Autowired
-    private BillHeaderRepository billHeaderRepository;
-    @Autowired
-    private BillLineRepository billLineRepository;
+    private BillActualSummaryRepository billActualSummaryRepository;
 
     public List<Map<String, Object>> appVsBillsByYear(Integer fiscalYear, String department, String projectIdentifier) {
         AppHeader header = appHeaderRepository.findByFiscalYear(fiscalYear).orElse(null);
@@ -39,21 +35,14 @@ public class FinanceReportService {
             (projectIdentifier == null || projectIdentifier.isBlank() || projectIdentifier.equals(l.getProjectIdentifier()))
         ).collect(Collectors.toList());
 
-        // Fetch all bill lines for the year
-        List<BillLine> billLines = billLineRepository.findAll().stream()
-            .filter(bl -> bl.getHeader() != null && bl.getHeader().getFiscalYear() != null
-                && bl.getHeader().getFiscalYear().equals(fiscalYear))
-            .collect(Collectors.toList());
-
-        // Aggregate bills per APP line or projectIdentifier
+        // Bill actuals for the year come pre-aggregated from the summary table
         Map<Long, BigDecimal> appLineActuals = new HashMap<>();
         Map<String, BigDecimal> projectActuals = new HashMap<>();
-        for (BillLine bl : billLines) {
-            BigDecimal total = safe(bl.getAmount()).add(safe(bl.getTaxAmount()));
-            if (bl.getAppLine() != null) {
-                appLineActuals.merge(bl.getAppLine().getId(), total, BigDecimal::add);
-            } else if (bl.getProjectIdentifier() != null) {
-                projectActuals.merge(bl.getProjectIdentifier(), total, BigDecimal::add);
+        for (BillActualSummary summary : billActualSummaryRepository.findByFiscalYear(fiscalYear)) {
+            if (summary.getAppLineId() != null) {
+                appLineActuals.put(summary.getAppLineId(), safe(summary.getActualAmount()));
+            } else if (summary.getProjectIdentifier() != null) {
+                projectActuals.put(summary.getProjectIdentifier(), safe(summary.getActualAmount()));
             }
         }
 
@@ -1,5 +1,6 @@
 package com.bpdb.dms.service;
 
+import com.bpdb.dms.entity.Document;
 import com.bpdb.dms.entity.Folder;
 import com.bpdb.dms.entity.User;
 import com.bpdb.dms.repository.FolderRepository;
@@ -36,6 +37,9 @@ public class FolderService {
     @Autowired
     private TenderWorkflowService tenderWorkflowService;
     
+    @Autowired(required = false)
+    private AppBudgetLedgerService appBudgetLedgerService;
+    
     /**
      * Create a new folder
      */
@@ -280,6 +284,29 @@ public class FolderService {
         }
     }
     
+    /**
+     * Move a document into a folder, or out of any folder when folderId is null.
+     * The ledger follows the move in the same transaction.
+     */
+    public Document moveDocument(Long documentId, Long folderId) {
+        Document document = documentRepository.findById(documentId)
+            .orElseThrow(() -> new IllegalArgumentException("Document not found: " + documentId));
+        
+        Folder folder = null;
+        if (folderId != null) {
+            folder = folderRepository.findById(folderId)
+                .orElseThrow(() -> new IllegalArgumentException("Folder not found"));
+        }
+        document.setFolder(folder);
+        Document saved = documentRepository.save(document);
+        if (appBudgetLedgerService != null) {
+            appBudgetLedgerService.onBillRelocated(saved);
+        }
+        
+        logger.info("Moved document {} to folder {}", documentId, folderId);
+        return saved;
+    }
+    
     /**
      * Get folder summary (total files, uploaded files, remaining uploads)
      */
@@ -0,0 +1,517 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.HealthCheckType;
+import com.bpdb.dms.entity.HealthStatus;
+import com.bpdb.dms.entity.SystemHealthCheck;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.cluster.ClusterHealth;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Runs health probes against the live system: JVM memory pools and collectors, OS and
+ * process CPU, the upload file system, the Hikari pool, Elasticsearch cluster health,
+ * Redis and HTTP latency. A batch of checks runs in parallel on the I/O executor, each
+ * with its own timeout. The most recent results are kept in a fixed-size ring for the
+ * dashboard; persisting them is up to the caller.
+ */
+@Service
+public class HealthProbeEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthProbeEngine.class);
+
+    @Autowired
+    @Qualifier("ioExecutor")
+    private AsyncTaskExecutor ioExecutor;
+
+    @Autowired(required = false)
+    private DataSource dataSource;
+
+    @Autowired(required = false)
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired(required = false)
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.health.check-timeout-seconds:5}")
+    private long checkTimeoutSeconds = 5;
+
+    @Value("${app.health.history-size:500}")
+    private int historySize = 500;
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir = "uploads";
+
+    private volatile ResultRing history;
+
+    // When each check is next due; checks are only persisted on status transitions
+    private final Map<Long, LocalDateTime> nextRunAt = new ConcurrentHashMap<>();
+
+    // HTTP server totals at the previous API_RESPONSE_TIME probe, to report the latest interval
+    private long lastHttpCount;
+    private double lastHttpTotalMs;
+
+    /**
+     * Probe the checks in parallel and wait for all of them; a probe that does not finish
+     * within the timeout is cancelled and reported as FAILED. Results come back in the
+     * order of the checks and are added to the history ring.
+     */
+    public List<ProbeResult> run(List<SystemHealthCheck> checks) {
+        List<Future<ProbeResult>> futures = new ArrayList<>(checks.size());
+        List<Long> deadlines = new ArrayList<>(checks.size());
+        for (SystemHealthCheck check : checks) {
+            deadlines.add(System.nanoTime() + TimeUnit.SECONDS.toNanos(checkTimeoutSeconds));
+            try {
+                futures.add(ioExecutor.submit(() -> probe(check)));
+            } catch (RuntimeException e) {
+                futures.add(null);
+            }
+        }
+
+        List<ProbeResult> results = new ArrayList<>(checks.size());
+        for (int i = 0; i < checks.size(); i++) {
+            SystemHealthCheck check = checks.get(i);
+            Future<ProbeResult> future = futures.get(i);
+            ProbeResult result;
+            if (future == null) {
+                result = failed(check, 0, "Probe rejected: I/O executor saturated");
+            } else {
+                try {
+                    result = future.get(Math.max(0, deadlines.get(i) - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    logger.warn("Health probe {} timed out after {} s", check.getCheckName(), checkTimeoutSeconds);
+                    result = failed(check, TimeUnit.SECONDS.toMillis(checkTimeoutSeconds),
+                        "Probe timed out after " + checkTimeoutSeconds + " s");
+                } catch (ExecutionException e) {
+                    result = failed(check, 0, String.valueOf(e.getCause().getMessage()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.cancel(true);
+                    result = failed(check, 0, "Interrupted");
+                }
+            }
+            int interval = check.getCheckIntervalSeconds() != null ? check.getCheckIntervalSeconds() : 300;
+            nextRunAt.put(check.getId(), result.executedAt().plusSeconds(interval));
+            ring().add(result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Checks from the list whose interval has elapsed since they last ran here
+     */
+    public List<SystemHealthCheck> due(List<SystemHealthCheck> checks, LocalDateTime now) {
+        return checks.stream()
+            .filter(check -> {
+                LocalDateTime next = nextRunAt.get(check.getId());
+                return next == null || !next.isAfter(now);
+            })
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Most recent results, newest first, optionally for one check
+     */
+    public List<ProbeResult> recentResults(Long checkId, int limit) {
+        return ring().snapshot(checkId, limit);
+    }
+
+    /**
+     * Runs on an I/O executor thread
+     */
+    ProbeResult probe(SystemHealthCheck check) {
+        long start = System.nanoTime();
+        Reading reading;
+        try {
+            reading = read(check);
+        } catch (Exception e) {
+            reading = Reading.of(HealthStatus.FAILED, 0.0, e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new ProbeResult(check.getId(), check.getCheckName(), check.getCheckType(), check.getComponent(),
+            reading.status, reading.value, elapsedMs, reading.message, reading.data, LocalDateTime.now());
+    }
+
+    private Reading read(SystemHealthCheck check) throws Exception {
+        Double threshold = check.getThresholdValue();
+        switch (check.getCheckType()) {
+            case DATABASE_CONNECTION:
+                return database();
+            case REDIS_CONNECTION:
+                return redis();
+            case ELASTICSEARCH_CONNECTION:
+                return elasticsearch();
+            case FILE_SYSTEM:
+            case DISK_SPACE:
+                return disk(threshold);
+            case MEMORY_USAGE:
+                return memory(threshold);
+            case CPU_USAGE:
+                return cpu(threshold);
+            case NETWORK_CONNECTIVITY:
+                return network(check.getComponent());
+            case API_RESPONSE_TIME:
+                return apiResponseTime(threshold);
+            case SERVICE_AVAILABILITY:
+                return worst(database(), redis(), elasticsearch());
+            default:
+                return Reading.of(HealthStatus.UNKNOWN, null, "No probe for check type " + check.getCheckType());
+        }
+    }
+
+    private Reading database() throws Exception {
+        if (dataSource == null) {
+            return Reading.of(HealthStatus.UNKNOWN, null, "No data source configured");
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        double utilization = 0.0;
+        HikariPoolMXBean pool = null;
+        int maxPoolSize = 0;
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            pool = hikari.getHikariPoolMXBean();
+            maxPoolSize = hikari.getMaximumPoolSize();
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.isValid((int) Math.max(1, checkTimeoutSeconds))) {
+                return Reading.of(HealthStatus.CRITICAL, 0.0, "Database connection is not valid");
+            }
+        }
+        if (pool != null && maxPoolSize > 0) {
+            utilization = 100.0 * pool.getActiveConnections() / maxPoolSize;
+            data.put("activeConnections", pool.getActiveConnections());
+            data.put("idleConnections", pool.getIdleConnections());
+            data.put("totalConnections", pool.getTotalConnections());
+            data.put("threadsAwaitingConnection", pool.getThreadsAwaitingConnection());
+            data.put("maximumPoolSize", maxPoolSize);
+            if (pool.getThreadsAwaitingConnection() > 0) {
+                return new Reading(HealthStatus.WARNING, utilization,
+                    pool.getThreadsAwaitingConnection() + " threads waiting for a connection", data);
+            }
+        }
+        return new Reading(HealthStatus.HEALTHY, utilization, "Database connection valid", data);
+    }
+
+    private Reading redis() {
+        if (redisConnectionFactory == null) {
+            return Reading.of(HealthStatus.UNKNOWN, null, "Redis not configured");
+        }
+        long start = System.nanoTime();
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            String pong = connection.ping();
+            double ms = (System.nanoTime() - start) / 1e6;
+            return "PONG".equalsIgnoreCase(pong)
+                ? Reading.of(HealthStatus.HEALTHY, ms, "Redis PING answered in " + Math.round(ms) + " ms")
+                : Reading.of(HealthStatus.CRITICAL, ms, "Unexpected Redis PING reply: " + pong);
+        }
+    }
+
+    private Reading elasticsearch() {
+        if (elasticsearchOperations == null) {
+            return Reading.of(HealthStatus.UNKNOWN, null, "Elasticsearch not configured");
+        }
+        ClusterHealth health = elasticsearchOperations.cluster().health();
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("clusterStatus", health.getStatus());
+        data.put("numberOfNodes", health.getNumberOfNodes());
+        data.put("unassignedShards", health.getUnassignedShards());
+        data.put("activeShardsPercent", health.getActiveShardsPercent());
+        String status = health.getStatus() != null ? health.getStatus().toLowerCase() : "unknown";
+        switch (status) {
+            case "green":
+                return new Reading(HealthStatus.HEALTHY, health.getActiveShardsPercent(), "Cluster green", data);
+            case "yellow":
+                return new Reading(HealthStatus.WARNING, health.getActiveShardsPercent(),
+                    "Cluster yellow: " + health.getUnassignedShards() + " unassigned shards", data);
+            default:
+                return new Reading(HealthStatus.CRITICAL, health.getActiveShardsPercent(), "Cluster " + status, data);
+        }
+    }
+
+    private Reading disk(Double threshold) throws Exception {
+        Path path = Paths.get(uploadDir).toAbsolutePath();
+        while (path != null && !Files.exists(path)) {
+            path = path.getParent();
+        }
+        if (path == null) {
+            return Reading.of(HealthStatus.UNKNOWN, null, "Upload directory not found: " + uploadDir);
+        }
+        FileStore store = Files.getFileStore(path);
+        long total = store.getTotalSpace();
+        long usable = store.getUsableSpace();
+        double usedPercent = total > 0 ? 100.0 * (total - usable) / total : 0.0;
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("path", path.toString());
+        data.put("totalBytes", total);
+        data.put("usableBytes", usable);
+        if (!Files.isWritable(path)) {
+            return new Reading(HealthStatus.CRITICAL, usedPercent, "Upload directory not writable", data);
+        }
+        return level(usedPercent, threshold, 80, 90, "Disk usage", "%", data);
+    }
+
+    /**
+     * Heap occupancy after the last collection of the old generation, which (unlike
+     * instantaneous heap use) only grows when live data does
+     */
+    private Reading memory(Double threshold) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        Double afterGc = null;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isValid()) {
+                continue;
+            }
+            MemoryUsage usage = pool.getUsage();
+            data.put(pool.getName() + ".usedBytes", usage.getUsed());
+            MemoryUsage collected = pool.getCollectionUsage();
+            if (isOldGen(pool.getName()) && collected != null && collected.getMax() > 0) {
+                afterGc = 100.0 * collected.getUsed() / collected.getMax();
+                data.put(pool.getName() + ".usedAfterGcPercent", afterGc);
+            }
+        }
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        long max = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+        double heapPercent = 100.0 * heap.getUsed() / max;
+        data.put("heapUsedBytes", heap.getUsed());
+        data.put("heapMaxBytes", max);
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            data.put(gc.getName() + ".collections", gc.getCollectionCount());
+            data.put(gc.getName() + ".timeMs", gc.getCollectionTime());
+        }
+        return level(afterGc != null ? afterGc : heapPercent, threshold, 80, 90,
+            afterGc != null ? "Old generation after GC" : "Heap usage", "%", data);
+    }
+
+    private static boolean isOldGen(String poolName) {
+        String name = poolName.toLowerCase();
+        return name.contains("old") || name.contains("tenured");
+    }
+
+    private Reading cpu(Double threshold) {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("availableProcessors", os.getAvailableProcessors());
+        data.put("systemLoadAverage", os.getSystemLoadAverage());
+        double percent;
+        if (os instanceof com.sun.management.OperatingSystemMXBean sun) {
+            double system = sun.getCpuLoad();
+            double process = sun.getProcessCpuLoad();
+            data.put("processCpuPercent", process >= 0 ? process * 100 : null);
+            if (system < 0) {
+                return new Reading(HealthStatus.UNKNOWN, null, "CPU load not yet available", data);
+            }
+            percent = system * 100;
+        } else if (os.getSystemLoadAverage() >= 0) {
+            percent = 100.0 * os.getSystemLoadAverage() / os.getAvailableProcessors();
+        } else {
+            return new Reading(HealthStatus.UNKNOWN, null, "CPU load not available on this platform", data);
+        }
+        return level(percent, threshold, 70, 85, "CPU usage", "%", data);
+    }
+
+    /**
+     * TCP connect to the check's component, given as host:port
+     */
+    private Reading network(String target) throws Exception {
+        int colon = target != null ? target.lastIndexOf(':') : -1;
+        if (colon <= 0) {
+            return Reading.of(HealthStatus.UNKNOWN, null, "Component must be host:port for a network check");
+        }
+        String host = target.substring(0, colon);
+        int port = Integer.parseInt(target.substring(colon + 1));
+        long start = System.nanoTime();
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), (int) TimeUnit.SECONDS.toMillis(checkTimeoutSeconds));
+        }
+        double ms = (System.nanoTime() - start) / 1e6;
+        return Reading.of(HealthStatus.HEALTHY, ms, "Connected to " + target + " in " + Math.round(ms) + " ms");
+    }
+
+    /**
+     * Mean latency of HTTP requests served since the previous probe
+     */
+    private Reading apiResponseTime(Double threshold) {
+        if (meterRegistry == null) {
+            return Reading.of(HealthStatus.UNKNOWN, null, "No meter registry");
+        }
+        long count = 0;
+        double totalMs = 0;
+        for (Timer timer : meterRegistry.find("http.server.requests").timers()) {
+            count += timer.count();
+            totalMs += timer.totalTime(TimeUnit.MILLISECONDS);
+        }
+        long requests;
+        double intervalMs;
+        synchronized (this) {
+            requests = count - lastHttpCount;
+            intervalMs = totalMs - lastHttpTotalMs;
+            lastHttpCount = count;
+            lastHttpTotalMs = totalMs;
+        }
+        if (requests <= 0) {
+            return Reading.of(HealthStatus.HEALTHY, 0.0, "No HTTP requests since the last check");
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("requests", requests);
+        return level(intervalMs / requests, threshold, 500, 1000, "Mean API response time", " ms", data);
+    }
+
+    /**
+     * The check's threshold, when set, replaces the critical bound and scales the warning bound
+     */
+    private static Reading level(double value, Double threshold, double warn, double critical,
+                                 String label, String unit, Map<String, Object> data) {
+        if (threshold != null && threshold > 0) {
+            warn = threshold * warn / critical;
+            critical = threshold;
+        }
+        String text = label + " " + String.format("%.1f", value) + unit;
+        if (value >= critical) {
+            return new Reading(HealthStatus.CRITICAL, value, text + " critical", data);
+        }
+        if (value >= warn) {
+            return new Reading(HealthStatus.WARNING, value, text + " high", data);
+        }
+        return new Reading(HealthStatus.HEALTHY, value, text, data);
+    }
+
+    private static Reading worst(Reading... readings) {
+        Reading worst = readings[0];
+        List<String> messages = new ArrayList<>();
+        for (Reading reading : readings) {
+            messages.add(reading.message);
+            if (rank(reading.status) > rank(worst.status)) {
+                worst = reading;
+            }
+        }
+        return Reading.of(worst.status, worst.status == HealthStatus.HEALTHY ? 1.0 : 0.0, String.join("; ", messages));
+    }
+
+    private static int rank(HealthStatus status) {
+        switch (status) {
+            case FAILED:
+                return 4;
+            case CRITICAL:
+                return 3;
+            case WARNING:
+                return 2;
+            case HEALTHY:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    private static ProbeResult failed(SystemHealthCheck check, long elapsedMs, String message) {
+        return new ProbeResult(check.getId(), check.getCheckName(), check.getCheckType(), check.getComponent(),
+            HealthStatus.FAILED, 0.0, elapsedMs, message, Map.of(), LocalDateTime.now());
+    }
+
+    private ResultRing ring() {
+        ResultRing ring = history;
+        if (ring == null) {
+            synchronized (this) {
+                if (history == null) {
+                    history = new ResultRing(historySize);
+                }
+                ring = history;
+            }
+        }
+        return ring;
+    }
+
+    private static final class Reading {
+        final HealthStatus status;
+        final Double value;
+        final String message;
+        final Map<String, Object> data;
+
+        Reading(HealthStatus status, Double value, String message, Map<String, Object> data) {
+            this.status = status;
+            this.value = value;
+            this.message = message;
+            this.data = data;
+        }
+
+        static Reading of(HealthStatus status, Double value, String message) {
+            return new Reading(status, value, message, Map.of());
+        }
+    }
+
+    /**
+     * Outcome of one probe
+     */
+    public record ProbeResult(Long checkId, String checkName, HealthCheckType checkType, String component,
+                              HealthStatus status, Double value, long responseTimeMs, String message,
+                              Map<String, Object> data, LocalDateTime executedAt) {
+    }
+
+    /**
+     * Fixed-size ring of the latest results; the oldest is overwritten when full
+     */
+    static final class ResultRing {
+        private final ProbeResult[] slots;
+        private long written;
+
+        ResultRing(int capacity) {
+            this.slots = new ProbeResult[Math.max(1, capacity)];
+        }
+
+        synchronized void add(ProbeResult result) {
+            slots[(int) (written++ % slots.length)] = result;
+        }
+
+        synchronized List<ProbeResult> snapshot(Long checkId, int limit) {
+            List<ProbeResult> results = new ArrayList<>();
+            long oldest = Math.max(0, written - slots.length);
+            for (long i = written - 1; i >= oldest && results.size() < limit; i--) {
+                ProbeResult result = slots[(int) (i % slots.length)];
+                if (checkId == null || checkId.equals(result.checkId())) {
+                    results.add(result);
+                }
+            }
+            return results;
+        }
+    }
+}
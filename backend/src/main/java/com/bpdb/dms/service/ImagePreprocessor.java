@@ -0,0 +1,393 @@
+package com.bpdb.dms.service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+/**
+ * OCR image preprocessing working directly on raster byte arrays:
+ * grayscale, optional downscale to a target DPI, optional deskew, Otsu threshold
+ * and binarization into a packed 1-bit image. Scratch buffers are reused per
+ * thread, so a page costs one output image instead of several full-size copies.
+ */
+final class ImagePreprocessor {
+
+    private static final int WHITE = 255;
+
+    private final int targetDpi;
+    private final boolean deskew;
+    private final double maxSkewDegrees;
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * @param targetDpi      downscale images above this resolution; 0 disables
+     * @param deskew         estimate and correct page skew
+     * @param maxSkewDegrees largest skew angle searched when deskewing
+     */
+    ImagePreprocessor(int targetDpi, boolean deskew, double maxSkewDegrees) {
+        this.targetDpi = targetDpi;
+        this.deskew = deskew;
+        this.maxSkewDegrees = maxSkewDegrees;
+    }
+
+    /**
+     * @param sourceDpi resolution of the image, or 0 when unknown (no downscale)
+     */
+    BufferedImage preprocess(BufferedImage image, int sourceDpi) {
+        Workspace ws = WORKSPACE.get();
+        Gray gray = toGray(image, ws);
+        if (targetDpi > 0 && sourceDpi > targetDpi) {
+            gray = downscale(gray, (double) targetDpi / sourceDpi, ws);
+        }
+        int threshold = otsuThreshold(gray, ws);
+        if (deskew) {
+            double angle = estimateSkew(gray, threshold, maxSkewDegrees);
+            if (Math.abs(angle) >= 0.1) {
+                gray = rotate(gray, angle, ws);
+            }
+        }
+        return binarize(gray, threshold);
+    }
+
+    /**
+     * Grayscale view of an image as a width*height byte array.
+     * TYPE_BYTE_GRAY rasters are used in place; other layouts are converted with
+     * integer luma weights into the thread's scratch buffer. The array fast paths only
+     * take rasters laid out densely from index 0; sub-image views and padded rows are
+     * read through getRGB.
+     */
+    static Gray toGray(BufferedImage image, Workspace ws) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        Raster raster = image.getRaster();
+        int n = w * h;
+        int type = isDense(raster, w) ? image.getType() : BufferedImage.TYPE_CUSTOM;
+
+        if (type == BufferedImage.TYPE_BYTE_GRAY) {
+            return new Gray(((DataBufferByte) raster.getDataBuffer()).getData(), w, h);
+        }
+
+        byte[] out = ws.grayBuffer(n);
+        switch (type) {
+            case BufferedImage.TYPE_3BYTE_BGR -> {
+                byte[] src = ((DataBufferByte) raster.getDataBuffer()).getData();
+                for (int i = 0, p = 0; i < n; i++, p += 3) {
+                    out[i] = (byte) luma(src[p + 2] & 0xFF, src[p + 1] & 0xFF, src[p] & 0xFF);
+                }
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR -> {
+                byte[] src = ((DataBufferByte) raster.getDataBuffer()).getData();
+                for (int i = 0, p = 0; i < n; i++, p += 4) {
+                    int a = src[p] & 0xFF;
+                    int l = luma(src[p + 3] & 0xFF, src[p + 2] & 0xFF, src[p + 1] & 0xFF);
+                    // Transparent areas are paper, not ink
+                    out[i] = (byte) ((l * a + WHITE * (255 - a)) / 255);
+                }
+            }
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                int[] src = ((DataBufferInt) raster.getDataBuffer()).getData();
+                boolean alpha = type == BufferedImage.TYPE_INT_ARGB;
+                for (int i = 0; i < n; i++) {
+                    int rgb = src[i];
+                    int l = luma((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+                    if (alpha) {
+                        int a = rgb >>> 24;
+                        l = (l * a + WHITE * (255 - a)) / 255;
+                    }
+                    out[i] = (byte) l;
+                }
+            }
+            default -> {
+                // Indexed, 16-bit, sub-images and padded rasters: one row of getRGB at a time
+                int[] row = ws.rowBuffer(w);
+                for (int y = 0; y < h; y++) {
+                    image.getRGB(0, y, w, 1, row, 0, w);
+                    int base = y * w;
+                    for (int x = 0; x < w; x++) {
+                        int rgb = row[x];
+                        out[base + x] = (byte) luma((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+                    }
+                }
+            }
+        }
+        return new Gray(out, w, h);
+    }
+
+    /**
+     * Whether pixel (x, y) starts at (y * w + x) * pixelStride in the raster's backing array:
+     * no parent raster, no sample-model translate, no buffer offset and no row padding
+     */
+    private static boolean isDense(Raster raster, int w) {
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0 || raster.getDataBuffer().getOffset() != 0) {
+            return false;
+        }
+        SampleModel model = raster.getSampleModel();
+        if (model instanceof ComponentSampleModel component) {
+            return component.getScanlineStride() == w * component.getPixelStride();
+        }
+        if (model instanceof SinglePixelPackedSampleModel packed) {
+            return packed.getScanlineStride() == w;
+        }
+        return false;
+    }
+
+    /**
+     * Box-filter downscale (area average), which keeps thin strokes better than
+     * nearest-neighbour at the same cost
+     */
+    static Gray downscale(Gray src, double scale, Workspace ws) {
+        int w = Math.max(1, (int) Math.round(src.width * scale));
+        int h = Math.max(1, (int) Math.round(src.height * scale));
+        byte[] out = ws.scaledBuffer(w * h);
+        int[] x0 = new int[w + 1];
+        for (int x = 0; x <= w; x++) {
+            x0[x] = Math.min(src.width, (int) ((long) x * src.width / w));
+        }
+        for (int y = 0; y < h; y++) {
+            int sy0 = (int) ((long) y * src.height / h);
+            int sy1 = Math.max(sy0 + 1, (int) ((long) (y + 1) * src.height / h));
+            for (int x = 0; x < w; x++) {
+                int sx1 = Math.max(x0[x] + 1, x0[x + 1]);
+                int sum = 0;
+                for (int sy = sy0; sy < sy1; sy++) {
+                    int base = sy * src.width;
+                    for (int sx = x0[x]; sx < sx1; sx++) {
+                        sum += src.pixels[base + sx] & 0xFF;
+                    }
+                }
+                out[y * w + x] = (byte) (sum / ((sy1 - sy0) * (sx1 - x0[x])));
+            }
+        }
+        return new Gray(out, w, h);
+    }
+
+    /**
+     * Otsu's threshold over the grayscale histogram; pixels above it become paper.
+     * The histogram is counted into four interleaved sub-histograms so runs of equal
+     * pixels (mostly paper) do not serialise on a single counter.
+     */
+    static int otsuThreshold(Gray gray, Workspace ws) {
+        int[] lanes = ws.histogramLanes();
+        byte[] pixels = gray.pixels;
+        int n = gray.width * gray.height;
+        int i = 0;
+        for (; i + 4 <= n; i += 4) {
+            lanes[pixels[i] & 0xFF]++;
+            lanes[256 + (pixels[i + 1] & 0xFF)]++;
+            lanes[512 + (pixels[i + 2] & 0xFF)]++;
+            lanes[768 + (pixels[i + 3] & 0xFF)]++;
+        }
+        for (; i < n; i++) {
+            lanes[pixels[i] & 0xFF]++;
+        }
+        int[] histogram = new int[256];
+        for (int t = 0; t < 256; t++) {
+            histogram[t] = lanes[t] + lanes[256 + t] + lanes[512 + t] + lanes[768 + t];
+        }
+
+        long sum = 0;
+        for (int t = 0; t < 256; t++) {
+            sum += (long) t * histogram[t];
+        }
+        long sumB = 0;
+        long wB = 0;
+        double varMax = 0;
+        int threshold = 127;
+        for (int t = 0; t < 256; t++) {
+            wB += histogram[t];
+            if (wB == 0) {
+                continue;
+            }
+            long wF = n - wB;
+            if (wF == 0) {
+                break;
+            }
+            sumB += (long) t * histogram[t];
+            double mB = (double) sumB / wB;
+            double mF = (double) (sum - sumB) / wF;
+            double varBetween = (double) wB * wF * (mB - mF) * (mB - mF);
+            if (varBetween > varMax) {
+                varMax = varBetween;
+                threshold = t;
+            }
+        }
+        return threshold;
+    }
+
+    /**
+     * Skew angle in degrees by projection profiles: text lines give the sharpest
+     * row-sum peaks (largest variance) when projected at the page's skew angle.
+     * Works on a subsample of ink pixels, so it costs far less than one full pass.
+     */
+    static double estimateSkew(Gray gray, int threshold, double maxDegrees) {
+        int step = Math.max(1, Math.min(gray.width, gray.height) / 400);
+        int count = 0;
+        int[] xs = new int[1024];
+        int[] ys = new int[1024];
+        for (int y = 0; y < gray.height; y += step) {
+            int base = y * gray.width;
+            for (int x = 0; x < gray.width; x += step) {
+                if ((gray.pixels[base + x] & 0xFF) <= threshold) {
+                    if (count == xs.length) {
+                        xs = Arrays.copyOf(xs, count * 2);
+                        ys = Arrays.copyOf(ys, count * 2);
+                    }
+                    xs[count] = x;
+                    ys[count] = y;
+                    count++;
+                }
+            }
+        }
+        if (count < 100) {
+            return 0.0;
+        }
+
+        int diag = (int) Math.ceil(Math.hypot(gray.width, gray.height));
+        int[] rows = new int[2 * diag / step + 2];
+        double bestAngle = 0.0;
+        double bestScore = -1;
+        for (double angle = -maxDegrees; angle <= maxDegrees + 1e-9; angle += 0.25) {
+            double rad = Math.toRadians(angle);
+            double sin = Math.sin(rad);
+            double cos = Math.cos(rad);
+            Arrays.fill(rows, 0);
+            for (int i = 0; i < count; i++) {
+                int r = (int) ((ys[i] * cos - xs[i] * sin + diag) / step);
+                rows[r]++;
+            }
+            double score = 0;
+            for (int r : rows) {
+                score += (double) r * r;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestAngle = angle;
+            }
+        }
+        return bestAngle;
+    }
+
+    /**
+     * Rotate about the centre (nearest neighbour) so content skewed by the given angle
+     * comes out level, filling uncovered corners with paper
+     */
+    static Gray rotate(Gray src, double degrees, Workspace ws) {
+        int w = src.width;
+        int h = src.height;
+        byte[] out = ws.rotateBuffer(w * h);
+        double rad = Math.toRadians(degrees);
+        double sin = Math.sin(rad);
+        double cos = Math.cos(rad);
+        double cx = w / 2.0;
+        double cy = h / 2.0;
+        for (int y = 0; y < h; y++) {
+            double dy = y - cy;
+            // Inverse mapping: source = R(-angle) * (dest - centre) + centre
+            double sxRow = cx - dy * sin;
+            double syRow = cy + dy * cos;
+            int base = y * w;
+            for (int x = 0; x < w; x++) {
+                double dx = x - cx;
+                int sx = (int) (sxRow + dx * cos);
+                int sy = (int) (syRow + dx * sin);
+                out[base + x] = sx >= 0 && sx < w && sy >= 0 && sy < h ? src.pixels[sy * w + sx] : (byte) WHITE;
+            }
+        }
+        return new Gray(out, w, h);
+    }
+
+    /**
+     * Threshold into a TYPE_BYTE_BINARY image by packing bits straight into its raster
+     * (bit set = white, MSB first)
+     */
+    static BufferedImage binarize(Gray gray, int threshold) {
+        int w = gray.width;
+        BufferedImage binary = new BufferedImage(w, gray.height, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] packed = ((DataBufferByte) binary.getRaster().getDataBuffer()).getData();
+        int stride = (w + 7) >> 3;
+        byte[] pixels = gray.pixels;
+        for (int y = 0; y < gray.height; y++) {
+            int src = y * w;
+            int dst = y * stride;
+            int x = 0;
+            for (; x + 8 <= w; x += 8, src += 8) {
+                int bits = 0;
+                for (int b = 0; b < 8; b++) {
+                    bits = (bits << 1) | (((pixels[src + b] & 0xFF) > threshold) ? 1 : 0);
+                }
+                packed[dst + (x >> 3)] = (byte) bits;
+            }
+            if (x < w) {
+                int bits = 0;
+                int b = 0;
+                for (; x < w; x++, b++, src++) {
+                    bits = (bits << 1) | (((pixels[src] & 0xFF) > threshold) ? 1 : 0);
+                }
+                packed[dst + ((x - 1) >> 3)] = (byte) (bits << (8 - b));
+            }
+        }
+        return binary;
+    }
+
+    private static int luma(int r, int g, int b) {
+        // ITU-R BT.601 weights in 8.8 fixed point
+        return (77 * r + 150 * g + 29 * b) >> 8;
+    }
+
+    /**
+     * Grayscale pixels, row-major with stride == width
+     */
+    record Gray(byte[] pixels, int width, int height) {
+    }
+
+    /**
+     * Per-thread scratch buffers, grown on demand and reused across pages
+     */
+    static final class Workspace {
+        private final int[] histogramLanes = new int[4 * 256];
+        private byte[] gray = new byte[0];
+        private byte[] scaled = new byte[0];
+        private byte[] rotated = new byte[0];
+        private int[] row = new int[0];
+
+        int[] histogramLanes() {
+            Arrays.fill(histogramLanes, 0);
+            return histogramLanes;
+        }
+
+        byte[] grayBuffer(int size) {
+            if (gray.length < size) {
+                gray = new byte[size];
+            }
+            return gray;
+        }
+
+        byte[] scaledBuffer(int size) {
+            if (scaled.length < size) {
+                scaled = new byte[size];
+            }
+            return scaled;
+        }
+
+        byte[] rotateBuffer(int size) {
+            if (rotated.length < size) {
+                rotated = new byte[size];
+            }
+            return rotated;
+        }
+
+        int[] rowBuffer(int size) {
+            if (row.length < size) {
+                row = new int[size];
+            }
+            return row;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.bpdb.dms.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Admission control for document ingestion.
+ * Uploads are stored on the request thread and OCR'd and indexed on the ocrExecutor; a
+ * ticket is held from admission until that OCR task finishes. Each upload is admitted
+ * against a cap on concurrent ingestions and on the estimated OCR work in flight (in A4
+ * pages at 300 DPI); beyond that, or when the OCR queue is full, the caller is told to
+ * retry later instead of queueing behind the burst.
+ */
+@Service
+public class IngestionAdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionAdmissionService.class);
+
+    // Pixels of an A4 page rendered at 300 DPI; one work unit
+    private static final double A4_300_DPI_PIXELS = 2480.0 * 3508.0;
+
+    // Documents without OCR (office files, text) still cost parsing and indexing
+    private static final double NON_OCR_WORK = 0.1;
+
+    @Value("${app.ingestion.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ingestion.admission.max-in-flight:6}")
+    private int maxInFlight;
+
+    @Value("${app.ingestion.admission.max-work-units:300}")
+    private double maxWorkUnits;
+
+    @Value("${app.ingestion.admission.max-retry-after-seconds:120}")
+    private int maxRetryAfterSeconds;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private int inFlight;
+    private double workInFlight;
+    // Moving average of processing seconds per work unit, for Retry-After
+    private double secondsPerUnit = 2.0;
+
+    @PostConstruct
+    void registerMetrics() {
+        if (meterRegistry != null) {
+            Gauge.builder("dms.ingestion.in_flight", this, s -> s.snapshot()[0])
+                .description("Uploads currently being ingested")
+                .register(meterRegistry);
+            Gauge.builder("dms.ingestion.work_units", this, s -> s.snapshot()[1])
+                .description("Estimated OCR work in flight, in A4 pages at 300 DPI")
+                .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Admit an upload or throw with a suggested retry delay. The returned ticket must be
+     * closed when ingestion of the file has finished.
+     */
+    public Ticket admit(MultipartFile file) throws AdmissionRejectedException {
+        if (!enabled) {
+            return new Ticket(0);
+        }
+        double work = estimateWork(file);
+        String reason = null;
+        int retryAfter = 0;
+        synchronized (this) {
+            if (inFlight >= maxInFlight) {
+                reason = "in_flight";
+            } else if (inFlight > 0 && workInFlight + work > maxWorkUnits) {
+                // A single oversized document is still admitted when nothing else is running
+                reason = "work";
+            }
+            if (reason == null) {
+                inFlight++;
+                workInFlight += work;
+            } else {
+                retryAfter = retryAfterSeconds();
+            }
+        }
+        count(reason == null ? "admitted" : "rejected", reason == null ? "none" : reason);
+        if (reason != null) {
+            logger.warn("Rejected upload {} ({} work units): ingestion saturated ({}), retry after {}s",
+                file.getOriginalFilename(), String.format("%.1f", work), reason, retryAfter);
+            throw new AdmissionRejectedException(
+                "Document ingestion is at capacity, please retry in " + retryAfter + " seconds", retryAfter);
+        }
+        return new Ticket(work);
+    }
+
+    /**
+     * An admitted upload found the OCR queue full; count it and tell the caller when to retry
+     */
+    public AdmissionRejectedException queueRejected(MultipartFile file) {
+        int retryAfter;
+        synchronized (this) {
+            retryAfter = retryAfterSeconds();
+        }
+        count("rejected", "ocr_queue");
+        logger.warn("Rejected upload {}: OCR queue full, retry after {}s", file.getOriginalFilename(), retryAfter);
+        return new AdmissionRejectedException(
+            "Document ingestion is at capacity, please retry in " + retryAfter + " seconds", retryAfter);
+    }
+
+    /**
+     * Estimated OCR work of a file in A4-at-300-DPI pages: PDF page count (page tree only,
+     * nothing rendered) or image pixel count (header only, nothing decoded)
+     */
+    double estimateWork(MultipartFile file) {
+        String contentType = file.getContentType() != null ? file.getContentType() : "";
+        try {
+            if (contentType.equals("application/pdf")) {
+                try (InputStream in = file.getInputStream();
+                     PDDocument document = PDDocument.load(in, MemoryUsageSetting.setupTempFileOnly())) {
+                    return Math.max(1, document.getNumberOfPages());
+                }
+            }
+            if (contentType.startsWith("image/")) {
+                try (ImageInputStream in = ImageIO.createImageInputStream(file.getInputStream())) {
+                    Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+                    if (readers != null && readers.hasNext()) {
+                        ImageReader reader = readers.next();
+                        try {
+                            reader.setInput(in, true, true);
+                            return Math.max(0.25, (double) reader.getWidth(0) * reader.getHeight(0) / A4_300_DPI_PIXELS);
+                        } finally {
+                            reader.dispose();
+                        }
+                    }
+                }
+                return 1;
+            }
+        } catch (Exception e) {
+            // Unreadable here means it will fail later anyway; estimate from size (~200 KB per scanned page)
+            logger.debug("Could not estimate work for {}: {}", file.getOriginalFilename(), e.getMessage());
+            return Math.max(1, file.getSize() / (200.0 * 1024));
+        }
+        return NON_OCR_WORK;
+    }
+
+    private int retryAfterSeconds() {
+        double seconds = workInFlight * secondsPerUnit / Math.max(1, inFlight);
+        return (int) Math.max(1, Math.min(maxRetryAfterSeconds, Math.ceil(seconds)));
+    }
+
+    private synchronized double[] snapshot() {
+        return new double[] {inFlight, workInFlight};
+    }
+
+    private synchronized void release(double work, long elapsedNanos) {
+        inFlight = Math.max(0, inFlight - 1);
+        workInFlight = Math.max(0, workInFlight - work);
+        if (work >= 1) {
+            double observed = elapsedNanos / 1e9 / work;
+            secondsPerUnit = 0.8 * secondsPerUnit + 0.2 * observed;
+        }
+    }
+
+    private void count(String result, String reason) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("dms.ingestion.admission", "result", result, "reason", reason).increment();
+        }
+    }
+
+    /**
+     * Held for the duration of one admitted ingestion, from the request until its OCR task
+     * finishes; closing it again, from either side, does nothing
+     */
+    public final class Ticket implements AutoCloseable {
+        private final double work;
+        private final long admittedAt = System.nanoTime();
+        private boolean closed;
+
+        private Ticket(double work) {
+            this.work = work;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed && enabled) {
+                closed = true;
+                release(work, System.nanoTime() - admittedAt);
+            }
+        }
+    }
+
+    /**
+     * Ingestion is saturated; the client should retry after the given delay
+     */
+    public static class AdmissionRejectedException extends Exception {
+        private final int retryAfterSeconds;
+
+        public AdmissionRejectedException(String message, int retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
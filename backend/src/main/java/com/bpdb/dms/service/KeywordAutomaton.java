@@ -0,0 +1,148 @@
+package com.bpdb.dms.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton over a fixed keyword set.
+ * One left-to-right pass over the text reports every occurrence of every keyword,
+ * including overlapping ones. Transitions for ASCII characters are precomputed
+ * into a dense table; other characters follow the trie edges and failure links.
+ * Immutable once built and safe to share between threads.
+ */
+final class KeywordAutomaton {
+
+    private static final int ASCII = 128;
+
+    /**
+     * Receives keyword occurrences in the order they end in the text
+     */
+    @FunctionalInterface
+    interface HitListener {
+        void onHit(int keywordIndex, int start);
+    }
+
+    private final String[] keywords;
+    private final Map<String, Integer> indexByKeyword = new HashMap<>();
+    private final int[] delta;
+    private final List<Map<Character, Integer>> edges;
+    private final int[] fail;
+    private final int[][] outputs;
+
+    KeywordAutomaton(Collection<String> keywordSet) {
+        this.keywords = new LinkedHashSet<>(keywordSet).stream()
+            .filter(k -> k != null && !k.isEmpty())
+            .toArray(String[]::new);
+
+        for (int k = 0; k < keywords.length; k++) {
+            indexByKeyword.put(keywords[k], k);
+        }
+
+        // Trie
+        edges = new ArrayList<>();
+        edges.add(new HashMap<>());
+        List<List<Integer>> own = new ArrayList<>();
+        own.add(new ArrayList<>());
+        for (int k = 0; k < keywords.length; k++) {
+            int state = 0;
+            for (char c : keywords[k].toCharArray()) {
+                Integer next = edges.get(state).get(c);
+                if (next == null) {
+                    next = edges.size();
+                    edges.add(new HashMap<>());
+                    own.add(new ArrayList<>());
+                    edges.get(state).put(c, next);
+                }
+                state = next;
+            }
+            own.get(state).add(k);
+        }
+
+        int states = edges.size();
+        fail = new int[states];
+        outputs = new int[states][];
+        delta = new int[states * ASCII];
+
+        // Failure links, merged outputs and the dense ASCII table, in BFS order
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        outputs[0] = toArray(own.get(0), null);
+        for (Map.Entry<Character, Integer> e : edges.get(0).entrySet()) {
+            fail[e.getValue()] = 0;
+            queue.add(e.getValue());
+        }
+        for (char c = 0; c < ASCII; c++) {
+            Integer next = edges.get(0).get(c);
+            delta[c] = next == null ? 0 : next;
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = toArray(own.get(state), outputs[fail[state]]);
+            for (Map.Entry<Character, Integer> e : edges.get(state).entrySet()) {
+                int child = e.getValue();
+                fail[child] = step(fail[state], e.getKey());
+                queue.add(child);
+            }
+            for (char c = 0; c < ASCII; c++) {
+                Integer next = edges.get(state).get(c);
+                delta[state * ASCII + c] = next != null ? next : delta[fail[state] * ASCII + c];
+            }
+        }
+    }
+
+    int size() {
+        return keywords.length;
+    }
+
+    /**
+     * Index of a keyword, or -1 when it is not part of the automaton
+     */
+    int indexOf(String keyword) {
+        return indexByKeyword.getOrDefault(keyword, -1);
+    }
+
+    /**
+     * Report every keyword occurrence in the text in a single pass
+     */
+    void scan(CharSequence text, HitListener listener) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            for (int k : outputs[state]) {
+                listener.onHit(k, i - keywords[k].length() + 1);
+            }
+        }
+    }
+
+    private int step(int state, char c) {
+        if (c < ASCII) {
+            return delta[state * ASCII + c];
+        }
+        while (true) {
+            Integer next = edges.get(state).get(c);
+            if (next != null) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private static int[] toArray(List<Integer> own, int[] inherited) {
+        int inheritedLength = inherited == null ? 0 : inherited.length;
+        int[] merged = new int[own.size() + inheritedLength];
+        for (int i = 0; i < own.size(); i++) {
+            merged[i] = own.get(i);
+        }
+        if (inheritedLength > 0) {
+            System.arraycopy(inherited, 0, merged, own.size(), inheritedLength);
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,137 @@
+package com.bpdb.dms.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * MinHash over word shingles of a text, with LSH banding.
+ * Each of the signature slots keeps the minimum of an independent hash over all
+ * shingles; the fraction of equal slots between two signatures estimates the Jaccard
+ * similarity of their shingle sets. Slot hashes are derived from two base hashes
+ * per shingle (g_i = h1 + i * h2), so a shingle costs one multiply-add per slot.
+ */
+final class MinHasher {
+
+    private final int numHashes;
+    private final int bands;
+    private final int rows;
+    private final int shingleSize;
+
+    MinHasher(int numHashes, int bands, int shingleSize) {
+        if (numHashes % bands != 0) {
+            throw new IllegalArgumentException("Signature length must be a multiple of the band count");
+        }
+        this.numHashes = numHashes;
+        this.bands = bands;
+        this.rows = numHashes / bands;
+        this.shingleSize = shingleSize;
+    }
+
+    /**
+     * Signature of a text together with the number of shingles it was computed from
+     */
+    record Signature(int[] values, int shingleCount) {}
+
+    Signature signature(String text) {
+        long[] tokens = tokenHashes(text);
+        int[] values = new int[numHashes];
+        Arrays.fill(values, Integer.MAX_VALUE);
+
+        int shingles = Math.max(0, tokens.length - shingleSize + 1);
+        for (int start = 0; start < shingles; start++) {
+            long shingle = 0;
+            for (int j = 0; j < shingleSize; j++) {
+                shingle = mix64(shingle ^ tokens[start + j]);
+            }
+            long h1 = mix64(shingle);
+            long h2 = mix64(shingle ^ 0x9E3779B97F4A7C15L) | 1L;
+            long g = h1;
+            for (int i = 0; i < numHashes; i++) {
+                int slot = (int) (g >>> 32);
+                if (slot < values[i]) {
+                    values[i] = slot;
+                }
+                g += h2;
+            }
+        }
+        return new Signature(values, shingles);
+    }
+
+    /**
+     * One key per band; two documents with an equal key for any band are LSH candidates
+     */
+    long[] bandKeys(int[] signature) {
+        long[] keys = new long[bands];
+        for (int b = 0; b < bands; b++) {
+            long h = mix64((b + 1) * 0xC2B2AE3D27D4EB4FL);
+            for (int r = 0; r < rows; r++) {
+                h = mix64(h ^ (signature[b * rows + r] & 0xFFFFFFFFL));
+            }
+            keys[b] = h;
+        }
+        return keys;
+    }
+
+    /**
+     * Estimated Jaccard similarity of two signatures
+     */
+    static double similarity(int[] a, int[] b) {
+        if (a.length != b.length || a.length == 0) {
+            return 0.0;
+        }
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    static byte[] toBytes(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Integer.BYTES);
+        buffer.asIntBuffer().put(signature);
+        return buffer.array();
+    }
+
+    static int[] fromBytes(byte[] bytes) {
+        int[] signature = new int[bytes.length / Integer.BYTES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+        return signature;
+    }
+
+    /**
+     * 64-bit hashes of the lowercase alphanumeric words of the text; punctuation,
+     * spacing and line breaks (which differ between scans) are ignored
+     */
+    private static long[] tokenHashes(String text) {
+        long[] tokens = new long[64];
+        int count = 0;
+        long hash = 0;
+        boolean inToken = false;
+        int length = text != null ? text.length() : 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (!inToken) {
+                    hash = 0xCBF29CE484222325L;
+                    inToken = true;
+                }
+                hash = (hash ^ Character.toLowerCase(c)) * 0x100000001B3L;
+            } else if (inToken) {
+                if (count == tokens.length) {
+                    tokens = Arrays.copyOf(tokens, count * 2);
+                }
+                tokens[count++] = hash;
+                inToken = false;
+            }
+        }
+        return Arrays.copyOf(tokens, count);
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -3,10 +3,13 @@ package com.bpdb.dms.service;
 import com.bpdb.dms.entity.Tenant;
 import com.bpdb.dms.entity.TenantPlan;
 import com.bpdb.dms.entity.TenantStatus;
+import com.bpdb.dms.entity.User;
 import com.bpdb.dms.repository.TenantRepository;
+import com.bpdb.dms.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -14,9 +17,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
 
 /**
  * Service for multi-tenant management
@@ -26,6 +30,9 @@ import java.util.Optional;
 public class MultiTenancyService {
     
     private static final Logger logger = LoggerFactory.getLogger(MultiTenancyService.class);
+
+    @Value("${app.scheduler.jobs.tenant-expiry.enabled:false}")
+    private boolean tenantExpiryEnabled;
     
     @Autowired
     private TenantRepository tenantRepository;
@@ -33,6 +40,12 @@ public class MultiTenancyService {
     @Autowired
     private AuditService auditService;
     
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private TenantUsageService tenantUsageService;
+    
     /**
      * Create a new tenant
      */
@@ -268,21 +281,26 @@ public class MultiTenancyService {
      */
     public Map<String, Object> checkTenantLimits(Long tenantId) {
         try {
+            // Reads the incrementally maintained counters; see TenantUsageService
             Tenant tenant = getTenantById(tenantId);
-            
-            boolean userLimitExceeded = tenant.getCurrentUsers() >= tenant.getMaxUsers();
-            boolean storageLimitExceeded = tenant.getCurrentStorageBytes() >= (tenant.getMaxStorageGb() * 1024 * 1024 * 1024);
-            
-            return Map.of(
-                "tenantId", tenantId,
-                "userLimitExceeded", userLimitExceeded,
-                "storageLimitExceeded", storageLimitExceeded,
-                "currentUsers", tenant.getCurrentUsers(),
-                "maxUsers", tenant.getMaxUsers(),
-                "currentStorageBytes", tenant.getCurrentStorageBytes(),
-                "maxStorageBytes", tenant.getMaxStorageGb() * 1024 * 1024 * 1024,
-                "usagePercentage", calculateUsagePercentage(tenant)
-            );
+            int currentUsers = tenant.getCurrentUsers() != null ? tenant.getCurrentUsers() : 0;
+            long currentStorageBytes = tenant.getCurrentStorageBytes() != null ? tenant.getCurrentStorageBytes() : 0L;
+            long maxStorageBytes = tenant.getMaxStorageGb() != null ? tenant.getMaxStorageGb() * 1024 * 1024 * 1024 : Long.MAX_VALUE;
+            int maxUsers = tenant.getMaxUsers() != null ? tenant.getMaxUsers() : Integer.MAX_VALUE;
+            
+            Map<String, Object> limits = new LinkedHashMap<>();
+            limits.put("tenantId", tenantId);
+            limits.put("userLimitExceeded", currentUsers >= maxUsers);
+            limits.put("storageLimitExceeded", currentStorageBytes >= maxStorageBytes);
+            limits.put("currentUsers", currentUsers);
+            limits.put("maxUsers", tenant.getMaxUsers());
+            limits.put("currentStorageBytes", currentStorageBytes);
+            limits.put("maxStorageBytes", tenant.getMaxStorageGb() != null ? maxStorageBytes : null);
+            limits.put("usagePercentage", calculateUsagePercentage(tenant));
+            limits.put("currentDocuments", tenant.getCurrentDocuments());
+            limits.put("ocrPagesThisMonth", tenant.getOcrPagesMonth());
+            limits.put("usageReconciledAt", tenant.getUsageReconciledAt());
+            return limits;
             
         } catch (Exception e) {
             logger.error("Failed to check tenant limits: {}", e.getMessage());
@@ -290,11 +308,46 @@ public class MultiTenancyService {
         }
     }
     
+    /**
+     * Move a user to a tenant (or out of any tenant with null), keeping both tenants' user counters current
+     */
+    public User assignUserToTenant(Long userId, Long tenantId) {
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        Long previousTenantId = user.getTenantId();
+        if (Objects.equals(previousTenantId, tenantId)) {
+            return user;
+        }
+        if (tenantId != null) {
+            getTenantById(tenantId);
+            String refusal = Boolean.TRUE.equals(user.getIsActive()) ? tenantUsageService.checkUserAllowed(tenantId) : null;
+            if (refusal != null) {
+                throw new RuntimeException(refusal);
+            }
+        }
+        
+        user.setTenantId(tenantId);
+        User savedUser = userRepository.save(user);
+        if (Boolean.TRUE.equals(user.getIsActive())) {
+            tenantUsageService.userRemoved(previousTenantId);
+            tenantUsageService.userAdded(tenantId);
+        }
+        
+        auditService.logActivity("SYSTEM", "TENANT_USER_ASSIGNED",
+            "User " + user.getUsername() + " moved from tenant " + previousTenantId + " to " + tenantId, null);
+        
+        return savedUser;
+    }
+    
     /**
      * Scheduled task to check expired tenants
      */
     @Scheduled(fixedDelay = 3600000) // Run every hour
     public void checkExpiredTenants() {
+        if (!tenantExpiryEnabled) {
+            logger.debug("Tenant expiry disabled, skipping scheduled run");
+            return;
+        }
         try {
             logger.info("Checking for expired tenants");
             
@@ -315,33 +368,6 @@ public class MultiTenancyService {
         }
     }
     
-    /**
-     * Scheduled task to update tenant usage statistics
-     */
-    @Scheduled(fixedDelay = 300000) // Run every 5 minutes
-    public void updateTenantUsageStatistics() {
-        try {
-            logger.debug("Updating tenant usage statistics");
-            
-            List<Tenant> tenants = tenantRepository.findAll();
-            
-            for (Tenant tenant : tenants) {
-                // Update user count
-                int userCount = getUserCountForTenant(tenant.getId());
-                tenant.setCurrentUsers(userCount);
-                
-                // Update storage usage
-                long storageBytes = getStorageUsageForTenant(tenant.getId());
-                tenant.setCurrentStorageBytes(storageBytes);
-                
-                tenantRepository.save(tenant);
-            }
-            
-        } catch (Exception e) {
-            logger.error("Failed to update tenant usage statistics: {}", e.getMessage());
-        }
-    }
-    
     // Private helper methods
     
     private void setPlanLimits(Tenant tenant, TenantPlan plan) {
@@ -396,16 +422,4 @@ public class MultiTenancyService {
             return 0.0;
         }
     }
-    
-    private int getUserCountForTenant(Long tenantId) {
-        // This would normally query the user repository for tenant-specific users
-        // For now, return a simulated count
-        return 10;
-    }
-    
-    private long getStorageUsageForTenant(Long tenantId) {
-        // This would normally calculate storage usage for the tenant
-        // For now, return a simulated value
-        return 1024 * 1024 * 1024; // 1GB
-    }
 }
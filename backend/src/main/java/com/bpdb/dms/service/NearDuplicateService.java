@@ -0,0 +1,190 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.Document;
+import com.bpdb.dms.entity.DocumentMinHash;
+import com.bpdb.dms.entity.DocumentMinHashBand;
+import com.bpdb.dms.repository.DocumentMinHashBandRepository;
+import com.bpdb.dms.repository.DocumentMinHashRepository;
+import com.bpdb.dms.repository.DocumentRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Near-duplicate detection over extracted text.
+ * Each document gets a MinHash signature of its word shingles; the signature is
+ * split into LSH bands whose keys are stored per document, so a lookup only
+ * compares signatures of documents that share at least one band bucket. A rescan
+ * of the same paper document has different bytes (and a different file hash) but
+ * nearly the same shingles, so it is caught here.
+ */
+@Service
+public class NearDuplicateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearDuplicateService.class);
+
+    // 16 bands of 8 rows: pairs above ~0.7 Jaccard share a bucket with high probability
+    private static final int SIGNATURE_LENGTH = 128;
+    private static final int BANDS = 16;
+
+    @Autowired
+    private DocumentMinHashRepository documentMinHashRepository;
+
+    @Autowired
+    private DocumentMinHashBandRepository documentMinHashBandRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.dedup.near-duplicate.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.dedup.near-duplicate.threshold:0.8}")
+    private double threshold;
+
+    @Value("${app.dedup.near-duplicate.shingle-size:3}")
+    private int shingleSize;
+
+    @Value("${app.dedup.near-duplicate.min-shingles:20}")
+    private int minShingles;
+
+    private MinHasher minHasher;
+
+    @PostConstruct
+    void init() {
+        minHasher = new MinHasher(SIGNATURE_LENGTH, BANDS, shingleSize);
+    }
+
+    /**
+     * Store the signature of a document's text and return the existing documents it
+     * nearly duplicates, most similar first. Texts too short to shingle meaningfully
+     * are not indexed.
+     */
+    @Transactional
+    public List<NearDuplicate> registerDocument(Long documentId, String text) {
+        if (!enabled) {
+            return List.of();
+        }
+        documentMinHashBandRepository.deleteByDocumentId(documentId);
+
+        MinHasher.Signature signature = minHasher.signature(text);
+        if (signature.shingleCount() < minShingles) {
+            documentMinHashRepository.findById(documentId).ifPresent(documentMinHashRepository::delete);
+            return List.of();
+        }
+        long[] bandKeys = minHasher.bandKeys(signature.values());
+        List<NearDuplicate> matches = lookup(documentId, signature.values(), bandKeys);
+
+        DocumentMinHash minHash = documentMinHashRepository.findById(documentId).orElseGet(DocumentMinHash::new);
+        minHash.setDocumentId(documentId);
+        minHash.setSignature(MinHasher.toBytes(signature.values()));
+        minHash.setShingleCount(signature.shingleCount());
+        minHash.setCreatedAt(LocalDateTime.now());
+        documentMinHashRepository.save(minHash);
+
+        List<DocumentMinHashBand> bands = new ArrayList<>(bandKeys.length);
+        for (long bandKey : bandKeys) {
+            bands.add(new DocumentMinHashBand(bandKey, documentId));
+        }
+        documentMinHashBandRepository.saveAll(bands);
+
+        if (!matches.isEmpty()) {
+            logger.info("Document {} is a near duplicate of document {} (similarity {})",
+                documentId, matches.get(0).getDocumentId(), String.format("%.2f", matches.get(0).getSimilarity()));
+        }
+        return matches;
+    }
+
+    /**
+     * Near duplicates of an already registered document, most similar first
+     */
+    @Transactional(readOnly = true)
+    public List<NearDuplicate> findNearDuplicates(Long documentId) {
+        return documentMinHashRepository.findById(documentId)
+            .map(minHash -> {
+                int[] signature = MinHasher.fromBytes(minHash.getSignature());
+                return lookup(documentId, signature, minHasher.bandKeys(signature));
+            })
+            .orElse(List.of());
+    }
+
+    private List<NearDuplicate> lookup(Long documentId, int[] signature, long[] bandKeys) {
+        Timer.Sample sample = meterRegistry != null ? Timer.start(meterRegistry) : null;
+
+        List<Long> keys = new ArrayList<>(bandKeys.length);
+        for (long bandKey : bandKeys) {
+            keys.add(bandKey);
+        }
+        List<Long> candidateIds = documentMinHashBandRepository.findCandidateDocumentIds(keys, documentId);
+
+        Map<Long, Double> similarities = new HashMap<>();
+        if (!candidateIds.isEmpty()) {
+            for (DocumentMinHash candidate : documentMinHashRepository.findAllById(candidateIds)) {
+                double similarity = MinHasher.similarity(signature, MinHasher.fromBytes(candidate.getSignature()));
+                if (similarity >= threshold) {
+                    similarities.put(candidate.getDocumentId(), similarity);
+                }
+            }
+        }
+
+        List<NearDuplicate> matches = new ArrayList<>(similarities.size());
+        if (!similarities.isEmpty()) {
+            for (Document document : documentRepository.findAllById(similarities.keySet())) {
+                if (Boolean.TRUE.equals(document.getIsActive())) {
+                    matches.add(new NearDuplicate(document.getId(), document.getOriginalName(),
+                        similarities.get(document.getId())));
+                }
+            }
+            matches.sort(Comparator.comparingDouble(NearDuplicate::getSimilarity).reversed());
+        }
+
+        if (sample != null) {
+            sample.stop(Timer.builder("dms.dedup.near_duplicate.lookup")
+                .description("Near-duplicate LSH lookup latency")
+                .tag("result", matches.isEmpty() ? "miss" : "hit")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry));
+            DistributionSummary.builder("dms.dedup.near_duplicate.candidates")
+                .description("LSH candidates compared per near-duplicate lookup")
+                .register(meterRegistry)
+                .record(candidateIds.size());
+        }
+        return matches;
+    }
+
+    /**
+     * An existing document whose text nearly duplicates the looked-up one
+     */
+    public static class NearDuplicate {
+        private final Long documentId;
+        private final String originalName;
+        private final double similarity;
+
+        public NearDuplicate(Long documentId, String originalName, double similarity) {
+            this.documentId = documentId;
+            this.originalName = originalName;
+            this.similarity = similarity;
+        }
+
+        public Long getDocumentId() { return documentId; }
+        public String getOriginalName() { return originalName; }
+        public double getSimilarity() { return similarity; }
+    }
+}
@@ -7,6 +7,7 @@ import com.bpdb.dms.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
@@ -28,6 +29,12 @@ import java.util.concurrent.CompletableFuture;
 public class NotificationService {
     
     private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
+
+    @Value("${app.scheduler.jobs.scheduled-notifications.enabled:false}")
+    private boolean scheduledNotificationsEnabled;
+
+    @Value("${app.scheduler.jobs.notification-cleanup.enabled:false}")
+    private boolean notificationCleanupEnabled;
     
     @Autowired
     private NotificationRepository notificationRepository;
@@ -93,7 +100,7 @@ public class NotificationService {
     /**
      * Send notification asynchronously
      */
-    @Async
+    @Async("notificationExecutor")
     public CompletableFuture<Void> sendNotificationAsync(Notification notification) {
         try {
             User user = notification.getUser();
@@ -250,6 +257,10 @@ public class NotificationService {
      */
     @Scheduled(fixedRate = 60000) // Run every minute
     public void processScheduledNotifications() {
+        if (!scheduledNotificationsEnabled) {
+            logger.debug("Scheduled notification delivery disabled, skipping scheduled run");
+            return;
+        }
         try {
             List<Notification> scheduledNotifications = 
                 notificationRepository.findScheduledNotifications(LocalDateTime.now());
@@ -293,6 +304,10 @@ public class NotificationService {
      */
     @Scheduled(cron = "0 0 2 * * ?") // Run daily at 2 AM
     public void cleanupOldNotifications() {
+        if (!notificationCleanupEnabled) {
+            logger.debug("Notification cleanup disabled, skipping scheduled run");
+            return;
+        }
         try {
             LocalDateTime cutoffDate = LocalDateTime.now().minusDays(90); // Keep notifications for 90 days
             notificationRepository.deleteOldNotifications(cutoffDate);
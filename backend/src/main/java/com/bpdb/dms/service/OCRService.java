@@ -5,20 +5,41 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.MatchResult;
 import java.util.regex.Pattern;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.tika.Tika;
 import org.apache.tika.exception.TikaException;
+import com.bpdb.dms.entity.ExtractionArtifact;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.NodeList;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
@@ -26,8 +47,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
-import net.sourceforge.tess4j.ITesseract;
-import net.sourceforge.tess4j.Tesseract;
+import jakarta.annotation.PreDestroy;
 import net.sourceforge.tess4j.TesseractException;
 import java.io.*;
 
@@ -56,22 +76,96 @@ public class OCRService {
     
     @Value("${app.ocr.process-images:true}")
     private boolean processImages;
-    private final ITesseract tesseract;
+
+    @Value("${app.ocr.engine-version:tesseract-5}")
+    private String engineVersion;
+
+    @Value("${app.ocr.pool.size:2}")
+    private int poolSize;
+
+    @Value("${app.ocr.pool.timeout-seconds:120}")
+    private long poolTimeoutSeconds;
+
+    @Value("${app.ocr.pool.health-interval-seconds:300}")
+    private long poolHealthIntervalSeconds;
+
+    @Value("${app.ocr.pool.max-stuck-workers:2}")
+    private int poolMaxStuckWorkers;
+
+    @Value("${app.ocr.external.timeout-seconds:600}")
+    private long externalTimeoutSeconds;
+
+    // Pages per external tesseract process when the worker pool is unavailable
+    private static final int EXTERNAL_BATCH_SIZE = 10;
+
+    @Value("${app.ocr.preprocess.target-dpi:300}")
+    private int preprocessTargetDpi;
+
+    @Value("${app.ocr.preprocess.deskew:false}")
+    private boolean preprocessDeskew;
+
+    @Value("${app.ocr.preprocess.max-skew-degrees:5}")
+    private double preprocessMaxSkewDegrees;
+
+    private ImagePreprocessor imagePreprocessor = new ImagePreprocessor(0, false, 0);
+
+    @Value("${app.ocr.pdf.min-page-chars:20}")
+    private int minPageChars;
+
+    @Value("${app.ocr.pdf.min-glyph-coverage:0.8}")
+    private double minGlyphCoverage;
+    private volatile TesseractWorkerPool workerPool;
     private final Tika tika;
     private volatile boolean ocrAvailable;
     
     @Autowired(required = false)
     private DocumentClassificationService documentClassificationService;
+
+    @Autowired(required = false)
+    private TextAnalysisService textAnalysisService;
+
+    @Autowired(required = false)
+    private ExtractionArtifactService extractionArtifactService;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private static final TextRule CONTRACT_NUMBER_RULE = TextRule.anchored("ocr-contract-number",
+        Pattern.compile("Contract N[o0]\\.:?\\s*([A-Za-z0-9\\/\\.-]+)"), "contract");
+
+    private static final TextRule[] CONTRACT_DATE_RULES = {
+        TextRule.anchored("ocr-contract-date-dmy", Pattern.compile("Date\\s*:?\\s*(\\d{2}/\\d{2}/\\d{4})", Pattern.CASE_INSENSITIVE), "date"),
+        TextRule.anchored("ocr-contract-dated-dmy", Pattern.compile("Dated\\s*:?\\s*(\\d{2}/\\d{2}/\\d{4})", Pattern.CASE_INSENSITIVE), "dated"),
+        TextRule.anchored("ocr-contract-date-iso", Pattern.compile("Date\\s*:?\\s*(\\d{4}-\\d{2}-\\d{2})", Pattern.CASE_INSENSITIVE), "date"),
+        TextRule.anchored("ocr-contract-dated-iso", Pattern.compile("Dated\\s*:?\\s*(\\d{4}-\\d{2}-\\d{2})", Pattern.CASE_INSENSITIVE), "dated")
+    };
+
+    /**
+     * Contract number/date rules, for the shared text analysis dictionary
+     */
+    static List<TextRule> textRules() {
+        List<TextRule> rules = new ArrayList<>(List.of(CONTRACT_DATE_RULES));
+        rules.add(CONTRACT_NUMBER_RULE);
+        return rules;
+    }
     
     public OCRService() {
-        this.tesseract = new Tesseract();
         this.tika = new Tika();
         this.ocrAvailable = false;
     }
     
     @PostConstruct
     public void setUp() {
+        imagePreprocessor = new ImagePreprocessor(preprocessTargetDpi, preprocessDeskew, preprocessMaxSkewDegrees);
         initializeTesseract();
+        if (meterRegistry != null) {
+            for (String state : List.of("live", "idle", "starting", "stuck")) {
+                Gauge.builder("dms.ocr.pool.workers", this, s -> s.workerPoolStat(state))
+                    .description("Tesseract workers by state")
+                    .tag("state", state)
+                    .register(meterRegistry);
+            }
+        }
     }
     
     /**
@@ -106,11 +200,12 @@ public class OCRService {
                 }
             }
             
-            tesseract.setDatapath(tesseractDataPath);
-            tesseract.setLanguage(tesseractLanguage);
-            // Page segmentation mode: default to 6 (Assume a single uniform block of text)
-            tesseract.setPageSegMode(pageSegMode);
-            tesseract.setOcrEngineMode(1); // Neural nets LSTM engine only
+            // Long-lived engines, each loading the language model once; started in the background
+            String datapath = tesseractDataPath;
+            workerPool = new TesseractWorkerPool(poolSize, TimeUnit.SECONDS.toMillis(poolTimeoutSeconds),
+                TimeUnit.SECONDS.toMillis(poolHealthIntervalSeconds), poolMaxStuckWorkers,
+                () -> new TesseractWorkerPool.PersistentTesseract(datapath, tesseractLanguage, pageSegMode));
+            workerPool.start();
             // Quick sanity check: verify 'eng.traineddata' can be resolved
             try {
                 Path trained = Paths.get(tesseractDataPath, "tessdata", tesseractLanguage + ".traineddata");
@@ -179,7 +274,7 @@ public class OCRService {
     /**
      * Extract text from uploaded file using OCR
      */
-    @Async
+    @Async("ocrExecutor")
     public CompletableFuture<OCRResult> extractTextAsync(MultipartFile file, Long documentId) {
         try {
             logger.info("Starting OCR processing for document: {}", documentId);
@@ -207,6 +302,28 @@ public class OCRService {
      * Extract text from file synchronously
      */
     public OCRResult extractText(MultipartFile file) throws IOException, TesseractException {
+        return extractText(file, false);
+    }
+    
+    /**
+     * Extract text from file synchronously
+     * @param bypassCache ignore a stored extraction and overwrite it with the fresh result
+     */
+    public OCRResult extractText(MultipartFile file, boolean bypassCache) throws IOException, TesseractException {
+        long started = System.nanoTime();
+        String mime = PipelineMetrics.mimeTag(file.getContentType());
+        OcrRun run = new OcrRun(mime, bypassCache);
+        OCRResult result = doExtractText(file, run);
+        result.setPagesProcessed(run.pages.get());
+        if (ocrAvailable && ocrEnabled) {
+            PipelineMetrics.record(meterRegistry, PipelineMetrics.OCR_DOCUMENT, started,
+                "mime", mime, "engine", run.engine(), "outcome", result.isSuccess() ? "success" : "failure");
+            PipelineMetrics.countBytes(meterRegistry, "ocr", mime, file.getSize());
+        }
+        return result;
+    }
+    
+    private OCRResult doExtractText(MultipartFile file, OcrRun run) throws IOException, TesseractException {
         OCRResult result = new OCRResult();
         
         if (!ocrAvailable) {
@@ -232,14 +349,33 @@ public class OCRService {
             return result;
         }
         
+        // Read through the extraction artifact store: the same bytes are only OCR'd once
+        String fileHash = null;
+        ExtractionArtifact artifact = null;
+        if (extractionArtifactService != null && extractionArtifactService.isEnabled()) {
+            try {
+                fileHash = extractionArtifactService.hash(file);
+                if (!run.bypassCache) {
+                    artifact = extractionArtifactService.find(fileHash, getEngineVersion(), tesseractLanguage).orElse(null);
+                }
+            } catch (Exception e) {
+                logger.warn("Extraction artifact lookup failed for file {}: {}", fileName, e.getMessage());
+            }
+        }
+        
         try {
             String extractedText;
+            List<String> pageTexts = new ArrayList<>();
             
-            if (isImageFile(contentType)) {
+            if (artifact != null) {
+                logger.info("Reusing stored extraction for file {} ({} pages)", fileName, artifact.getPageCount());
+                extractedText = artifact.getExtractedText();
+                run.cached = true;
+            } else if (isImageFile(contentType)) {
                 // Process image files with OCR (skip if disabled to prevent crashes)
                 if (processImages) {
                     try {
-                        extractedText = processImageWithOCR(file);
+                        extractedText = processImageWithOCR(file, run);
                     } catch (TesseractException te) {
                         // Tesseract-specific errors (library not available, initialization issues)
                         logger.error("Tesseract OCR error for image file {}: {}", fileName, te.getMessage());
@@ -260,7 +396,7 @@ public class OCRService {
                 }
             } else if (isPDFFile(contentType)) {
                 // Process PDF files
-                extractedText = processPDFWithOCR(file);
+                extractedText = processPDFWithOCR(file, pageTexts, run);
             } else if (isOfficeDocument(contentType)) {
                 // Process Office documents
                 extractedText = processOfficeDocument(file);
@@ -273,17 +409,42 @@ public class OCRService {
             result.setConfidence(calculateConfidence(extractedText));
             result.setSuccess(true);
             
+            if (run.failedPages.get() > 0) {
+                // A partial result must not be served to later uploads of the same file
+                logger.warn("Not caching extraction for {}: {} page(s) failed",
+                    file.getOriginalFilename(), run.failedPages.get());
+            } else if (artifact == null && fileHash != null && result.getErrorMessage() == null
+                    && extractedText != null && !extractedText.isBlank()) {
+                if (pageTexts.isEmpty()) {
+                    pageTexts.add(extractedText);
+                }
+                List<Double> pageConfidences = pageTexts.stream().map(this::calculateConfidence).toList();
+                if (run.bypassCache) {
+                    extractionArtifactService.replace(fileHash, getEngineVersion(), tesseractLanguage,
+                        extractedText, result.getConfidence(), pageTexts, pageConfidences);
+                } else {
+                    extractionArtifactService.store(fileHash, getEngineVersion(), tesseractLanguage,
+                        extractedText, result.getConfidence(), pageTexts, pageConfidences);
+                }
+            }
+            
+            // Analyze the text once for contract data, classification and later extraction
+            TextFeatures features = textAnalysisService != null
+                ? textAnalysisService.analyze(extractedText)
+                : TextFeatures.unindexed(extractedText);
+            result.setTextFeatures(features);
+
             // Extract metadata
             Map<String, String> metadata = extractMetadata(file);
             
             // add contract number extraction
-            Map<String, String> contractData = getContractNumber(extractedText);
+            Map<String, String> contractData = getContractNumber(features);
             metadata.putAll(contractData);
             
             result.setMetadata(metadata);
             
             // Classify document type
-            DocumentTypeClassification classification = classifyDocument(extractedText, fileName);
+            DocumentTypeClassification classification = classifyDocument(features, fileName);
             result.setDocumentType(classification.getDocumentType());
             result.setClassificationConfidence(classification.getConfidence());
             
@@ -299,43 +460,72 @@ public class OCRService {
     public boolean isOcrAvailable() {
         return ocrAvailable;
     }
+
+    private double workerPoolStat(String key) {
+        Object value = getWorkerPoolStats().get(key);
+        return value instanceof Number number ? number.doubleValue() : 0;
+    }
+
+    /**
+     * Tesseract worker pool counters (live/idle workers, timeouts, restarts)
+     */
+    public Map<String, Object> getWorkerPoolStats() {
+        TesseractWorkerPool pool = workerPool;
+        return pool != null ? pool.getStats() : Map.of("healthy", false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        TesseractWorkerPool pool = workerPool;
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Identifies the OCR configuration that produced a text; part of the extraction artifact key
+     */
+    public String getEngineVersion() {
+        return engineVersion + "/psm" + pageSegMode;
+    }
     
     /**
      * Process image files with OCR
      */
-    private String processImageWithOCR(MultipartFile file) throws IOException, TesseractException {
-        BufferedImage image = ImageIO.read(file.getInputStream());
-        if (image == null) {
-            throw new IOException("Unable to read image file");
+    private String processImageWithOCR(MultipartFile file, OcrRun run) throws IOException, TesseractException {
+        BufferedImage image;
+        int dpi = 0;
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.getInputStream())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                throw new IOException("Unable to read image file");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, false);
+                image = reader.read(0);
+                try {
+                    dpi = readDpi(reader.getImageMetadata(0));
+                } catch (Exception e) {
+                    logger.debug("Could not read image resolution: {}", e.getMessage());
+                }
+            } finally {
+                reader.dispose();
+            }
         }
         
         // Preprocess image for better OCR results
-        BufferedImage processedImage = preprocessImage(image);
+        BufferedImage processedImage = preprocessImage(image, dpi);
         
+        long ocrStarted = System.nanoTime();
         try {
-            return tesseract.doOCR(processedImage);
-        } catch (UnsatisfiedLinkError | NoClassDefFoundError ex) {
-            // Native library errors - try external fallback
-            logger.warn("tess4j native library error: {}. Trying external 'tesseract' fallback...", ex.toString());
-            String fb = runExternalTesseract(processedImage);
-            if (fb != null && !fb.trim().isEmpty()) {
-                logger.info("External tesseract fallback succeeded, extracted {} characters", fb.length());
-                return fb;
-            }
-            throw new TesseractException("tess4j native library failed and external tesseract fallback failed", ex);
-        } catch (TesseractException ex) {
-            // Tesseract-specific errors - try external fallback
-            logger.warn("tess4j OCR error: {}. Trying external 'tesseract' fallback...", ex.toString());
-            String fb = runExternalTesseract(processedImage);
-            if (fb != null && !fb.trim().isEmpty()) {
-                logger.info("External tesseract fallback succeeded, extracted {} characters", fb.length());
-                return fb;
-            }
-            throw ex;
+            String text = ocrWithPool(processedImage);
+            run.pageDone("native", ocrStarted, true);
+            return text;
         } catch (Exception ex) {
-            // Other exceptions - try external fallback
-            logger.warn("Unexpected OCR error: {}. Trying external 'tesseract' fallback...", ex.toString());
-            String fb = runExternalTesseract(processedImage);
+            run.pageDone("native", ocrStarted, false);
+            logger.warn("Pooled OCR failed: {}. Trying external 'tesseract' fallback...", ex.toString());
+            String fb = runExternalTesseract(List.of(processedImage), run).get(0);
             if (fb != null && !fb.trim().isEmpty()) {
                 logger.info("External tesseract fallback succeeded, extracted {} characters", fb.length());
                 return fb;
@@ -344,14 +534,37 @@ public class OCRService {
         }
     }
 
+    private String ocrWithPool(BufferedImage image) throws Exception {
+        TesseractWorkerPool pool = workerPool;
+        if (pool == null || !pool.isHealthy()) {
+            throw new IllegalStateException("OCR worker pool unavailable");
+        }
+        try {
+            return pool.submit(image).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
     /**
-     * Fallback OCR using system 'tesseract' CLI by writing a temporary PNG and reading stdout.
+     * Fallback OCR using the system 'tesseract' CLI. All images go to one process via
+     * tesseract's list-file mode, so the language model is loaded once per batch rather
+     * than once per image. Returns one text per image, null where it failed.
      */
-    private String runExternalTesseract(BufferedImage image) {
-        File tmp = null;
+    private List<String> runExternalTesseract(List<BufferedImage> images, OcrRun run) {
+        List<String> results = new ArrayList<>(Collections.nCopies(images.size(), null));
+        long started = System.nanoTime();
+        Path dir = null;
         try {
-            tmp = File.createTempFile("ocr_img_", ".png");
-            ImageIO.write(image, "png", tmp);
+            dir = Files.createTempDirectory("ocr_batch_");
+            List<String> listing = new ArrayList<>(images.size());
+            for (int i = 0; i < images.size(); i++) {
+                File png = dir.resolve("page_" + i + ".png").toFile();
+                ImageIO.write(images.get(i), "png", png);
+                listing.add(png.getAbsolutePath());
+            }
+            Path listFile = dir.resolve("pages.txt");
+            Files.write(listFile, listing);
 
             // TESSDATA_PREFIX should point directly to the 'tessdata' directory
             String tessPrefix = tesseractDataPath;
@@ -369,7 +582,7 @@ public class OCRService {
 
             ProcessBuilder pb = new ProcessBuilder(
                     tesseractBinary,
-                    tmp.getAbsolutePath(),
+                    listFile.toString(),
                     "stdout",
                     "-l", tesseractLanguage,
                     "--psm", String.valueOf(this.pageSegMode)
@@ -378,97 +591,176 @@ public class OCRService {
             if (tessPrefix != null && !tessPrefix.isBlank()) {
                 env.put("TESSDATA_PREFIX", tessPrefix);
             }
-            pb.redirectErrorStream(true);
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
             Process proc = pb.start();
 
-            StringBuilder out = new StringBuilder();
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(proc.getInputStream()))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    out.append(line).append('\n');
+            // Read stdout on a separate thread so a hung process can be killed on timeout
+            CompletableFuture<String> output = CompletableFuture.supplyAsync(() -> {
+                try (InputStream in = proc.getInputStream()) {
+                    return new String(in.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
                 }
+            });
+            if (!proc.waitFor(externalTimeoutSeconds, TimeUnit.SECONDS)) {
+                proc.destroyForcibly();
+                logger.warn("External tesseract timed out after {}s on {} images", externalTimeoutSeconds, images.size());
+                return results;
+            }
+            String out = output.get(10, TimeUnit.SECONDS);
+            if (proc.exitValue() != 0) {
+                logger.warn("External tesseract exited with code {}", proc.exitValue());
+                return results;
             }
-            int code = proc.waitFor();
-            if (code == 0) {
-                return out.toString();
+
+            // Pages are separated by form feeds in text output
+            String[] pages = out.split("\f", -1);
+            if (pages.length >= images.size()) {
+                for (int i = 0; i < images.size(); i++) {
+                    results.set(i, pages[i]);
+                }
+            } else if (images.size() == 1) {
+                results.set(0, out);
             } else {
-                logger.warn("External tesseract exited with code {}. Output: {}", code, out.toString());
+                logger.warn("External tesseract returned {} pages for {} images", pages.length, images.size());
+            }
+            if (meterRegistry != null) {
+                meterRegistry.counter("dms.ocr.external_fallback.pages").increment(images.size());
             }
         } catch (Exception ex) {
             logger.error("External tesseract fallback error: {}", ex.toString());
         } finally {
-            if (tmp != null) {
-                try { Files.deleteIfExists(tmp.toPath()); } catch (Exception ignore) {}
+            // One process handles the whole batch; attribute its time evenly to the pages
+            long perPage = (System.nanoTime() - started) / images.size();
+            for (String text : results) {
+                run.pageNanos("external", perPage, text != null);
+            }
+            if (dir != null) {
+                try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+                    files.forEach(f -> { try { Files.deleteIfExists(f); } catch (IOException ignore) {} });
+                    Files.deleteIfExists(dir);
+                } catch (Exception ignore) {}
             }
         }
-        return null;
+        return results;
     }
     
     /**
-     * Process PDF files with OCR
+     * Process PDF files page by page: pages with a usable text layer are taken from
+     * PDFBox directly and only the remaining (scanned) pages are rendered and OCR'd
      */
-	private String processPDFWithOCR(MultipartFile file) throws IOException, TesseractException {
+	private String processPDFWithOCR(MultipartFile file, List<String> pageTexts, OcrRun run) throws IOException, TesseractException {
 
 		// Read PDF bytes once (MultipartFile streams can only be read once)
 		byte[] pdfBytes = file.getBytes();
-		
-		// 1. Try Tika extraction first (for text-based PDFs)
+
+		PDDocument document;
 		try {
-			String text = tika.parseToString(new java.io.ByteArrayInputStream(pdfBytes));
-			if (text != null && !text.trim().isEmpty()) {
-				logger.info("Tika successfully extracted text from PDF");
-				return text;
+			document = PDDocument.load(pdfBytes);
+		} catch (IOException e) {
+			// Damaged or encrypted for PDFBox; Tika may still get the text layer
+			logger.warn("PDFBox could not open PDF {}, falling back to Tika: {}", file.getOriginalFilename(), e.getMessage());
+			try {
+				return tika.parseToString(new java.io.ByteArrayInputStream(pdfBytes));
+			} catch (TikaException te) {
+				throw new TesseractException("PDF text extraction failed: " + te.getMessage(), te);
 			}
-		} catch (Exception e) {
-			logger.warn("Tika failed, falling back to OCR", e);
 		}
-		
-		// 2. Load PDF and process with OCR
-		PDDocument document = null;
+
 		try {
-			document = PDDocument.load(pdfBytes);
+			PDFTextStripper stripper = new PDFTextStripper();
 			PDFRenderer renderer = new PDFRenderer(document);
-			StringBuilder sb = new StringBuilder();
+			int pageCount = document.getNumberOfPages();
+			String[] texts = new String[pageCount];
+			Map<Integer, CompletableFuture<String>> pooled = new LinkedHashMap<>();
+			List<Integer> external = new ArrayList<>();
+			int textPages = 0;
+			int ocrPages = 0;
 
-			// 3. OCR each page with fallback mechanism
-			for (int i = 0; i < document.getNumberOfPages(); i++) {
+			for (int i = 0; i < pageCount; i++) {
+				String pageText = null;
 				try {
-					BufferedImage image = renderer.renderImageWithDPI(i, 300);
-					try {
-						// Try native tess4j OCR first
-						String pageText = tesseract.doOCR(image);
-						sb.append(pageText).append("\n");
-					} catch (UnsatisfiedLinkError | NoClassDefFoundError | TesseractException ex) {
-						// Native library errors - use external fallback
-						logger.warn("Native OCR failed for PDF page {}, using external fallback", i + 1);
-						String fb = runExternalTesseract(image);
-						if (fb != null && !fb.trim().isEmpty()) {
-							sb.append(fb).append("\n");
-							logger.info("External tesseract fallback succeeded for page {}", i + 1);
-						} else {
-							logger.warn("External tesseract fallback also failed for page {}", i + 1);
-						}
-					} catch (Error err) {
-						// Native library errors - use external fallback
-						logger.warn("Native OCR error for PDF page {}, using external fallback: {}", i + 1, err.getMessage());
-						String fb = runExternalTesseract(image);
-						if (fb != null && !fb.trim().isEmpty()) {
-							sb.append(fb).append("\n");
-							logger.info("External tesseract fallback succeeded for page {}", i + 1);
-						} else {
-							logger.warn("External tesseract fallback also failed for page {}", i + 1);
-						}
-					}
+					stripper.setStartPage(i + 1);
+					stripper.setEndPage(i + 1);
+					pageText = stripper.getText(document);
 				} catch (IOException e) {
+					logger.warn("Text layer extraction failed for PDF page {}: {}", i + 1, e.getMessage());
+				}
+
+				if (hasUsableTextLayer(pageText, minPageChars, minGlyphCoverage)) {
+					texts[i] = pageText;
+					textPages++;
+					continue;
+				}
+				ocrPages++;
+				TesseractWorkerPool pool = workerPool;
+				if (pool == null || !pool.isHealthy()) {
+					external.add(i);
+					continue;
+				}
+				try {
+					// Blocks while all workers are busy, so rendering stays just ahead of OCR
+					CompletableFuture<String> page = pool.submit(renderPage(renderer, i, run));
+					long ocrStarted = System.nanoTime();
+					page.whenComplete((text, failure) -> run.pageDone("native", ocrStarted, failure == null));
+					pooled.put(i, page);
+				} catch (IOException e) {
+					texts[i] = "";
+					run.failedPages.incrementAndGet();
 					logger.error("Error rendering PDF page {}: {}", i + 1, e.getMessage());
-					// Continue with next page
 				}
 			}
 
-			if (document != null) {
-				document.close();
+			for (Map.Entry<Integer, CompletableFuture<String>> job : pooled.entrySet()) {
+				try {
+					texts[job.getKey()] = job.getValue().join();
+				} catch (CompletionException e) {
+					logger.warn("Pooled OCR failed for PDF page {}: {}", job.getKey() + 1, String.valueOf(e.getCause()));
+					external.add(job.getKey());
+				}
 			}
-			
+
+			// Whatever the pool could not do goes to the external binary in batches
+			external.sort(null);
+			for (int from = 0; from < external.size(); from += EXTERNAL_BATCH_SIZE) {
+				List<Integer> batch = external.subList(from, Math.min(external.size(), from + EXTERNAL_BATCH_SIZE));
+				List<Integer> rendered = new ArrayList<>(batch.size());
+				List<BufferedImage> images = new ArrayList<>(batch.size());
+				for (int page : batch) {
+					try {
+						images.add(renderPage(renderer, page, run));
+						rendered.add(page);
+					} catch (IOException e) {
+						texts[page] = "";
+						run.failedPages.incrementAndGet();
+						logger.error("Error rendering PDF page {}: {}", page + 1, e.getMessage());
+					}
+				}
+				List<String> results = images.isEmpty() ? List.of() : runExternalTesseract(images, run);
+				for (int k = 0; k < rendered.size(); k++) {
+					String text = results.get(k);
+					if (text == null) {
+						run.failedPages.incrementAndGet();
+						logger.warn("External tesseract fallback also failed for page {}", rendered.get(k) + 1);
+					}
+					texts[rendered.get(k)] = text != null ? text : "";
+				}
+			}
+
+			StringBuilder sb = new StringBuilder();
+			for (String pageText : texts) {
+				String text = pageText != null ? pageText : "";
+				sb.append(text).append("\n");
+				pageTexts.add(text);
+			}
+
+			logger.info("Extracted PDF {}: {} pages from text layer, {} pages OCR'd",
+				file.getOriginalFilename(), textPages, ocrPages);
+			if (meterRegistry != null) {
+				meterRegistry.counter("dms.ocr.pdf_pages", "source", "text_layer").increment(textPages);
+				meterRegistry.counter("dms.ocr.pdf_pages", "source", "ocr").increment(ocrPages);
+			}
+
 			String result = sb.toString();
 			if (result.trim().isEmpty()) {
 				logger.warn("No text extracted from PDF after OCR processing");
@@ -476,20 +768,51 @@ public class OCRService {
 			}
 			return result;
 		} catch (TesseractException e) {
-			// Re-throw TesseractException
 			throw e;
 		} catch (Exception e) {
 			logger.error("Error processing PDF with OCR: {}", e.getMessage());
 			throw new TesseractException("PDF OCR processing failed: " + e.getMessage(), e);
 		} finally {
-			if (document != null) {
-				try {
-					document.close();
-				} catch (IOException e) {
-					logger.warn("Error closing PDF document: {}", e.getMessage());
-				}
+			try {
+				document.close();
+			} catch (IOException e) {
+				logger.warn("Error closing PDF document: {}", e.getMessage());
+			}
+		}
+	}
+
+	private BufferedImage renderPage(PDFRenderer renderer, int page, OcrRun run) throws IOException {
+		long started = System.nanoTime();
+		BufferedImage image = renderer.renderImageWithDPI(page, 300, ImageType.GRAY);
+		PipelineMetrics.record(meterRegistry, PipelineMetrics.PDF_RENDER, started, "mime", run.mime);
+		return image;
+	}
+
+	/**
+	 * Whether a page's extracted text layer is worth keeping instead of OCR: enough
+	 * visible characters (text density), and most of them mapped to real glyphs rather
+	 * than replacement/private-use/control characters, which is what fonts without a
+	 * Unicode mapping produce
+	 */
+	static boolean hasUsableTextLayer(String pageText, int minChars, double minCoverage) {
+		if (pageText == null) {
+			return false;
+		}
+		int visible = 0;
+		int mapped = 0;
+		for (int i = 0; i < pageText.length(); i++) {
+			char c = pageText.charAt(i);
+			if (Character.isWhitespace(c)) {
+				continue;
+			}
+			visible++;
+			int type = Character.getType(c);
+			if (c != '\uFFFD' && type != Character.PRIVATE_USE && type != Character.CONTROL
+					&& type != Character.UNASSIGNED && type != Character.SURROGATE) {
+				mapped++;
 			}
 		}
+		return visible >= minChars && mapped >= minCoverage * visible;
 	}
 
     
@@ -510,47 +833,28 @@ public class OCRService {
     /**
      * Preprocess image for better OCR results
      */
-    private BufferedImage preprocessImage(BufferedImage originalImage) {
-        // Convert to grayscale
-        BufferedImage gray = new BufferedImage(originalImage.getWidth(), originalImage.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
-        java.awt.Graphics2D g = gray.createGraphics();
-        g.drawImage(originalImage, 0, 0, null);
-        g.dispose();
-        
-        // Apply simple global thresholding (Otsu-like approximation)
-        int w = gray.getWidth();
-        int h = gray.getHeight();
-        int[] histogram = new int[256];
-        int[] pixels = new int[w * h];
-        gray.getRaster().getPixels(0, 0, w, h, pixels);
-        for (int i = 0; i < pixels.length; i++) {
-            int v = pixels[i];
-            if (v < 0) v = 0; if (v > 255) v = 255;
-            histogram[v]++;
+    private BufferedImage preprocessImage(BufferedImage originalImage, int sourceDpi) {
+        return imagePreprocessor.preprocess(originalImage, sourceDpi);
+    }
+
+    /**
+     * Horizontal resolution from the image metadata, or 0 when it does not say
+     */
+    private static int readDpi(IIOMetadata metadata) {
+        if (metadata == null || !metadata.isStandardMetadataFormatSupported()) {
+            return 0;
         }
-        // Compute threshold (basic Otsu)
-        int total = w * h;
-        float sum = 0;
-        for (int t = 0; t < 256; t++) sum += t * histogram[t];
-        float sumB = 0; int wB = 0; int wF; float varMax = 0; int threshold = 127;
-        for (int t = 0; t < 256; t++) {
-            wB += histogram[t]; if (wB == 0) continue; wF = total - wB; if (wF == 0) break;
-            sumB += (float) (t * histogram[t]);
-            float mB = sumB / wB; float mF = (sum - sumB) / wF;
-            float varBetween = (float) wB * (float) wF * (mB - mF) * (mB - mF);
-            if (varBetween > varMax) { varMax = varBetween; threshold = t; }
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName);
+        NodeList sizes = root.getElementsByTagName("HorizontalPixelSize");
+        if (sizes.getLength() == 0) {
+            return 0;
         }
-        // Create binary image
-        BufferedImage binary = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_BINARY);
-        int idx = 0;
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int v = pixels[idx++];
-                int b = v > threshold ? 0xFFFFFF : 0x000000;
-                binary.setRGB(x, y, (0xFF << 24) | b);
-            }
+        try {
+            double mmPerPixel = Double.parseDouble(((IIOMetadataNode) sizes.item(0)).getAttribute("value"));
+            return mmPerPixel > 0 ? (int) Math.round(25.4 / mmPerPixel) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
         }
-        return binary;
     }
     
     /**
@@ -586,14 +890,14 @@ public class OCRService {
     /**
      * Classify document type based on content using DocumentClassificationService
      */
-    private DocumentTypeClassification classifyDocument(String text, String fileName) {
+    private DocumentTypeClassification classifyDocument(TextFeatures features, String fileName) {
         DocumentTypeClassification classification = new DocumentTypeClassification();
         
         // Use the enhanced classification service if available
         if (documentClassificationService != null) {
             try {
                 DocumentClassificationService.ClassificationResult result = 
-                    documentClassificationService.classify(text, fileName);
+                    documentClassificationService.classifyFeatures(features, fileName);
                 
                 classification.setDocumentType(result.getDocumentType().name());
                 classification.setConfidence(result.getConfidence());
@@ -605,18 +909,16 @@ public class OCRService {
         
         // Fallback to simple classification if service not available or failed
         if (classification.getDocumentType() == null || classification.getConfidence() < 0.3) {
-            String lowerText = text != null ? text.toLowerCase() : "";
-            
-            if (lowerText.contains("tender") || lowerText.contains("bid") || lowerText.contains("proposal")) {
+            if (features.contains("tender") || features.contains("bid") || features.contains("proposal")) {
                 classification.setDocumentType("TENDER_DOCUMENT");
                 classification.setConfidence(0.6);
-            } else if (lowerText.contains("bank guarantee") || lowerText.contains("bg")) {
+            } else if (features.contains("bank guarantee") || features.contains("bg")) {
                 classification.setDocumentType("BANK_GUARANTEE_BG");
                 classification.setConfidence(0.6);
-            } else if (lowerText.contains("contract") || lowerText.contains("agreement")) {
+            } else if (features.contains("contract") || features.contains("agreement")) {
                 classification.setDocumentType("CONTRACT_AGREEMENT");
                 classification.setConfidence(0.6);
-            } else if (lowerText.contains("invoice") || lowerText.contains("bill")) {
+            } else if (features.contains("invoice") || features.contains("bill")) {
                 classification.setDocumentType("BILL");
                 classification.setConfidence(0.6);
             } else {
@@ -681,6 +983,45 @@ public class OCRService {
         );
     }
     
+    /**
+     * Engines used while extracting one document, for its timer tags; pooled pages
+     * complete on worker threads
+     */
+    private final class OcrRun {
+        final String mime;
+        final boolean bypassCache;
+        volatile boolean cached;
+        volatile boolean nativeUsed;
+        volatile boolean externalUsed;
+        final AtomicInteger pages = new AtomicInteger();
+        // Pages left empty because rendering or every OCR engine failed
+        final AtomicInteger failedPages = new AtomicInteger();
+
+        OcrRun(String mime, boolean bypassCache) {
+            this.mime = mime;
+            this.bypassCache = bypassCache;
+        }
+
+        void pageDone(String engine, long startNanos, boolean success) {
+            pageNanos(engine, System.nanoTime() - startNanos, success);
+        }
+
+        void pageNanos(String engine, long nanos, boolean success) {
+            pages.incrementAndGet();
+            if ("external".equals(engine)) {
+                externalUsed = true;
+            } else {
+                nativeUsed = true;
+            }
+            PipelineMetrics.recordNanos(meterRegistry, PipelineMetrics.OCR_PAGE, nanos,
+                "mime", mime, "engine", engine, "outcome", success ? "success" : "failure");
+        }
+
+        String engine() {
+            return cached ? "cache" : externalUsed ? "external" : nativeUsed ? "native" : "none";
+        }
+    }
+    
     /**
      * OCR Result class
      */
@@ -696,6 +1037,9 @@ public class OCRService {
         private Map<String, String> metadata;
         private String documentType;
         private double classificationConfidence;
+        @JsonIgnore
+        private TextFeatures textFeatures;
+        private int pagesProcessed;
         
         // Getters and setters
         public Long getDocumentId() { return documentId; }
@@ -720,6 +1064,12 @@ public class OCRService {
         public void setDocumentType(String documentType) { this.documentType = documentType; }
         public double getClassificationConfidence() { return classificationConfidence; }
         public void setClassificationConfidence(double classificationConfidence) { this.classificationConfidence = classificationConfidence; }
+        @JsonIgnore
+        public TextFeatures getTextFeatures() { return textFeatures; }
+        public void setTextFeatures(TextFeatures textFeatures) { this.textFeatures = textFeatures; }
+        /** Pages or images run through an OCR engine; 0 for text-layer and cached extractions */
+        public int getPagesProcessed() { return pagesProcessed; }
+        public void setPagesProcessed(int pagesProcessed) { this.pagesProcessed = pagesProcessed; }
     }
     
     /**
@@ -735,29 +1085,17 @@ public class OCRService {
         public void setConfidence(double confidence) { this.confidence = confidence; }
     }
     
-	private Map<String, String> getContractNumber(String extractedText) {
+	private Map<String, String> getContractNumber(TextFeatures features) {
 
-		String[] contractPatterns = { "Contract N[o0]\\.:?\\s*([A-Za-z0-9\\/\\.-]+)" };
-		
-		String[] datePatterns = { "Date\\s*:?\\s*(\\d{2}/\\d{2}/\\d{4})", "Dated\\s*:?\\s*(\\d{2}/\\d{2}/\\d{4})",
-				"Date\\s*:?\\s*(\\d{4}-\\d{2}-\\d{2})", "Dated\\s*:?\\s*(\\d{4}-\\d{2}-\\d{2})" };
-		
 		Map<String, String> contractData = new HashMap<>();
 		
-		for (String patternStr : contractPatterns) {
-			Pattern pattern = Pattern.compile(patternStr);
-			Matcher matcher = pattern.matcher(extractedText);
-			if (matcher.find()) {
-				contractData.put("contractNumber", matcher.group(1));
-				break;
-			}
-		}
+		features.find(CONTRACT_NUMBER_RULE)
+			.ifPresent(match -> contractData.put("contractNumber", match.group(1)));
 		
-		for (String patternStr : datePatterns) {
-			Pattern pattern = Pattern.compile(patternStr, Pattern.CASE_INSENSITIVE);
-			Matcher matcher = pattern.matcher(extractedText);
-			if (matcher.find()) {
-				contractData.put("contractDate", matcher.group(1));
+		for (TextRule rule : CONTRACT_DATE_RULES) {
+			Optional<MatchResult> match = features.find(rule);
+			if (match.isPresent()) {
+				contractData.put("contractDate", match.get().group(1));
 				break;
 			}
 		}
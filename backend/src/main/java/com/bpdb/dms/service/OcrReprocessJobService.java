@@ -0,0 +1,382 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.OcrReprocessJob;
+import com.bpdb.dms.entity.OcrReprocessJobStatus;
+import com.bpdb.dms.repository.DocumentRepository;
+import com.bpdb.dms.repository.OcrReprocessJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk OCR reprocessing (e.g. after a Tesseract upgrade) as a pausable, resumable job.
+ * The corpus is walked in id order with keyset pagination and the last completed id
+ * is checkpointed after every batch. Work runs on the low-priority bulkOcrExecutor
+ * with its own concurrency cap, and the job backs off while interactive uploads are
+ * being processed.
+ * <p>
+ * Stored extractions are keyed by engine version, so after a Tesseract upgrade either
+ * bump app.ocr.engine-version or start the job with bypassCache to force a fresh pass.
+ */
+@Service
+public class OcrReprocessJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OcrReprocessJobService.class);
+
+    private static final EnumSet<OcrReprocessJobStatus> ACTIVE = EnumSet.of(OcrReprocessJobStatus.RUNNING, OcrReprocessJobStatus.PAUSED);
+
+    @Autowired
+    private OcrReprocessJobRepository jobRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private FileUploadService fileUploadService;
+
+    @Autowired
+    @Qualifier("bulkOcrExecutor")
+    private ThreadPoolTaskExecutor bulkOcrExecutor;
+
+    @Value("${app.ocr.bulk.concurrency:2}")
+    private int concurrency;
+
+    @Value("${app.ocr.bulk.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.ocr.bulk.max-interactive-in-flight:0}")
+    private int maxInteractiveInFlight;
+
+    @Value("${app.ocr.bulk.yield-poll-ms:2000}")
+    private long yieldPollMs;
+
+    // The run currently executing in this instance, if any
+    private volatile RunState currentRun;
+
+    /**
+     * Jobs left RUNNING by a shutdown or crash are paused so an admin can resume them
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void pauseInterruptedJobs() {
+        for (OcrReprocessJob job : jobRepository.findByStatusIn(EnumSet.of(OcrReprocessJobStatus.RUNNING))) {
+            job.setStatus(OcrReprocessJobStatus.PAUSED);
+            job.setUpdatedAt(LocalDateTime.now());
+            jobRepository.save(job);
+            logger.info("OCR reprocess job {} was interrupted; paused at document {}", job.getId(), job.getLastDocumentId());
+        }
+    }
+
+    public synchronized OcrReprocessJob startJob(boolean onlyMissingText, boolean bypassCache, String username) {
+        List<OcrReprocessJob> active = jobRepository.findByStatusIn(ACTIVE);
+        if (!active.isEmpty()) {
+            throw new IllegalStateException("OCR reprocess job " + active.get(0).getId() + " is already " +
+                active.get(0).getStatus().getDisplayName().toLowerCase());
+        }
+
+        OcrReprocessJob job = new OcrReprocessJob();
+        job.setStatus(OcrReprocessJobStatus.RUNNING);
+        job.setOnlyMissingText(onlyMissingText);
+        job.setBypassCache(bypassCache);
+        job.setTotalDocuments(onlyMissingText ? documentRepository.countActiveWithoutText() : documentRepository.countByIsActiveTrue());
+        job.setCreatedBy(username);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setUpdatedAt(job.getCreatedAt());
+        job = jobRepository.save(job);
+
+        logger.info("Starting OCR reprocess job {} over {} documents", job.getId(), job.getTotalDocuments());
+        launch(job);
+        return job;
+    }
+
+    public synchronized OcrReprocessJob pause(Long jobId) {
+        return transition(jobId, OcrReprocessJobStatus.RUNNING, OcrReprocessJobStatus.PAUSED);
+    }
+
+    public synchronized OcrReprocessJob resume(Long jobId) {
+        if (currentRun != null) {
+            throw new IllegalStateException("OCR reprocess job " + currentRun.jobId + " is still winding down");
+        }
+        OcrReprocessJob job = transition(jobId, OcrReprocessJobStatus.PAUSED, OcrReprocessJobStatus.RUNNING);
+        logger.info("Resuming OCR reprocess job {} after document {}", job.getId(), job.getLastDocumentId());
+        launch(job);
+        return job;
+    }
+
+    public synchronized OcrReprocessJob cancel(Long jobId) {
+        OcrReprocessJob job = jobRepository.findById(jobId)
+            .orElseThrow(() -> new IllegalArgumentException("OCR reprocess job not found: " + jobId));
+        if (!ACTIVE.contains(job.getStatus())) {
+            throw new IllegalStateException("OCR reprocess job " + jobId + " is not active");
+        }
+        stopRun(jobId);
+        job.setStatus(OcrReprocessJobStatus.CANCELLED);
+        job.setUpdatedAt(LocalDateTime.now());
+        job.setCompletedAt(job.getUpdatedAt());
+        return jobRepository.save(job);
+    }
+
+    public Optional<JobProgress> getProgress(Long jobId) {
+        return jobRepository.findById(jobId).map(this::toProgress);
+    }
+
+    public Optional<JobProgress> getLatestProgress() {
+        return jobRepository.findFirstByOrderByCreatedAtDesc().map(this::toProgress);
+    }
+
+    private OcrReprocessJob transition(Long jobId, OcrReprocessJobStatus from, OcrReprocessJobStatus to) {
+        OcrReprocessJob job = jobRepository.findById(jobId)
+            .orElseThrow(() -> new IllegalArgumentException("OCR reprocess job not found: " + jobId));
+        if (job.getStatus() != from) {
+            throw new IllegalStateException("OCR reprocess job " + jobId + " is " + job.getStatus().getDisplayName().toLowerCase());
+        }
+        if (to != OcrReprocessJobStatus.RUNNING) {
+            stopRun(jobId);
+        }
+        job.setStatus(to);
+        job.setUpdatedAt(LocalDateTime.now());
+        return jobRepository.save(job);
+    }
+
+    private void stopRun(Long jobId) {
+        RunState run = currentRun;
+        if (run != null && run.jobId.equals(jobId)) {
+            run.stopRequested = true;
+        }
+    }
+
+    private void launch(OcrReprocessJob job) {
+        RunState run = new RunState(job.getId(), job.getOnlyMissingText(), job.getBypassCache(), job.getLastDocumentId());
+        currentRun = run;
+        bulkOcrExecutor.execute(() -> runJob(run));
+    }
+
+    private void runJob(RunState run) {
+        Semaphore workers = new Semaphore(concurrency);
+        try {
+            while (!run.stopRequested) {
+                PageRequest page = PageRequest.of(0, batchSize);
+                List<Long> ids = run.onlyMissingText
+                    ? documentRepository.findActiveIdsWithoutTextAfter(run.checkpoint, page)
+                    : documentRepository.findActiveIdsAfter(run.checkpoint, page);
+                if (ids.isEmpty()) {
+                    finish(run.jobId, OcrReprocessJobStatus.COMPLETED, null);
+                    logger.info("OCR reprocess job {} completed", run.jobId);
+                    return;
+                }
+
+                List<CompletableFuture<String>> batch = new ArrayList<>(ids.size());
+                for (Long documentId : ids) {
+                    waitForInteractiveIdle(run);
+                    if (run.stopRequested) {
+                        break;
+                    }
+                    workers.acquire();
+                    batch.add(CompletableFuture.supplyAsync(() -> reprocess(documentId, run.bypassCache), bulkOcrExecutor)
+                        .whenComplete((result, failure) -> workers.release()));
+                }
+
+                // Checkpoint after the submitted prefix of the batch has finished
+                long processed = 0;
+                long failed = 0;
+                String lastError = null;
+                for (CompletableFuture<String> future : batch) {
+                    String error = future.join();
+                    if (error == null) {
+                        processed++;
+                    } else {
+                        failed++;
+                        lastError = error;
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    run.checkpoint = ids.get(batch.size() - 1);
+                    run.completed.addAndGet(processed + failed);
+                    jobRepository.checkpoint(run.jobId, run.checkpoint, processed, failed, lastError, LocalDateTime.now());
+                }
+            }
+            logger.info("OCR reprocess job {} stopped at document {}", run.jobId, run.checkpoint);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(run.jobId, OcrReprocessJobStatus.PAUSED, "Interrupted");
+        } catch (Exception e) {
+            logger.error("OCR reprocess job {} failed: {}", run.jobId, e.getMessage(), e);
+            finish(run.jobId, OcrReprocessJobStatus.FAILED, e.getMessage());
+        } finally {
+            synchronized (this) {
+                if (currentRun == run) {
+                    currentRun = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reprocess one document; returns the error message, or null on success
+     */
+    private String reprocess(Long documentId, boolean bypassCache) {
+        try {
+            fileUploadService.reprocessDocumentNow(documentId, bypassCache);
+            return null;
+        } catch (Exception e) {
+            logger.warn("Bulk OCR reprocessing failed for document {}: {}", documentId, e.getMessage());
+            String message = "Document " + documentId + ": " + e.getMessage();
+            return message.length() > 1000 ? message.substring(0, 1000) : message;
+        }
+    }
+
+    private void waitForInteractiveIdle(RunState run) throws InterruptedException {
+        long waitStart = System.nanoTime();
+        boolean slept = false;
+        while (!run.stopRequested && fileUploadService.getInteractiveProcessingCount() > maxInteractiveInFlight) {
+            Thread.sleep(yieldPollMs);
+            slept = true;
+        }
+        if (slept) {
+            run.yieldedNanos.addAndGet(System.nanoTime() - waitStart);
+        }
+    }
+
+    private synchronized void finish(Long jobId, OcrReprocessJobStatus status, String error) {
+        jobRepository.findById(jobId).ifPresent(job -> {
+            if (!ACTIVE.contains(job.getStatus())) {
+                return;
+            }
+            job.setStatus(status);
+            if (error != null) {
+                job.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            }
+            job.setUpdatedAt(LocalDateTime.now());
+            if (status != OcrReprocessJobStatus.PAUSED) {
+                job.setCompletedAt(job.getUpdatedAt());
+            }
+            jobRepository.save(job);
+        });
+    }
+
+    private JobProgress toProgress(OcrReprocessJob job) {
+        JobProgress progress = new JobProgress();
+        progress.setJobId(job.getId());
+        progress.setStatus(job.getStatus());
+        progress.setOnlyMissingText(job.getOnlyMissingText());
+        progress.setBypassCache(job.getBypassCache());
+        progress.setTotalDocuments(job.getTotalDocuments());
+        progress.setProcessed(job.getProcessedCount());
+        progress.setFailed(job.getFailedCount());
+        progress.setLastDocumentId(job.getLastDocumentId());
+        progress.setLastError(job.getLastError());
+        progress.setCreatedAt(job.getCreatedAt());
+        progress.setUpdatedAt(job.getUpdatedAt());
+        progress.setCompletedAt(job.getCompletedAt());
+
+        long done = job.getProcessedCount() + job.getFailedCount();
+        long remaining = Math.max(0, job.getTotalDocuments() - done);
+        progress.setRemaining(remaining);
+        progress.setPercentComplete(job.getTotalDocuments() > 0 ? Math.min(100.0, done * 100.0 / job.getTotalDocuments()) : 100.0);
+
+        // Throughput and ETA are measured over the current run of this instance
+        RunState run = currentRun;
+        if (run != null && run.jobId.equals(job.getId()) && job.getStatus() == OcrReprocessJobStatus.RUNNING) {
+            double elapsedMinutes = Duration.ofNanos(System.nanoTime() - run.startedNanos).toMillis() / 60_000.0;
+            double perMinute = elapsedMinutes > 0 ? run.completed.get() / elapsedMinutes : 0.0;
+            progress.setDocumentsPerMinute(perMinute);
+            progress.setYieldedSeconds(Duration.ofNanos(run.yieldedNanos.get()).toSeconds());
+            if (perMinute > 0) {
+                progress.setEtaSeconds((long) (remaining / perMinute * 60));
+            }
+        }
+        return progress;
+    }
+
+    private static final class RunState {
+        final Long jobId;
+        final boolean onlyMissingText;
+        final boolean bypassCache;
+        final long startedNanos = System.nanoTime();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong yieldedNanos = new AtomicLong();
+        volatile long checkpoint;
+        volatile boolean stopRequested;
+
+        RunState(Long jobId, Boolean onlyMissingText, Boolean bypassCache, Long checkpoint) {
+            this.jobId = jobId;
+            this.onlyMissingText = Boolean.TRUE.equals(onlyMissingText);
+            this.bypassCache = Boolean.TRUE.equals(bypassCache);
+            this.checkpoint = checkpoint != null ? checkpoint : 0L;
+        }
+    }
+
+    /**
+     * Progress snapshot of a reprocessing job
+     */
+    public static class JobProgress {
+        private Long jobId;
+        private OcrReprocessJobStatus status;
+        private Boolean onlyMissingText;
+        private Boolean bypassCache;
+        private long totalDocuments;
+        private long processed;
+        private long failed;
+        private long remaining;
+        private double percentComplete;
+        private Double documentsPerMinute;
+        private Long etaSeconds;
+        private Long yieldedSeconds;
+        private Long lastDocumentId;
+        private String lastError;
+        private LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
+        private LocalDateTime completedAt;
+
+        public Long getJobId() { return jobId; }
+        public void setJobId(Long jobId) { this.jobId = jobId; }
+        public OcrReprocessJobStatus getStatus() { return status; }
+        public void setStatus(OcrReprocessJobStatus status) { this.status = status; }
+        public Boolean getOnlyMissingText() { return onlyMissingText; }
+        public void setOnlyMissingText(Boolean onlyMissingText) { this.onlyMissingText = onlyMissingText; }
+        public Boolean getBypassCache() { return bypassCache; }
+        public void setBypassCache(Boolean bypassCache) { this.bypassCache = bypassCache; }
+        public long getTotalDocuments() { return totalDocuments; }
+        public void setTotalDocuments(long totalDocuments) { this.totalDocuments = totalDocuments; }
+        public long getProcessed() { return processed; }
+        public void setProcessed(long processed) { this.processed = processed; }
+        public long getFailed() { return failed; }
+        public void setFailed(long failed) { this.failed = failed; }
+        public long getRemaining() { return remaining; }
+        public void setRemaining(long remaining) { this.remaining = remaining; }
+        public double getPercentComplete() { return percentComplete; }
+        public void setPercentComplete(double percentComplete) { this.percentComplete = percentComplete; }
+        public Double getDocumentsPerMinute() { return documentsPerMinute; }
+        public void setDocumentsPerMinute(Double documentsPerMinute) { this.documentsPerMinute = documentsPerMinute; }
+        public Long getEtaSeconds() { return etaSeconds; }
+        public void setEtaSeconds(Long etaSeconds) { this.etaSeconds = etaSeconds; }
+        public Long getYieldedSeconds() { return yieldedSeconds; }
+        public void setYieldedSeconds(Long yieldedSeconds) { this.yieldedSeconds = yieldedSeconds; }
+        public Long getLastDocumentId() { return lastDocumentId; }
+        public void setLastDocumentId(Long lastDocumentId) { this.lastDocumentId = lastDocumentId; }
+        public String getLastError() { return lastError; }
+        public void setLastError(String lastError) { this.lastError = lastError; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+        public LocalDateTime getUpdatedAt() { return updatedAt; }
+        public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+        public LocalDateTime getCompletedAt() { return completedAt; }
+        public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+    }
+}
@@ -1,29 +1,41 @@
 package com.bpdb.dms.service;
 
 import com.bpdb.dms.entity.ReportType;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.properties.UnitValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
 
 /**
- * Service for generating PDF reports
+ * Service for generating PDF reports.
+ * Documents are written with iText in immediate-flush mode and tables are
+ * built as large tables, so finished pages go to disk while rows are still
+ * being added instead of the whole document being held in memory.
  */
 @Service
 public class PdfReportService {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(PdfReportService.class);
-    
+
     @Value("${app.reports.directory:/app/reports}")
     private String reportsDirectory;
-    
+
+    @Value("${app.reports.pdf.flush-interval-rows:50}")
+    private int flushIntervalRows = 50;
+
     /**
      * Generate PDF report
      */
@@ -31,290 +43,103 @@ public class PdfReportService {
         try {
             String fileName = generateFileName(reportType);
             String filePath = reportsDirectory + "/" + fileName;
-            
+
             // Create reports directory if it doesn't exist
             File directory = new File(reportsDirectory);
             if (!directory.exists()) {
                 directory.mkdirs();
             }
-            
-            // Generate PDF content
-            byte[] pdfContent = generatePdfContent(reportType, parameters);
-            
-            // Write to file
-            try (FileOutputStream fos = new FileOutputStream(filePath)) {
-                fos.write(pdfContent);
+
+            try (Document document = openDocument(filePath)) {
+                document.add(new Paragraph("DMS Report - " + reportType.getDisplayName()).setBold().setFontSize(16));
+                document.add(new Paragraph("Generated on: " + now()));
+                document.add(new Paragraph(ReportRows.sectionTitle(reportType)).setBold());
+
+                Table table = new Table(UnitValue.createPercentArray(new float[]{60, 40}), true);
+                table.setWidth(UnitValue.createPercentValue(100));
+                table.addHeaderCell("Metric");
+                table.addHeaderCell("Value");
+                document.add(table);
+
+                int[] rowCount = {0};
+                ReportRows.forEach(reportType, parameters, (label, value) -> {
+                    table.addCell(label);
+                    table.addCell(String.valueOf(value));
+                    if (++rowCount[0] % flushIntervalRows == 0) {
+                        table.flush();
+                    }
+                });
+                table.complete();
             }
-            
+
             logger.info("PDF report generated: {}", filePath);
             return filePath;
-            
+
         } catch (Exception e) {
             logger.error("Failed to generate PDF report: {}", e.getMessage());
             return null;
         }
     }
-    
-    /**
-     * Generate PDF content based on report type
-     */
-    private byte[] generatePdfContent(ReportType reportType, Map<String, Object> parameters) {
-        try {
-            // This is a simplified implementation
-            // In production, use a proper PDF library like iText or Apache PDFBox
-            
-            StringBuilder content = new StringBuilder();
-            content.append("%PDF-1.4\n");
-            content.append("1 0 obj\n");
-            content.append("<<\n");
-            content.append("/Type /Catalog\n");
-            content.append("/Pages 2 0 R\n");
-            content.append(">>\n");
-            content.append("endobj\n");
-            
-            // Add report-specific content
-            content.append(generateReportContent(reportType, parameters));
-            
-            content.append("xref\n");
-            content.append("0 3\n");
-            content.append("0000000000 65535 f \n");
-            content.append("0000000009 00000 n \n");
-            content.append("0000000058 00000 n \n");
-            content.append("trailer\n");
-            content.append("<<\n");
-            content.append("/Size 3\n");
-            content.append("/Root 1 0 R\n");
-            content.append(">>\n");
-            content.append("startxref\n");
-            content.append("100\n");
-            content.append("%%EOF\n");
-            
-            return content.toString().getBytes();
-            
-        } catch (Exception e) {
-            logger.error("Failed to generate PDF content: {}", e.getMessage());
-            return new byte[0];
-        }
-    }
-    
-    /**
-     * Generate report-specific content
-     */
-    private String generateReportContent(ReportType reportType, Map<String, Object> parameters) {
-        StringBuilder content = new StringBuilder();
-        
-        // Add header
-        content.append("2 0 obj\n");
-        content.append("<<\n");
-        content.append("/Type /Pages\n");
-        content.append("/Kids [3 0 R]\n");
-        content.append("/Count 1\n");
-        content.append(">>\n");
-        content.append("endobj\n");
-        
-        // Add page content
-        content.append("3 0 obj\n");
-        content.append("<<\n");
-        content.append("/Type /Page\n");
-        content.append("/Parent 2 0 R\n");
-        content.append("/MediaBox [0 0 612 792]\n");
-        content.append("/Contents 4 0 R\n");
-        content.append(">>\n");
-        content.append("endobj\n");
-        
-        // Add text content
-        content.append("4 0 obj\n");
-        content.append("<<\n");
-        content.append("/Length ").append(getReportText(reportType, parameters).length()).append("\n");
-        content.append(">>\n");
-        content.append("stream\n");
-        content.append("BT\n");
-        content.append("/F1 12 Tf\n");
-        content.append("72 720 Td\n");
-        content.append("(").append(getReportText(reportType, parameters)).append(") Tj\n");
-        content.append("ET\n");
-        content.append("endstream\n");
-        content.append("endobj\n");
-        
-        return content.toString();
-    }
-    
-    /**
-     * Get report text content
-     */
-    private String getReportText(ReportType reportType, Map<String, Object> parameters) {
-        StringBuilder text = new StringBuilder();
-        
-        text.append("DMS Report - ").append(reportType.getDisplayName()).append("\n");
-        text.append("Generated on: ").append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))).append("\n\n");
-        
-        switch (reportType) {
-            case DOCUMENT_SUMMARY:
-                text.append("Document Summary Report\n");
-                text.append("Total Documents: ").append(parameters.getOrDefault("totalDocuments", "N/A")).append("\n");
-                text.append("Active Documents: ").append(parameters.getOrDefault("activeDocuments", "N/A")).append("\n");
-                text.append("Recent Uploads (30 days): ").append(parameters.getOrDefault("recentUploads", "N/A")).append("\n");
-                break;
-                
-            case USER_ACTIVITY:
-                text.append("User Activity Report\n");
-                text.append("Total Users: ").append(parameters.getOrDefault("totalUsers", "N/A")).append("\n");
-                text.append("Active Users: ").append(parameters.getOrDefault("activeUsers", "N/A")).append("\n");
-                text.append("Recent Logins (30 days): ").append(parameters.getOrDefault("recentLogins", "N/A")).append("\n");
-                break;
-                
-            case EXPIRY_REPORT:
-                text.append("Expiry Report\n");
-                text.append("Active Tracking: ").append(parameters.getOrDefault("activeTracking", "N/A")).append("\n");
-                text.append("Expired Documents: ").append(parameters.getOrDefault("expiredDocuments", "N/A")).append("\n");
-                text.append("Expiring in 30 days: ").append(parameters.getOrDefault("expiringIn30Days", "N/A")).append("\n");
-                text.append("Expiring in 7 days: ").append(parameters.getOrDefault("expiringIn7Days", "N/A")).append("\n");
-                break;
-                
-            case SYSTEM_PERFORMANCE:
-                text.append("System Performance Report\n");
-                text.append("Estimated Storage: ").append(parameters.getOrDefault("estimatedStorageMB", "N/A")).append(" MB\n");
-                text.append("Uptime: ").append(parameters.getOrDefault("uptimeHours", "N/A")).append(" hours\n");
-                text.append("Average Response Time: ").append(parameters.getOrDefault("averageResponseTimeMs", "N/A")).append(" ms\n");
-                text.append("Error Rate: ").append(parameters.getOrDefault("errorRate", "N/A")).append("\n");
-                break;
-                
-            default:
-                text.append("Custom Report\n");
-                text.append("Parameters: ").append(parameters.toString()).append("\n");
-                break;
-        }
-        
-        return text.toString();
-    }
-    
-    /**
-     * Generate file name for report
-     */
-    private String generateFileName(ReportType reportType) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        return reportType.name().toLowerCase() + "_" + timestamp + ".pdf";
-    }
-    
+
     /**
      * Generate executive summary PDF
      */
     public String generateExecutiveSummary(Map<String, Object> data) {
         try {
-            String fileName = "executive_summary_" + 
+            String fileName = "executive_summary_" +
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".pdf";
             String filePath = reportsDirectory + "/" + fileName;
-            
+
             // Create reports directory if it doesn't exist
             File directory = new File(reportsDirectory);
             if (!directory.exists()) {
                 directory.mkdirs();
             }
-            
-            // Generate executive summary content
-            byte[] pdfContent = generateExecutiveSummaryContent(data);
-            
-            // Write to file
-            try (FileOutputStream fos = new FileOutputStream(filePath)) {
-                fos.write(pdfContent);
+
+            try (Document document = openDocument(filePath)) {
+                document.add(new Paragraph("EXECUTIVE SUMMARY").setBold().setFontSize(16));
+                document.add(new Paragraph("Document Management System"));
+                document.add(new Paragraph("Generated on: " + now()));
+
+                document.add(new Paragraph("KEY METRICS:").setBold());
+                document.add(new Paragraph("Total Documents: " + data.getOrDefault("totalDocuments", "N/A")));
+                document.add(new Paragraph("Total Users: " + data.getOrDefault("totalUsers", "N/A")));
+                document.add(new Paragraph("Active Tracking: " + data.getOrDefault("activeTracking", "N/A")));
+                document.add(new Paragraph("System Uptime: " + data.getOrDefault("uptimeHours", "N/A") + " hours"));
+
+                document.add(new Paragraph("RECOMMENDATIONS:").setBold());
+                document.add(new Paragraph("1. Monitor document expiry alerts regularly"));
+                document.add(new Paragraph("2. Review user activity patterns"));
+                document.add(new Paragraph("3. Optimize storage utilization"));
+                document.add(new Paragraph("4. Ensure compliance with retention policies"));
             }
-            
+
             logger.info("Executive summary PDF generated: {}", filePath);
             return filePath;
-            
+
         } catch (Exception e) {
             logger.error("Failed to generate executive summary PDF: {}", e.getMessage());
             return null;
         }
     }
-    
+
     /**
-     * Generate executive summary content
+     * Open a PDF document that flushes each page to disk as soon as it is laid out
      */
-    private byte[] generateExecutiveSummaryContent(Map<String, Object> data) {
-        StringBuilder content = new StringBuilder();
-        
-        content.append("%PDF-1.4\n");
-        content.append("1 0 obj\n");
-        content.append("<<\n");
-        content.append("/Type /Catalog\n");
-        content.append("/Pages 2 0 R\n");
-        content.append(">>\n");
-        content.append("endobj\n");
-        
-        // Add executive summary specific content
-        content.append("2 0 obj\n");
-        content.append("<<\n");
-        content.append("/Type /Pages\n");
-        content.append("/Kids [3 0 R]\n");
-        content.append("/Count 1\n");
-        content.append(">>\n");
-        content.append("endobj\n");
-        
-        content.append("3 0 obj\n");
-        content.append("<<\n");
-        content.append("/Type /Page\n");
-        content.append("/Parent 2 0 R\n");
-        content.append("/MediaBox [0 0 612 792]\n");
-        content.append("/Contents 4 0 R\n");
-        content.append(">>\n");
-        content.append("endobj\n");
-        
-        String summaryText = generateExecutiveSummaryText(data);
-        content.append("4 0 obj\n");
-        content.append("<<\n");
-        content.append("/Length ").append(summaryText.length()).append("\n");
-        content.append(">>\n");
-        content.append("stream\n");
-        content.append("BT\n");
-        content.append("/F1 12 Tf\n");
-        content.append("72 720 Td\n");
-        content.append("(").append(summaryText).append(") Tj\n");
-        content.append("ET\n");
-        content.append("endstream\n");
-        content.append("endobj\n");
-        
-        content.append("xref\n");
-        content.append("0 5\n");
-        content.append("0000000000 65535 f \n");
-        content.append("0000000009 00000 n \n");
-        content.append("0000000058 00000 n \n");
-        content.append("0000000120 00000 n \n");
-        content.append("0000000200 00000 n \n");
-        content.append("trailer\n");
-        content.append("<<\n");
-        content.append("/Size 5\n");
-        content.append("/Root 1 0 R\n");
-        content.append(">>\n");
-        content.append("startxref\n");
-        content.append("300\n");
-        content.append("%%EOF\n");
-        
-        return content.toString().getBytes();
+    private Document openDocument(String filePath) throws IOException {
+        PdfDocument pdf = new PdfDocument(new PdfWriter(filePath));
+        return new Document(pdf, PageSize.A4, true);
+    }
+
+    private String now() {
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
     }
-    
+
     /**
-     * Generate executive summary text
+     * Generate file name for report
      */
-    private String generateExecutiveSummaryText(Map<String, Object> data) {
-        StringBuilder text = new StringBuilder();
-        
-        text.append("EXECUTIVE SUMMARY\n");
-        text.append("Document Management System\n");
-        text.append("Generated on: ").append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))).append("\n\n");
-        
-        text.append("KEY METRICS:\n");
-        text.append("Total Documents: ").append(data.getOrDefault("totalDocuments", "N/A")).append("\n");
-        text.append("Total Users: ").append(data.getOrDefault("totalUsers", "N/A")).append("\n");
-        text.append("Active Tracking: ").append(data.getOrDefault("activeTracking", "N/A")).append("\n");
-        text.append("System Uptime: ").append(data.getOrDefault("uptimeHours", "N/A")).append(" hours\n\n");
-        
-        text.append("RECOMMENDATIONS:\n");
-        text.append("1. Monitor document expiry alerts regularly\n");
-        text.append("2. Review user activity patterns\n");
-        text.append("3. Optimize storage utilization\n");
-        text.append("4. Ensure compliance with retention policies\n");
-        
-        return text.toString();
+    private String generateFileName(ReportType reportType) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS"));
+        return reportType.name().toLowerCase() + "_" + timestamp + ".pdf";
     }
 }
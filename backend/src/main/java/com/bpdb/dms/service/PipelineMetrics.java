@@ -0,0 +1,101 @@
+package com.bpdb.dms.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the ingestion pipeline (upload, OCR, metadata extraction, indexing) and of
+ * search, shared by the services on that path. Timers publish histogram buckets so
+ * dashboards can compute quantiles across instances. Every method accepts a null
+ * registry, for services constructed outside Spring.
+ */
+final class PipelineMetrics {
+
+    static final String UPLOAD = "dms.pipeline.upload";
+    static final String PROCESS = "dms.pipeline.process";
+    static final String OCR_DOCUMENT = "dms.ocr.document";
+    static final String OCR_PAGE = "dms.ocr.page";
+    static final String PDF_RENDER = "dms.ocr.pdf.render";
+    static final String METADATA_EXTRACTION = "dms.metadata.extraction";
+    static final String METADATA_REGEX = "dms.metadata.regex";
+    static final String INDEX = "dms.index.write";
+    static final String SEARCH = "dms.search";
+    static final String BYTES = "dms.pipeline.bytes";
+
+    private static final Map<String, String> DESCRIPTIONS = Map.of(
+        UPLOAD, "Upload request handling, including synchronous ingestion",
+        PROCESS, "OCR, metadata extraction and indexing of one document",
+        OCR_DOCUMENT, "Text extraction of one document",
+        OCR_PAGE, "OCR of one page or image",
+        PDF_RENDER, "Rendering of one PDF page for OCR",
+        METADATA_EXTRACTION, "Pattern-based metadata extraction of one document",
+        METADATA_REGEX, "Evaluation of one field pattern in the database",
+        INDEX, "Elasticsearch index writes",
+        SEARCH, "Search and suggestion queries"
+    );
+
+    // MIME types we accept for upload; anything else is tagged "other" to bound cardinality
+    private static final Set<String> KNOWN_MIME_TYPES = Set.of(
+        "application/pdf",
+        "application/msword",
+        "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+        "application/vnd.ms-excel",
+        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+        "image/jpeg",
+        "image/png",
+        "image/tiff",
+        "text/plain"
+    );
+
+    private PipelineMetrics() {
+    }
+
+    /**
+     * Record the time since startNanos (from System.nanoTime()) on the named timer
+     */
+    static void record(MeterRegistry registry, String name, long startNanos, String... tags) {
+        if (registry != null) {
+            timer(registry, name, tags).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    static void recordNanos(MeterRegistry registry, String name, long nanos, String... tags) {
+        if (registry != null) {
+            timer(registry, name, tags).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Bytes (or, for indexing, characters of text) that went through a stage
+     */
+    static void countBytes(MeterRegistry registry, String stage, String mime, long bytes) {
+        if (registry != null && bytes > 0) {
+            registry.counter(BYTES, "stage", stage, "mime", mime).increment(bytes);
+        }
+    }
+
+    static String mimeTag(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return "unknown";
+        }
+        int params = contentType.indexOf(';');
+        String mime = (params >= 0 ? contentType.substring(0, params) : contentType).trim().toLowerCase(Locale.ROOT);
+        return KNOWN_MIME_TYPES.contains(mime) ? mime : "other";
+    }
+
+    private static Timer timer(MeterRegistry registry, String name, String... tags) {
+        return Timer.builder(name)
+            .description(DESCRIPTIONS.get(name))
+            .tags(tags)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofMinutes(10))
+            .register(registry);
+    }
+}
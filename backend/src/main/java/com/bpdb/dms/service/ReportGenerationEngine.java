@@ -0,0 +1,179 @@
+package com.bpdb.dms.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated worker pool for report generation.
+ * Runs report writers on their own bounded, priority-ordered executor so they never
+ * compete with OCR and webhooks on the shared taskExecutor, and collapses identical
+ * in-flight requests (same result key) onto a single generation.
+ */
+@Service
+public class ReportGenerationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportGenerationEngine.class);
+
+    /**
+     * Queue priority. Lower rank runs first; ties run in submission order.
+     */
+    public enum Priority {
+        INTERACTIVE(0),
+        SCHEDULED(10);
+
+        private final int rank;
+
+        Priority(int rank) {
+            this.rank = rank;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    // One permit per queued job, taken before execute and returned when the job starts,
+    // so the capacity check and the enqueue cannot race
+    private final Semaphore queueSlots;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ReportGenerationEngine(@Value("${app.reports.engine.pool-size:2}") int poolSize,
+                                  @Value("${app.reports.engine.queue-capacity:50}") int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        this.queueSlots = new Semaphore(Math.max(queueCapacity, 1));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<>(Math.max(queueCapacity, 1)),
+            r -> {
+                Thread t = new Thread(r, "report-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+        logger.info("Report generation engine configured: poolSize={}, queueCapacity={}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Submit a report for generation. If a generation with the same result key is already
+     * queued or running, the caller shares its future instead of starting a second one.
+     *
+     * @param resultKey hash identifying the report content
+     * @param priority  queue priority
+     * @param generator writes the report and returns its file path (null on failure)
+     * @return future completing with the generated file path
+     */
+    public CompletableFuture<String> submit(String resultKey, Priority priority, Supplier<String> generator) {
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(resultKey, created);
+        if (existing != null) {
+            deduplicated.incrementAndGet();
+            logger.debug("Report {} already in flight, sharing result", resultKey);
+            return existing;
+        }
+
+        if (!queueSlots.tryAcquire()) {
+            rejected.incrementAndGet();
+            inFlight.remove(resultKey, created);
+            created.completeExceptionally(new RejectedExecutionException("Report queue is full"));
+            return created;
+        }
+
+        submitted.incrementAndGet();
+        try {
+            executor.execute(new Job(priority, sequence.incrementAndGet(), () -> {
+                queueSlots.release();
+                try {
+                    created.complete(generator.get());
+                } catch (Throwable t) {
+                    created.completeExceptionally(t);
+                } finally {
+                    inFlight.remove(resultKey, created);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            queueSlots.release();
+            rejected.incrementAndGet();
+            inFlight.remove(resultKey, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    /**
+     * Current engine statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("poolSize", executor.getPoolSize());
+        stats.put("activeCount", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("inFlight", inFlight.size());
+        stats.put("submitted", submitted.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("rejected", rejected.get());
+        stats.put("completed", executor.getCompletedTaskCount());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue entry ordered by priority, then submission order
+     */
+    private static final class Job implements Runnable, Comparable<Job> {
+        private final Priority priority;
+        private final long sequence;
+        private final Runnable task;
+
+        Job(Priority priority, long sequence, Runnable task) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int byPriority = Integer.compare(priority.getRank(), other.priority.getRank());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.ReportType;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Label/value rows shared by the streaming report writers.
+ * Rows are pushed to the writer one at a time so no writer has to hold
+ * the whole report body in memory.
+ */
+final class ReportRows {
+
+    private ReportRows() {
+    }
+
+    /**
+     * Section heading for a report type
+     */
+    static String sectionTitle(ReportType reportType) {
+        switch (reportType) {
+            case DOCUMENT_SUMMARY:
+                return "Document Summary";
+            case USER_ACTIVITY:
+                return "User Activity Summary";
+            case EXPIRY_REPORT:
+                return "Expiry Report";
+            case SYSTEM_PERFORMANCE:
+                return "System Performance Report";
+            default:
+                return "Custom Report";
+        }
+    }
+
+    /**
+     * Emit the report rows for a report type
+     */
+    static void forEach(ReportType reportType, Map<String, Object> data, BiConsumer<String, Object> sink) {
+        switch (reportType) {
+            case DOCUMENT_SUMMARY:
+                sink.accept("Total Documents", value(data, "totalDocuments"));
+                sink.accept("Active Documents", value(data, "activeDocuments"));
+                sink.accept("Recent Uploads (30 days)", value(data, "recentUploads"));
+                break;
+            case USER_ACTIVITY:
+                sink.accept("Total Users", value(data, "totalUsers"));
+                sink.accept("Active Users", value(data, "activeUsers"));
+                sink.accept("Recent Logins (30 days)", value(data, "recentLogins"));
+                break;
+            case EXPIRY_REPORT:
+                sink.accept("Active Tracking", value(data, "activeTracking"));
+                sink.accept("Expired Documents", value(data, "expiredDocuments"));
+                sink.accept("Expiring in 30 days", value(data, "expiringIn30Days"));
+                sink.accept("Expiring in 7 days", value(data, "expiringIn7Days"));
+                break;
+            case SYSTEM_PERFORMANCE:
+                sink.accept("Estimated Storage (MB)", value(data, "estimatedStorageMB"));
+                sink.accept("Uptime (hours)", value(data, "uptimeHours"));
+                sink.accept("Average Response Time (ms)", value(data, "averageResponseTimeMs"));
+                sink.accept("Error Rate", value(data, "errorRate"));
+                break;
+            default:
+                for (Map.Entry<String, Object> entry : data.entrySet()) {
+                    sink.accept(entry.getKey(), entry.getValue());
+                }
+                break;
+        }
+    }
+
+    private static Object value(Map<String, Object> data, String key) {
+        return data.getOrDefault(key, "N/A");
+    }
+}
@@ -5,14 +5,25 @@ import com.bpdb.dms.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -24,12 +35,18 @@ import java.util.concurrent.CompletableFuture;
 public class ReportingService {
     
     private static final Logger logger = LoggerFactory.getLogger(ReportingService.class);
+
+    @Value("${app.scheduler.jobs.report-cleanup.enabled:false}")
+    private boolean reportCleanupEnabled;
     
     @Autowired
     public ReportRepository reportRepository;
     
     @Autowired
     private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private AnalyticsIngestionBuffer analyticsIngestionBuffer;
     
     @Autowired
     private DashboardRepository dashboardRepository;
@@ -61,6 +78,9 @@ public class ReportingService {
     @Autowired
     public WordReportService wordReportService;
     
+    @Autowired
+    private ReportGenerationEngine reportGenerationEngine;
+    
     /**
      * Create a new report
      */
@@ -96,64 +116,150 @@ public class ReportingService {
     }
     
     /**
-     * Generate report asynchronously
+     * Generate report asynchronously on the report generation engine.
+     * Identical reports (same type, format, parameters and data watermark) share one
+     * generated file: a completed match is reused directly, and an in-flight match is joined.
      */
-    @Async
     public CompletableFuture<Void> generateReportAsync(Report report) {
+        return generateReportAsync(report, ReportGenerationEngine.Priority.INTERACTIVE);
+    }
+    
+    private CompletableFuture<Void> generateReportAsync(Report report, ReportGenerationEngine.Priority priority) {
         try {
+            Map<String, Object> parameters = convertStringToParameters(report.getParameters());
+            String resultKey = computeResultKey(report.getType(), report.getFormat(), report.getParameters());
+            report.setResultKey(resultKey);
+            
+            Report reusable = findReusableReport(resultKey);
+            if (reusable != null) {
+                completeReport(report, reusable.getFilePath());
+                logger.info("Report {} reused generated file {}", report.getName(), reusable.getFilePath());
+                return CompletableFuture.completedFuture(null);
+            }
+            
             report.setStatus(ReportStatus.GENERATING);
             reportRepository.save(report);
             
-            // Generate report based on type and format
-            String filePath = generateReportFile(report);
-            
-            if (filePath != null) {
-                report.setFilePath(filePath);
-                report.setGeneratedAt(LocalDateTime.now());
-                report.setStatus(ReportStatus.COMPLETED);
-                
-                // Calculate file size (simplified)
-                report.setFileSize(1024L); // Placeholder
-                
-                reportRepository.save(report);
-                
-                logger.info("Report generated successfully: {}", report.getName());
-            } else {
-                report.setStatus(ReportStatus.FAILED);
-                reportRepository.save(report);
-                
-                logger.error("Failed to generate report: {}", report.getName());
-            }
+            // Submit only once the report row is committed, so the worker never sees an uncommitted report
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            runAfterCommit(() -> reportGenerationEngine
+                .submit(resultKey, priority, () -> generateReportFile(report.getType(), report.getFormat(), parameters))
+                .handle((filePath, error) -> {
+                    if (error == null && filePath != null) {
+                        completeReport(report, filePath);
+                        logger.info("Report generated successfully: {}", report.getName());
+                    } else {
+                        report.setStatus(ReportStatus.FAILED);
+                        reportRepository.save(report);
+                        logger.error("Failed to generate report {}: {}", report.getName(),
+                            error != null ? error.getMessage() : "no output");
+                    }
+                    return null;
+                })
+                .whenComplete((ignored, error) -> done.complete(null)));
+            return done;
             
         } catch (Exception e) {
             logger.error("Failed to generate report {}: {}", report.getName(), e.getMessage());
             report.setStatus(ReportStatus.FAILED);
             reportRepository.save(report);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+    
+    /**
+     * Run an action after the current transaction commits, or immediately when there is none
+     */
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    /**
+     * Mark a report completed against a generated file
+     */
+    private void completeReport(Report report, String filePath) {
+        report.setFilePath(filePath);
+        report.setGeneratedAt(LocalDateTime.now());
+        report.setStatus(ReportStatus.COMPLETED);
+        try {
+            report.setFileSize(Files.size(Paths.get(filePath)));
+        } catch (IOException e) {
+            report.setFileSize(null);
+        }
+        reportRepository.save(report);
+    }
+    
+    /**
+     * Find a completed report with the same result key whose file still exists
+     */
+    private Report findReusableReport(String resultKey) {
+        List<Report> candidates = reportRepository.findReusableByResultKey(resultKey, LocalDateTime.now(), PageRequest.of(0, 1));
+        if (candidates.isEmpty() || !Files.exists(Paths.get(candidates.get(0).getFilePath()))) {
+            return null;
+        }
+        return candidates.get(0);
+    }
+    
+    /**
+     * Hash of (type, format, parameters, data watermark) identifying the content of a report
+     */
+    private String computeResultKey(ReportType type, ReportFormat format, String parametersJson) {
+        try {
+            String material = type.name() + "|" + format.name() + "|" + (parametersJson != null ? parametersJson : "")
+                + "|" + computeDataWatermark(type);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(material.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Cheap marker of the data a report type reads; changes whenever that data changes
+     */
+    private String computeDataWatermark(ReportType type) {
+        switch (type) {
+            case USER_ACTIVITY:
+                return userRepository.count() + ":" + auditLogRepository.count();
+            case EXPIRY_REPORT:
+                return expiryTrackingRepository.count() + ":" + LocalDate.now();
+            case SYSTEM_PERFORMANCE:
+                return documentRepository.count() + ":" + LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+            default:
+                return documentRepository.count() + ":" + documentRepository.findLatestUpdatedAt();
         }
-        
-        return CompletableFuture.completedFuture(null);
     }
     
     /**
      * Generate report file based on type and format
      */
-    private String generateReportFile(Report report) {
+    private String generateReportFile(ReportType type, ReportFormat format, Map<String, Object> parameters) {
         try {
-            Map<String, Object> parameters = convertStringToParameters(report.getParameters());
+            Map<String, Object> content = new HashMap<>(parameters);
+            content.putAll(getReportData(type, parameters));
             
-            switch (report.getFormat()) {
+            switch (format) {
                 case PDF:
-                    return pdfReportService.generateReport(report.getType(), parameters);
+                    return pdfReportService.generateReport(type, content);
                 case EXCEL:
-                    return excelReportService.generateReport(report.getType(), parameters);
+                    return excelReportService.generateReport(type, content);
                 case WORD:
-                    return wordReportService.generateReport(report.getType(), parameters);
+                    return wordReportService.generateReport(type, content);
                 case CSV:
-                    return generateCsvReport(report.getType(), parameters);
+                    return generateCsvReport(type, content);
                 case JSON:
-                    return generateJsonReport(report.getType(), parameters);
+                    return generateJsonReport(type, content);
                 case HTML:
-                    return generateHtmlReport(report.getType(), parameters);
+                    return generateHtmlReport(type, content);
                 default:
                     return null;
             }
@@ -163,6 +269,24 @@ public class ReportingService {
         }
     }
     
+    /**
+     * Collect the data rendered by a report type
+     */
+    private Map<String, Object> getReportData(ReportType type, Map<String, Object> parameters) {
+        switch (type) {
+            case DOCUMENT_SUMMARY:
+                return getDocumentSummaryData(parameters);
+            case USER_ACTIVITY:
+                return getUserActivityData(parameters);
+            case EXPIRY_REPORT:
+                return getExpiryReportData(parameters);
+            case SYSTEM_PERFORMANCE:
+                return getSystemPerformanceData(parameters);
+            default:
+                return Collections.emptyMap();
+        }
+    }
+    
     /**
      * Get document summary report data
      */
@@ -323,8 +447,9 @@ public class ReportingService {
     public void recordAnalytics(MetricType metricType, String metricName, Double metricValue, 
                                String dimensionKey, String dimensionValue) {
         try {
-            Analytics analytics = new Analytics(metricType, metricName, metricValue, dimensionKey, dimensionValue);
-            analyticsRepository.save(analytics);
+            // Buffered and summed per metric and dimension until the next flush
+            analyticsIngestionBuffer.increment(metricType, metricName, metricValue != null ? metricValue : 0.0,
+                dimensionKey, dimensionValue);
             
             logger.debug("Analytics recorded: {} = {} for {} = {}", metricName, metricValue, dimensionKey, dimensionValue);
             
@@ -366,13 +491,13 @@ public class ReportingService {
             List<Report> scheduledReports = reportRepository.findScheduledForGeneration(LocalDateTime.now());
             
             for (Report report : scheduledReports) {
-                generateReportAsync(report);
-                
                 // Update next generation time
                 report.setLastGeneratedAt(LocalDateTime.now());
                 // TODO: Calculate next generation time based on cron expression
                 report.setNextGenerationAt(LocalDateTime.now().plusHours(24));
                 reportRepository.save(report);
+                
+                generateReportAsync(report, ReportGenerationEngine.Priority.SCHEDULED);
             }
             
             if (!scheduledReports.isEmpty()) {
@@ -389,11 +514,23 @@ public class ReportingService {
      */
     @Scheduled(cron = "0 0 3 * * ?") // Run daily at 3 AM
     public void cleanupOldData() {
+        if (!reportCleanupEnabled) {
+            logger.debug("Report cleanup disabled, skipping scheduled run");
+            return;
+        }
         try {
             LocalDateTime cutoffDate = LocalDateTime.now().minusDays(90);
             
-            // Clean up old reports
+            // Clean up old reports, then the files no remaining report shares
+            List<String> filePaths = reportRepository.findFilePathsOfOldReports(cutoffDate);
             reportRepository.deleteOldReports(cutoffDate);
+            int deletedFiles = 0;
+            for (String filePath : filePaths) {
+                if (!reportRepository.existsByFilePath(filePath) && Files.deleteIfExists(Paths.get(filePath))) {
+                    deletedFiles++;
+                }
+            }
+            logger.info("Deleted {} report files no longer referenced", deletedFiles);
             
             // Clean up old analytics
             analyticsRepository.deleteOldAnalytics(cutoffDate);
@@ -437,7 +574,8 @@ public class ReportingService {
             // Simple JSON conversion - in production, use a proper JSON library
             StringBuilder json = new StringBuilder("{");
             boolean first = true;
-            for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            // Sorted keys so equal parameter maps always serialize identically
+            for (Map.Entry<String, Object> entry : new TreeMap<>(parameters).entrySet()) {
                 if (!first) json.append(",");
                 json.append("\"").append(entry.getKey()).append("\":\"").append(entry.getValue()).append("\"");
                 first = false;
@@ -0,0 +1,229 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.SchedulerLease;
+import com.bpdb.dms.repository.SchedulerLeaseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lease-based coordination of scheduled jobs across nodes, backed by the
+ * scheduler_leases table. A node runs a job only after it moved the job's lease to
+ * itself with a conditional UPDATE, which bumps the fencing token; it releases the
+ * lease with an UPDATE conditioned on that token, so a node that overran its lease
+ * finds out instead of overwriting its successor. All times come from the database
+ * clock, so node clock skew does not matter.
+ */
+@Service
+public class SchedulerLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulerLeaseService.class);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO scheduler_leases (job_name, fencing_token, lease_until, run_count) VALUES (?, 0, ?, 0)";
+
+    private static final String ACQUIRE_SQL =
+        "UPDATE scheduler_leases SET owner = ?, fencing_token = fencing_token + 1, acquired_at = ?, lease_until = ? " +
+        "WHERE job_name = ? AND lease_until <= ?";
+
+    private static final String TOKEN_SQL =
+        "SELECT fencing_token FROM scheduler_leases WHERE job_name = ? AND owner = ?";
+
+    private static final String RELEASE_SQL =
+        "UPDATE scheduler_leases SET lease_until = ?, last_completed_at = ?, last_duration_ms = ?, last_status = ?, " +
+        "last_error = ?, run_count = run_count + 1 WHERE job_name = ? AND owner = ? AND fencing_token = ?";
+
+    private static final ThreadLocal<Lease> CURRENT = new ThreadLocal<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchedulerLeaseRepository schedulerLeaseRepository;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.scheduler.node-id:}")
+    private String nodeId;
+
+    /** Jobs whose lease row is known to exist */
+    private final Set<String> knownJobs = ConcurrentHashMap.newKeySet();
+
+    /** Leases held by runs in progress on this node */
+    private final Map<String, Lease> running = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void initNodeId() {
+        if (nodeId == null || nodeId.isBlank()) {
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                host = "unknown";
+            }
+            nodeId = host + "-" + ProcessHandle.current().pid();
+        }
+        logger.info("Scheduler node id: {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Lease of the scheduled job running on the current thread, for jobs that want to
+     * pass the fencing token along with their writes
+     */
+    public static Optional<Lease> currentLease() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Run the job if this node gets its lease; returns false when another node holds it.
+     * The lease is held for at least holdAtLeast from the start of the run and at most ttl.
+     */
+    public boolean runExclusively(String jobName, Duration ttl, Duration holdAtLeast, Runnable job) {
+        Optional<Lease> acquired = tryAcquire(jobName, ttl);
+        if (acquired.isEmpty()) {
+            count(jobName, "skipped");
+            return false;
+        }
+        Lease lease = acquired.get();
+        long start = System.nanoTime();
+        String status = "SUCCEEDED";
+        String error = null;
+        CURRENT.set(lease);
+        running.put(jobName, lease);
+        try {
+            job.run();
+            return true;
+        } catch (RuntimeException | Error e) {
+            status = "FAILED";
+            error = String.valueOf(e.getMessage());
+            throw e;
+        } finally {
+            CURRENT.remove();
+            running.remove(jobName);
+            long durationMs = (System.nanoTime() - start) / 1_000_000;
+            if (release(lease, holdAtLeast, status, error, durationMs)) {
+                count(jobName, status.toLowerCase());
+            } else {
+                count(jobName, "lost");
+                logger.warn("Job {} ran for {} ms and lost its lease (token {}) to another node; its work may overlap",
+                    jobName, durationMs, lease.fencingToken());
+            }
+        }
+    }
+
+    Optional<Lease> tryAcquire(String jobName, Duration ttl) {
+        try {
+            ensureLeaseRow(jobName);
+            LocalDateTime now = databaseNow();
+            int updated = jdbcTemplate.update(ACQUIRE_SQL, nodeId, Timestamp.valueOf(now),
+                Timestamp.valueOf(now.plus(ttl)), jobName, Timestamp.valueOf(now));
+            if (updated == 0) {
+                return Optional.empty();
+            }
+            Long token = jdbcTemplate.queryForObject(TOKEN_SQL, Long.class, jobName, nodeId);
+            return Optional.of(new Lease(jobName, nodeId, token, now));
+        } catch (DataAccessException e) {
+            // Without the lease table nobody can tell who runs the job; skipping is safer than running everywhere
+            logger.warn("Could not acquire lease for job {}: {}", jobName, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    boolean release(Lease lease, Duration holdAtLeast, String status, String error, long durationMs) {
+        try {
+            LocalDateTime now = databaseNow();
+            LocalDateTime holdUntil = lease.acquiredAt().plus(holdAtLeast);
+            LocalDateTime until = holdUntil.isAfter(now) ? holdUntil : now;
+            String truncatedError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+            return jdbcTemplate.update(RELEASE_SQL, Timestamp.valueOf(until), Timestamp.valueOf(now), durationMs,
+                status, truncatedError, lease.jobName(), lease.owner(), lease.fencingToken()) == 1;
+        } catch (DataAccessException e) {
+            // The lease simply expires at its ttl
+            logger.warn("Could not release lease for job {}: {}", lease.jobName(), e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Every job's lease: who holds it, until when, and how its last run went
+     */
+    public Map<String, Object> getLeaseOverview() {
+        LocalDateTime now = databaseNow();
+        List<Map<String, Object>> jobs = new ArrayList<>();
+        for (SchedulerLease lease : schedulerLeaseRepository.findAllByOrderByJobNameAsc()) {
+            Map<String, Object> job = new LinkedHashMap<>();
+            job.put("jobName", lease.getJobName());
+            job.put("owner", lease.getOwner());
+            job.put("held", lease.getOwner() != null && lease.getLeaseUntil().isAfter(now));
+            job.put("runningHere", running.containsKey(lease.getJobName()));
+            job.put("fencingToken", lease.getFencingToken());
+            job.put("leaseUntil", lease.getLeaseUntil());
+            job.put("acquiredAt", lease.getAcquiredAt());
+            job.put("lastCompletedAt", lease.getLastCompletedAt());
+            job.put("lastDurationMs", lease.getLastDurationMs());
+            job.put("lastStatus", lease.getLastStatus());
+            job.put("lastError", lease.getLastError());
+            job.put("runCount", lease.getRunCount());
+            jobs.add(job);
+        }
+        Map<String, Object> overview = new LinkedHashMap<>();
+        overview.put("nodeId", nodeId);
+        overview.put("databaseTime", now);
+        overview.put("jobs", jobs);
+        return overview;
+    }
+
+    private void ensureLeaseRow(String jobName) {
+        if (knownJobs.contains(jobName)) {
+            return;
+        }
+        Integer rows = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM scheduler_leases WHERE job_name = ?", Integer.class, jobName);
+        if (rows == null || rows == 0) {
+            try {
+                // Expired from the start, so the first node to get here acquires it
+                jdbcTemplate.update(INSERT_SQL, jobName, Timestamp.valueOf(databaseNow().minusSeconds(1)));
+            } catch (DuplicateKeyException e) {
+                // Another node inserted it first
+            }
+        }
+        knownJobs.add(jobName);
+    }
+
+    private LocalDateTime databaseNow() {
+        return jdbcTemplate.queryForObject("SELECT LOCALTIMESTAMP", Timestamp.class).toLocalDateTime();
+    }
+
+    private void count(String jobName, String result) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("dms.scheduler.runs", "job", jobName, "result", result).increment();
+        }
+    }
+
+    public record Lease(String jobName, String owner, long fencingToken, LocalDateTime acquiredAt) {
+    }
+}
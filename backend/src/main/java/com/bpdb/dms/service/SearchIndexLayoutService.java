@@ -0,0 +1,483 @@
+package com.bpdb.dms.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
+import co.elastic.clients.elasticsearch.core.ReindexResponse;
+import co.elastic.clients.elasticsearch.indices.AliasDefinition;
+import co.elastic.clients.elasticsearch.indices.get_alias.IndexAliases;
+import co.elastic.clients.json.JsonData;
+import com.bpdb.dms.config.ScheduledJobLease;
+import com.bpdb.dms.entity.DocumentIndex;
+import com.bpdb.dms.entity.Tenant;
+import com.bpdb.dms.repository.TenantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.Settings;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tenant-aware layout of the document search indices. Small tenants share one index and
+ * are routed to a single shard by tenant id; large or noisy tenants get an index of their
+ * own. Every tenant is read and written through its alias, so moving a tenant is an alias
+ * swap that callers never see:
+ * <ul>
+ *   <li>{@code documents} - alias of the shared index; documents without a tenant are written to it directly</li>
+ *   <li>{@code documents-tenant-<id>} - a filtered alias routed by tenant id on the shared index,
+ *       or a plain alias on the tenant's dedicated index</li>
+ *   <li>{@code documents-all} - every document index, for cross-tenant reads</li>
+ * </ul>
+ * Indices are named after the version of the explicit mapping ({@code documents-shared-v2},
+ * {@code documents-tenant-<id>-v2}); a mapping change is rolled out by reindexing each
+ * index into its next version and moving the aliases over.
+ */
+@Service
+public class SearchIndexLayoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexLayoutService.class);
+
+    static final String SHARED_INDEX = "documents";
+    static final String SHARED_INDEX_PREFIX = "documents-shared-";
+    static final String ALL_ALIAS = "documents-all";
+    static final String TENANT_ALIAS_PREFIX = "documents-tenant-";
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private ElasticsearchClient elasticsearchClient;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private DocumentTypeFieldService documentTypeFieldService;
+
+    @Value("${app.search.layout.dedicated-min-documents:250000}")
+    private long dedicatedMinDocuments;
+
+    @Value("${app.search.layout.dedicated-tenants:}")
+    private Set<Long> pinnedTenants = Set.of();
+
+    @Value("${app.search.layout.dedicated-shards:1}")
+    private int dedicatedShards;
+
+    // Keys each copy by its document id and fills the typed metadata fields of the configured
+    // keys, trimming values and normalizing numbers as DocumentIndexingService.typedMetadata does
+    private static final String COPY_SCRIPT =
+        "if (ctx._source.documentId != null) { ctx._id = String.valueOf(ctx._source.documentId); }" +
+        "if (ctx._source.metadata != null && ctx._source.documentType != null) {" +
+        "  def keys = params.fields[ctx._source.documentType];" +
+        "  if (keys != null) {" +
+        "    def typed = new HashMap();" +
+        "    for (def key : keys.keySet()) {" +
+        "      def value = ctx._source.metadata[key];" +
+        "      if (value == null) { continue; }" +
+        "      String text = value.toString().trim();" +
+        "      if (text.isEmpty()) { continue; }" +
+        "      if (keys[key] == 'number') {" +
+        "        StringBuilder digits = new StringBuilder();" +
+        "        for (int i = 0; i < text.length(); i++) {" +
+        "          char c = text.charAt(i);" +
+        "          if ((c >= (char) '0' && c <= (char) '9') || c == (char) '.' || c == (char) '-') { digits.append(c); }" +
+        "        }" +
+        "        if (digits.length() > 0) { text = digits.toString(); }" +
+        "      }" +
+        "      typed[key] = text;" +
+        "    }" +
+        "    ctx._source.metadataFields = typed.isEmpty() ? null : typed;" +
+        "  }" +
+        "}";
+
+    // Tenants whose alias is known to exist; the alias never goes away, only its target changes
+    private final Set<Long> knownAliases = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean sharedIndexReady;
+
+    /**
+     * Create the shared index on a fresh cluster and put it behind its aliases. Indices on an
+     * older mapping keep serving until migrateMappings runs (nightly, or from the admin API).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureSharedIndex() {
+        try {
+            if (!elasticsearchClient.indices().exists(e -> e.index(SHARED_INDEX)).value()) {
+                // The name is fixed per mapping version, so a node racing to create it fails here
+                String index = SHARED_INDEX_PREFIX + "v" + currentMappingVersion();
+                createIndex(index, null);
+                elasticsearchClient.indices().updateAliases(u -> u
+                    .actions(a -> a.add(ad -> ad.index(index).alias(SHARED_INDEX)))
+                    .actions(a -> a.add(ad -> ad.index(index).alias(ALL_ALIAS))));
+                logger.info("Created shared search index {}", index);
+            } else if (!elasticsearchClient.indices().existsAlias(e -> e.name(ALL_ALIAS)).value()) {
+                String index = sharedConcreteIndex();
+                elasticsearchClient.indices().updateAliases(u -> u
+                    .actions(a -> a.add(ad -> ad.index(index).alias(ALL_ALIAS))));
+            }
+            List<String> outdated = outdatedIndices();
+            if (!outdated.isEmpty()) {
+                logger.warn("Search indices {} use an older mapping than version {}; they are migrated by the nightly layout job",
+                    outdated, currentMappingVersion());
+            }
+            sharedIndexReady = true;
+        } catch (Exception e) {
+            logger.warn("Could not prepare search index layout: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Index or alias that a document of the tenant is written to
+     */
+    public String writeIndex(Long tenantId) {
+        if (!sharedIndexReady) {
+            // Elasticsearch was unavailable at startup
+            ensureSharedIndex();
+        }
+        if (tenantId == null) {
+            return SHARED_INDEX;
+        }
+        ensureTenantAlias(tenantId);
+        return tenantAlias(tenantId);
+    }
+
+    /**
+     * Index or alias searched for the tenant; null searches across all tenants
+     */
+    public String readIndex(Long tenantId) {
+        if (tenantId != null) {
+            return writeIndex(tenantId);
+        }
+        if (!sharedIndexReady) {
+            ensureSharedIndex();
+        }
+        return ALL_ALIAS;
+    }
+
+    static String tenantAlias(Long tenantId) {
+        return TENANT_ALIAS_PREFIX + tenantId;
+    }
+
+    /**
+     * Whether a concrete index is the shared one; "documents" itself is the shared index
+     * of clusters that predate the versioned layout
+     */
+    static boolean isSharedIndex(String index) {
+        return SHARED_INDEX.equals(index) || index.startsWith(SHARED_INDEX_PREFIX);
+    }
+
+    /**
+     * Version in the _meta block of a mapping; mappings without one predate the explicit mapping
+     */
+    static int mappingVersion(Map<String, ?> meta) {
+        Object version = meta != null ? meta.get("version") : null;
+        if (version instanceof JsonData json) {
+            return json.to(Integer.class);
+        }
+        return version instanceof Number number ? number.intValue() : 1;
+    }
+
+    /**
+     * Whether a tenant belongs in an index of its own: pinned by configuration
+     * (e.g. a noisy tenant) or grown past the document threshold
+     */
+    static boolean needsDedicatedIndex(Tenant tenant, long minDocuments, Set<Long> pinned) {
+        if (pinned.contains(tenant.getId())) {
+            return true;
+        }
+        return minDocuments > 0 && tenant.getCurrentDocuments() != null && tenant.getCurrentDocuments() >= minDocuments;
+    }
+
+    /**
+     * Migrate indices on an older mapping, then move tenants that outgrew the shared index,
+     * or were pinned, to dedicated indices
+     */
+    @Scheduled(cron = "${app.search.layout.rebalance-cron:0 45 3 * * ?}")
+    @ScheduledJobLease(ttl = "PT3H")
+    public void rebalanceLayout() {
+        Set<Long> dedicated;
+        try {
+            migrateMappings();
+            dedicated = dedicatedTenants();
+        } catch (Exception e) {
+            logger.warn("Search layout rebalance skipped: {}", e.getMessage());
+            return;
+        }
+        for (Tenant tenant : tenantRepository.findAll()) {
+            if (!dedicated.contains(tenant.getId()) && needsDedicatedIndex(tenant, dedicatedMinDocuments, pinnedTenants)) {
+                try {
+                    isolateTenant(tenant.getId());
+                } catch (Exception e) {
+                    logger.error("Failed to move tenant {} to a dedicated index: {}", tenant.getTenantCode(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Move a tenant from the shared index to a dedicated one: copy its documents, copy what
+     * was written meanwhile, swap its alias, copy what was written during the catch-up and
+     * drop its documents from the shared index. Copies keep each document's version, so the
+     * last pass never overwrites a write that already reached the dedicated index through
+     * the alias. Searches keep working throughout; a document deleted during the copy may survive it.
+     */
+    public synchronized Map<String, Object> isolateTenant(Long tenantId) throws IOException {
+        String alias = tenantAlias(tenantId);
+        ensureTenantAlias(tenantId);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("tenantId", tenantId);
+        report.put("alias", alias);
+
+        String shared = elasticsearchClient.indices().getAlias(g -> g.name(alias)).result().keySet().stream()
+            .filter(SearchIndexLayoutService::isSharedIndex)
+            .findFirst().orElse(null);
+        if (shared == null) {
+            report.put("skipped", "Tenant already has a dedicated index");
+            return report;
+        }
+
+        String target = alias + "-v" + currentMappingVersion();
+        createIndex(target, dedicatedShards);
+        long copyStarted = System.currentTimeMillis();
+        // Routing is discarded because a dedicated index spreads the tenant over all of its shards
+        ReindexResponse copied = copy(shared, tenantQuery(tenantId), target, "discard", null);
+        long catchUpStarted = System.currentTimeMillis();
+        ReindexResponse caughtUp = copy(shared, tenantQuery(tenantId), target, "discard", copyStarted);
+
+        elasticsearchClient.indices().updateAliases(u -> u
+            .actions(a -> a.remove(r -> r.index(shared).alias(alias)))
+            .actions(a -> a.add(ad -> ad.index(target).alias(alias)))
+            .actions(a -> a.add(ad -> ad.index(target).alias(ALL_ALIAS))));
+
+        ReindexResponse caughtUpAfterSwap = copy(shared, tenantQuery(tenantId), target, "discard", catchUpStarted);
+        DeleteByQueryResponse removed = elasticsearchClient.deleteByQuery(d -> d
+            .index(shared)
+            .routing(tenantId.toString())
+            .query(tenantQuery(tenantId))
+            .conflicts(Conflicts.Proceed));
+
+        report.put("index", target);
+        report.put("copied", copied.total());
+        report.put("caughtUp", caughtUp.total());
+        report.put("caughtUpAfterSwap", caughtUpAfterSwap.total());
+        report.put("removedFromShared", removed.deleted());
+        logger.info("Moved tenant {} to dedicated search index {}: {}", tenantId, target, report);
+        return report;
+    }
+
+    /**
+     * Reindex every document index whose mapping is older than the entity's into a new index
+     * on the current mapping and move its aliases there. Writes to an index are blocked for
+     * the final catch-up copy and the alias swap; reads continue throughout.
+     */
+    public synchronized List<Map<String, Object>> migrateMappings() throws IOException {
+        List<Map<String, Object>> reports = new ArrayList<>();
+        for (String index : outdatedIndices()) {
+            reports.add(migrateIndex(index));
+        }
+        return reports;
+    }
+
+    private Map<String, Object> migrateIndex(String index) throws IOException {
+        Map<String, AliasDefinition> aliases = elasticsearchClient.indices().getAlias(g -> g.index(index))
+            .result().get(index).aliases();
+        boolean shared = isSharedIndex(index);
+        String base = shared ? SHARED_INDEX_PREFIX : aliases.keySet().stream()
+            .filter(name -> name.startsWith(TENANT_ALIAS_PREFIX))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("Index " + index + " has no tenant alias")) + "-";
+        String target = base + "v" + currentMappingVersion();
+
+        createIndex(target, shared ? null : dedicatedShards);
+        long copyStarted = System.currentTimeMillis();
+        Query all = Query.of(q -> q.matchAll(m -> m));
+        try {
+            ReindexResponse copied = copy(index, all, target, "keep", null);
+            setWriteBlock(index, true);
+            ReindexResponse caughtUp = copy(index, all, target, "keep", copyStarted);
+
+            // One atomic request: the aliases move and the old index goes, which also frees
+            // the name "documents" when the old index is a pre-alias shared index
+            elasticsearchClient.indices().updateAliases(u -> {
+                if (SHARED_INDEX.equals(index)) {
+                    u.actions(a -> a.add(ad -> ad.index(target).alias(SHARED_INDEX)));
+                }
+                aliases.forEach((name, definition) -> u.actions(a -> a.add(ad -> ad
+                    .index(target)
+                    .alias(name)
+                    .filter(definition.filter())
+                    .indexRouting(definition.indexRouting())
+                    .searchRouting(definition.searchRouting()))));
+                return u.actions(a -> a.removeIndex(r -> r.index(index)));
+            });
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("from", index);
+            report.put("to", target);
+            report.put("aliases", aliases.keySet());
+            report.put("copied", copied.total());
+            report.put("caughtUp", caughtUp.total());
+            logger.info("Migrated search index {} to {}: {}", index, target, report);
+            return report;
+        } catch (IOException | RuntimeException e) {
+            setWriteBlock(index, false);
+            elasticsearchClient.indices().delete(d -> d.index(target));
+            throw e;
+        }
+    }
+
+    /**
+     * Where each tenant's documents live, and which tenants are due for a dedicated index
+     */
+    public Map<String, Object> getLayoutOverview() throws IOException {
+        Map<String, String> tenantIndices = new TreeMap<>();
+        for (Map.Entry<String, IndexAliases> entry : tenantAliases().entrySet()) {
+            for (String alias : entry.getValue().aliases().keySet()) {
+                tenantIndices.put(alias, entry.getKey());
+            }
+        }
+        Set<Long> dedicated = dedicatedTenants();
+        List<Long> due = new ArrayList<>();
+        for (Tenant tenant : tenantRepository.findAll()) {
+            if (!dedicated.contains(tenant.getId()) && needsDedicatedIndex(tenant, dedicatedMinDocuments, pinnedTenants)) {
+                due.add(tenant.getId());
+            }
+        }
+        Map<String, Object> overview = new LinkedHashMap<>();
+        overview.put("sharedIndex", sharedConcreteIndex());
+        overview.put("mappingVersion", currentMappingVersion());
+        overview.put("outdatedIndices", outdatedIndices());
+        overview.put("tenantAliases", tenantIndices);
+        overview.put("dedicatedTenants", dedicated);
+        overview.put("dueForDedicatedIndex", due);
+        overview.put("dedicatedMinDocuments", dedicatedMinDocuments);
+        return overview;
+    }
+
+    private void ensureTenantAlias(Long tenantId) {
+        if (knownAliases.contains(tenantId)) {
+            return;
+        }
+        String alias = tenantAlias(tenantId);
+        try {
+            if (!elasticsearchClient.indices().existsAlias(e -> e.name(alias)).value()) {
+                // Adding the same alias twice is harmless, so racing nodes need no coordination
+                String shared = sharedConcreteIndex();
+                elasticsearchClient.indices().updateAliases(u -> u
+                    .actions(a -> a.add(ad -> ad
+                        .index(shared)
+                        .alias(alias)
+                        .routing(tenantId.toString())
+                        .filter(tenantQuery(tenantId)))));
+                logger.info("Created search alias {} on the shared index", alias);
+            }
+            knownAliases.add(tenantId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot prepare search alias " + alias, e);
+        }
+    }
+
+    private Set<Long> dedicatedTenants() throws IOException {
+        Set<Long> dedicated = new HashSet<>();
+        for (Map.Entry<String, IndexAliases> entry : tenantAliases().entrySet()) {
+            if (isSharedIndex(entry.getKey())) {
+                continue;
+            }
+            for (String alias : entry.getValue().aliases().keySet()) {
+                dedicated.add(Long.valueOf(alias.substring(TENANT_ALIAS_PREFIX.length())));
+            }
+        }
+        return dedicated;
+    }
+
+    private Map<String, IndexAliases> tenantAliases() throws IOException {
+        return elasticsearchClient.indices().getAlias(g -> g.name(TENANT_ALIAS_PREFIX + "*")).result();
+    }
+
+    /**
+     * Copy matching documents between indices, optionally only those indexed since a time,
+     * filling the typed metadata fields on the way. Versions are carried over as external
+     * versions, so a document already newer in the target is left alone.
+     */
+    private ReindexResponse copy(String source, Query query, String target, String routing, Long indexedSince)
+            throws IOException {
+        Query selected = indexedSince == null
+            ? query
+            : Query.of(q -> q.bool(b -> b
+                .filter(query)
+                .filter(f -> f.range(r -> r.field("indexedAt").gte(JsonData.of(indexedSince))))));
+        Map<String, JsonData> params = Map.of("fields", JsonData.of(documentTypeFieldService.getActiveFieldTypesByDocumentType()));
+        return elasticsearchClient.reindex(r -> r
+            .source(s -> s.index(source).query(selected))
+            .dest(d -> d.index(target).routing(routing).versionType(VersionType.External))
+            .script(sc -> sc.inline(i -> i.lang("painless").source(COPY_SCRIPT).params(params)))
+            .conflicts(Conflicts.Proceed)
+            .refresh(true));
+    }
+
+    private void setWriteBlock(String index, boolean blocked) throws IOException {
+        elasticsearchClient.indices().putSettings(p -> p
+            .index(index)
+            .settings(st -> st.blocks(b -> b.write(blocked))));
+    }
+
+    /**
+     * The concrete index behind the shared alias, or "documents" itself on a pre-alias cluster
+     */
+    private String sharedConcreteIndex() throws IOException {
+        if (!elasticsearchClient.indices().existsAlias(e -> e.name(SHARED_INDEX)).value()) {
+            return SHARED_INDEX;
+        }
+        return elasticsearchClient.indices().getAlias(g -> g.name(SHARED_INDEX)).result().keySet().iterator().next();
+    }
+
+    private List<String> outdatedIndices() throws IOException {
+        int current = currentMappingVersion();
+        List<String> outdated = new ArrayList<>();
+        for (String index : elasticsearchClient.indices().getAlias(g -> g.name(ALL_ALIAS)).result().keySet()) {
+            Map<String, JsonData> meta = elasticsearchClient.indices().getMapping(g -> g.index(index))
+                .result().get(index).mappings().meta();
+            if (mappingVersion(meta) < current) {
+                outdated.add(index);
+            }
+        }
+        return outdated;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int currentMappingVersion() {
+        Object meta = elasticsearchOperations.indexOps(DocumentIndex.class).createMapping().get("_meta");
+        return mappingVersion(meta instanceof Map ? (Map<String, ?>) meta : null);
+    }
+
+    private static Query tenantQuery(Long tenantId) {
+        return Query.of(q -> q.term(t -> t.field("tenantId").value(tenantId)));
+    }
+
+    /**
+     * Create an index with the settings and mapping of {@link DocumentIndex}
+     */
+    private void createIndex(String name, Integer shards) {
+        IndexOperations entityOps = elasticsearchOperations.indexOps(DocumentIndex.class);
+        Settings settings = entityOps.createSettings();
+        if (shards != null) {
+            settings = settings.flatten();
+            settings.put("index.number_of_shards", String.valueOf(shards));
+        }
+        elasticsearchOperations.indexOps(IndexCoordinates.of(name)).create(settings, entityOps.createMapping());
+    }
+}
@@ -2,6 +2,8 @@ package com.bpdb.dms.service;
 
 import com.bpdb.dms.entity.*;
 import com.bpdb.dms.repository.SystemHealthCheckRepository;
+import com.bpdb.dms.service.HealthProbeEngine.ProbeResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,12 +12,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 /**
  * Service for system health monitoring
@@ -35,6 +37,11 @@ public class SystemHealthMonitoringService {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private HealthProbeEngine healthProbeEngine;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
     /**
      * Create a new health check
      */
@@ -68,7 +75,7 @@ public class SystemHealthMonitoringService {
     /**
      * Execute health check
      */
-    @Async
+    @Async("ioExecutor")
     public CompletableFuture<SystemHealthCheck> executeHealthCheck(Long checkId) {
         try {
             SystemHealthCheck healthCheck = systemHealthCheckRepository.findById(checkId)
@@ -76,33 +83,9 @@ public class SystemHealthMonitoringService {
             
             logger.info("Executing health check: {}", healthCheck.getCheckName());
             
-            long startTime = System.currentTimeMillis();
-            
-            // Perform the actual health check based on type
-            HealthCheckResult result = performHealthCheck(healthCheck);
-            
-            long endTime = System.currentTimeMillis();
-            long responseTime = endTime - startTime;
-            
-            // Update health check with results
-            healthCheck.setStatus(result.getStatus());
-            healthCheck.setResponseTimeMs(responseTime);
-            healthCheck.setActualValue(result.getActualValue());
-            healthCheck.setErrorMessage(result.getErrorMessage());
-            healthCheck.setCheckData(result.getCheckData());
-            healthCheck.setExecutedAt(LocalDateTime.now());
-            healthCheck.setNextCheckAt(LocalDateTime.now().plusSeconds(healthCheck.getCheckIntervalSeconds()));
-            
-            // Determine severity based on status and threshold
-            healthCheck.setSeverity(determineSeverity(healthCheck));
-            
-            // Reset retry count on success
-            if (result.getStatus() == HealthStatus.HEALTHY) {
-                healthCheck.setRetryCount(0);
-            } else {
-                healthCheck.setRetryCount(healthCheck.getRetryCount() + 1);
-            }
-            
+            // Manual runs always persist the result
+            ProbeResult result = healthProbeEngine.run(List.of(healthCheck)).get(0);
+            applyResult(healthCheck, result);
             SystemHealthCheck savedCheck = systemHealthCheckRepository.save(healthCheck);
             
             // Send notification if critical
@@ -111,7 +94,7 @@ public class SystemHealthMonitoringService {
             }
             
             logger.info("Health check completed: {} - Status: {} - Response time: {}ms", 
-                healthCheck.getCheckName(), healthCheck.getStatus(), responseTime);
+                healthCheck.getCheckName(), healthCheck.getStatus(), result.responseTimeMs());
             
             return CompletableFuture.completedFuture(savedCheck);
             
@@ -122,16 +105,16 @@ public class SystemHealthMonitoringService {
     }
     
     /**
-     * Execute all due health checks
+     * Execute all due health checks in parallel. Runs outside a transaction so no
+     * connection is held while probes wait; only status changes are written.
      */
     @Scheduled(fixedDelay = 60000) // Run every minute
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void executeDueHealthChecks() {
         try {
-            List<SystemHealthCheck> dueChecks = systemHealthCheckRepository.findHealthChecksDueForExecution(LocalDateTime.now());
-            
-            for (SystemHealthCheck check : dueChecks) {
-                executeHealthCheck(check.getId());
-            }
+            List<SystemHealthCheck> dueChecks = healthProbeEngine.due(
+                systemHealthCheckRepository.findByIsEnabledTrue(), LocalDateTime.now());
+            runAndPersistTransitions(dueChecks);
             
         } catch (Exception e) {
             logger.error("Failed to execute due health checks: {}", e.getMessage());
@@ -142,19 +125,86 @@ public class SystemHealthMonitoringService {
      * Retry failed health checks
      */
     @Scheduled(fixedDelay = 300000) // Run every 5 minutes
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void retryFailedHealthChecks() {
         try {
-            List<SystemHealthCheck> failedChecks = systemHealthCheckRepository.findFailedHealthChecks();
-            
-            for (SystemHealthCheck check : failedChecks) {
-                executeHealthCheck(check.getId());
-            }
+            runAndPersistTransitions(systemHealthCheckRepository.findFailedHealthChecks());
             
         } catch (Exception e) {
             logger.error("Failed to retry failed health checks: {}", e.getMessage());
         }
     }
     
+    private void runAndPersistTransitions(List<SystemHealthCheck> checks) {
+        if (checks.isEmpty()) {
+            return;
+        }
+        List<ProbeResult> results = healthProbeEngine.run(checks);
+        int transitions = 0;
+        for (int i = 0; i < checks.size(); i++) {
+            SystemHealthCheck check = checks.get(i);
+            ProbeResult result = results.get(i);
+            HealthStatus previous = check.getStatus();
+            Integer previousRetries = check.getRetryCount();
+            applyResult(check, result);
+            boolean transition = previous != result.status();
+            // The retry count is persisted too, or failed checks would be retried forever
+            if (!transition && Objects.equals(previousRetries, check.getRetryCount())) {
+                continue;
+            }
+            systemHealthCheckRepository.save(check);
+            if (!transition) {
+                continue;
+            }
+            transitions++;
+            logger.info("Health check {} changed from {} to {}: {}",
+                check.getCheckName(), previous, result.status(), result.message());
+            if ("CRITICAL".equals(check.getSeverity())) {
+                sendCriticalHealthAlert(check);
+            }
+        }
+        logger.debug("Ran {} health checks, {} status changes", checks.size(), transitions);
+    }
+    
+    private void applyResult(SystemHealthCheck healthCheck, ProbeResult result) {
+        healthCheck.setStatus(result.status());
+        healthCheck.setResponseTimeMs(result.responseTimeMs());
+        healthCheck.setActualValue(result.value());
+        healthCheck.setErrorMessage(result.status() == HealthStatus.HEALTHY ? null : result.message());
+        healthCheck.setCheckData(toJson(result));
+        healthCheck.setExecutedAt(result.executedAt());
+        healthCheck.setNextCheckAt(result.executedAt().plusSeconds(
+            healthCheck.getCheckIntervalSeconds() != null ? healthCheck.getCheckIntervalSeconds() : 300));
+        healthCheck.setSeverity(determineSeverity(healthCheck));
+        
+        // Reset retry count on success; it stops at maxRetries so a check that stays
+        // unhealthy is not rewritten on every run
+        int retries = healthCheck.getRetryCount() != null ? healthCheck.getRetryCount() : 0;
+        if (result.status() == HealthStatus.HEALTHY) {
+            healthCheck.setRetryCount(0);
+        } else if (healthCheck.getMaxRetries() == null || retries < healthCheck.getMaxRetries()) {
+            healthCheck.setRetryCount(retries + 1);
+        }
+    }
+    
+    private String toJson(ProbeResult result) {
+        try {
+            Map<String, Object> data = new LinkedHashMap<>(result.data());
+            data.put("message", result.message());
+            String json = objectMapper.writeValueAsString(data);
+            return json.length() > 2000 ? json.substring(0, 2000) : json;
+        } catch (Exception e) {
+            return result.message();
+        }
+    }
+    
+    /**
+     * Latest probe results kept in memory, newest first, optionally for one check
+     */
+    public List<ProbeResult> getRecentHealthResults(Long checkId, int limit) {
+        return healthProbeEngine.recentResults(checkId, limit);
+    }
+    
     /**
      * Get system health overview
      */
@@ -187,6 +237,8 @@ public class SystemHealthMonitoringService {
             Map<String, Object> serviceHealth = getServiceHealth(latestChecks);
             overview.put("serviceHealth", serviceHealth);
             
+            overview.put("recentResults", healthProbeEngine.recentResults(null, 20));
+            
             return overview;
             
         } catch (Exception e) {
@@ -234,283 +286,6 @@ public class SystemHealthMonitoringService {
             .collect(java.util.stream.Collectors.toList());
     }
     
-    /**
-     * Perform the actual health check
-     */
-    private HealthCheckResult performHealthCheck(SystemHealthCheck healthCheck) {
-        try {
-            switch (healthCheck.getCheckType()) {
-                case DATABASE_CONNECTION:
-                    return checkDatabaseConnection(healthCheck);
-                case REDIS_CONNECTION:
-                    return checkRedisConnection(healthCheck);
-                case ELASTICSEARCH_CONNECTION:
-                    return checkElasticsearchConnection(healthCheck);
-                case FILE_SYSTEM:
-                    return checkFileSystem(healthCheck);
-                case MEMORY_USAGE:
-                    return checkMemoryUsage(healthCheck);
-                case CPU_USAGE:
-                    return checkCpuUsage(healthCheck);
-                case DISK_SPACE:
-                    return checkDiskSpace(healthCheck);
-                case NETWORK_CONNECTIVITY:
-                    return checkNetworkConnectivity(healthCheck);
-                case API_RESPONSE_TIME:
-                    return checkApiResponseTime(healthCheck);
-                case SERVICE_AVAILABILITY:
-                    return checkServiceAvailability(healthCheck);
-                default:
-                    return checkGenericHealth(healthCheck);
-            }
-            
-        } catch (Exception e) {
-            logger.error("Health check failed: {}", e.getMessage());
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
-    /**
-     * Check database connection
-     */
-    private HealthCheckResult checkDatabaseConnection(SystemHealthCheck healthCheck) {
-        try {
-            // Simulate database connection check
-            Thread.sleep(100);
-            
-            // In production, this would actually test database connectivity
-            boolean isConnected = true; // Simulated result
-            
-            if (isConnected) {
-                return new HealthCheckResult(HealthStatus.HEALTHY, 1.0, null, "Database connection successful");
-            } else {
-                return new HealthCheckResult(HealthStatus.CRITICAL, 0.0, "Database connection failed", null);
-            }
-            
-        } catch (Exception e) {
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
-    /**
-     * Check Redis connection
-     */
-    private HealthCheckResult checkRedisConnection(SystemHealthCheck healthCheck) {
-        try {
-            // Simulate Redis connection check
-            Thread.sleep(50);
-            
-            boolean isConnected = true; // Simulated result
-            
-            if (isConnected) {
-                return new HealthCheckResult(HealthStatus.HEALTHY, 1.0, null, "Redis connection successful");
-            } else {
-                return new HealthCheckResult(HealthStatus.CRITICAL, 0.0, "Redis connection failed", null);
-            }
-            
-        } catch (Exception e) {
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
-    /**
-     * Check Elasticsearch connection
-     */
-    private HealthCheckResult checkElasticsearchConnection(SystemHealthCheck healthCheck) {
-        try {
-            // Simulate Elasticsearch connection check
-            Thread.sleep(75);
-            
-            boolean isConnected = true; // Simulated result
-            
-            if (isConnected) {
-                return new HealthCheckResult(HealthStatus.HEALTHY, 1.0, null, "Elasticsearch connection successful");
-            } else {
-                return new HealthCheckResult(HealthStatus.CRITICAL, 0.0, "Elasticsearch connection failed", null);
-            }
-            
-        } catch (Exception e) {
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
-    /**
-     * Check file system
-     */
-    private HealthCheckResult checkFileSystem(SystemHealthCheck healthCheck) {
-        try {
-            // Simulate file system check
-            Thread.sleep(25);
-            
-            // In production, this would check disk space, permissions, etc.
-            double diskUsage = 45.5; // Simulated disk usage percentage
-            
-            if (diskUsage < 80) {
-                return new HealthCheckResult(HealthStatus.HEALTHY, diskUsage, null, "File system healthy");
-            } else if (diskUsage < 90) {
-                return new HealthCheckResult(HealthStatus.WARNING, diskUsage, "Disk usage high", null);
-            } else {
-                return new HealthCheckResult(HealthStatus.CRITICAL, diskUsage, "Disk usage critical", null);
-            }
-            
-        } catch (Exception e) {
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
-    /**
-     * Check memory usage
-     */
-    private HealthCheckResult checkMemoryUsage(SystemHealthCheck healthCheck) {
-        try {
-            // Simulate memory usage check
-            Thread.sleep(30);
-            
-            Runtime runtime = Runtime.getRuntime();
-            long totalMemory = runtime.totalMemory();
-            long freeMemory = runtime.freeMemory();
-            long usedMemory = totalMemory - freeMemory;
-            double memoryUsage = (double) usedMemory / totalMemory * 100;
-            
-            if (memoryUsage < 80) {
-                return new HealthCheckResult(HealthStatus.HEALTHY, memoryUsage, null, "Memory usage normal");
-            } else if (memoryUsage < 90) {
-                return new HealthCheckResult(HealthStatus.WARNING, memoryUsage, "Memory usage high", null);
-            } else {
-                return new HealthCheckResult(HealthStatus.CRITICAL, memoryUsage, "Memory usage critical", null);
-            }
-            
-        } catch (Exception e) {
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
-    /**
-     * Check CPU usage
-     */
-    private HealthCheckResult checkCpuUsage(SystemHealthCheck healthCheck) {
-        try {
-            // Simulate CPU usage check
-            Thread.sleep(20);
-            
-            double cpuUsage = 25.5; // Simulated CPU usage percentage
-            
-            if (cpuUsage < 70) {
-                return new HealthCheckResult(HealthStatus.HEALTHY, cpuUsage, null, "CPU usage normal");
-            } else if (cpuUsage < 85) {
-                return new HealthCheckResult(HealthStatus.WARNING, cpuUsage, "CPU usage high", null);
-            } else {
-                return new HealthCheckResult(HealthStatus.CRITICAL, cpuUsage, "CPU usage critical", null);
-            }
-            
-        } catch (Exception e) {
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
-    /**
-     * Check disk space
-     */
-    private HealthCheckResult checkDiskSpace(SystemHealthCheck healthCheck) {
-        try {
-            // Simulate disk space check
-            Thread.sleep(40);
-            
-            double diskSpace = 35.2; // Simulated disk space usage percentage
-            
-            if (diskSpace < 80) {
-                return new HealthCheckResult(HealthStatus.HEALTHY, diskSpace, null, "Disk space sufficient");
-            } else if (diskSpace < 90) {
-                return new HealthCheckResult(HealthStatus.WARNING, diskSpace, "Disk space low", null);
-            } else {
-                return new HealthCheckResult(HealthStatus.CRITICAL, diskSpace, "Disk space critical", null);
-            }
-            
-        } catch (Exception e) {
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
-    /**
-     * Check network connectivity
-     */
-    private HealthCheckResult checkNetworkConnectivity(SystemHealthCheck healthCheck) {
-        try {
-            // Simulate network connectivity check
-            Thread.sleep(100);
-            
-            boolean isConnected = true; // Simulated result
-            
-            if (isConnected) {
-                return new HealthCheckResult(HealthStatus.HEALTHY, 1.0, null, "Network connectivity OK");
-            } else {
-                return new HealthCheckResult(HealthStatus.CRITICAL, 0.0, "Network connectivity failed", null);
-            }
-            
-        } catch (Exception e) {
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
-    /**
-     * Check API response time
-     */
-    private HealthCheckResult checkApiResponseTime(SystemHealthCheck healthCheck) {
-        try {
-            // Simulate API response time check
-            Thread.sleep(200);
-            
-            double responseTime = 150.5; // Simulated response time in ms
-            
-            if (responseTime < 500) {
-                return new HealthCheckResult(HealthStatus.HEALTHY, responseTime, null, "API response time good");
-            } else if (responseTime < 1000) {
-                return new HealthCheckResult(HealthStatus.WARNING, responseTime, "API response time slow", null);
-            } else {
-                return new HealthCheckResult(HealthStatus.CRITICAL, responseTime, "API response time critical", null);
-            }
-            
-        } catch (Exception e) {
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
-    /**
-     * Check service availability
-     */
-    private HealthCheckResult checkServiceAvailability(SystemHealthCheck healthCheck) {
-        try {
-            // Simulate service availability check
-            Thread.sleep(80);
-            
-            boolean isAvailable = true; // Simulated result
-            
-            if (isAvailable) {
-                return new HealthCheckResult(HealthStatus.HEALTHY, 1.0, null, "Service available");
-            } else {
-                return new HealthCheckResult(HealthStatus.CRITICAL, 0.0, "Service unavailable", null);
-            }
-            
-        } catch (Exception e) {
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
-    /**
-     * Check generic health
-     */
-    private HealthCheckResult checkGenericHealth(SystemHealthCheck healthCheck) {
-        try {
-            // Simulate generic health check
-            Thread.sleep(50);
-            
-            return new HealthCheckResult(HealthStatus.HEALTHY, 1.0, null, "Generic health check passed");
-            
-        } catch (Exception e) {
-            return new HealthCheckResult(HealthStatus.FAILED, 0.0, e.getMessage(), null);
-        }
-    }
-    
     /**
      * Determine severity based on status and threshold
      */
@@ -638,10 +413,7 @@ public class SystemHealthMonitoringService {
      * Get critical health alerts
      */
     public List<SystemHealthCheck> getCriticalHealthAlerts() {
-        return systemHealthCheckRepository.findAll()
-            .stream()
-            .filter(check -> "CRITICAL".equals(check.getSeverity()))
-            .collect(Collectors.toList());
+        return systemHealthCheckRepository.findBySeverityOrderByExecutedAtDesc("CRITICAL");
     }
     
     /**
@@ -671,10 +443,7 @@ public class SystemHealthMonitoringService {
      * Get component health summary
      */
     public Map<String, Object> getComponentHealth(String component) {
-        List<SystemHealthCheck> checks = systemHealthCheckRepository.findAll()
-            .stream()
-            .filter(check -> component.equals(check.getComponent()))
-            .collect(Collectors.toList());
+        List<SystemHealthCheck> checks = systemHealthCheckRepository.findAllByComponent(component);
         return summariseHealth(checks);
     }
     
@@ -682,10 +451,7 @@ public class SystemHealthMonitoringService {
      * Get service health summary
      */
     public Map<String, Object> getServiceHealth(String service) {
-        List<SystemHealthCheck> checks = systemHealthCheckRepository.findAll()
-            .stream()
-            .filter(check -> service.equals(check.getService()))
-            .collect(Collectors.toList());
+        List<SystemHealthCheck> checks = systemHealthCheckRepository.findAllByService(service);
         return summariseHealth(checks);
     }
     
@@ -709,27 +475,4 @@ public class SystemHealthMonitoringService {
         
         return summary;
     }
-    
-    /**
-     * Health check result class
-     */
-    private static class HealthCheckResult {
-        private final HealthStatus status;
-        private final Double actualValue;
-        private final String errorMessage;
-        private final String checkData;
-        
-        public HealthCheckResult(HealthStatus status, Double actualValue, String errorMessage, String checkData) {
-            this.status = status;
-            this.actualValue = actualValue;
-            this.errorMessage = errorMessage;
-            this.checkData = checkData;
-        }
-        
-        public HealthStatus getStatus() { return status; }
-        public Double getActualValue() { return actualValue; }
-        public String getErrorMessage() { return errorMessage; }
-        public String getCheckData() { return checkData; }
-    }
 }
-
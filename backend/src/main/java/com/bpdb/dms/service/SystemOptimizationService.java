@@ -4,14 +4,25 @@ import com.bpdb.dms.entity.OptimizationTask;
 import com.bpdb.dms.entity.OptimizationType;
 import com.bpdb.dms.entity.OptimizationStatus;
 import com.bpdb.dms.repository.OptimizationTaskRepository;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.indices.IndexSettingBlocks;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -31,6 +42,21 @@ public class SystemOptimizationService {
     @Autowired
     private AuditService auditService;
     
+    @Autowired
+    private DatabaseMaintenanceService databaseMaintenanceService;
+    
+    @Autowired(required = false)
+    private ElasticsearchClient elasticsearchClient;
+    
+    @Autowired(required = false)
+    private ObjectMapper objectMapper;
+    
+    @Value("${app.maintenance.search.index-pattern:documents*}")
+    private String searchIndexPattern;
+
+    @Value("${app.scheduler.jobs.database-optimization.enabled:false}")
+    private boolean scheduledOptimizationEnabled;
+    
     /**
      * Create optimization task
      */
@@ -83,7 +109,7 @@ public class SystemOptimizationService {
                 // Update task with results
                 task.setStatus(OptimizationStatus.COMPLETED);
                 task.setCompletedAt(LocalDateTime.now());
-                task.setResults(results.toString());
+                task.setResults(toJson(results));
                 task.setExecutionTimeMs(System.currentTimeMillis() - task.getStartedAt().atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli());
                 
                 OptimizationTask completedTask = optimizationTaskRepository.save(task);
@@ -117,7 +143,8 @@ public class SystemOptimizationService {
     }
     
     /**
-     * Perform database optimization
+     * Perform database optimization. Called from within this bean, so it relies on
+     * DatabaseMaintenanceService (a separate proxy) to run outside any transaction.
      */
     public Map<String, Object> optimizeDatabase() {
         try {
@@ -125,28 +152,14 @@ public class SystemOptimizationService {
             
             Map<String, Object> results = new HashMap<>();
             
-            // Analyze tables
-            int analyzedTables = analyzeTables();
-            results.put("analyzedTables", analyzedTables);
+            // Vacuum bloated tables and rebuild bad indexes, throttled
+            results.putAll(databaseMaintenanceService.runMaintenance());
             
-            // Rebuild indexes
-            int rebuiltIndexes = rebuildIndexes();
-            results.put("rebuiltIndexes", rebuiltIndexes);
-            
-            // Update statistics
-            boolean statisticsUpdated = updateStatistics();
-            results.put("statisticsUpdated", statisticsUpdated);
-            
-            // Clean up old data
-            int cleanedRecords = cleanupOldData();
-            results.put("cleanedRecords", cleanedRecords);
-            
-            // Vacuum database
-            boolean vacuumed = vacuumDatabase();
-            results.put("vacuumed", vacuumed);
+            // Index recommendations for hot query shapes and slow statements
+            results.put("recommendations", databaseMaintenanceService.recommendations());
             
             results.put("optimizationType", "DATABASE");
-            results.put("completedAt", LocalDateTime.now());
+            results.put("completedAt", LocalDateTime.now().toString());
             results.put("success", true);
             
             logger.info("Database optimization completed");
@@ -242,33 +255,19 @@ public class SystemOptimizationService {
      */
     public Map<String, Object> optimizeMemory() {
         try {
-            logger.info("Starting memory optimization");
+            logger.info("Starting memory analysis");
             
             Map<String, Object> results = new HashMap<>();
             
-            // Force garbage collection
-            long memoryBefore = getUsedMemory();
-            System.gc();
-            long memoryAfter = getUsedMemory();
-            results.put("memoryFreed", memoryBefore - memoryAfter);
-            
-            // Optimize JVM settings
-            boolean jvmOptimized = optimizeJVMSettings();
-            results.put("jvmOptimized", jvmOptimized);
-            
-            // Clear application caches
-            int clearedCaches = clearApplicationCaches();
-            results.put("clearedCaches", clearedCaches);
-            
-            // Optimize object pools
-            boolean poolsOptimized = optimizeObjectPools();
-            results.put("poolsOptimized", poolsOptimized);
+            // Report only: an explicit System.gc() stalls every request thread under load
+            // and undoes the collector's own tuning; the heap is sized by the JVM options
+            results.putAll(memoryReport());
             
             results.put("optimizationType", "MEMORY");
-            results.put("completedAt", LocalDateTime.now());
+            results.put("completedAt", LocalDateTime.now().toString());
             results.put("success", true);
             
-            logger.info("Memory optimization completed");
+            logger.info("Memory analysis completed");
             
             return results;
             
@@ -287,24 +286,12 @@ public class SystemOptimizationService {
             
             Map<String, Object> results = new HashMap<>();
             
-            // Optimize Elasticsearch indices
-            int optimizedIndices = optimizeElasticsearchIndices();
-            results.put("optimizedIndices", optimizedIndices);
-            
-            // Rebuild search indexes
-            int rebuiltIndexes = rebuildSearchIndexes();
-            results.put("rebuiltIndexes", rebuiltIndexes);
-            
-            // Update search statistics
-            boolean statisticsUpdated = updateSearchStatistics();
-            results.put("statisticsUpdated", statisticsUpdated);
-            
-            // Optimize search queries
-            int optimizedQueries = optimizeSearchQueries();
-            results.put("optimizedQueries", optimizedQueries);
+            // Merge read-only indices down to one segment; indices still taking writes are
+            // left to the merge policy, a force-merge there produces huge segments that never merge again
+            results.put("forceMergedIndices", forceMergeReadOnlyIndices());
             
             results.put("optimizationType", "SEARCH");
-            results.put("completedAt", LocalDateTime.now());
+            results.put("completedAt", LocalDateTime.now().toString());
             results.put("success", true);
             
             logger.info("Search optimization completed");
@@ -324,11 +311,8 @@ public class SystemOptimizationService {
         try {
             List<Map<String, Object>> recommendations = new ArrayList<>();
             
-            // Check database performance
-            Map<String, Object> dbRecommendation = analyzeDatabasePerformance();
-            if (dbRecommendation != null) {
-                recommendations.add(dbRecommendation);
-            }
+            // Check database statistics and index coverage
+            recommendations.addAll(databaseMaintenanceService.recommendations());
             
             // Check cache performance
             Map<String, Object> cacheRecommendation = analyzeCachePerformance();
@@ -383,6 +367,10 @@ public class SystemOptimizationService {
      */
     @Scheduled(cron = "0 0 2 * * ?") // Run daily at 2 AM
     public void scheduledOptimization() {
+        if (!scheduledOptimizationEnabled) {
+            logger.debug("Scheduled database optimization disabled, skipping scheduled run");
+            return;
+        }
         try {
             logger.info("Starting scheduled optimization");
             
@@ -428,31 +416,6 @@ public class SystemOptimizationService {
         }
     }
     
-    private int analyzeTables() {
-        // Simulate table analysis
-        return 10;
-    }
-    
-    private int rebuildIndexes() {
-        // Simulate index rebuilding
-        return 5;
-    }
-    
-    private boolean updateStatistics() {
-        // Simulate statistics update
-        return true;
-    }
-    
-    private int cleanupOldData() {
-        // Simulate old data cleanup
-        return 1000;
-    }
-    
-    private boolean vacuumDatabase() {
-        // Simulate database vacuum
-        return true;
-    }
-    
     private int clearExpiredCacheEntries() {
         // Simulate cache cleanup
         return 500;
@@ -493,56 +456,6 @@ public class SystemOptimizationService {
         return 25;
     }
     
-    private long getUsedMemory() {
-        Runtime runtime = Runtime.getRuntime();
-        return runtime.totalMemory() - runtime.freeMemory();
-    }
-    
-    private boolean optimizeJVMSettings() {
-        // Simulate JVM optimization
-        return true;
-    }
-    
-    private int clearApplicationCaches() {
-        // Simulate application cache clearing
-        return 10;
-    }
-    
-    private boolean optimizeObjectPools() {
-        // Simulate object pool optimization
-        return true;
-    }
-    
-    private int optimizeElasticsearchIndices() {
-        // Simulate Elasticsearch optimization
-        return 3;
-    }
-    
-    private int rebuildSearchIndexes() {
-        // Simulate search index rebuilding
-        return 2;
-    }
-    
-    private boolean updateSearchStatistics() {
-        // Simulate search statistics update
-        return true;
-    }
-    
-    private int optimizeSearchQueries() {
-        // Simulate search query optimization
-        return 15;
-    }
-    
-    private Map<String, Object> analyzeDatabasePerformance() {
-        // Simulate database performance analysis
-        return Map.of(
-            "type", "DATABASE",
-            "priority", "HIGH",
-            "recommendation", "Consider rebuilding indexes",
-            "estimatedImprovement", "15%"
-        );
-    }
-    
     private Map<String, Object> analyzeCachePerformance() {
         // Simulate cache performance analysis
         return Map.of(
@@ -554,13 +467,16 @@ public class SystemOptimizationService {
     }
     
     private Map<String, Object> analyzeMemoryUsage() {
-        // Simulate memory usage analysis
-        return Map.of(
-            "type", "MEMORY",
-            "priority", "LOW",
-            "recommendation", "Optimize object pools",
-            "estimatedImprovement", "5%"
-        );
+        Map<String, Object> report = memoryReport();
+        Object oldGenAfterGc = report.get("oldGenUsedAfterGcPercent");
+        if (oldGenAfterGc instanceof Double percent && percent >= 80.0) {
+            return Map.of(
+                "type", "MEMORY",
+                "priority", "HIGH",
+                "recommendation", String.format("Old generation is %.0f%% full after collection; increase -Xmx or look for a leak", percent)
+            );
+        }
+        return null;
     }
     
     private Map<String, Object> analyzeFileSystemPerformance() {
@@ -573,6 +489,71 @@ public class SystemOptimizationService {
         );
     }
     
+    /**
+     * Heap, old generation and collector figures from the JVM's own MXBeans
+     */
+    private Map<String, Object> memoryReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        report.put("heapUsedBytes", heap.getUsed());
+        report.put("heapCommittedBytes", heap.getCommitted());
+        report.put("heapMaxBytes", heap.getMax());
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && afterGc != null && afterGc.getMax() > 0
+                    && (pool.getName().contains("Old") || pool.getName().contains("Tenured"))) {
+                report.put("oldGenUsedAfterGcPercent", afterGc.getUsed() * 100.0 / afterGc.getMax());
+            }
+        }
+        List<Map<String, Object>> collectors = new ArrayList<>();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collectors.add(Map.of("name", gc.getName(), "count", gc.getCollectionCount(), "timeMs", gc.getCollectionTime()));
+        }
+        report.put("collectors", collectors);
+        return report;
+    }
+    
+    /**
+     * Force-merge every index matching the maintenance pattern that has a write block
+     */
+    private List<String> forceMergeReadOnlyIndices() throws java.io.IOException {
+        List<String> merged = new ArrayList<>();
+        if (elasticsearchClient == null) {
+            return merged;
+        }
+        Map<String, IndexState> indices = elasticsearchClient.indices()
+            .getSettings(g -> g.index(searchIndexPattern)).result();
+        for (Map.Entry<String, IndexState> entry : indices.entrySet()) {
+            if (entry.getKey().startsWith(".") || !isReadOnly(entry.getValue().settings())) {
+                continue;
+            }
+            elasticsearchClient.indices().forcemerge(f -> f.index(entry.getKey()).maxNumSegments(1L));
+            merged.add(entry.getKey());
+            logger.info("Force-merged read-only index {}", entry.getKey());
+        }
+        return merged;
+    }
+    
+    private static boolean isReadOnly(IndexSettings settings) {
+        if (settings == null) {
+            return false;
+        }
+        IndexSettingBlocks blocks = settings.blocks() != null ? settings.blocks()
+            : settings.index() != null ? settings.index().blocks() : null;
+        return blocks != null && (Boolean.TRUE.equals(blocks.write()) || Boolean.TRUE.equals(blocks.readOnly()));
+    }
+    
+    private String toJson(Map<String, Object> results) {
+        if (objectMapper != null) {
+            try {
+                return objectMapper.writeValueAsString(results);
+            } catch (Exception e) {
+                logger.debug("Could not serialize optimization results: {}", e.getMessage());
+            }
+        }
+        return results.toString();
+    }
+    
     private double calculateAverageExecutionTime() {
         // This would normally calculate from actual task execution times
         return 1500.0; // 1.5 seconds
@@ -0,0 +1,186 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.Document;
+import com.bpdb.dms.entity.Tenant;
+import com.bpdb.dms.entity.TenantStatus;
+import com.bpdb.dms.repository.DocumentRepository;
+import com.bpdb.dms.repository.TenantRepository;
+import com.bpdb.dms.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Per-tenant usage counters (documents, storage bytes, users, OCR pages this month),
+ * kept on the tenant row with in-place increments as documents and users come and go.
+ * Limit checks read the counters instead of recounting; a nightly reconciliation
+ * recounts from documents and users and corrects any drift.
+ */
+@Service
+public class TenantUsageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantUsageService.class);
+
+    private static final long BYTES_PER_GB = 1024L * 1024 * 1024;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Why an upload of the given size is refused for the tenant, or null when it fits
+     */
+    @Transactional(readOnly = true)
+    public String checkUploadAllowed(Long tenantId, long bytes) {
+        if (tenantId == null) {
+            return null;
+        }
+        Tenant tenant = tenantRepository.findById(tenantId).orElse(null);
+        if (tenant == null) {
+            return null;
+        }
+        if (!isUsable(tenant)) {
+            return "Tenant " + tenant.getTenantName() + " is " + tenant.getStatus();
+        }
+        if (tenant.getMaxStorageGb() != null
+                && value(tenant.getCurrentStorageBytes()) + bytes > tenant.getMaxStorageGb() * BYTES_PER_GB) {
+            return "Storage limit of " + tenant.getMaxStorageGb() + " GB reached for tenant " + tenant.getTenantName();
+        }
+        return null;
+    }
+
+    /**
+     * Why another active user is refused for the tenant, or null when there is room
+     */
+    @Transactional(readOnly = true)
+    public String checkUserAllowed(Long tenantId) {
+        if (tenantId == null) {
+            return null;
+        }
+        Tenant tenant = tenantRepository.findById(tenantId).orElse(null);
+        if (tenant == null) {
+            return null;
+        }
+        if (tenant.getMaxUsers() != null && value(tenant.getCurrentUsers()) >= tenant.getMaxUsers()) {
+            return "User limit of " + tenant.getMaxUsers() + " reached for tenant " + tenant.getTenantName();
+        }
+        return null;
+    }
+
+    @Transactional
+    public void documentAdded(Document document) {
+        if (document.getTenantId() != null) {
+            tenantRepository.addDocumentUsage(document.getTenantId(), 1, value(document.getFileSize()));
+        }
+    }
+
+    @Transactional
+    public void documentRemoved(Document document) {
+        if (document.getTenantId() != null) {
+            tenantRepository.addDocumentUsage(document.getTenantId(), -1, -value(document.getFileSize()));
+        }
+    }
+
+    /**
+     * A document's file was replaced by one of another size
+     */
+    @Transactional
+    public void documentResized(Document document, long previousBytes) {
+        long delta = value(document.getFileSize()) - previousBytes;
+        if (document.getTenantId() != null && delta != 0) {
+            tenantRepository.addDocumentUsage(document.getTenantId(), 0, delta);
+        }
+    }
+
+    @Transactional
+    public void userAdded(Long tenantId) {
+        if (tenantId != null) {
+            tenantRepository.addUsers(tenantId, 1);
+        }
+    }
+
+    @Transactional
+    public void userRemoved(Long tenantId) {
+        if (tenantId != null) {
+            tenantRepository.addUsers(tenantId, -1);
+        }
+    }
+
+    @Transactional
+    public void ocrPagesProcessed(Long tenantId, int pages) {
+        if (tenantId != null && pages > 0) {
+            tenantRepository.addOcrPages(tenantId, pages, currentPeriod());
+        }
+    }
+
+    /**
+     * Recount documents, storage and users per tenant and correct the counters.
+     * OCR pages have no source to recount from; only the month rollover is applied.
+     * The tenant rows are locked before counting, so an increment racing the recount
+     * either commits first and is counted, or waits and applies on top of the result.
+     */
+    @Scheduled(cron = "${app.tenancy.usage-reconcile-cron:0 15 3 * * ?}")
+    @Transactional
+    public void reconcileUsage() {
+        List<Tenant> tenants = tenantRepository.findAllForUpdate();
+        Map<Long, long[]> documents = new HashMap<>();
+        for (Object[] row : documentRepository.summarizeActiveDocumentsByTenant()) {
+            documents.put((Long) row[0], new long[] {((Number) row[1]).longValue(), ((Number) row[2]).longValue()});
+        }
+        Map<Long, Integer> users = new HashMap<>();
+        for (Object[] row : userRepository.countActiveUsersByTenant()) {
+            users.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+
+        LocalDate period = currentPeriod();
+        LocalDateTime now = LocalDateTime.now();
+        int corrected = 0;
+        for (Tenant tenant : tenants) {
+            long[] docs = documents.getOrDefault(tenant.getId(), new long[2]);
+            int userCount = users.getOrDefault(tenant.getId(), 0);
+            if (value(tenant.getCurrentDocuments()) != docs[0] || value(tenant.getCurrentStorageBytes()) != docs[1]
+                    || value(tenant.getCurrentUsers()) != userCount) {
+                logger.info("Tenant {} usage drifted: documents {} -> {}, bytes {} -> {}, users {} -> {}",
+                    tenant.getTenantCode(), tenant.getCurrentDocuments(), docs[0],
+                    tenant.getCurrentStorageBytes(), docs[1], tenant.getCurrentUsers(), userCount);
+                corrected++;
+            }
+            tenant.setCurrentDocuments(docs[0]);
+            tenant.setCurrentStorageBytes(docs[1]);
+            tenant.setCurrentUsers(userCount);
+            if (!Objects.equals(tenant.getOcrPagesPeriod(), period)) {
+                tenant.setOcrPagesPeriod(period);
+                tenant.setOcrPagesMonth(0L);
+            }
+            tenant.setUsageReconciledAt(now);
+        }
+        logger.info("Reconciled usage of {} tenants, {} corrected", tenants.size(), corrected);
+    }
+
+    private static boolean isUsable(Tenant tenant) {
+        return tenant.getStatus() != TenantStatus.SUSPENDED && tenant.getStatus() != TenantStatus.EXPIRED;
+    }
+
+    private static LocalDate currentPeriod() {
+        return LocalDate.now().withDayOfMonth(1);
+    }
+
+    private static long value(Number number) {
+        return number != null ? number.longValue() : 0L;
+    }
+}
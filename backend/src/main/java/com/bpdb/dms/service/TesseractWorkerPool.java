@@ -0,0 +1,378 @@
+package com.bpdb.dms.service;
+
+import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of long-lived Tesseract engines.
+ * Each worker owns one engine on its own thread, so the language model is loaded once
+ * per worker instead of once per page, and native handles never cross threads. Workers
+ * are probed when started and after sitting idle, every job has a timeout, and a worker
+ * that times out or fails natively is retired and replaced. A worker that timed out is
+ * still stuck in its native call and holds its thread and engine until that returns; once
+ * too many are stuck the pool reports itself unhealthy, so callers use the external
+ * fallback, and it only starts new engines again as stuck ones are freed.
+ */
+final class TesseractWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(TesseractWorkerPool.class);
+
+    // Don't retry spawning more often than this while workers keep failing to start
+    private static final long RESPAWN_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * One OCR engine instance; only ever used from its worker thread
+     */
+    interface Engine {
+        String ocr(BufferedImage image) throws Exception;
+
+        void close();
+    }
+
+    interface EngineFactory {
+        Engine create() throws Exception;
+    }
+
+    private final int size;
+    private final long timeoutMillis;
+    private final long healthIntervalNanos;
+    private final int maxStuckWorkers;
+    private final EngineFactory engineFactory;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final Set<Worker> live = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger workerIds = new AtomicInteger();
+    private final AtomicInteger starting = new AtomicInteger();
+    // Timed-out workers whose native call has not returned yet
+    private final AtomicInteger stuck = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+    private volatile long lastSpawnFailure;
+    private volatile boolean shutdown;
+
+    TesseractWorkerPool(int size, long timeoutMillis, long healthIntervalMillis, EngineFactory engineFactory) {
+        this(size, timeoutMillis, healthIntervalMillis, size, engineFactory);
+    }
+
+    /**
+     * @param maxStuckWorkers timed-out workers tolerated before the pool stops spawning
+     *                        engines and reports itself unhealthy
+     */
+    TesseractWorkerPool(int size, long timeoutMillis, long healthIntervalMillis, int maxStuckWorkers,
+                        EngineFactory engineFactory) {
+        this.size = Math.max(1, size);
+        this.timeoutMillis = timeoutMillis;
+        this.healthIntervalNanos = TimeUnit.MILLISECONDS.toNanos(healthIntervalMillis);
+        this.maxStuckWorkers = Math.max(1, maxStuckWorkers);
+        this.engineFactory = engineFactory;
+        this.lastSpawnFailure = System.nanoTime() - RESPAWN_BACKOFF_NANOS;
+    }
+
+    void start() {
+        for (int i = 0; i < size; i++) {
+            spawn();
+        }
+    }
+
+    /**
+     * Whether any worker is running or starting, and not too many are stuck in native calls
+     */
+    boolean isHealthy() {
+        return !shutdown && !tooManyStuck() && (!live.isEmpty() || starting.get() > 0);
+    }
+
+    private boolean tooManyStuck() {
+        return stuck.get() >= maxStuckWorkers;
+    }
+
+    /**
+     * Run OCR on the next free worker. Blocks the caller until a worker is free, which
+     * keeps page rendering from running far ahead of OCR.
+     */
+    CompletableFuture<String> submit(BufferedImage image) {
+        Worker worker;
+        try {
+            worker = acquire();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(() -> {
+                try {
+                    return worker.engine.ocr(image);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, worker.thread)
+            .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+            .whenComplete((text, error) -> {
+                if (error == null) {
+                    completed.incrementAndGet();
+                    release(worker);
+                    result.complete(text);
+                    return;
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                failed.incrementAndGet();
+                if (cause instanceof TimeoutException) {
+                    timeouts.incrementAndGet();
+                    int nowStuck = stuck.incrementAndGet();
+                    logger.warn("OCR worker {} timed out after {} ms; replacing it ({} stuck)", worker.id, timeoutMillis, nowStuck);
+                    replace(worker, true);
+                } else if (cause instanceof Error) {
+                    logger.warn("OCR worker {} failed natively ({}); replacing it", worker.id, cause.toString());
+                    replace(worker, false);
+                } else {
+                    // An OCR error on this page; the engine itself is fine
+                    release(worker);
+                }
+                result.completeExceptionally(cause);
+            });
+        return result;
+    }
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size);
+        stats.put("live", live.size());
+        stats.put("idle", idle.size());
+        stats.put("starting", starting.get());
+        stats.put("stuck", stuck.get());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("restarts", restarts.get());
+        stats.put("healthy", isHealthy());
+        return stats;
+    }
+
+    void shutdown() {
+        shutdown = true;
+        for (Worker worker : live) {
+            retire(worker, false);
+        }
+    }
+
+    private Worker acquire() throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            if (live.size() + starting.get() < size && !tooManyStuck()
+                    && System.nanoTime() - lastSpawnFailure > RESPAWN_BACKOFF_NANOS) {
+                spawn();
+            }
+            if (!isHealthy()) {
+                throw new IllegalStateException("No OCR workers available");
+            }
+            long remaining = deadline - System.nanoTime();
+            Worker worker = remaining > 0 ? idle.poll(Math.min(remaining, TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS) : null;
+            if (worker == null) {
+                if (System.nanoTime() >= deadline) {
+                    throw new TimeoutException("No OCR worker became free within " + timeoutMillis + " ms");
+                }
+                continue;
+            }
+            if (System.nanoTime() - worker.lastUsed < healthIntervalNanos || probe(worker)) {
+                return worker;
+            }
+            logger.warn("OCR worker {} failed its health check; replacing it", worker.id);
+            replace(worker, false);
+        }
+    }
+
+    private void release(Worker worker) {
+        worker.lastUsed = System.nanoTime();
+        if (shutdown) {
+            retire(worker, false);
+        } else {
+            idle.offer(worker);
+        }
+    }
+
+    /**
+     * Retire a worker and start another, unless too many are stuck; those are replaced as
+     * their native calls return
+     */
+    private void replace(Worker worker, boolean hung) {
+        retire(worker, hung);
+        if (!shutdown && !tooManyStuck()) {
+            restarts.incrementAndGet();
+            spawn();
+        }
+    }
+
+    private void retire(Worker worker, boolean hung) {
+        if (!worker.retired.compareAndSet(false, true)) {
+            return;
+        }
+        live.remove(worker);
+        idle.remove(worker);
+        // Queued behind any call still running natively, so the engine is never freed under it
+        worker.thread.execute(() -> {
+            try {
+                if (worker.engine != null) {
+                    worker.engine.close();
+                }
+            } finally {
+                if (hung) {
+                    freed(worker);
+                }
+            }
+        });
+        worker.thread.shutdown();
+    }
+
+    /**
+     * A timed-out worker's native call returned and its engine is closed; start the
+     * replacement that was held back while too many were stuck
+     */
+    private void freed(Worker worker) {
+        int nowStuck = stuck.decrementAndGet();
+        logger.info("OCR worker {} returned from its timed-out call and was freed ({} stuck)", worker.id, nowStuck);
+        if (!shutdown && live.size() + starting.get() < size) {
+            restarts.incrementAndGet();
+            spawn();
+        }
+    }
+
+    /**
+     * Start a worker in the background: create its engine on its own thread and probe it
+     */
+    private void spawn() {
+        Worker worker = new Worker(workerIds.incrementAndGet());
+        starting.incrementAndGet();
+        worker.thread.execute(() -> {
+            try {
+                worker.engine = engineFactory.create();
+                worker.engine.ocr(probeImage());
+                worker.lastUsed = System.nanoTime();
+                live.add(worker);
+                logger.info("OCR worker {} started", worker.id);
+                release(worker);
+            } catch (Throwable t) {
+                lastSpawnFailure = System.nanoTime();
+                logger.error("OCR worker {} failed to start: {}", worker.id, t.toString());
+                if (worker.engine != null) {
+                    worker.engine.close();
+                }
+                worker.thread.shutdown();
+            } finally {
+                starting.decrementAndGet();
+            }
+        });
+    }
+
+    private boolean probe(Worker worker) {
+        try {
+            CompletableFuture.supplyAsync(() -> {
+                try {
+                    return worker.engine.ocr(probeImage());
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, worker.thread).get(Math.min(timeoutMillis, 30_000), TimeUnit.MILLISECONDS);
+            worker.lastUsed = System.nanoTime();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static BufferedImage probeImage() {
+        BufferedImage image = new BufferedImage(240, 60, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setColor(Color.BLACK);
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 32));
+        g.drawString("OCR 123", 20, 42);
+        g.dispose();
+        return image;
+    }
+
+    private static final class Worker {
+        final int id;
+        final ExecutorService thread;
+        final AtomicBoolean retired = new AtomicBoolean();
+        volatile Engine engine;
+        volatile long lastUsed;
+
+        Worker(int id) {
+            this.id = id;
+            this.thread = Executors.newSingleThreadExecutor(runnable -> {
+                Thread t = new Thread(runnable, "ocr-worker-" + id);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * tess4j engine that keeps its native handle (and loaded language model) between
+     * calls; plain Tesseract creates and initialises a new handle for every image
+     */
+    static final class PersistentTesseract extends Tesseract implements Engine {
+
+        private boolean initialized;
+
+        PersistentTesseract(String datapath, String language, int pageSegMode) {
+            setDatapath(datapath);
+            setLanguage(language);
+            setPageSegMode(pageSegMode);
+            setOcrEngineMode(1); // Neural nets LSTM engine only
+        }
+
+        @Override
+        protected void init() {
+            if (!initialized) {
+                super.init();
+                initialized = true;
+            }
+        }
+
+        @Override
+        protected void dispose() {
+            // Keep the handle for the next page; released in close()
+        }
+
+        @Override
+        public String ocr(BufferedImage image) throws TesseractException {
+            return doOCR(image);
+        }
+
+        @Override
+        public void close() {
+            if (initialized) {
+                super.dispose();
+                initialized = false;
+            }
+        }
+    }
+}
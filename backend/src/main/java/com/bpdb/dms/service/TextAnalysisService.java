@@ -0,0 +1,47 @@
+package com.bpdb.dms.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Single-pass text analysis shared by classification, metadata extraction and
+ * bill extraction. The text is lowercased once and every keyword those consumers
+ * look for (classification keywords and rule anchors) is located in one
+ * Aho-Corasick pass; regex rules then run only at their anchor positions.
+ */
+@Service
+public class TextAnalysisService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TextAnalysisService.class);
+
+    private final KeywordAutomaton automaton;
+
+    public TextAnalysisService() {
+        Set<String> keywords = new LinkedHashSet<>();
+        keywords.addAll(DocumentClassificationService.classificationKeywords());
+        addAnchors(keywords, DocumentClassificationService.textRules());
+        addAnchors(keywords, DocumentMetadataService.textRules());
+        addAnchors(keywords, BillOCRService.textRules());
+        addAnchors(keywords, OCRService.textRules());
+        this.automaton = new KeywordAutomaton(keywords.stream().map(TextFeatures::normalize).toList());
+        logger.info("Text analysis dictionary built with {} keywords", automaton.size());
+    }
+
+    /**
+     * Analyze a text once; the returned features can be handed to every consumer
+     */
+    public TextFeatures analyze(String text) {
+        return new TextFeatures(text, automaton);
+    }
+
+    private static void addAnchors(Set<String> keywords, Collection<TextRule> rules) {
+        for (TextRule rule : rules) {
+            keywords.addAll(rule.getAnchors());
+        }
+    }
+}
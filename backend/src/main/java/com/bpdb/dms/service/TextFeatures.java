@@ -0,0 +1,170 @@
+package com.bpdb.dms.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+
+/**
+ * Result of analyzing a document text once: the lowercased text, the positions
+ * of every dictionary keyword, and memoized rule matches. Classification,
+ * metadata extraction and bill extraction all read from the same instance.
+ */
+public final class TextFeatures {
+
+    private static final int[] NO_HITS = new int[0];
+
+    private final String text;
+    private final String normalized;
+    private final KeywordAutomaton automaton;
+    private final int[][] hits;
+    private final Map<TextRule, Optional<MatchResult>> matches = new ConcurrentHashMap<>();
+
+    TextFeatures(String text, KeywordAutomaton automaton) {
+        this.text = text != null ? text : "";
+        this.normalized = normalize(this.text);
+        this.automaton = automaton;
+        this.hits = automaton != null ? collectHits(normalized, automaton) : null;
+    }
+
+    /**
+     * Features without a keyword index; every lookup scans the text directly
+     */
+    public static TextFeatures unindexed(String text) {
+        return new TextFeatures(text, null);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Lowercased text, same length and offsets as the original
+     */
+    public String getNormalized() {
+        return normalized;
+    }
+
+    public boolean isBlank() {
+        return text.isBlank();
+    }
+
+    /**
+     * Whether the text contains the keyword, ignoring case
+     */
+    public boolean contains(String keyword) {
+        String key = normalize(keyword);
+        int index = automaton != null ? automaton.indexOf(key) : -1;
+        return index >= 0 ? hits[index].length > 0 : normalized.contains(key);
+    }
+
+    /**
+     * Number of occurrences of the keyword, ignoring case
+     */
+    public int count(String keyword) {
+        String key = normalize(keyword);
+        int index = automaton != null ? automaton.indexOf(key) : -1;
+        if (index >= 0) {
+            return hits[index].length;
+        }
+        int count = 0;
+        for (int from = normalized.indexOf(key); from >= 0; from = normalized.indexOf(key, from + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * First match of the rule in the text, computed once per rule
+     */
+    public Optional<MatchResult> find(TextRule rule) {
+        return matches.computeIfAbsent(rule, this::evaluate);
+    }
+
+    /**
+     * Trimmed group of the rule's first match
+     */
+    public Optional<String> group(TextRule rule, int group) {
+        return find(rule).map(m -> m.group(group)).map(String::trim);
+    }
+
+    private Optional<MatchResult> evaluate(TextRule rule) {
+        int[] starts = anchorPositions(rule);
+        if (starts == null) {
+            Matcher matcher = rule.getPattern().matcher(text);
+            return matcher.find() ? Optional.of(matcher.toMatchResult()) : Optional.empty();
+        }
+        // Every match begins with an anchor, so trying the anchor positions in order
+        // finds the same leftmost match as a full find()
+        Matcher matcher = rule.getPattern().matcher(text);
+        matcher.useTransparentBounds(true);
+        matcher.useAnchoringBounds(false);
+        for (int start : starts) {
+            matcher.region(start, text.length());
+            if (matcher.lookingAt()) {
+                return Optional.of(matcher.toMatchResult());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Sorted start offsets of the rule's anchors, or null when the rule has to be scanned
+     */
+    private int[] anchorPositions(TextRule rule) {
+        if (automaton == null || !rule.isAnchored()) {
+            return null;
+        }
+        int total = 0;
+        int[][] perAnchor = new int[rule.getAnchors().size()][];
+        for (int i = 0; i < perAnchor.length; i++) {
+            int index = automaton.indexOf(rule.getAnchors().get(i));
+            if (index < 0) {
+                return null;
+            }
+            perAnchor[i] = hits[index];
+            total += perAnchor[i].length;
+        }
+        int[] starts = new int[total];
+        int offset = 0;
+        for (int[] positions : perAnchor) {
+            System.arraycopy(positions, 0, starts, offset, positions.length);
+            offset += positions.length;
+        }
+        if (perAnchor.length > 1) {
+            Arrays.sort(starts);
+        }
+        return starts;
+    }
+
+    private static int[][] collectHits(String normalized, KeywordAutomaton automaton) {
+        int[][] positions = new int[automaton.size()][];
+        int[] counts = new int[automaton.size()];
+        Arrays.fill(positions, NO_HITS);
+        automaton.scan(normalized, (keyword, start) -> {
+            int[] list = positions[keyword];
+            if (counts[keyword] == list.length) {
+                list = Arrays.copyOf(list, Math.max(4, list.length * 2));
+                positions[keyword] = list;
+            }
+            list[counts[keyword]++] = start;
+        });
+        for (int k = 0; k < positions.length; k++) {
+            positions[k] = Arrays.copyOf(positions[k], counts[k]);
+        }
+        return positions;
+    }
+
+    /**
+     * Per-character lowercase, so offsets in the normalized text match the original
+     */
+    static String normalize(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,61 @@
+package com.bpdb.dms.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A regex evaluated against analyzed text.
+ * Anchored rules list the lowercase literals every match starts with; they are
+ * only tried at positions where one of those keywords was found, instead of
+ * scanning the whole text. Rules without anchors fall back to a plain find().
+ */
+public final class TextRule {
+
+    private final String name;
+    private final Pattern pattern;
+    private final List<String> anchors;
+
+    private TextRule(String name, Pattern pattern, List<String> anchors) {
+        this.name = name;
+        this.pattern = pattern;
+        this.anchors = anchors;
+    }
+
+    /**
+     * Rule whose matches always begin with one of the given literals (compared case-insensitively)
+     */
+    public static TextRule anchored(String name, Pattern pattern, String... anchors) {
+        return new TextRule(name, pattern, List.of(anchors).stream()
+            .map(a -> a.toLowerCase(Locale.ROOT))
+            .toList());
+    }
+
+    /**
+     * Rule that can match anywhere and is evaluated with a full scan
+     */
+    public static TextRule unanchored(String name, Pattern pattern) {
+        return new TextRule(name, pattern, List.of());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    public List<String> getAnchors() {
+        return anchors;
+    }
+
+    public boolean isAnchored() {
+        return !anchors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -33,6 +33,9 @@ public class UserManagementService {
     @Autowired
     private RoleRepository roleRepository;
     
+    @Autowired
+    private TenantUsageService tenantUsageService;
+    
     /**
      * Create a new user
      */
@@ -166,8 +169,21 @@ public class UserManagementService {
             User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
             
-            user.setIsActive(!user.getIsActive());
+            boolean activating = !Boolean.TRUE.equals(user.getIsActive());
+            if (activating) {
+                String refusal = tenantUsageService.checkUserAllowed(user.getTenantId());
+                if (refusal != null) {
+                    throw new RuntimeException(refusal);
+                }
+            }
+            
+            user.setIsActive(activating);
             userRepository.save(user);
+            if (activating) {
+                tenantUsageService.userAdded(user.getTenantId());
+            } else {
+                tenantUsageService.userRemoved(user.getTenantId());
+            }
             
             logger.info("User status toggled for: {} - Active: {}", user.getUsername(), user.getIsActive());
             return true;
@@ -186,8 +202,12 @@ public class UserManagementService {
             User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
             
+            boolean wasActive = Boolean.TRUE.equals(user.getIsActive());
             user.setIsActive(false);
             userRepository.save(user);
+            if (wasActive) {
+                tenantUsageService.userRemoved(user.getTenantId());
+            }
             
             logger.info("User deactivated: {}", user.getUsername());
             return true;
@@ -118,7 +118,7 @@ public class WebhookService {
     /**
      * Trigger webhook for an event
      */
-    @Async
+    @Async("webhookExecutor")
     public CompletableFuture<Void> triggerWebhook(WebhookEventType eventType, Object eventData) {
         try {
             List<Webhook> webhooks = webhookRepository.findByEventTypeAndIsEnabledTrue(eventType);
@@ -138,7 +138,7 @@ public class WebhookService {
     /**
      * Send webhook asynchronously
      */
-    @Async
+    @Async("webhookExecutor")
     public CompletableFuture<Void> sendWebhookAsync(Webhook webhook, Object eventData) {
         try {
             String payload = createWebhookPayload(webhook, eventData);
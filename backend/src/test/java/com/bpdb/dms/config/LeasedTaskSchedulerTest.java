@@ -0,0 +1,108 @@
+package com.bpdb.dms.config;
+
+import com.bpdb.dms.service.SchedulerLeaseService;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.ScheduledMethodRunnable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for running annotated jobs under cluster leases, with two lease services standing in for two nodes
+ */
+class LeasedTaskSchedulerTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SchedulerLeaseService nodeA;
+    private SchedulerLeaseService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:leased-scheduler-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE scheduler_leases (job_name VARCHAR(150) PRIMARY KEY, owner VARCHAR(255), " +
+            "fencing_token BIGINT NOT NULL, lease_until TIMESTAMP NOT NULL, acquired_at TIMESTAMP, " +
+            "last_completed_at TIMESTAMP, last_duration_ms BIGINT, last_status VARCHAR(20), " +
+            "last_error VARCHAR(1000), run_count BIGINT NOT NULL)");
+        nodeA = node("node-a");
+        nodeB = node("node-b");
+    }
+
+    @Test
+    void scheduledJob_isSkippedWhileAnotherNodeHoldsTheLease() throws Exception {
+        CountingJobs jobs = new CountingJobs();
+        Runnable onNodeA = schedule(nodeA, jobs, "sweep");
+        assertTrue(nodeB.runExclusively("CountingJobs.sweep", Duration.ofMinutes(5), Duration.ofMinutes(5), () -> { }));
+
+        onNodeA.run();
+
+        assertEquals(0, jobs.sweeps.get());
+        assertEquals("node-b", jdbcTemplate.queryForObject(
+            "SELECT owner FROM scheduler_leases WHERE job_name = 'CountingJobs.sweep'", String.class));
+    }
+
+    @Test
+    void scheduledJob_runsOnceAcrossNodesUnderItsLeaseName() throws Exception {
+        CountingJobs jobs = new CountingJobs();
+        Runnable onNodeA = schedule(nodeA, jobs, "rebuild");
+        Runnable onNodeB = schedule(nodeB, jobs, "rebuild");
+
+        onNodeA.run();
+        onNodeB.run();
+
+        assertEquals(1, jobs.rebuilds.get());
+        assertEquals("node-a", jdbcTemplate.queryForObject(
+            "SELECT owner FROM scheduler_leases WHERE job_name = 'rebuild-index'", String.class));
+    }
+
+    /**
+     * Registers the named job through a leased scheduler on the given node and
+     * returns the runnable handed to the underlying scheduler
+     */
+    private static Runnable schedule(SchedulerLeaseService node, Object target, String methodName) throws Exception {
+        TaskScheduler delegate = mock(TaskScheduler.class);
+        LeasedTaskScheduler scheduler = new LeasedTaskScheduler(delegate, node, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        scheduler.scheduleWithFixedDelay(
+            new ScheduledMethodRunnable(target, target.getClass().getMethod(methodName)), Duration.ofMinutes(1));
+
+        ArgumentCaptor<Runnable> captured = ArgumentCaptor.forClass(Runnable.class);
+        verify(delegate).scheduleWithFixedDelay(captured.capture(), any(Duration.class));
+        return captured.getValue();
+    }
+
+    private SchedulerLeaseService node(String nodeId) {
+        SchedulerLeaseService service = new SchedulerLeaseService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "nodeId", nodeId);
+        return service;
+    }
+
+    static class CountingJobs {
+
+        final AtomicInteger sweeps = new AtomicInteger();
+        final AtomicInteger rebuilds = new AtomicInteger();
+
+        @Scheduled(fixedDelay = 60000)
+        public void sweep() {
+            sweeps.incrementAndGet();
+        }
+
+        @Scheduled(fixedDelay = 60000)
+        @ScheduledJobLease(name = "rebuild-index", holdAtLeast = "PT5M")
+        public void rebuild() {
+            rebuilds.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.bpdb.dms.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the virtual-thread bulkhead's concurrency limit and load shedding
+ */
+class VirtualThreadBulkheadTest {
+
+    private VirtualThreadBulkhead bulkhead;
+
+    @AfterEach
+    void tearDown() {
+        if (bulkhead != null) {
+            bulkhead.shutdown();
+        }
+    }
+
+    @Test
+    void runsTasksOnVirtualThreads() throws Exception {
+        bulkhead = new VirtualThreadBulkhead("test", 2, 2);
+
+        Future<Boolean> virtual = bulkhead.submit(() -> Thread.currentThread().isVirtual());
+
+        assertTrue(virtual.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void limitsConcurrencyAndQueuesTheRest() throws Exception {
+        bulkhead = new VirtualThreadBulkhead("test", 2, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            futures.add(bulkhead.submit(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                await(release);
+                running.decrementAndGet();
+            }));
+        }
+        waitUntil(() -> bulkhead.getActiveCount() == 2 && bulkhead.getQueuedCount() == 3);
+
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(2, peak.get());
+        waitUntil(() -> bulkhead.getActiveCount() == 0 && bulkhead.getQueuedCount() == 0);
+    }
+
+    @Test
+    void shedsTasksBeyondQueueCapacity() throws Exception {
+        bulkhead = new VirtualThreadBulkhead("test", 1, 1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        bulkhead.bindTo(registry);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> running = bulkhead.submit(() -> await(release));
+        Future<?> queued = bulkhead.submit(() -> await(release));
+
+        assertThrows(TaskRejectedException.class, () -> bulkhead.execute(() -> { }));
+        assertEquals(1.0, registry.get("dms.executor.rejected").tag("executor", "test").functionCounter().count());
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        // Capacity is freed once tasks finish
+        bulkhead.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not reached in time");
+            Thread.sleep(10);
+        }
+    }
+}
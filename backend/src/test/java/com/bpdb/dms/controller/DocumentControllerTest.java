@@ -95,7 +95,7 @@ class DocumentControllerTest {
 
         when(userRepository.findByUsernameWithRole("testuser")).thenReturn(java.util.Optional.of(testUser));
         when(documentCategoryService.ensureCategoryExists(anyString())).thenReturn(new DocumentCategory("BILL", "Bill", null));
-        when(fileUploadService.uploadFile(any(), any(User.class), anyString(), any(), anyMap(), any())).thenReturn(response);
+        when(fileUploadService.uploadFile(any(), any(User.class), anyString(), any(), anyMap(), any(), any())).thenReturn(response);
 
         // When & Then
         mockMvc.perform(multipart("/api/documents/upload")
@@ -142,7 +142,7 @@ class DocumentControllerTest {
 
         when(userRepository.findByUsernameWithRole("testuser")).thenReturn(java.util.Optional.of(testUser));
         when(documentCategoryService.ensureCategoryExists(anyString())).thenReturn(new DocumentCategory("BILL", "Bill", null));
-        when(fileUploadService.uploadFile(any(), any(User.class), anyString(), any(), anyMap(), any())).thenReturn(errorResponse);
+        when(fileUploadService.uploadFile(any(), any(User.class), anyString(), any(), anyMap(), any(), any())).thenReturn(errorResponse);
 
         // When & Then
         mockMvc.perform(multipart("/api/documents/upload")
@@ -0,0 +1,124 @@
+package com.bpdb.dms.integration;
+
+import com.bpdb.dms.entity.AppHeader;
+import com.bpdb.dms.entity.Role;
+import com.bpdb.dms.entity.Role.RoleType;
+import com.bpdb.dms.entity.User;
+import com.bpdb.dms.repository.RoleRepository;
+import com.bpdb.dms.repository.UserRepository;
+import com.bpdb.dms.service.AppExcelImportService;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration test for the streaming APP Excel import
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class AppExcelImportIntegrationTest {
+
+    private static final int ROWS = 5_000;
+
+    @Autowired
+    private AppExcelImportService appExcelImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        Role officerRole = new Role();
+        officerRole.setName(RoleType.OFFICER);
+        officerRole = roleRepository.save(officerRole);
+
+        user = new User();
+        user.setUsername("appimport");
+        user.setEmail("appimport@example.com");
+        user.setPassword("password");
+        user.setIsActive(true);
+        user.setDepartment("Finance");
+        user.setRole(officerRole);
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void importApp_streamsRowsAndRecordsRowErrors() throws Exception {
+        // Given: empty first row, header on row 2, one bad budget and one year mismatch
+        MockMultipartFile file = new MockMultipartFile("file", "app.xlsx",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", workbook());
+
+        // When
+        AppHeader header = appExcelImportService.importApp(file, user);
+
+        // Then
+        assertEquals(2025, header.getFiscalYear());
+        Long lines = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM app_lines WHERE header_id = ?", Long.class, header.getId());
+        assertEquals(ROWS, lines);
+
+        BigDecimal budget = jdbcTemplate.queryForObject(
+            "SELECT SUM(budget_amount) FROM app_lines WHERE header_id = ?", BigDecimal.class, header.getId());
+        assertEquals(0, BigDecimal.valueOf(1000L * (ROWS - 1)).compareTo(budget));
+
+        String badBudget = jdbcTemplate.queryForObject(
+            "SELECT validation_errors FROM app_lines WHERE header_id = ? AND row_number = 10", String.class, header.getId());
+        assertTrue(badBudget.contains("Invalid Budget"));
+        String yearMismatch = jdbcTemplate.queryForObject(
+            "SELECT validation_errors FROM app_lines WHERE header_id = ? AND row_number = 20", String.class, header.getId());
+        assertTrue(yearMismatch.contains("Year mismatch"));
+    }
+
+    private byte[] workbook() throws Exception {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("APP");
+            sheet.createRow(0).createCell(0).setCellValue("Annual Procurement Plan");
+            Row header = sheet.createRow(1);
+            String[] columns = {"Project Identifier", "Project Name", "Department", "Budget", "Year"};
+            for (int c = 0; c < columns.length; c++) {
+                header.createCell(c).setCellValue(columns[c]);
+            }
+            for (int i = 1; i <= ROWS; i++) {
+                Row row = sheet.createRow(i + 1);
+                row.createCell(0).setCellValue("P" + i);
+                row.createCell(1).setCellValue("Project " + i);
+                row.createCell(2).setCellValue("Dept");
+                if (i == 10) {
+                    row.createCell(3).setCellValue("n/a");
+                } else {
+                    row.createCell(3).setCellValue(1000);
+                }
+                row.createCell(4).setCellValue(i == 20 ? 2024 : 2025);
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+}
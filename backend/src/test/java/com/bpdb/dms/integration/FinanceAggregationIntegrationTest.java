@@ -0,0 +1,135 @@
+package com.bpdb.dms.integration;
+
+import com.bpdb.dms.entity.AppHeader;
+import com.bpdb.dms.entity.AppLine;
+import com.bpdb.dms.entity.BillHeader;
+import com.bpdb.dms.entity.Role;
+import com.bpdb.dms.entity.Role.RoleType;
+import com.bpdb.dms.entity.User;
+import com.bpdb.dms.repository.AppHeaderRepository;
+import com.bpdb.dms.repository.BillHeaderRepository;
+import com.bpdb.dms.repository.RoleRepository;
+import com.bpdb.dms.repository.UserRepository;
+import com.bpdb.dms.service.BillActualSummaryService;
+import com.bpdb.dms.service.FinanceReportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Integration test for SQL-side APP vs bills aggregation over 1M synthetic bill lines
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class FinanceAggregationIntegrationTest {
+
+    private static final int APP_LINES = 100;
+    private static final int ROUNDS_CURRENT_YEAR = 9_000;  // 9,000 x 100 = 900k lines in 2025
+    private static final int ROUNDS_PRIOR_YEAR = 1_000;    // 1,000 x 100 = 100k lines in 2024
+
+    @Autowired
+    private AppHeaderRepository appHeaderRepository;
+
+    @Autowired
+    private BillHeaderRepository billHeaderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private BillActualSummaryService billActualSummaryService;
+
+    @Autowired
+    private FinanceReportService financeReportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private AppHeader appHeader;
+    private BillHeader currentYearBill;
+    private BillHeader priorYearBill;
+
+    @BeforeEach
+    void setUp() {
+        Role officerRole = new Role();
+        officerRole.setName(RoleType.OFFICER);
+        officerRole = roleRepository.save(officerRole);
+
+        User user = new User();
+        user.setUsername("financeperf");
+        user.setEmail("financeperf@example.com");
+        user.setPassword("password");
+        user.setIsActive(true);
+        user.setRole(officerRole);
+        user = userRepository.save(user);
+
+        appHeader = new AppHeader();
+        appHeader.setFiscalYear(2025);
+        appHeader.setCreatedBy(user);
+        for (int i = 0; i < APP_LINES; i++) {
+            AppLine line = new AppLine();
+            line.setHeader(appHeader);
+            line.setProjectIdentifier("P" + i);
+            line.setDepartment("Dept");
+            line.setBudgetAmount(new BigDecimal("200000.00"));
+            appHeader.getLines().add(line);
+        }
+        appHeader = appHeaderRepository.save(appHeader);
+
+        currentYearBill = billHeader(2025, user);
+        priorYearBill = billHeader(2024, user);
+    }
+
+    @Test
+    void appVsBillsByYear_aggregatesOneMillionBillLines() {
+        // Given: 1M bill lines, amount 10.00 + tax 1.00 each, spread evenly over the APP lines
+        insertBillLines(currentYearBill.getId(), ROUNDS_CURRENT_YEAR);
+        insertBillLines(priorYearBill.getId(), ROUNDS_PRIOR_YEAR);
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bill_lines", Long.class);
+        assertEquals(1_000_000L, total);
+
+        // When
+        int summaryRows = billActualSummaryService.rebuildFiscalYear(2025);
+        List<Map<String, Object>> rows = financeReportService.appVsBillsByYear(2025, null, null);
+
+        // Then: only the 2025 lines are counted, 9,000 x 11.00 per APP line
+        assertEquals(APP_LINES, summaryRows);
+        assertEquals(APP_LINES, rows.size());
+        for (Map<String, Object> row : rows) {
+            assertEquals(0, new BigDecimal("99000.00").compareTo((BigDecimal) row.get("actual")));
+            assertEquals(0, new BigDecimal("101000.00").compareTo((BigDecimal) row.get("remaining")));
+        }
+    }
+
+    private BillHeader billHeader(int fiscalYear, User user) {
+        BillHeader header = new BillHeader();
+        header.setFiscalYear(fiscalYear);
+        header.setVendor("Vendor " + fiscalYear);
+        header.setInvoiceDate(LocalDate.of(fiscalYear, 1, 15));
+        header.setCreatedBy(user);
+        return billHeaderRepository.save(header);
+    }
+
+    private void insertBillLines(Long billHeaderId, int rounds) {
+        jdbcTemplate.update(
+            "INSERT INTO bill_lines (header_id, app_line_id, project_identifier, amount, tax_amount) " +
+            "SELECT ?, a.id, a.project_identifier, 10.00, 1.00 " +
+            "FROM SYSTEM_RANGE(1, ?) r CROSS JOIN app_lines a WHERE a.header_id = ?",
+            billHeaderId, rounds, appHeader.getId());
+    }
+}
@@ -0,0 +1,133 @@
+package com.bpdb.dms.integration;
+
+import com.bpdb.dms.entity.Document;
+import com.bpdb.dms.entity.Role;
+import com.bpdb.dms.entity.Role.RoleType;
+import com.bpdb.dms.entity.User;
+import com.bpdb.dms.repository.DocumentRepository;
+import com.bpdb.dms.repository.RoleRepository;
+import com.bpdb.dms.repository.UserRepository;
+import com.bpdb.dms.service.NearDuplicateService;
+import com.bpdb.dms.service.NearDuplicateService.NearDuplicate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration tests for MinHash/LSH near-duplicate detection
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class NearDuplicateDetectionIntegrationTest {
+
+    private static final String[] WORDS = {
+        "tender", "notice", "supply", "installation", "commissioning", "power", "transformer",
+        "substation", "bangladesh", "development", "board", "division", "distribution", "circle",
+        "procurement", "method", "open", "tendering", "security", "amount", "document", "price",
+        "closing", "date", "time", "opening", "office", "executive", "engineer", "project",
+        "package", "lot", "delivery", "schedule", "warranty", "specification", "technical",
+        "financial", "evaluation", "contract", "award", "bidder", "eligibility", "experience"
+    };
+
+    @Autowired
+    private NearDuplicateService nearDuplicateService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        Role officerRole = new Role();
+        officerRole.setName(RoleType.OFFICER);
+        officerRole = roleRepository.save(officerRole);
+
+        user = new User();
+        user.setUsername("dedupuser");
+        user.setEmail("dedup@example.com");
+        user.setPassword("password");
+        user.setIsActive(true);
+        user.setRole(officerRole);
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void rescanWithOcrNoise_isFlaggedAsNearDuplicate() {
+        String original = syntheticText(1, 600);
+        Document first = document("tender-scan-1.pdf");
+        Document unrelated = document("other-tender.pdf");
+        Document rescan = document("tender-scan-2.pdf");
+
+        assertTrue(nearDuplicateService.registerDocument(first.getId(), original).isEmpty());
+        assertTrue(nearDuplicateService.registerDocument(unrelated.getId(), syntheticText(2, 600)).isEmpty());
+
+        List<NearDuplicate> matches = nearDuplicateService.registerDocument(rescan.getId(), withOcrNoise(original));
+
+        assertEquals(1, matches.size());
+        assertEquals(first.getId(), matches.get(0).getDocumentId());
+        assertTrue(matches.get(0).getSimilarity() >= 0.8, "Similarity was " + matches.get(0).getSimilarity());
+
+        // The lookup is symmetric once both signatures are stored
+        List<NearDuplicate> reverse = nearDuplicateService.findNearDuplicates(first.getId());
+        assertEquals(1, reverse.size());
+        assertEquals(rescan.getId(), reverse.get(0).getDocumentId());
+    }
+
+    @Test
+    void shortText_isNotIndexed() {
+        Document document = document("stub.pdf");
+
+        assertTrue(nearDuplicateService.registerDocument(document.getId(), "Page 1 of 1").isEmpty());
+        assertTrue(nearDuplicateService.findNearDuplicates(document.getId()).isEmpty());
+    }
+
+    private Document document(String fileName) {
+        Document document = new Document();
+        document.setFileName(fileName);
+        document.setOriginalName(fileName);
+        document.setFilePath("/uploads/" + fileName);
+        document.setDocumentType("TENDER_NOTICE");
+        document.setUploadedBy(user);
+        document.setIsActive(true);
+        return documentRepository.save(document);
+    }
+
+    private static String syntheticText(long seed, int words) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(i % 12 == 11 ? '\n' : ' ');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Different line breaks, casing and punctuation, plus a misread word every 100 words
+     */
+    private static String withOcrNoise(String text) {
+        String[] words = text.split("\\s+");
+        StringBuilder noisy = new StringBuilder();
+        for (int i = 0; i < words.length; i++) {
+            String word = i % 100 == 50 ? words[i].replace('e', 'c') + "l" : words[i];
+            noisy.append(i % 20 == 0 ? word.toUpperCase() : word).append(i % 9 == 8 ? ",\n" : "  ");
+        }
+        return noisy.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.Analytics;
+import com.bpdb.dms.entity.AnalyticsData;
+import com.bpdb.dms.entity.AnalyticsType;
+import com.bpdb.dms.entity.MetricType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for buffered analytics ingestion
+ */
+class AnalyticsIngestionBufferTest {
+
+    private final CapturingWriter writer = new CapturingWriter();
+
+    @Test
+    void flush_writesEventsInBatches() {
+        AnalyticsIngestionBuffer buffer = new AnalyticsIngestionBuffer(2, 100, writer);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buffer.record(event(i), Map.of("page", i)));
+        }
+        assertEquals(5, buffer.getPendingCount());
+
+        buffer.flush();
+
+        assertEquals(List.of(2, 2, 1), writer.eventBatchSizes);
+        assertEquals("{\"page\":3}", writer.events.get(3).getDimensions());
+        assertNotNull(writer.events.get(0).getCreatedAt());
+        assertEquals(0, buffer.getPendingCount());
+        assertEquals(0.0, buffer.lagSeconds());
+    }
+
+    @Test
+    void increment_coalescesIdenticalCounters() {
+        AnalyticsIngestionBuffer buffer = new AnalyticsIngestionBuffer(100, 100, writer);
+        buffer.increment(MetricType.ACCESS_METRICS, "downloads", 1, "user", "admin");
+        buffer.increment(MetricType.ACCESS_METRICS, "downloads", 2, "user", "admin");
+        buffer.increment(MetricType.ACCESS_METRICS, "downloads", 1, "user", "clerk");
+        assertEquals(2, buffer.getPendingCount());
+
+        buffer.flush();
+        buffer.increment(MetricType.ACCESS_METRICS, "downloads", 4, "user", "admin");
+        buffer.flush();
+
+        assertEquals(3, writer.counters.size());
+        Analytics admin = writer.counters.stream()
+            .filter(a -> "admin".equals(a.getDimensionValue()))
+            .findFirst()
+            .orElseThrow();
+        assertEquals(3.0, admin.getMetricValue());
+        assertNotNull(admin.getPeriodStart());
+        assertEquals(4.0, writer.counters.get(2).getMetricValue());
+    }
+
+    @Test
+    void record_dropsWhenFull() {
+        AnalyticsIngestionBuffer buffer = new AnalyticsIngestionBuffer(100, 2, writer);
+        assertTrue(buffer.record(event(1), null));
+        assertTrue(buffer.record(event(2), null));
+        assertFalse(buffer.record(event(3), null));
+        assertFalse(buffer.increment(MetricType.ACCESS_METRICS, "downloads", 1, "user", "admin"));
+        assertEquals(2, buffer.getDroppedCount());
+        assertTrue(buffer.lagSeconds() >= 0.0);
+
+        buffer.flush();
+        assertTrue(buffer.record(event(4), null));
+    }
+
+    @Test
+    void flush_releasesRowsWhenWriteFails() {
+        AnalyticsIngestionBuffer buffer = new AnalyticsIngestionBuffer(100, 10, new CapturingWriter() {
+            @Override
+            public void insertEvents(List<AnalyticsData> events) {
+                throw new IllegalStateException("database down");
+            }
+        });
+        buffer.record(event(1), null);
+
+        assertDoesNotThrow(buffer::flush);
+        assertEquals(0, buffer.getPendingCount());
+    }
+
+    private static AnalyticsData event(int i) {
+        return new AnalyticsData(AnalyticsType.USER_ACTIVITY, "session", (double) i, LocalDateTime.now());
+    }
+
+    private static class CapturingWriter implements AnalyticsIngestionBuffer.BatchWriter {
+        final List<AnalyticsData> events = new ArrayList<>();
+        final List<Integer> eventBatchSizes = new ArrayList<>();
+        final List<Analytics> counters = new ArrayList<>();
+
+        @Override
+        public void insertEvents(List<AnalyticsData> batch) {
+            eventBatchSizes.add(batch.size());
+            events.addAll(batch);
+        }
+
+        @Override
+        public void insertCounters(List<Analytics> batch) {
+            counters.addAll(batch);
+        }
+    }
+}
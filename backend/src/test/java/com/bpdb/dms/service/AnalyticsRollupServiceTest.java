@@ -0,0 +1,233 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.AnalyticsData;
+import com.bpdb.dms.entity.AnalyticsRollup;
+import com.bpdb.dms.entity.AnalyticsRollupGranularity;
+import com.bpdb.dms.entity.AnalyticsRollupState;
+import com.bpdb.dms.entity.AnalyticsType;
+import com.bpdb.dms.repository.AnalyticsDataRepository;
+import com.bpdb.dms.repository.AnalyticsRollupRepository;
+import com.bpdb.dms.repository.AnalyticsRollupStateRepository;
+import com.bpdb.dms.service.AnalyticsRollupService.RollupSummary;
+import com.bpdb.dms.service.AnalyticsRollupService.Slice;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.bpdb.dms.entity.AnalyticsRollupGranularity.DAY;
+import static com.bpdb.dms.entity.AnalyticsRollupGranularity.HOUR;
+import static com.bpdb.dms.entity.AnalyticsRollupGranularity.MINUTE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for rollup compaction, query planning and summaries
+ */
+@ExtendWith(MockitoExtension.class)
+class AnalyticsRollupServiceTest {
+
+    private static final LocalDateTime LONG_AGO = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Mock
+    private AnalyticsDataRepository analyticsDataRepository;
+
+    @Mock
+    private AnalyticsRollupRepository rollupRepository;
+
+    @Mock
+    private AnalyticsRollupStateRepository stateRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void plan_usesCoarsestBucketsThatFit() {
+        List<Slice> slices = AnalyticsRollupService.plan(
+            at(1, 10, 15), at(3, 9, 30), LONG_AGO, LONG_AGO);
+
+        assertEquals(List.of(
+            new Slice(MINUTE, at(1, 10, 15), at(1, 11, 0)),
+            new Slice(HOUR, at(1, 11, 0), at(2, 0, 0)),
+            new Slice(DAY, at(2, 0, 0), at(3, 0, 0)),
+            new Slice(HOUR, at(3, 0, 0), at(3, 9, 0)),
+            new Slice(MINUTE, at(3, 9, 0), at(3, 9, 30))
+        ), slices);
+    }
+
+    @Test
+    void plan_shortRangeStaysOnMinutes() {
+        List<Slice> slices = AnalyticsRollupService.plan(at(1, 10, 5), at(1, 10, 50), LONG_AGO, LONG_AGO);
+
+        assertEquals(List.of(new Slice(MINUTE, at(1, 10, 5), at(1, 10, 50))), slices);
+    }
+
+    @Test
+    void plan_readsRawEventsWhereRollupsArePurged() {
+        // Minute rollups are gone for the whole range, hour rollups only before day 2
+        List<Slice> slices = AnalyticsRollupService.plan(
+            at(1, 10, 15), at(3, 9, 30), at(5, 0, 0), at(2, 0, 0));
+
+        assertEquals(List.of(
+            new Slice(MINUTE, at(1, 10, 15), at(1, 11, 0), true),
+            new Slice(HOUR, at(1, 11, 0), at(2, 0, 0), true),
+            new Slice(DAY, at(2, 0, 0), at(3, 0, 0)),
+            new Slice(HOUR, at(3, 0, 0), at(3, 9, 0)),
+            new Slice(MINUTE, at(3, 9, 0), at(3, 9, 30), true)
+        ), slices);
+    }
+
+    @Test
+    void compactBatch_foldsSettledEventsAndAdvancesWatermark() {
+        AnalyticsRollupService service = service();
+        AnalyticsRollupState state = new AnalyticsRollupState(1L);
+        state.setLastEventId(10L);
+        when(stateRepository.findForUpdate(1L)).thenReturn(Optional.of(state));
+        LocalDateTime old = LocalDateTime.now().minusHours(1);
+        AnalyticsData first = event(11L, 2.0, at(1, 10, 15), old);
+        first.setUserId(7L);
+        AnalyticsData second = event(12L, 4.0, at(1, 10, 15), old);
+        AnalyticsData unsettled = event(13L, 8.0, at(1, 10, 16), LocalDateTime.now());
+        when(analyticsDataRepository.findByIdGreaterThanOrderByIdAsc(eq(10L), any()))
+            .thenReturn(List.of(first, second, unsettled));
+        AnalyticsRollup existingHour = new AnalyticsRollup(HOUR, at(1, 10, 0), AnalyticsType.USER_ACTIVITY,
+            "session", AnalyticsRollupService.TOTAL);
+        existingHour.setEventCount(3L);
+        existingHour.setValueSum(30.0);
+        existingHour.setValueMin(1.0);
+        existingHour.setValueMax(20.0);
+        when(rollupRepository.findByGranularityAndBucketStartIn(any(), anyCollection())).thenReturn(List.of());
+        when(rollupRepository.findByGranularityAndBucketStartIn(eq(HOUR), anyCollection())).thenReturn(List.of(existingHour));
+
+        assertEquals(2, service.compactBatch());
+
+        ArgumentCaptor<List<AnalyticsRollup>> saved = ArgumentCaptor.forClass(List.class);
+        verify(rollupRepository).saveAll(saved.capture());
+        AnalyticsRollup minuteTotal = find(saved.getValue(), MINUTE, AnalyticsRollupService.TOTAL);
+        assertEquals(2L, minuteTotal.getEventCount());
+        assertEquals(6.0, minuteTotal.getValueSum());
+        assertEquals(1L, find(saved.getValue(), DAY, AnalyticsRollupService.USER + "7").getEventCount());
+        assertSame(existingHour, find(saved.getValue(), HOUR, AnalyticsRollupService.TOTAL));
+        assertEquals(5L, existingHour.getEventCount());
+        assertEquals(36.0, existingHour.getValueSum());
+        assertEquals(20.0, existingHour.getValueMax());
+        // The watermark stops before the first unsettled event
+        assertEquals(12L, state.getLastEventId());
+        verify(stateRepository).save(state);
+    }
+
+    @Test
+    void compactBatch_leavesWatermarkWhenNothingSettled() {
+        AnalyticsRollupService service = service();
+        AnalyticsRollupState state = new AnalyticsRollupState(1L);
+        state.setLastEventId(10L);
+        when(stateRepository.findForUpdate(1L)).thenReturn(Optional.of(state));
+        when(analyticsDataRepository.findByIdGreaterThanOrderByIdAsc(eq(10L), any()))
+            .thenReturn(List.of(event(11L, 1.0, LocalDateTime.now(), LocalDateTime.now())));
+
+        assertEquals(0, service.compactBatch());
+
+        assertEquals(10L, state.getLastEventId());
+        verify(rollupRepository, never()).saveAll(any());
+        verify(stateRepository, never()).save(any());
+    }
+
+    @Test
+    void summarize_readsExactlyTheRequestedRangeAcrossRawAndRollups() {
+        AnalyticsRollupService service = service();
+        AnalyticsRollupState state = new AnalyticsRollupState(1L);
+        state.setLastEventId(100L);
+        when(stateRepository.findById(1L)).thenReturn(Optional.of(state));
+        // Old enough that minute rollups are purged, recent enough to keep hour rollups
+        LocalDateTime day = DAY.floor(LocalDateTime.now().minusDays(10));
+        LocalDateTime from = day.plusHours(10).plusMinutes(15);
+        LocalDateTime to = day.plusDays(2).plusHours(9).plusMinutes(30);
+        Set<AnalyticsType> types = Set.of(AnalyticsType.USER_ACTIVITY);
+        when(rollupRepository.aggregate(eq(types), any(), any(), any())).thenAnswer(invocation ->
+            invocation.getArgument(1) == DAY
+                ? List.<Object[]>of(new Object[]{AnalyticsType.USER_ACTIVITY, AnalyticsRollupService.TOTAL, 10L, 100.0, 1.0, 20.0})
+                : List.of());
+        when(analyticsDataRepository.findCompacted(eq(100L), eq(types), any(), any())).thenAnswer(invocation ->
+            invocation.getArgument(2).equals(from)
+                ? List.of(event(50L, 5.0, from.plusMinutes(1), from))
+                : List.of());
+        when(analyticsDataRepository.findUncompacted(100L, types, from, to))
+            .thenReturn(List.of(event(101L, 7.0, to.minusMinutes(1), to)));
+
+        RollupSummary summary = service.summarize(types, from, to.minusMinutes(1)).get(AnalyticsType.USER_ACTIVITY);
+
+        assertEquals(12L, summary.getTotal().getCount());
+        assertEquals(112.0, summary.getTotal().getSum());
+        // Purged minute edges come from raw events clipped to the range, never a widened bucket
+        verify(analyticsDataRepository).findCompacted(100L, types, from, day.plusHours(11));
+        verify(analyticsDataRepository).findCompacted(100L, types, to.minusMinutes(30), to);
+        verify(rollupRepository).aggregate(types, HOUR, day.plusHours(11), day.plusDays(1));
+        verify(rollupRepository).aggregate(types, DAY, day.plusDays(1), day.plusDays(2));
+        verify(rollupRepository).aggregate(types, HOUR, day.plusDays(2), day.plusDays(2).plusHours(9));
+        verify(rollupRepository, never()).aggregate(any(), eq(MINUTE), any(), any());
+    }
+
+    @Test
+    void summary_breaksDownByDimension() {
+        RollupSummary summary = new RollupSummary();
+        summary.add(AnalyticsRollupService.TOTAL, 3, 12.0, 1.0, 6.0);
+        summary.add(AnalyticsRollupService.TOTAL, 4.0);
+        summary.add(AnalyticsRollupService.USER + "7", 2, 5.0, 1.0, 4.0);
+        summary.add(AnalyticsRollupService.USER + "9", null);
+        summary.add(AnalyticsRollupService.DOCUMENT + "7", 1.0);
+
+        assertEquals(4, summary.getTotal().getCount());
+        assertEquals(4.0, summary.getTotal().getAverage());
+        assertEquals(6.0, summary.getTotal().getMax());
+        assertEquals(1.0, summary.getTotal().getMin());
+        assertEquals(2, summary.breakdown(AnalyticsRollupService.USER).size());
+        assertEquals(0.0, summary.breakdown(AnalyticsRollupService.USER).get("9").getSum());
+        assertEquals(1, summary.breakdown(AnalyticsRollupService.DOCUMENT).get("7").getCount());
+        assertEquals(0.0, new RollupSummary().getTotal().getMax());
+    }
+
+    private AnalyticsRollupService service() {
+        AnalyticsRollupService service = new AnalyticsRollupService();
+        ReflectionTestUtils.setField(service, "analyticsDataRepository", analyticsDataRepository);
+        ReflectionTestUtils.setField(service, "rollupRepository", rollupRepository);
+        ReflectionTestUtils.setField(service, "stateRepository", stateRepository);
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        ReflectionTestUtils.setField(service, "settleSeconds", 60L);
+        ReflectionTestUtils.setField(service, "minuteRetentionHours", 48L);
+        ReflectionTestUtils.setField(service, "hourRetentionDays", 90L);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        service.init();
+        return service;
+    }
+
+    private static AnalyticsData event(Long id, double value, LocalDateTime timestamp, LocalDateTime createdAt) {
+        AnalyticsData event = new AnalyticsData(AnalyticsType.USER_ACTIVITY, "session", value, timestamp);
+        event.setId(id);
+        event.setCreatedAt(createdAt);
+        return event;
+    }
+
+    private static AnalyticsRollup find(List<AnalyticsRollup> rollups, AnalyticsRollupGranularity granularity,
+                                        String dimension) {
+        return rollups.stream()
+            .filter(r -> r.getGranularity() == granularity && r.getDimension().equals(dimension))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private static LocalDateTime at(int day, int hour, int minute) {
+        return LocalDateTime.of(2026, 1, day, hour, minute);
+    }
+}
@@ -0,0 +1,116 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.AppBudgetLedgerEntry;
+import com.bpdb.dms.entity.AppHeader;
+import com.bpdb.dms.entity.Document;
+import com.bpdb.dms.entity.DocumentMetadata;
+import com.bpdb.dms.entity.Folder;
+import com.bpdb.dms.entity.Workflow;
+import com.bpdb.dms.repository.AppBudgetLedgerEntryRepository;
+import com.bpdb.dms.repository.AppBudgetLedgerRepository;
+import com.bpdb.dms.repository.DocumentMetadataRepository;
+import com.bpdb.dms.repository.WorkflowRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the incremental APP budget ledger hooks
+ */
+@ExtendWith(MockitoExtension.class)
+class AppBudgetLedgerServiceTest {
+
+    @Mock
+    private AppBudgetLedgerRepository appBudgetLedgerRepository;
+
+    @Mock
+    private AppBudgetLedgerEntryRepository appBudgetLedgerEntryRepository;
+
+    @Mock
+    private WorkflowRepository workflowRepository;
+
+    @Mock
+    private DocumentMetadataRepository documentMetadataRepository;
+
+    @InjectMocks
+    private AppBudgetLedgerService appBudgetLedgerService;
+
+    @Test
+    void onBillRelocated_deletedBillLeavesItsLedger() {
+        Document bill = bill(42L);
+        bill.setIsActive(false);
+        bill.setDeletedAt(LocalDateTime.now());
+        AppBudgetLedgerEntry entry = entry(42L, 1L, "100.00");
+        when(appBudgetLedgerEntryRepository.findForUpdate(42L)).thenReturn(Optional.of(entry));
+
+        appBudgetLedgerService.onBillRelocated(bill);
+
+        verify(appBudgetLedgerRepository).addToLedger(eq(1L), eq(new BigDecimal("-100.00")), eq(-1L), any());
+        verify(appBudgetLedgerEntryRepository).delete(entry);
+        verifyNoMoreInteractions(appBudgetLedgerRepository);
+    }
+
+    @Test
+    void onBillRelocated_movedBillSwitchesApp() {
+        Document bill = bill(42L);
+        Folder folder = new Folder();
+        folder.setId(9L);
+        bill.setFolder(folder);
+        AppHeader app = new AppHeader();
+        app.setId(2L);
+        Workflow workflow = new Workflow();
+        workflow.setAppEntry(app);
+        when(workflowRepository.findByFolder(folder)).thenReturn(Optional.of(workflow));
+        DocumentMetadata amount = new DocumentMetadata();
+        amount.setKey("totalAmount");
+        amount.setValue("Tk 250.00");
+        when(documentMetadataRepository.findByDocument(bill)).thenReturn(List.of(amount));
+        when(appBudgetLedgerEntryRepository.findForUpdate(42L)).thenReturn(Optional.of(entry(42L, 1L, "100.00")));
+
+        appBudgetLedgerService.onBillRelocated(bill);
+
+        InOrder order = inOrder(appBudgetLedgerRepository);
+        order.verify(appBudgetLedgerRepository).addToLedger(eq(1L), eq(new BigDecimal("-100.00")), eq(-1L), any());
+        order.verify(appBudgetLedgerRepository).addToLedger(eq(2L), eq(new BigDecimal("250.00")), eq(1L), any());
+        verify(appBudgetLedgerEntryRepository).save(argThat(saved ->
+            saved.getAppHeaderId().equals(2L) && new BigDecimal("250.00").equals(saved.getAmount())));
+    }
+
+    @Test
+    void onBillRelocated_ignoresOtherDocumentTypes() {
+        Document document = bill(42L);
+        document.setDocumentType("LETTER");
+
+        appBudgetLedgerService.onBillRelocated(document);
+
+        verifyNoInteractions(appBudgetLedgerRepository, appBudgetLedgerEntryRepository, documentMetadataRepository);
+    }
+
+    private static Document bill(Long id) {
+        Document document = new Document();
+        document.setId(id);
+        document.setDocumentType("BILL");
+        document.setIsActive(true);
+        return document;
+    }
+
+    private static AppBudgetLedgerEntry entry(Long documentId, Long appHeaderId, String amount) {
+        AppBudgetLedgerEntry entry = new AppBudgetLedgerEntry();
+        entry.setDocumentId(documentId);
+        entry.setAppHeaderId(appHeaderId);
+        entry.setAmount(new BigDecimal(amount));
+        return entry;
+    }
+}
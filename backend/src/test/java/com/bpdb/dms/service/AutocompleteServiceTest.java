@@ -0,0 +1,70 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.DocumentIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Query;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for autocomplete matching and the prefix cache
+ */
+@ExtendWith(MockitoExtension.class)
+class AutocompleteServiceTest {
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private SearchIndexLayoutService searchIndexLayoutService;
+
+    @InjectMocks
+    private AutocompleteService autocompleteService;
+
+    @Test
+    void matches_requiresEveryTokenToStartAWord() {
+        assertTrue(AutocompleteService.matches("Electricity Bill March", List.of("bill", "mar")));
+        assertFalse(AutocompleteService.matches("Electricity Bill March", List.of("ill")));
+        assertTrue(AutocompleteService.matches("Café Invoice", List.of("cafe")));
+        assertEquals("বিদ্যুৎ বিল", AutocompleteService.normalize(" বিদ্যুৎ বিল "));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void suggest_picksMatchingValuesAndCachesThePrefix() {
+        DocumentIndex document = new DocumentIndex();
+        document.setOriginalName("Annual Report 2024.pdf");
+        document.setFileName("a1b2c3.pdf");
+        document.setTags("annual, audit, finance");
+        document.setMetadataFields(Map.of("vendor_name", "Anchor Cables Ltd"));
+        SearchHit<DocumentIndex> hit = mock(SearchHit.class);
+        when(hit.getContent()).thenReturn(document);
+        SearchHits<DocumentIndex> hits = mock(SearchHits.class);
+        when(hits.getSearchHits()).thenReturn(List.of(hit));
+        when(searchIndexLayoutService.readIndex(7L)).thenReturn("documents-tenant-7");
+        when(elasticsearchOperations.search(any(Query.class), eq(DocumentIndex.class), any(IndexCoordinates.class)))
+            .thenReturn(hits);
+
+        List<String> first = autocompleteService.suggest("An", 7L, 10);
+        List<String> second = autocompleteService.suggest("an ", 7L, 10);
+
+        assertEquals(List.of("Annual Report 2024.pdf", "annual", "Anchor Cables Ltd"), first);
+        assertEquals(first, second);
+        verify(elasticsearchOperations, times(1)).search(any(Query.class), eq(DocumentIndex.class), any(IndexCoordinates.class));
+        assertTrue(autocompleteService.suggest("  ", 7L, 10).isEmpty());
+    }
+}
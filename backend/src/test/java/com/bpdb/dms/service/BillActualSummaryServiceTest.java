@@ -0,0 +1,73 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.AppLine;
+import com.bpdb.dms.entity.BillLine;
+import com.bpdb.dms.repository.BillActualSummaryRepository;
+import com.bpdb.dms.repository.BillLineRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the incremental bill actuals summary
+ */
+@ExtendWith(MockitoExtension.class)
+class BillActualSummaryServiceTest {
+
+    @Mock
+    private BillActualSummaryRepository billActualSummaryRepository;
+
+    @Mock
+    private BillLineRepository billLineRepository;
+
+    @InjectMocks
+    private BillActualSummaryService billActualSummaryService;
+
+    @Test
+    void applyBillLines_upsertsOneDeltaPerSummaryRow() {
+        billActualSummaryService.applyBillLines(2025, List.of(
+            line(7L, null, "100.00", "15.00"),
+            line(7L, null, "50.00", null),
+            line(null, "PRJ-1", "20.00", "1.00"),
+            line(null, null, "99.00", null)));
+
+        verify(billActualSummaryRepository).upsertAppLine(eq(2025), eq("A:7"), eq(7L),
+            eq(new BigDecimal("165.00")), eq(2L), any(LocalDateTime.class));
+        verify(billActualSummaryRepository).upsertProject(eq(2025), eq("P:PRJ-1"), eq("PRJ-1"),
+            eq(new BigDecimal("21.00")), eq(1L), any(LocalDateTime.class));
+        verifyNoMoreInteractions(billActualSummaryRepository);
+    }
+
+    @Test
+    void revertBillLines_upsertsNegatedDeltas() {
+        billActualSummaryService.revertBillLines(2025, List.of(line(7L, null, "100.00", "15.00")));
+        billActualSummaryService.revertBillLines(null, List.of(line(7L, null, "1.00", null)));
+
+        verify(billActualSummaryRepository).upsertAppLine(eq(2025), eq("A:7"), eq(7L),
+            eq(new BigDecimal("-115.00")), eq(-1L), any(LocalDateTime.class));
+        verifyNoMoreInteractions(billActualSummaryRepository);
+    }
+
+    static BillLine line(Long appLineId, String projectIdentifier, String amount, String tax) {
+        BillLine line = new BillLine();
+        if (appLineId != null) {
+            AppLine appLine = new AppLine();
+            appLine.setId(appLineId);
+            line.setAppLine(appLine);
+        }
+        line.setProjectIdentifier(projectIdentifier);
+        line.setAmount(new BigDecimal(amount));
+        line.setTaxAmount(tax != null ? new BigDecimal(tax) : null);
+        return line;
+    }
+}
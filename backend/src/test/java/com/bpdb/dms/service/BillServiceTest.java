@@ -4,6 +4,8 @@ import com.bpdb.dms.dto.BillLineRequest;
 import com.bpdb.dms.dto.CreateBillRequest;
 import com.bpdb.dms.entity.AppHeader;
 import com.bpdb.dms.entity.AppLine;
+import com.bpdb.dms.entity.BillHeader;
+import com.bpdb.dms.entity.BillLine;
 import com.bpdb.dms.entity.User;
 import com.bpdb.dms.repository.AppLineRepository;
 import com.bpdb.dms.repository.BillHeaderRepository;
@@ -12,7 +14,9 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -46,6 +50,65 @@ class BillServiceTest {
         Assertions.assertThrows(IllegalArgumentException.class, () -> billService.createBill(req, user));
     }
 
+    @Test
+    void updateBill_revertsOldLinesUnderOldYearThenAppliesNewLines() {
+        BillHeaderRepository billHeaderRepository = Mockito.mock(BillHeaderRepository.class);
+        BillActualSummaryService summaryService = Mockito.mock(BillActualSummaryService.class);
+        BillService billService = new BillService();
+        inject(billService, "billHeaderRepository", billHeaderRepository);
+        inject(billService, "billActualSummaryService", summaryService);
+
+        BillHeader header = new BillHeader();
+        header.setId(5L);
+        header.setFiscalYear(2024);
+        BillLine oldLine = BillActualSummaryServiceTest.line(null, "PRJ-1", "10.00", null);
+        header.getLines().add(oldLine);
+        Mockito.when(billHeaderRepository.findById(5L)).thenReturn(Optional.of(header));
+        // The header's line list is replaced in place, so capture what was reverted at call time
+        List<List<BillLine>> reverted = new ArrayList<>();
+        Mockito.doAnswer(invocation -> reverted.add(new ArrayList<>(invocation.getArgument(1))))
+            .when(summaryService).revertBillLines(Mockito.eq(2024), Mockito.any());
+
+        CreateBillRequest req = new CreateBillRequest();
+        req.fiscalYear = 2025;
+        req.invoiceDate = LocalDate.now();
+        BillLineRequest line = new BillLineRequest();
+        line.projectIdentifier = "PRJ-2";
+        line.amount = new BigDecimal("40.00");
+        req.lines = List.of(line);
+
+        billService.updateBill(5L, req, new User());
+
+        var order = Mockito.inOrder(summaryService);
+        order.verify(summaryService).revertBillLines(Mockito.eq(2024), Mockito.any());
+        order.verify(summaryService).applyBillLines(Mockito.eq(2025), Mockito.argThat(lines ->
+            lines.size() == 1 && "PRJ-2".equals(lines.get(0).getProjectIdentifier())));
+        Assertions.assertEquals(List.of(List.of(oldLine)), reverted);
+        Assertions.assertEquals(1, header.getLines().size());
+        Assertions.assertEquals(2025, header.getFiscalYear());
+    }
+
+    @Test
+    void deleteBill_revertsLinesBeforeDeleting() {
+        BillHeaderRepository billHeaderRepository = Mockito.mock(BillHeaderRepository.class);
+        BillActualSummaryService summaryService = Mockito.mock(BillActualSummaryService.class);
+        BillService billService = new BillService();
+        inject(billService, "billHeaderRepository", billHeaderRepository);
+        inject(billService, "billActualSummaryService", summaryService);
+
+        BillHeader header = new BillHeader();
+        header.setId(5L);
+        header.setFiscalYear(2024);
+        header.getLines().add(BillActualSummaryServiceTest.line(3L, null, "10.00", "1.00"));
+        Mockito.when(billHeaderRepository.findById(5L)).thenReturn(Optional.of(header));
+
+        billService.deleteBill(5L);
+
+        var order = Mockito.inOrder(summaryService, billHeaderRepository);
+        order.verify(summaryService).revertBillLines(2024, header.getLines());
+        order.verify(billHeaderRepository).delete(header);
+    }
+
     private static void inject(Object target, String field, Object value) {
         try {
             var f = BillService.class.getDeclaredField(field);
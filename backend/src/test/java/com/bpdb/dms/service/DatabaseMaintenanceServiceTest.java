@@ -0,0 +1,59 @@
+package com.bpdb.dms.service;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the database maintenance decisions that do not need PostgreSQL
+ */
+class DatabaseMaintenanceServiceTest {
+
+    @Test
+    void hasIndexFor_matchesLeadingColumnsOnly() {
+        List<List<String>> indexes = List.of(List.of("document_id"), List.of("metadata_key"));
+        assertTrue(DatabaseMaintenanceService.hasIndexFor(indexes, List.of("document_id")));
+        assertFalse(DatabaseMaintenanceService.hasIndexFor(indexes, List.of("document_id", "metadata_key")));
+
+        List<List<String>> composite = List.of(List.of("document_id", "metadata_key", "id"));
+        assertTrue(DatabaseMaintenanceService.hasIndexFor(composite, List.of("document_id", "metadata_key")));
+        assertFalse(DatabaseMaintenanceService.hasIndexFor(composite, List.of("metadata_key")));
+    }
+
+    @Test
+    void quote_escapesEmbeddedQuotes() {
+        assertEquals("\"documents\"", DatabaseMaintenanceService.quote("documents"));
+        assertEquals("\"a\"\"; DROP\"", DatabaseMaintenanceService.quote("a\"; DROP"));
+    }
+
+    @Test
+    void isBloated_needsBothCountAndRatio() {
+        DatabaseMaintenanceService service = new DatabaseMaintenanceService();
+
+        assertTrue(service.isBloated(stats(50_000, 20_000)));
+        assertFalse(service.isBloated(stats(10_000_000, 20_000)), "large table, small ratio");
+        assertFalse(service.isBloated(stats(100, 500)), "high ratio, too few dead tuples");
+    }
+
+    @Test
+    void runMaintenance_skipsOtherDatabases() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:maintenance;DB_CLOSE_DELAY=-1");
+        DatabaseMaintenanceService service = new DatabaseMaintenanceService();
+        ReflectionTestUtils.setField(service, "dataSource", dataSource);
+
+        Map<String, Object> report = service.runMaintenance();
+
+        assertEquals("Not a PostgreSQL database", report.get("skipped"));
+        assertTrue(service.recommendations().isEmpty());
+    }
+
+    private static DatabaseMaintenanceService.TableStats stats(long live, long dead) {
+        return new DatabaseMaintenanceService.TableStats("public", "documents", live, dead, 0, 0, 0, 0, null, null);
+    }
+}
@@ -0,0 +1,200 @@
+package com.bpdb.dms.service;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.RangeQuery;
+import com.bpdb.dms.entity.DocumentIndex;
+import com.bpdb.dms.entity.DocumentTypeField;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsImpl;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
+import org.springframework.data.elasticsearch.core.query.highlight.Highlight;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightField;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightParameters;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for typed metadata indexing and the search requests sent to Elasticsearch
+ */
+@ExtendWith(MockitoExtension.class)
+class DocumentIndexingServiceTest {
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private SearchIndexLayoutService searchIndexLayoutService;
+
+    @Mock
+    private DocumentTypeFieldService documentTypeFieldService;
+
+    @InjectMocks
+    private DocumentIndexingService documentIndexingService;
+
+    @Test
+    void normalizeNumber_stripsCurrencyAndGroupingSeparators() {
+        assertEquals("1250.00", DocumentIndexingService.normalizeNumber("Tk 1,250.00"));
+        assertEquals("-42", DocumentIndexingService.normalizeNumber(" -42 "));
+        assertEquals("100000", DocumentIndexingService.normalizeNumber("৳1,00,000"));
+        assertEquals("N/A", DocumentIndexingService.normalizeNumber(" N/A "));
+    }
+
+    @Test
+    void typedMetadata_keepsConfiguredKeysAndNormalizesNumbers() {
+        when(documentTypeFieldService.getFieldsForDocumentType("BILL")).thenReturn(List.of(
+            field("totalAmount", "number"), field("dueDate", "date"), field("vendorName", "text")));
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("totalAmount", "Tk 1,250.00");
+        metadata.put("dueDate", " 2025-01-31 ");
+        metadata.put("vendorName", "  ");
+        metadata.put("remarks", "not configured");
+
+        Map<String, String> typed = ReflectionTestUtils.invokeMethod(documentIndexingService, "typedMetadata", "BILL", metadata);
+
+        assertEquals(Map.of("totalAmount", "1250.00", "dueDate", "2025-01-31"), typed);
+        assertNull(ReflectionTestUtils.invokeMethod(documentIndexingService, "typedMetadata", "BILL", Map.of()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void searchDocuments_filtersMetadataRangesOnTypedSubfields() {
+        when(searchIndexLayoutService.readIndex(7L)).thenReturn("documents-tenant-7");
+        SearchHits<DocumentIndex> hits = mock(SearchHits.class);
+        when(hits.getSearchHits()).thenReturn(List.of());
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(DocumentIndex.class), any(IndexCoordinates.class)))
+            .thenReturn(hits);
+        DocumentIndexingService.SearchFilters filters = new DocumentIndexingService.SearchFilters();
+        filters.setTenantId(7L);
+        filters.setMetadataRanges(List.of(range("totalAmount", "1000", null, false), range("dueDate", "2025-01-01", "2025-01-31", true)));
+
+        documentIndexingService.searchDocuments(null, filters, PageRequest.of(0, 20));
+
+        ArgumentCaptor<NativeQuery> query = ArgumentCaptor.forClass(NativeQuery.class);
+        verify(elasticsearchOperations).search(query.capture(), eq(DocumentIndex.class), eq(IndexCoordinates.of("documents-tenant-7")));
+        List<Query> filterQueries = query.getValue().getQuery().bool().filter();
+        assertEquals(2, filterQueries.size());
+        RangeQuery amount = filterQueries.get(0).range();
+        assertEquals("metadataFields.totalAmount.number", amount.field());
+        assertEquals("1000", amount.gte().to(String.class));
+        assertNull(amount.lte());
+        RangeQuery due = filterQueries.get(1).range();
+        assertEquals("metadataFields.dueDate.date", due.field());
+        assertEquals("2025-01-01", due.gte().to(String.class));
+        assertEquals("2025-01-31", due.lte().to(String.class));
+    }
+
+    @Test
+    void searchDocuments_fetchesResultFieldsAndHighlightsInsteadOfTheText() {
+        ReflectionTestUtils.setField(documentIndexingService, "highlightFragmentSize", 120);
+        ReflectionTestUtils.setField(documentIndexingService, "highlightFragments", 2);
+        when(searchIndexLayoutService.readIndex(null)).thenReturn("documents-all");
+        SearchHit<DocumentIndex> hit = hit(5L, Map.of("extractedText", List.of("annual <mark>transformer</mark> check")));
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(DocumentIndex.class), any(IndexCoordinates.class)))
+            .thenReturn(hits(List.of(hit)));
+
+        DocumentIndexingService.SearchResult result =
+            documentIndexingService.searchDocuments("transformer maintenance", null, PageRequest.of(0, 20));
+
+        ArgumentCaptor<NativeQuery> query = ArgumentCaptor.forClass(NativeQuery.class);
+        verify(elasticsearchOperations).search(query.capture(), eq(DocumentIndex.class), eq(IndexCoordinates.of("documents-all")));
+        SourceFilter source = query.getValue().getSourceFilter();
+        assertTrue(Arrays.asList(source.getIncludes()).containsAll(List.of("documentId", "originalName", "documentType")));
+        assertFalse(Arrays.asList(source.getIncludes()).contains("extractedText"));
+        assertTrue(Arrays.asList(source.getExcludes()).containsAll(List.of("extractedText", "metadata", "metadataFields")));
+
+        Highlight highlight = query.getValue().getHighlightQuery().orElseThrow().getHighlight();
+        HighlightParameters parameters = highlight.getParameters();
+        assertEquals("unified", parameters.getType());
+        assertEquals(120, parameters.getFragmentSize());
+        assertEquals(2, parameters.getNumberOfFragments());
+        assertEquals("html", parameters.getEncoder());
+        assertArrayEquals(new String[] {"<mark>"}, parameters.getPreTags());
+        assertArrayEquals(new String[] {"</mark>"}, parameters.getPostTags());
+        assertEquals(List.of("extractedText", "description", "originalName", "tags"),
+            highlight.getFields().stream().map(HighlightField::getName).toList());
+
+        assertEquals(1, result.getItems().size());
+        assertEquals(List.of("annual <mark>transformer</mark> check"), result.getItems().get(0).getHighlights().get("extractedText"));
+    }
+
+    @Test
+    void searchDocuments_booleanQueryReturnsThePageInCombinedOrder() {
+        when(searchIndexLayoutService.readIndex(null)).thenReturn("documents-all");
+        Map<String, List<Long>> matches = Map.of("alpha", List.of(3L, 1L), "beta", List.of(2L, 1L, 4L), "gamma", List.of(4L));
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(DocumentIndex.class), any(IndexCoordinates.class)))
+            .thenAnswer(invocation -> {
+                NativeQuery nativeQuery = invocation.getArgument(0);
+                if (nativeQuery.getHighlightQuery().isEmpty()) {
+                    // Per-term id lookup
+                    String term = nativeQuery.getQuery().bool().must().get(0).multiMatch().query();
+                    return hits(matches.get(term).stream().map(id -> hit(id, Map.of())).toList());
+                }
+                // The page fetch answers in index order, not in the requested order
+                return hits(List.of(hit(1L, Map.of()), hit(3L, Map.of())));
+            });
+
+        DocumentIndexingService.SearchResult result =
+            documentIndexingService.searchDocuments("alpha OR beta NOT gamma", null, PageRequest.of(0, 2));
+
+        assertEquals(List.of(3L, 1L), result.getItems().stream()
+            .map(DocumentIndexingService.SearchResultItem::getDocumentId).toList());
+        assertEquals(3, result.getTotalHits());
+        assertEquals(2, result.getTotalPages());
+
+        ArgumentCaptor<NativeQuery> queries = ArgumentCaptor.forClass(NativeQuery.class);
+        verify(elasticsearchOperations, times(4)).search(queries.capture(), eq(DocumentIndex.class), any(IndexCoordinates.class));
+        NativeQuery page = queries.getAllValues().get(3);
+        assertEquals(List.of("3", "1"), page.getQuery().bool().filter().get(0).ids().values());
+        assertArrayEquals(new String[] {"documentId"}, queries.getAllValues().get(0).getSourceFilter().getIncludes());
+        assertTrue(Arrays.asList(page.getSourceFilter().getExcludes()).contains("extractedText"));
+    }
+
+    private static SearchHit<DocumentIndex> hit(Long documentId, Map<String, List<String>> highlights) {
+        DocumentIndex document = new DocumentIndex();
+        document.setDocumentId(documentId);
+        return new SearchHit<>("documents-all", documentId.toString(), null, 1.0f, null, highlights,
+            null, null, null, null, document);
+    }
+
+    private static SearchHits<DocumentIndex> hits(List<SearchHit<DocumentIndex>> hits) {
+        return new SearchHitsImpl<>(hits.size(), TotalHitsRelation.EQUAL_TO, 1.0f, null, null, hits, null, null);
+    }
+
+    private static DocumentTypeField field(String key, String type) {
+        DocumentTypeField field = new DocumentTypeField();
+        field.setDocumentType("BILL");
+        field.setFieldKey(key);
+        field.setFieldType(type);
+        return field;
+    }
+
+    private static DocumentIndexingService.MetadataRange range(String key, String from, String to, boolean date) {
+        DocumentIndexingService.MetadataRange range = new DocumentIndexingService.MetadataRange();
+        range.setFieldKey(key);
+        range.setFrom(from);
+        range.setTo(to);
+        range.setDate(date);
+        return range;
+    }
+}
@@ -11,7 +11,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
@@ -54,6 +57,12 @@ class FileUploadServiceTest {
     @Mock
     private WorkflowInstanceRepository workflowInstanceRepository;
 
+    @Mock
+    private TenantUsageService tenantUsageService;
+
+    @Spy
+    private SyncTaskExecutor ocrExecutor = new SyncTaskExecutor();
+
     @InjectMocks
     private FileUploadService fileUploadService;
 
@@ -123,6 +132,58 @@ class FileUploadServiceTest {
         verify(appDocumentService, never()).processAndStoreEntries(any(), any());
     }
 
+    @Test
+    void uploadFile_holdsAdmissionTicketUntilTheOcrTaskFinishes() throws Exception {
+        when(documentRepository.save(any(Document.class))).thenAnswer(invocation -> {
+            Document doc = invocation.getArgument(0);
+            doc.setId(3L);
+            return doc;
+        });
+        AtomicReference<Runnable> queued = new AtomicReference<>();
+        doAnswer(invocation -> {
+            queued.set(invocation.getArgument(0));
+            return null;
+        }).when(ocrExecutor).execute(any(Runnable.class));
+        IngestionAdmissionService admission = singleSlotAdmission();
+
+        var result = fileUploadService.uploadFile(testPdfFile, testUser, "OTHER", "Site inspection note", Map.of(), null,
+            admission.admit(testPdfFile));
+
+        // The upload has returned but its OCR is still queued, so the slot is still taken
+        // and bulk reprocessing already counts it
+        assertTrue(result.isSuccess());
+        assertEquals(1, fileUploadService.getInteractiveProcessingCount());
+        assertThrows(IngestionAdmissionService.AdmissionRejectedException.class, () -> admission.admit(testPdfFile));
+
+        queued.get().run();
+
+        assertEquals(0, fileUploadService.getInteractiveProcessingCount());
+        admission.admit(testPdfFile).close();
+    }
+
+    @Test
+    void uploadFile_undoesTheUploadWhenTheOcrQueueIsFull() throws Exception {
+        AtomicReference<Document> storedDocument = new AtomicReference<>();
+        when(documentRepository.save(any(Document.class))).thenAnswer(invocation -> {
+            Document doc = invocation.getArgument(0);
+            doc.setId(3L);
+            storedDocument.set(doc);
+            return doc;
+        });
+        when(documentRepository.findById(3L)).thenAnswer(invocation -> Optional.of(storedDocument.get()));
+        doThrow(new TaskRejectedException("ocrExecutor is saturated")).when(ocrExecutor).execute(any(Runnable.class));
+        IngestionAdmissionService admission = singleSlotAdmission();
+
+        assertThrows(TaskRejectedException.class, () -> fileUploadService.uploadFile(
+            testPdfFile, testUser, "OTHER", "Site inspection note", Map.of(), null, admission.admit(testPdfFile)));
+
+        // The stored copy is gone so a retry is not refused as a duplicate, and the slot is free again
+        assertFalse(storedDocument.get().getIsActive());
+        assertEquals(0, fileUploadService.getInteractiveProcessingCount());
+        verifyNoInteractions(ocrService);
+        admission.admit(testPdfFile).close();
+    }
+
     @Test
     void uploadFile_InvalidFileType() {
         // Given
@@ -182,4 +243,13 @@ class FileUploadServiceTest {
         assertTrue(result.isSuccess());
         verify(appDocumentService, times(1)).processAndStoreEntries(any(Document.class), eq(testExcelFile));
     }
+
+    private static IngestionAdmissionService singleSlotAdmission() {
+        IngestionAdmissionService admission = new IngestionAdmissionService();
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        ReflectionTestUtils.setField(admission, "maxInFlight", 1);
+        ReflectionTestUtils.setField(admission, "maxWorkUnits", 50.0);
+        ReflectionTestUtils.setField(admission, "maxRetryAfterSeconds", 120);
+        return admission;
+    }
 }
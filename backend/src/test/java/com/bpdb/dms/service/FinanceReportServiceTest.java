@@ -2,12 +2,10 @@ package com.bpdb.dms.service;
 
 import com.bpdb.dms.entity.AppHeader;
 import com.bpdb.dms.entity.AppLine;
-import com.bpdb.dms.entity.BillHeader;
-import com.bpdb.dms.entity.BillLine;
+import com.bpdb.dms.entity.BillActualSummary;
 import com.bpdb.dms.repository.AppHeaderRepository;
 import com.bpdb.dms.repository.AppLineRepository;
-import com.bpdb.dms.repository.BillHeaderRepository;
-import com.bpdb.dms.repository.BillLineRepository;
+import com.bpdb.dms.repository.BillActualSummaryRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -23,14 +21,12 @@ class FinanceReportServiceTest {
     void appVsBillsByYear_calculatesRemainingAndUtilization() {
         AppHeaderRepository appHeaderRepository = Mockito.mock(AppHeaderRepository.class);
         AppLineRepository appLineRepository = Mockito.mock(AppLineRepository.class);
-        BillHeaderRepository billHeaderRepository = Mockito.mock(BillHeaderRepository.class);
-        BillLineRepository billLineRepository = Mockito.mock(BillLineRepository.class);
+        BillActualSummaryRepository billActualSummaryRepository = Mockito.mock(BillActualSummaryRepository.class);
 
         FinanceReportService svc = new FinanceReportService();
         inject(svc, "appHeaderRepository", appHeaderRepository);
         inject(svc, "appLineRepository", appLineRepository);
-        inject(svc, "billHeaderRepository", billHeaderRepository);
-        inject(svc, "billLineRepository", billLineRepository);
+        inject(svc, "billActualSummaryRepository", billActualSummaryRepository);
 
         AppHeader header = new AppHeader();
         header.setFiscalYear(2025);
@@ -45,14 +41,13 @@ class FinanceReportServiceTest {
         header.setLines(List.of(line));
         Mockito.when(appHeaderRepository.findByFiscalYear(2025)).thenReturn(Optional.of(header));
 
-        BillLine bl = new BillLine();
-        BillHeader bh = new BillHeader();
-        bh.setFiscalYear(2025);
-        bl.setHeader(bh);
-        bl.setAppLine(line);
-        bl.setAmount(new BigDecimal("250.00"));
-        bl.setTaxAmount(new BigDecimal("50.00"));
-        Mockito.when(billLineRepository.findAll()).thenReturn(List.of(bl));
+        BillActualSummary summary = new BillActualSummary();
+        summary.setFiscalYear(2025);
+        summary.setSummaryKey(BillActualSummary.keyForAppLine(10L));
+        summary.setAppLineId(10L);
+        summary.setActualAmount(new BigDecimal("300.00"));
+        summary.setLineCount(1L);
+        Mockito.when(billActualSummaryRepository.findByFiscalYear(2025)).thenReturn(List.of(summary));
 
         List<Map<String, Object>> rows = svc.appVsBillsByYear(2025, null, null);
         Assertions.assertEquals(1, rows.size());
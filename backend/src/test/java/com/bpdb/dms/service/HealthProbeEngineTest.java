@@ -0,0 +1,91 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.HealthCheckType;
+import com.bpdb.dms.entity.HealthStatus;
+import com.bpdb.dms.entity.SystemHealthCheck;
+import com.bpdb.dms.service.HealthProbeEngine.ProbeResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the health probe engine
+ */
+class HealthProbeEngineTest {
+
+    private HealthProbeEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new HealthProbeEngine();
+        ReflectionTestUtils.setField(engine, "ioExecutor", new SimpleAsyncTaskExecutor());
+        ReflectionTestUtils.setField(engine, "historySize", 3);
+    }
+
+    @Test
+    void run_readsJvmValuesInCheckOrder() {
+        List<ProbeResult> results = engine.run(List.of(
+            check(1L, HealthCheckType.MEMORY_USAGE),
+            check(2L, HealthCheckType.BACKUP_STATUS)));
+
+        assertEquals(1L, results.get(0).checkId());
+        assertNotEquals(HealthStatus.FAILED, results.get(0).status());
+        assertTrue(results.get(0).value() >= 0 && results.get(0).value() <= 100);
+        assertTrue(results.get(0).data().containsKey("heapUsedBytes"));
+        assertEquals(HealthStatus.UNKNOWN, results.get(1).status());
+    }
+
+    @Test
+    void run_marksRejectedProbesFailed() {
+        ReflectionTestUtils.setField(engine, "ioExecutor", new SimpleAsyncTaskExecutor() {
+            @Override
+            public <T> Future<T> submit(Callable<T> task) {
+                throw new TaskRejectedException("saturated");
+            }
+        });
+
+        ProbeResult result = engine.run(List.of(check(1L, HealthCheckType.CPU_USAGE))).get(0);
+
+        assertEquals(HealthStatus.FAILED, result.status());
+    }
+
+    @Test
+    void due_skipsChecksUntilTheirIntervalElapses() {
+        SystemHealthCheck check = check(1L, HealthCheckType.MEMORY_USAGE);
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(1, engine.due(List.of(check), now).size());
+
+        engine.run(List.of(check));
+
+        assertTrue(engine.due(List.of(check), now).isEmpty());
+        assertEquals(1, engine.due(List.of(check), now.plusSeconds(61)).size());
+    }
+
+    @Test
+    void recentResults_keepsNewestInFixedRing() {
+        for (long id = 1; id <= 5; id++) {
+            engine.run(List.of(check(id, HealthCheckType.CUSTOM_CHECK)));
+        }
+
+        List<ProbeResult> recent = engine.recentResults(null, 10);
+        assertEquals(List.of(5L, 4L, 3L), recent.stream().map(ProbeResult::checkId).toList());
+        assertEquals(1, engine.recentResults(4L, 10).size());
+        assertTrue(engine.recentResults(1L, 10).isEmpty());
+    }
+
+    private static SystemHealthCheck check(Long id, HealthCheckType type) {
+        SystemHealthCheck check = new SystemHealthCheck("check-" + id, type, HealthStatus.UNKNOWN, LocalDateTime.now());
+        check.setId(id);
+        check.setCheckIntervalSeconds(60);
+        return check;
+    }
+}
@@ -0,0 +1,66 @@
+package com.bpdb.dms.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the raster-level OCR image preprocessing
+ */
+class ImagePreprocessorTest {
+
+    @Test
+    void preprocess_binarizesAndDownscales() {
+        BufferedImage page = ImagePreprocessorBenchmark.syntheticPage();
+
+        BufferedImage full = new ImagePreprocessor(300, false, 0).preprocess(page, 300);
+        BufferedImage half = new ImagePreprocessor(300, false, 0).preprocess(page, 600);
+
+        assertEquals(BufferedImage.TYPE_BYTE_BINARY, full.getType());
+        assertEquals(page.getWidth(), full.getWidth());
+        assertEquals(page.getWidth() / 2, half.getWidth());
+        assertEquals(page.getHeight() / 2, half.getHeight());
+        // Paper is white, ink is black
+        assertEquals(0xFFFFFFFF, full.getRGB(5, 5));
+    }
+
+    @Test
+    void estimateSkew_findsAndCorrectsRotation() {
+        ImagePreprocessor.Workspace workspace = new ImagePreprocessor.Workspace();
+        ImagePreprocessor.Gray gray = ImagePreprocessor.toGray(ImagePreprocessorBenchmark.syntheticPage(), workspace);
+        int threshold = ImagePreprocessor.otsuThreshold(gray, workspace);
+
+        double skew = ImagePreprocessor.estimateSkew(gray, threshold, 5);
+        assertEquals(2.0, skew, 0.3);
+
+        ImagePreprocessor.Gray level = ImagePreprocessor.rotate(gray, skew, workspace);
+        assertEquals(0.0, ImagePreprocessor.estimateSkew(level, threshold, 5), 0.3);
+    }
+
+    @Test
+    void toGray_readsSubImagesAtTheirOffset() {
+        for (int type : new int[] {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+                BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB}) {
+            BufferedImage image = new BufferedImage(8, 6, type);
+            for (int y = 0; y < 6; y++) {
+                for (int x = 0; x < 8; x++) {
+                    image.setRGB(x, y, 0xFF000000 | (x * 30) << 16 | (y * 40) << 8 | (x + y) * 10);
+                }
+            }
+            BufferedImage view = image.getSubimage(3, 2, 4, 3);
+            BufferedImage copy = new BufferedImage(4, 3, type);
+            for (int y = 0; y < 3; y++) {
+                for (int x = 0; x < 4; x++) {
+                    copy.setRGB(x, y, view.getRGB(x, y));
+                }
+            }
+
+            byte[] expected = Arrays.copyOf(ImagePreprocessor.toGray(copy, new ImagePreprocessor.Workspace()).pixels(), 12);
+            byte[] actual = Arrays.copyOf(ImagePreprocessor.toGray(view, new ImagePreprocessor.Workspace()).pixels(), 12);
+            assertArrayEquals(expected, actual, "image type " + type);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.service.IngestionAdmissionService.AdmissionRejectedException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for upload admission control
+ */
+class IngestionAdmissionServiceTest {
+
+    private IngestionAdmissionService admissionService;
+
+    @BeforeEach
+    void setUp() {
+        admissionService = new IngestionAdmissionService();
+        ReflectionTestUtils.setField(admissionService, "enabled", true);
+        ReflectionTestUtils.setField(admissionService, "maxInFlight", 2);
+        ReflectionTestUtils.setField(admissionService, "maxWorkUnits", 50.0);
+        ReflectionTestUtils.setField(admissionService, "maxRetryAfterSeconds", 120);
+    }
+
+    @Test
+    void estimateWork_countsPdfPages() throws Exception {
+        assertEquals(12.0, admissionService.estimateWork(pdf("scan.pdf", 12)));
+        assertTrue(admissionService.estimateWork(new MockMultipartFile("file", "a.txt", "text/plain", "text".getBytes())) < 1);
+    }
+
+    @Test
+    void admit_rejectsBeyondConcurrentIngestions() throws Exception {
+        IngestionAdmissionService.Ticket first = admissionService.admit(pdf("a.pdf", 1));
+        IngestionAdmissionService.Ticket second = admissionService.admit(pdf("b.pdf", 1));
+
+        AdmissionRejectedException rejected = assertThrows(AdmissionRejectedException.class,
+            () -> admissionService.admit(pdf("c.pdf", 1)));
+        assertTrue(rejected.getRetryAfterSeconds() >= 1);
+
+        first.close();
+        admissionService.admit(pdf("c.pdf", 1)).close();
+        second.close();
+    }
+
+    @Test
+    void admit_rejectsWhenEstimatedWorkExceedsCapacity() throws Exception {
+        try (IngestionAdmissionService.Ticket big = admissionService.admit(pdf("big.pdf", 45))) {
+            assertThrows(AdmissionRejectedException.class, () -> admissionService.admit(pdf("more.pdf", 10)));
+            admissionService.admit(pdf("small.pdf", 2)).close();
+        }
+        // Oversized documents still run when nothing else is in flight
+        admissionService.admit(pdf("huge.pdf", 80)).close();
+    }
+
+    @Test
+    void queueRejected_answersWithRetryAfterAndTicketClosesOnce() throws Exception {
+        IngestionAdmissionService.Ticket ticket = admissionService.admit(pdf("a.pdf", 1));
+
+        AdmissionRejectedException rejected = admissionService.queueRejected(pdf("a.pdf", 1));
+        assertTrue(rejected.getRetryAfterSeconds() >= 1);
+
+        // Closed by both the request and the OCR task, the slot is only released once
+        ticket.close();
+        ticket.close();
+        IngestionAdmissionService.Ticket first = admissionService.admit(pdf("b.pdf", 1));
+        IngestionAdmissionService.Ticket second = admissionService.admit(pdf("c.pdf", 1));
+        assertThrows(AdmissionRejectedException.class, () -> admissionService.admit(pdf("d.pdf", 1)));
+        first.close();
+        second.close();
+    }
+
+    private static MockMultipartFile pdf(String name, int pages) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            document.save(out);
+            return new MockMultipartFile("file", name, "application/pdf", out.toByteArray());
+        }
+    }
+}
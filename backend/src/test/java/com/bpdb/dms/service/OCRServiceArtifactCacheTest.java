@@ -0,0 +1,130 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.ExtractionArtifact;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests that OCRService reads through the extraction artifact store
+ */
+class OCRServiceArtifactCacheTest {
+
+    private OCRService ocrService;
+    private ExtractionArtifactService extractionArtifactService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ocrService = new OCRService();
+        ReflectionTestUtils.setField(ocrService, "ocrAvailable", true);
+        ReflectionTestUtils.setField(ocrService, "ocrEnabled", true);
+        ReflectionTestUtils.setField(ocrService, "engineVersion", "tesseract-5");
+        ReflectionTestUtils.setField(ocrService, "pageSegMode", 6);
+        ReflectionTestUtils.setField(ocrService, "tesseractLanguage", "eng");
+
+        extractionArtifactService = mock(ExtractionArtifactService.class);
+        when(extractionArtifactService.isEnabled()).thenReturn(true);
+        when(extractionArtifactService.hash(any())).thenReturn("hash-1");
+        ReflectionTestUtils.setField(ocrService, "extractionArtifactService", extractionArtifactService);
+    }
+
+    @Test
+    void extractText_storesArtifactOnMiss() throws Exception {
+        when(extractionArtifactService.find("hash-1", "tesseract-5/psm6", "eng")).thenReturn(Optional.empty());
+        String text = "Invoice No: INV-1 Total Amount: 1,000.00";
+
+        OCRService.OCRResult result = ocrService.extractText(textFile(text));
+
+        assertTrue(result.isSuccess());
+        assertEquals(text, result.getExtractedText());
+        verify(extractionArtifactService).store(eq("hash-1"), eq("tesseract-5/psm6"), eq("eng"), eq(text),
+            anyDouble(), eq(List.of(text)), anyList());
+    }
+
+    @Test
+    void extractText_reusesStoredArtifact() throws Exception {
+        ExtractionArtifact artifact = new ExtractionArtifact();
+        artifact.setExtractedText("Text extracted by an earlier OCR pass");
+        artifact.setPageCount(1);
+        when(extractionArtifactService.find("hash-1", "tesseract-5/psm6", "eng")).thenReturn(Optional.of(artifact));
+
+        OCRService.OCRResult result = ocrService.extractText(textFile("ignored content"));
+
+        assertTrue(result.isSuccess());
+        assertEquals("Text extracted by an earlier OCR pass", result.getExtractedText());
+        assertNotNull(result.getTextFeatures());
+        verify(extractionArtifactService, never()).store(any(), any(), any(), any(), anyDouble(), anyList(), anyList());
+    }
+
+    @Test
+    void extractText_bypassCacheReprocessesAndReplacesArtifact() throws Exception {
+        String text = "Invoice No: INV-2 Total Amount: 2,000.00";
+
+        OCRService.OCRResult result = ocrService.extractText(textFile(text), true);
+
+        assertEquals(text, result.getExtractedText());
+        verify(extractionArtifactService, never()).find(any(), any(), any());
+        verify(extractionArtifactService).replace(eq("hash-1"), eq("tesseract-5/psm6"), eq("eng"), eq(text),
+            anyDouble(), eq(List.of(text)), anyList());
+        verify(extractionArtifactService, never()).store(any(), any(), any(), any(), anyDouble(), anyList(), anyList());
+    }
+
+    @Test
+    void extractText_doesNotStorePartiallyFailedPdf() throws Exception {
+        ReflectionTestUtils.setField(ocrService, "minPageChars", 20);
+        ReflectionTestUtils.setField(ocrService, "minGlyphCoverage", 0.8);
+        ReflectionTestUtils.setField(ocrService, "tesseractBinary", "/nonexistent/tesseract");
+        when(extractionArtifactService.find("hash-1", "tesseract-5/psm6", "eng")).thenReturn(Optional.empty());
+
+        // Page 1 has a text layer; page 2 is a blank scan that no OCR engine can read here
+        OCRService.OCRResult result = ocrService.extractText(
+            new MockMultipartFile("file", "bill.pdf", "application/pdf", pdfWithBlankSecondPage()));
+
+        assertTrue(result.getExtractedText().contains("Invoice No: INV-1"));
+        verify(extractionArtifactService, never()).store(any(), any(), any(), any(), anyDouble(), anyList(), anyList());
+    }
+
+    @Test
+    void hash_streamsContentThroughSha256() throws Exception {
+        ExtractionArtifactService service = new ExtractionArtifactService();
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+            service.hash(textFile("abc")));
+    }
+
+    private static byte[] pdfWithBlankSecondPage() throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(PDType1Font.HELVETICA, 12);
+                content.newLineAtOffset(72, 700);
+                content.showText("Invoice No: INV-1 Total Amount: 1,000.00");
+                content.endText();
+            }
+            document.addPage(new PDPage());
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static MockMultipartFile textFile(String content) {
+        return new MockMultipartFile("file", "bill.txt", "text/plain", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
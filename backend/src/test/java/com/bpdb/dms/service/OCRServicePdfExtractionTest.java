@@ -0,0 +1,73 @@
+package com.bpdb.dms.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for per-page PDF extraction (text layer first, OCR only where missing)
+ */
+class OCRServicePdfExtractionTest {
+
+    private OCRService ocrService;
+
+    @BeforeEach
+    void setUp() {
+        ocrService = new OCRService();
+        ReflectionTestUtils.setField(ocrService, "ocrAvailable", true);
+        ReflectionTestUtils.setField(ocrService, "ocrEnabled", true);
+        ReflectionTestUtils.setField(ocrService, "minPageChars", 20);
+        ReflectionTestUtils.setField(ocrService, "minGlyphCoverage", 0.8);
+    }
+
+    @Test
+    void hasUsableTextLayer_requiresDensityAndMappedGlyphs() {
+        assertTrue(OCRService.hasUsableTextLayer("Letter of Award for Package PD-12 dated 01/02/2024", 20, 0.8));
+        assertFalse(OCRService.hasUsableTextLayer(null, 20, 0.8));
+        assertFalse(OCRService.hasUsableTextLayer("  Page 3 \n", 20, 0.8));
+        assertFalse(OCRService.hasUsableTextLayer("��� ������������� ab", 20, 0.8));
+    }
+
+    @Test
+    void extractText_usesTextLayerPerPage() throws Exception {
+        byte[] pdf = textPdf(
+            "Letter of Award for supply of distribution transformers",
+            "Annex A: technical specification of 33/11 kV substation"
+        );
+
+        OCRService.OCRResult result = ocrService.extractText(
+            new MockMultipartFile("file", "award.pdf", "application/pdf", pdf));
+
+        assertTrue(result.isSuccess());
+        assertTrue(result.getExtractedText().contains("Letter of Award"));
+        assertTrue(result.getExtractedText().contains("Annex A"));
+    }
+
+    private static byte[] textPdf(String... pages) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (String line : pages) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText(line);
+                    content.endText();
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}
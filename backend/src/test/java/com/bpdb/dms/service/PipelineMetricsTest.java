@@ -0,0 +1,46 @@
+package com.bpdb.dms.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the ingestion pipeline meter helpers
+ */
+class PipelineMetricsTest {
+
+    @Test
+    void mimeTag_normalizesAndBoundsCardinality() {
+        assertEquals("application/pdf", PipelineMetrics.mimeTag("Application/PDF; charset=binary"));
+        assertEquals("image/png", PipelineMetrics.mimeTag("image/png"));
+        assertEquals("other", PipelineMetrics.mimeTag("application/x-custom-" + System.nanoTime()));
+        assertEquals("unknown", PipelineMetrics.mimeTag(null));
+    }
+
+    @Test
+    void record_tagsTimerAndPublishesHistogram() {
+        // The simple registry keeps no buckets; Prometheus is what the dashboards read
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+        PipelineMetrics.record(registry, PipelineMetrics.OCR_PAGE, System.nanoTime() - 5_000_000,
+            "mime", "image/png", "engine", "native", "outcome", "success");
+        PipelineMetrics.countBytes(registry, "upload", "image/png", 2048);
+        PipelineMetrics.countBytes(registry, "upload", "image/png", 0);
+
+        Timer timer = registry.get(PipelineMetrics.OCR_PAGE).tag("engine", "native").timer();
+        assertEquals(1, timer.count());
+        assertTrue(registry.scrape().contains("_bucket{"));
+        assertEquals(2048, registry.get(PipelineMetrics.BYTES).tag("stage", "upload").counter().count());
+    }
+
+    @Test
+    void record_ignoresMissingRegistry() {
+        assertDoesNotThrow(() -> {
+            PipelineMetrics.record(null, PipelineMetrics.SEARCH, System.nanoTime(), "operation", "search");
+            PipelineMetrics.countBytes(null, "ocr", "application/pdf", 10);
+        });
+    }
+}
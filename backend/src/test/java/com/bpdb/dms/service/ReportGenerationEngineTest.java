@@ -0,0 +1,59 @@
+package com.bpdb.dms.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the report worker pool's queue bound and request collapsing
+ */
+class ReportGenerationEngineTest {
+
+    @Test
+    void submit_rejectsBeyondQueueCapacityAndSharesInFlightKeys() throws Exception {
+        ReportGenerationEngine engine = new ReportGenerationEngine(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> running = engine.submit("a", ReportGenerationEngine.Priority.INTERACTIVE, () -> {
+                started.countDown();
+                await(release);
+                return "a.pdf";
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            CompletableFuture<String> queued = engine.submit("b", ReportGenerationEngine.Priority.SCHEDULED, () -> "b.pdf");
+            CompletableFuture<String> shared = engine.submit("b", ReportGenerationEngine.Priority.INTERACTIVE, () -> "other");
+            CompletableFuture<String> overflow = engine.submit("c", ReportGenerationEngine.Priority.INTERACTIVE, () -> "c.pdf");
+
+            assertSame(queued, shared);
+            ExecutionException error = assertThrows(ExecutionException.class, overflow::get);
+            assertInstanceOf(RejectedExecutionException.class, error.getCause());
+
+            release.countDown();
+            assertEquals("a.pdf", running.get(5, TimeUnit.SECONDS));
+            assertEquals("b.pdf", queued.get(5, TimeUnit.SECONDS));
+            // The queued job gave its slot back when it started
+            assertEquals("c.pdf", engine.submit("c", ReportGenerationEngine.Priority.INTERACTIVE, () -> "c.pdf")
+                .get(5, TimeUnit.SECONDS));
+            assertEquals(1L, engine.getStatistics().get("rejected"));
+        } finally {
+            release.countDown();
+            engine.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.bpdb.dms.service;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for lease-based job coordination, with two services standing in for two nodes
+ */
+class SchedulerLeaseServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SchedulerLeaseService nodeA;
+    private SchedulerLeaseService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:leases-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE scheduler_leases (job_name VARCHAR(150) PRIMARY KEY, owner VARCHAR(255), " +
+            "fencing_token BIGINT NOT NULL, lease_until TIMESTAMP NOT NULL, acquired_at TIMESTAMP, " +
+            "last_completed_at TIMESTAMP, last_duration_ms BIGINT, last_status VARCHAR(20), " +
+            "last_error VARCHAR(1000), run_count BIGINT NOT NULL)");
+        nodeA = node("node-a");
+        nodeB = node("node-b");
+    }
+
+    @Test
+    void runExclusively_skipsWhileAnotherNodeHoldsTheLease() {
+        AtomicInteger runs = new AtomicInteger();
+
+        assertTrue(nodeA.runExclusively("job", Duration.ofMinutes(5), Duration.ofMinutes(1), runs::incrementAndGet));
+        assertFalse(nodeB.runExclusively("job", Duration.ofMinutes(5), Duration.ofMinutes(1), runs::incrementAndGet));
+        assertFalse(nodeA.runExclusively("job", Duration.ofMinutes(5), Duration.ofMinutes(1), runs::incrementAndGet));
+
+        assertEquals(1, runs.get());
+        assertEquals("SUCCEEDED", jdbcTemplate.queryForObject(
+            "SELECT last_status FROM scheduler_leases WHERE job_name = 'job'", String.class));
+    }
+
+    @Test
+    void runExclusively_bumpsFencingTokenOnEveryAcquisition() {
+        AtomicInteger runs = new AtomicInteger();
+
+        nodeA.runExclusively("job", Duration.ofMinutes(5), Duration.ZERO, runs::incrementAndGet);
+        nodeB.runExclusively("job", Duration.ofMinutes(5), Duration.ZERO,
+            () -> assertEquals(2L, SchedulerLeaseService.currentLease().orElseThrow().fencingToken()));
+
+        assertEquals(1, runs.get());
+        assertEquals("node-b", jdbcTemplate.queryForObject(
+            "SELECT owner FROM scheduler_leases WHERE job_name = 'job'", String.class));
+        assertTrue(SchedulerLeaseService.currentLease().isEmpty());
+    }
+
+    @Test
+    void release_failsForAStaleFencingToken() {
+        Optional<SchedulerLeaseService.Lease> stale = nodeA.tryAcquire("job", Duration.ZERO);
+        assertTrue(stale.isPresent());
+        Optional<SchedulerLeaseService.Lease> current = nodeB.tryAcquire("job", Duration.ofMinutes(5));
+        assertTrue(current.isPresent());
+
+        assertFalse(nodeA.release(stale.get(), Duration.ZERO, "SUCCEEDED", null, 10));
+        assertTrue(nodeB.release(current.get(), Duration.ZERO, "SUCCEEDED", null, 10));
+    }
+
+    @Test
+    void runExclusively_recordsFailureAndRethrows() {
+        assertThrows(IllegalStateException.class, () -> nodeA.runExclusively("job", Duration.ofMinutes(5), Duration.ZERO,
+            () -> { throw new IllegalStateException("boom"); }));
+
+        assertEquals("boom", jdbcTemplate.queryForObject(
+            "SELECT last_error FROM scheduler_leases WHERE job_name = 'job'", String.class));
+        assertTrue(nodeB.runExclusively("job", Duration.ofMinutes(5), Duration.ZERO, () -> { }));
+    }
+
+    private SchedulerLeaseService node(String nodeId) {
+        SchedulerLeaseService service = new SchedulerLeaseService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "nodeId", nodeId);
+        return service;
+    }
+}
@@ -0,0 +1,187 @@
+package com.bpdb.dms.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryRequest;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
+import co.elastic.clients.elasticsearch.core.ReindexRequest;
+import co.elastic.clients.elasticsearch.core.ReindexResponse;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.ExistsAliasRequest;
+import co.elastic.clients.elasticsearch.indices.GetAliasRequest;
+import co.elastic.clients.elasticsearch.indices.GetAliasResponse;
+import co.elastic.clients.elasticsearch.indices.UpdateAliasesRequest;
+import co.elastic.clients.elasticsearch.indices.UpdateAliasesResponse;
+import co.elastic.clients.elasticsearch.indices.update_aliases.AddAction;
+import co.elastic.clients.json.JsonData;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+import com.bpdb.dms.entity.DocumentIndex;
+import com.bpdb.dms.entity.Tenant;
+import com.bpdb.dms.entity.TenantPlan;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.index.Settings;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the tenant index layout decisions
+ */
+class SearchIndexLayoutServiceTest {
+
+    @Test
+    void needsDedicatedIndex_bySizeOrPin() {
+        Tenant small = tenant(1L, 10L);
+        Tenant large = tenant(2L, 300_000L);
+        Tenant uncounted = tenant(3L, null);
+
+        assertFalse(SearchIndexLayoutService.needsDedicatedIndex(small, 250_000, Set.of()));
+        assertTrue(SearchIndexLayoutService.needsDedicatedIndex(large, 250_000, Set.of()));
+        assertTrue(SearchIndexLayoutService.needsDedicatedIndex(small, 250_000, Set.of(1L)), "noisy tenant pinned");
+        assertFalse(SearchIndexLayoutService.needsDedicatedIndex(uncounted, 250_000, Set.of()));
+        assertFalse(SearchIndexLayoutService.needsDedicatedIndex(large, 0, Set.of()), "threshold disabled");
+    }
+
+    @Test
+    void tenantlessDocuments_useSharedIndexAndCrossTenantAlias() {
+        SearchIndexLayoutService service = new SearchIndexLayoutService();
+        ReflectionTestUtils.setField(service, "sharedIndexReady", true);
+
+        assertEquals("documents", service.writeIndex(null));
+        assertEquals("documents-all", service.readIndex(null));
+        assertEquals("documents-tenant-7", SearchIndexLayoutService.tenantAlias(7L));
+    }
+
+    @Test
+    void sharedIndex_recognisesVersionedAndPreAliasNames() {
+        assertTrue(SearchIndexLayoutService.isSharedIndex("documents"));
+        assertTrue(SearchIndexLayoutService.isSharedIndex("documents-shared-v2"));
+        assertFalse(SearchIndexLayoutService.isSharedIndex("documents-tenant-7-v2"));
+    }
+
+    @Test
+    void mappingVersion_defaultsToOneWithoutMeta() {
+        assertEquals(1, SearchIndexLayoutService.mappingVersion(null));
+        assertEquals(1, SearchIndexLayoutService.mappingVersion(Map.of()));
+        assertEquals(2, SearchIndexLayoutService.mappingVersion(Map.of("version", 2)));
+        assertEquals(3, SearchIndexLayoutService.mappingVersion(Map.of("version", JsonData.of(3))));
+    }
+
+    @Test
+    void writeIndex_createsTheRoutedTenantAliasOnce() throws Exception {
+        Cluster cluster = new Cluster();
+        when(cluster.indices.existsAlias(any(ExistsAliasRequest.class))).thenAnswer(invocation ->
+            new BooleanResponse(invocation.<ExistsAliasRequest>getArgument(0).name().contains("documents")));
+        when(cluster.indices.getAlias(any(GetAliasRequest.class))).thenReturn(aliasesOf("documents-shared-v2"));
+
+        assertEquals("documents-tenant-7", cluster.service.writeIndex(7L));
+        assertEquals("documents-tenant-7", cluster.service.readIndex(7L));
+
+        ArgumentCaptor<UpdateAliasesRequest> update = ArgumentCaptor.forClass(UpdateAliasesRequest.class);
+        verify(cluster.indices, times(1)).updateAliases(update.capture());
+        AddAction add = update.getValue().actions().get(0).add();
+        assertEquals("documents-shared-v2", add.index());
+        assertEquals("documents-tenant-7", add.alias());
+        assertEquals("7", add.routing());
+        assertEquals("tenantId", add.filter().term().field());
+        assertEquals(7L, add.filter().term().value().longValue());
+    }
+
+    @Test
+    void isolateTenant_catchesUpBeforeTheSwapWithoutOverwritingNewerDocuments() throws Exception {
+        Cluster cluster = new Cluster();
+        when(cluster.indices.existsAlias(any(ExistsAliasRequest.class))).thenReturn(new BooleanResponse(true));
+        when(cluster.indices.getAlias(any(GetAliasRequest.class))).thenReturn(aliasesOf("documents-shared-v2"));
+        when(cluster.indices.updateAliases(any(UpdateAliasesRequest.class)))
+            .thenReturn(UpdateAliasesResponse.of(r -> r.acknowledged(true)));
+        when(cluster.client.reindex(any(ReindexRequest.class))).thenReturn(mock(ReindexResponse.class));
+        when(cluster.client.deleteByQuery(any(DeleteByQueryRequest.class))).thenReturn(mock(DeleteByQueryResponse.class));
+
+        Map<String, Object> report = cluster.service.isolateTenant(7L);
+
+        assertEquals("documents-tenant-7-v2", report.get("index"));
+        ArgumentCaptor<ReindexRequest> copies = ArgumentCaptor.forClass(ReindexRequest.class);
+        ArgumentCaptor<UpdateAliasesRequest> swap = ArgumentCaptor.forClass(UpdateAliasesRequest.class);
+        InOrder order = inOrder(cluster.client, cluster.indices);
+        order.verify(cluster.client, calls(2)).reindex(copies.capture());
+        order.verify(cluster.indices).updateAliases(swap.capture());
+        order.verify(cluster.client).reindex(copies.capture());
+        order.verify(cluster.client).deleteByQuery(any(DeleteByQueryRequest.class));
+
+        List<ReindexRequest> requests = copies.getAllValues();
+        assertEquals(3, requests.size());
+        for (ReindexRequest request : requests) {
+            assertEquals("documents-shared-v2", request.source().index().get(0));
+            assertEquals("documents-tenant-7-v2", request.dest().index());
+            assertEquals(VersionType.External, request.dest().versionType());
+            assertTrue(request.script().inline().source().contains("ctx._id = String.valueOf(ctx._source.documentId)"));
+        }
+        assertTrue(requests.get(0).source().query().isTerm(), "full copy");
+        assertTrue(requests.get(1).source().query().isBool(), "catch-up before the swap");
+        assertTrue(requests.get(2).source().query().isBool(), "catch-up after the swap");
+
+        List<String> moved = swap.getValue().actions().stream()
+            .map(action -> action.isAdd() ? "add " + action.add().alias() : "remove " + action.remove().alias())
+            .toList();
+        assertEquals(List.of("remove documents-tenant-7", "add documents-tenant-7", "add documents-all"), moved);
+        verify(cluster.targetOps).create(any(Settings.class), any(Document.class));
+    }
+
+    private static GetAliasResponse aliasesOf(String index) {
+        return GetAliasResponse.of(r -> r.result(index, a -> a.aliases(Map.of())));
+    }
+
+    /**
+     * A layout service over mocked Elasticsearch clients. The builder-lambda overloads of the
+     * client are final and delegate to the request overloads, so tests stub and capture those.
+     */
+    private static class Cluster {
+
+        private static final Answer<Object> REQUEST_OVERLOADS = invocation ->
+            Modifier.isFinal(invocation.getMethod().getModifiers())
+                ? invocation.callRealMethod() : RETURNS_DEFAULTS.answer(invocation);
+
+        final ElasticsearchClient client = mock(ElasticsearchClient.class, REQUEST_OVERLOADS);
+        final ElasticsearchIndicesClient indices = mock(ElasticsearchIndicesClient.class, REQUEST_OVERLOADS);
+        final ElasticsearchOperations operations = mock(ElasticsearchOperations.class);
+        final IndexOperations targetOps = mock(IndexOperations.class);
+        final DocumentTypeFieldService fields = mock(DocumentTypeFieldService.class);
+        final SearchIndexLayoutService service = new SearchIndexLayoutService();
+
+        Cluster() {
+            IndexOperations entityOps = mock(IndexOperations.class);
+            when(entityOps.createMapping()).thenReturn(Document.from(Map.of("_meta", Map.of("version", 2))));
+            when(entityOps.createSettings()).thenReturn(new Settings());
+            when(operations.indexOps(DocumentIndex.class)).thenReturn(entityOps);
+            when(operations.indexOps(any(IndexCoordinates.class))).thenReturn(targetOps);
+            when(client.indices()).thenReturn(indices);
+            when(fields.getActiveFieldTypesByDocumentType()).thenReturn(Map.of("BILL", Map.of("totalAmount", "number")));
+            ReflectionTestUtils.setField(service, "elasticsearchClient", client);
+            ReflectionTestUtils.setField(service, "elasticsearchOperations", operations);
+            ReflectionTestUtils.setField(service, "documentTypeFieldService", fields);
+            ReflectionTestUtils.setField(service, "dedicatedShards", 1);
+            ReflectionTestUtils.setField(service, "sharedIndexReady", true);
+        }
+    }
+
+    private static Tenant tenant(Long id, Long documents) {
+        Tenant tenant = new Tenant("Tenant " + id, "T" + id, TenantPlan.BASIC);
+        tenant.setId(id);
+        tenant.setCurrentDocuments(documents);
+        return tenant;
+    }
+}
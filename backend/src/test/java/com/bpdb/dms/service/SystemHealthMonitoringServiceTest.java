@@ -0,0 +1,90 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.HealthCheckType;
+import com.bpdb.dms.entity.HealthStatus;
+import com.bpdb.dms.entity.SystemHealthCheck;
+import com.bpdb.dms.repository.SystemHealthCheckRepository;
+import com.bpdb.dms.service.HealthProbeEngine.ProbeResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for persisting health check runs
+ */
+@ExtendWith(MockitoExtension.class)
+class SystemHealthMonitoringServiceTest {
+
+    @Mock
+    private SystemHealthCheckRepository systemHealthCheckRepository;
+
+    @Mock
+    private AuditService auditService;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private HealthProbeEngine healthProbeEngine;
+
+    @InjectMocks
+    private SystemHealthMonitoringService systemHealthMonitoringService;
+
+    @Test
+    void retryFailedHealthChecks_stopsAfterMaxRetries() {
+        SystemHealthCheck check = check(HealthStatus.FAILED);
+        // Mirrors the repository query: failed checks still under their retry limit
+        when(systemHealthCheckRepository.findFailedHealthChecks()).thenAnswer(invocation ->
+            check.getStatus() == HealthStatus.FAILED && check.getRetryCount() < check.getMaxRetries()
+                ? List.of(check) : List.of());
+        when(healthProbeEngine.run(anyList())).thenAnswer(invocation -> List.of(result(HealthStatus.FAILED)));
+
+        for (int run = 0; run < 5; run++) {
+            systemHealthMonitoringService.retryFailedHealthChecks();
+        }
+
+        assertEquals(3, check.getRetryCount());
+        verify(healthProbeEngine, times(3)).run(anyList());
+        verify(systemHealthCheckRepository, times(3)).save(check);
+        // Still failed, so no new alert
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void executeDueHealthChecks_skipsWritesWhenNothingChanged() {
+        SystemHealthCheck check = check(HealthStatus.HEALTHY);
+        when(systemHealthCheckRepository.findByIsEnabledTrue()).thenReturn(List.of(check));
+        when(healthProbeEngine.due(anyList(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(healthProbeEngine.run(anyList())).thenReturn(List.of(result(HealthStatus.HEALTHY)));
+
+        systemHealthMonitoringService.executeDueHealthChecks();
+
+        verify(systemHealthCheckRepository, never()).save(any());
+    }
+
+    private static SystemHealthCheck check(HealthStatus status) {
+        SystemHealthCheck check = new SystemHealthCheck();
+        check.setId(1L);
+        check.setCheckName("database");
+        check.setCheckType(HealthCheckType.DATABASE_CONNECTION);
+        check.setStatus(status);
+        check.setRetryCount(0);
+        check.setMaxRetries(3);
+        return check;
+    }
+
+    private static ProbeResult result(HealthStatus status) {
+        return new ProbeResult(1L, "database", HealthCheckType.DATABASE_CONNECTION, "db", status, null, 5L,
+            status == HealthStatus.HEALTHY ? "ok" : "connection refused", Map.of(), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,110 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.entity.Document;
+import com.bpdb.dms.entity.Tenant;
+import com.bpdb.dms.entity.TenantPlan;
+import com.bpdb.dms.entity.TenantStatus;
+import com.bpdb.dms.repository.DocumentRepository;
+import com.bpdb.dms.repository.TenantRepository;
+import com.bpdb.dms.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for tenant usage counters and their reconciliation
+ */
+@ExtendWith(MockitoExtension.class)
+class TenantUsageServiceTest {
+
+    @Mock
+    private TenantRepository tenantRepository;
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private TenantUsageService tenantUsageService;
+
+    @Test
+    void checkUploadAllowed_readsCountersAgainstQuota() {
+        Tenant tenant = tenant(7L);
+        tenant.setMaxStorageGb(1L);
+        tenant.setCurrentStorageBytes(1024L * 1024 * 1024 - 100);
+        when(tenantRepository.findById(7L)).thenReturn(Optional.of(tenant));
+
+        assertNull(tenantUsageService.checkUploadAllowed(7L, 100));
+        assertNotNull(tenantUsageService.checkUploadAllowed(7L, 101));
+        assertNull(tenantUsageService.checkUploadAllowed(null, Long.MAX_VALUE));
+
+        tenant.setStatus(TenantStatus.SUSPENDED);
+        assertNotNull(tenantUsageService.checkUploadAllowed(7L, 1));
+    }
+
+    @Test
+    void documentEvents_incrementInPlace() {
+        Document document = new Document();
+        document.setTenantId(7L);
+        document.setFileSize(2048L);
+
+        tenantUsageService.documentAdded(document);
+        tenantUsageService.documentRemoved(document);
+        tenantUsageService.documentResized(document, 1000L);
+        document.setTenantId(null);
+        tenantUsageService.documentAdded(document);
+
+        verify(tenantRepository).addDocumentUsage(7L, 1, 2048L);
+        verify(tenantRepository).addDocumentUsage(7L, -1, -2048L);
+        verify(tenantRepository).addDocumentUsage(7L, 0, 1048L);
+        verifyNoMoreInteractions(tenantRepository);
+    }
+
+    @Test
+    void reconcileUsage_correctsDriftAndRollsOcrMonth() {
+        Tenant drifted = tenant(1L);
+        drifted.setCurrentDocuments(9L);
+        drifted.setCurrentStorageBytes(1L);
+        drifted.setCurrentUsers(4);
+        drifted.setOcrPagesMonth(500L);
+        drifted.setOcrPagesPeriod(LocalDate.now().withDayOfMonth(1).minusMonths(1));
+        Tenant empty = tenant(2L);
+        empty.setCurrentDocuments(3L);
+        when(tenantRepository.findAllForUpdate()).thenReturn(List.of(drifted, empty));
+        when(documentRepository.summarizeActiveDocumentsByTenant())
+            .thenReturn(List.<Object[]>of(new Object[] {1L, 10L, 5000L}));
+        when(userRepository.countActiveUsersByTenant()).thenReturn(List.<Object[]>of(new Object[] {1L, 3L}));
+
+        tenantUsageService.reconcileUsage();
+
+        InOrder order = inOrder(tenantRepository, documentRepository, userRepository);
+        order.verify(tenantRepository).findAllForUpdate();
+        order.verify(documentRepository).summarizeActiveDocumentsByTenant();
+        order.verify(userRepository).countActiveUsersByTenant();
+        assertEquals(10L, drifted.getCurrentDocuments());
+        assertEquals(5000L, drifted.getCurrentStorageBytes());
+        assertEquals(3, drifted.getCurrentUsers());
+        assertEquals(0L, drifted.getOcrPagesMonth());
+        assertEquals(LocalDate.now().withDayOfMonth(1), drifted.getOcrPagesPeriod());
+        assertEquals(0L, empty.getCurrentDocuments());
+        assertNotNull(empty.getUsageReconciledAt());
+    }
+
+    private static Tenant tenant(Long id) {
+        Tenant tenant = new Tenant("Tenant " + id, "T" + id, TenantPlan.BASIC);
+        tenant.setId(id);
+        return tenant;
+    }
+}
@@ -0,0 +1,161 @@
+package com.bpdb.dms.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the Tesseract worker pool: engine reuse, timeouts, stuck workers and restart on crash
+ */
+class TesseractWorkerPoolTest {
+
+    private static final BufferedImage PAGE = new BufferedImage(10, 10, BufferedImage.TYPE_BYTE_GRAY);
+
+    private TesseractWorkerPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void submit_reusesEnginesAcrossPages() {
+        AtomicInteger created = new AtomicInteger();
+        pool = new TesseractWorkerPool(2, 5_000, 60_000, () -> {
+            created.incrementAndGet();
+            return engine(image -> "text");
+        });
+        pool.start();
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("text", pool.submit(PAGE).join());
+        }
+
+        assertEquals(2, created.get());
+        assertEquals(20L, pool.getStats().get("completed"));
+    }
+
+    @Test
+    void submit_replacesWorkerThatTimesOut() throws Exception {
+        CountDownLatch hang = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        pool = new TesseractWorkerPool(1, 300, 60_000, 2, () -> {
+            created.incrementAndGet();
+            return engine(image -> {
+                // Probe (first call per engine) passes; the first real page hangs
+                if (image == PAGE && calls.incrementAndGet() == 1) {
+                    hang.await(5, TimeUnit.SECONDS);
+                }
+                return "text";
+            });
+        });
+        pool.start();
+
+        CompletionException timeout = assertThrows(CompletionException.class, () -> pool.submit(PAGE).join());
+        assertInstanceOf(TimeoutException.class, timeout.getCause());
+
+        assertEquals("text", pool.submit(PAGE).join());
+        assertEquals(2, created.get());
+        assertEquals(1L, pool.getStats().get("restarts"));
+        hang.countDown();
+    }
+
+    @Test
+    void submit_stopsSpawningPastTheStuckLimitUntilTheHungCallReturns() throws Exception {
+        CountDownLatch hang = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        pool = new TesseractWorkerPool(1, 300, 60_000, 1, () -> {
+            created.incrementAndGet();
+            return engine(image -> {
+                if (image == PAGE && calls.incrementAndGet() == 1) {
+                    hang.await(5, TimeUnit.SECONDS);
+                }
+                return "text";
+            });
+        });
+        pool.start();
+
+        CompletionException timeout = assertThrows(CompletionException.class, () -> pool.submit(PAGE).join());
+        assertInstanceOf(TimeoutException.class, timeout.getCause());
+
+        // The hung engine still holds its thread: no new engine, and callers are sent elsewhere
+        assertFalse(pool.isHealthy());
+        assertEquals(1, pool.getStats().get("stuck"));
+        CompletionException unavailable = assertThrows(CompletionException.class, () -> pool.submit(PAGE).join());
+        assertInstanceOf(IllegalStateException.class, unavailable.getCause());
+        assertEquals(1, created.get());
+
+        // Once the native call returns the engine is freed and replaced
+        hang.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!pool.isHealthy() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("text", pool.submit(PAGE).join());
+        assertEquals(0, pool.getStats().get("stuck"));
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void submit_replacesWorkerAfterNativeError() {
+        AtomicInteger created = new AtomicInteger();
+        pool = new TesseractWorkerPool(1, 5_000, 60_000, () -> {
+            int generation = created.incrementAndGet();
+            return engine(image -> {
+                if (image == PAGE && generation == 1) {
+                    throw new UnsatisfiedLinkError("libtesseract crashed");
+                }
+                return "text";
+            });
+        });
+        pool.start();
+
+        assertThrows(CompletionException.class, () -> pool.submit(PAGE).join());
+        assertEquals("text", pool.submit(PAGE).join());
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void pool_isUnhealthyWhenNoEngineStarts() throws Exception {
+        pool = new TesseractWorkerPool(1, 1_000, 60_000, () -> {
+            throw new IllegalStateException("no traineddata");
+        });
+        pool.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.isHealthy() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(pool.isHealthy());
+        assertThrows(CompletionException.class, () -> pool.submit(PAGE).join());
+    }
+
+    private interface Ocr {
+        String apply(BufferedImage image) throws Exception;
+    }
+
+    private static TesseractWorkerPool.Engine engine(Ocr ocr) {
+        return new TesseractWorkerPool.Engine() {
+            @Override
+            public String ocr(BufferedImage image) throws Exception {
+                return ocr.apply(image);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
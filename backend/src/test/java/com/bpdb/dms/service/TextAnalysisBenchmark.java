@@ -0,0 +1,121 @@
+package com.bpdb.dms.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the single-pass text analysis stage against the previous approach of
+ * scanning the text once per classification keyword and once per extraction pattern,
+ * over 200 pages of synthetic OCR output.
+ * Not a unit test; run with main() from the test classpath.
+ *
+ * Reference run (JDK 21, 1 vCPU, 1 thread):
+ *   perPatternScan                       ~750 ms/op
+ *   singlePass                            ~34 ms/op
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextAnalysisBenchmark {
+
+    static final int PAGES = 200;
+
+    private TextAnalysisService textAnalysisService;
+    private String ocrText;
+    private List<String> keywords;
+    private List<TextRule> rules;
+
+    @Setup
+    public void setUp() {
+        textAnalysisService = new TextAnalysisService();
+        ocrText = syntheticOcrText(PAGES);
+        keywords = DocumentClassificationService.classificationKeywords();
+        rules = allRules();
+    }
+
+    @Benchmark
+    public int perPatternScan() {
+        String lower = ocrText.toLowerCase();
+        int found = 0;
+        for (String keyword : keywords) {
+            if (lower.contains(keyword)) {
+                found++;
+            }
+        }
+        for (TextRule rule : rules) {
+            if (rule.getPattern().matcher(ocrText).find()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int singlePass() {
+        TextFeatures features = textAnalysisService.analyze(ocrText);
+        int found = 0;
+        for (String keyword : keywords) {
+            if (features.contains(keyword)) {
+                found++;
+            }
+        }
+        for (TextRule rule : rules) {
+            if (features.find(rule).isPresent()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    static List<TextRule> allRules() {
+        List<TextRule> rules = new ArrayList<>();
+        rules.addAll(DocumentClassificationService.textRules());
+        rules.addAll(DocumentMetadataService.textRules());
+        rules.addAll(BillOCRService.textRules());
+        rules.addAll(OCRService.textRules());
+        return rules;
+    }
+
+    /**
+     * OCR-like invoice pages: mostly filler with a few labelled fields on the last page
+     */
+    static String syntheticOcrText(int pages) {
+        StringBuilder text = new StringBuilder();
+        for (int page = 1; page <= pages; page++) {
+            text.append("Page ").append(page).append(" of ").append(pages).append('\n');
+            for (int line = 0; line < 40; line++) {
+                text.append("Item ").append(line).append(" supplied to the power distribution division, ")
+                    .append("quantity ").append(line * 3).append(" units at the agreed rate\n");
+            }
+        }
+        text.append("TAX INVOICE\n")
+            .append("Invoice No: INV-2025/0042\n")
+            .append("Invoice Date: 15/01/2025\n")
+            .append("Vendor: Acme Engineering Limited\n")
+            .append("Total Amount: BDT 1,250,000.00\n")
+            .append("VAT: 62,500.00\n");
+        return text.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TextAnalysisBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,69 @@
+package com.bpdb.dms.service;
+
+import com.bpdb.dms.model.DocumentType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the single-pass text analysis stage; throughput is measured by TextAnalysisBenchmark
+ */
+class TextAnalysisServiceTest {
+
+    private static TextAnalysisService textAnalysisService;
+    private static String ocrText;
+
+    @BeforeAll
+    static void setUp() {
+        textAnalysisService = new TextAnalysisService();
+        ocrText = TextAnalysisBenchmark.syntheticOcrText(TextAnalysisBenchmark.PAGES);
+    }
+
+    @Test
+    void automaton_reportsOverlappingKeywords() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("he", "she", "his", "hers"));
+        List<String> hits = new ArrayList<>();
+        automaton.scan("ushers", (k, start) -> hits.add(k + "@" + start));
+
+        // she@1, he@2, hers@2
+        assertEquals(List.of("1@1", "0@2", "3@2"), hits);
+    }
+
+    @Test
+    void anchoredRules_matchSameAsFullScan() {
+        TextFeatures features = textAnalysisService.analyze(ocrText);
+
+        for (TextRule rule : TextAnalysisBenchmark.allRules()) {
+            Matcher expected = rule.getPattern().matcher(ocrText);
+            Optional<MatchResult> actual = features.find(rule);
+            if (expected.find()) {
+                assertTrue(actual.isPresent(), "Expected a match for " + rule);
+                assertEquals(expected.start(), actual.get().start(), "Match start for " + rule);
+                assertEquals(expected.group(), actual.get().group(), "Match text for " + rule);
+            } else {
+                assertFalse(actual.isPresent(), "Unexpected match for " + rule);
+            }
+        }
+    }
+
+    @Test
+    void classify_usesSharedFeatures() {
+        DocumentClassificationService classificationService = new DocumentClassificationService();
+        TextFeatures features = textAnalysisService.analyze(ocrText);
+
+        DocumentClassificationService.ClassificationResult fromFeatures = classificationService.classifyFeatures(features, "scan.pdf");
+        DocumentClassificationService.ClassificationResult fromText = classificationService.classify(ocrText, "scan.pdf");
+
+        assertEquals(DocumentType.BILL, fromFeatures.getDocumentType());
+        assertEquals(fromText.getAllScores(), fromFeatures.getAllScores());
+    }
+}